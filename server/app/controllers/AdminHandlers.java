@@ -25,21 +25,32 @@ package controllers;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.typesafe.config.ConfigRenderOptions;
+import org.grouplens.samantha.modeler.model.SpaceModel;
+import org.grouplens.samantha.server.common.InstrumentationUtilities;
 import org.grouplens.samantha.server.common.JsonHelpers;
+import org.grouplens.samantha.server.common.ModelService;
 import org.grouplens.samantha.server.config.ConfigKey;
 import org.grouplens.samantha.server.config.SamanthaConfigService;
+import org.grouplens.samantha.server.indexer.FileWriterService;
 import play.Configuration;
 import play.libs.Json;
 import play.mvc.Controller;
 import play.mvc.Result;
 
 import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Configuration administration handlers.
  */
 public class AdminHandlers extends Controller {
     private final SamanthaConfigService samanthaConfigService;
+    private final ModelService modelService;
+    private final FileWriterService fileWriterService;
 
     /**
      * Constructor of AdminHandler.
@@ -48,10 +59,16 @@ public class AdminHandlers extends Controller {
      * whenever relevant request urls come.
      *
      * @param samanthaConfigService must be injected with play injector. singleton.
+     * @param modelService must be injected with play injector. singleton.
+     * @param fileWriterService must be injected with play injector. singleton.
      */
     @Inject
-    public AdminHandlers(SamanthaConfigService samanthaConfigService) {
+    public AdminHandlers(SamanthaConfigService samanthaConfigService,
+                         ModelService modelService,
+                         FileWriterService fileWriterService) {
         this.samanthaConfigService = samanthaConfigService;
+        this.modelService = modelService;
+        this.fileWriterService = fileWriterService;
     }
 
     /**
@@ -99,6 +116,48 @@ public class AdminHandlers extends Controller {
         return ok(resp);
     }
 
+    /**
+     * Handler for scraping the instrumentation metrics.
+     *
+     * It exports the latency histograms and event counters recorded by {@link InstrumentationUtilities}, together
+     * with the memory footprints of the models and the metrics of the asynchronous file writers, in the Prometheus
+     * text format.
+     *
+     * @return a plain text HTTP response in the Prometheus text format (0.0.4).
+     */
+    public Result getMetrics() {
+        List<InstrumentationUtilities.Gauge> gauges = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Object>> engine : modelService.getModels().entrySet()) {
+            for (Map.Entry<String, Object> model : engine.getValue().entrySet()) {
+                if (model.getValue() instanceof SpaceModel) {
+                    long footprint = ((SpaceModel) model.getValue()).getMemoryFootprint();
+                    if (footprint >= 0) {
+                        Map<String, String> labels = new LinkedHashMap<>();
+                        labels.put("engine", engine.getKey());
+                        labels.put("model", model.getKey());
+                        gauges.add(new InstrumentationUtilities.Gauge("samantha_model_memory_bytes",
+                                labels, footprint));
+                    }
+                }
+            }
+        }
+        ObjectNode writerMetrics = fileWriterService.getAsyncWriterMetrics();
+        Iterator<Map.Entry<String, JsonNode>> types = writerMetrics.fields();
+        while (types.hasNext()) {
+            Map.Entry<String, JsonNode> type = types.next();
+            Iterator<Map.Entry<String, JsonNode>> metrics = type.getValue().fields();
+            while (metrics.hasNext()) {
+                Map.Entry<String, JsonNode> metric = metrics.next();
+                Map<String, String> labels = new LinkedHashMap<>();
+                labels.put("type", type.getKey());
+                labels.put("metric", metric.getKey());
+                gauges.add(new InstrumentationUtilities.Gauge("samantha_async_writer",
+                        labels, metric.getValue().asDouble()));
+            }
+        }
+        return ok(InstrumentationUtilities.getMetricsText(gauges)).as("text/plain; version=0.0.4");
+    }
+
     public Result index() {
         return ok(views.html.Application.index.render());
     }
@@ -24,6 +24,7 @@ package controllers;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.grouplens.samantha.server.common.InstrumentationUtilities;
 import org.grouplens.samantha.server.common.JsonHelpers;
 import org.grouplens.samantha.server.evaluator.Evaluation;
 import org.grouplens.samantha.server.evaluator.Evaluator;
@@ -98,7 +99,9 @@ public class EngineHandlers extends Controller {
         JsonNode body = request().body().asJson();
         RequestContext requestContext = requestParser.getJsonRequestContext(engine, body);
         Recommender recommender = samanthaConfigService.routeRecommender(requestContext);
-        RankedResult rankedResult = recommender.recommend(requestContext);
+        RankedResult rankedResult = InstrumentationUtilities.time("recommender", engine,
+                InstrumentationUtilities.getComponentName(recommender.getConfig(), recommender),
+                () -> recommender.recommend(requestContext));
         JsonNode data = responsePacker.packRecommendation(recommender, rankedResult, requestContext);
         ObjectNode resp = JsonHelpers.successJson();
         resp.set("data", data);
@@ -122,7 +125,9 @@ public class EngineHandlers extends Controller {
         JsonNode body = request().body().asJson();
         RequestContext requestContext = requestParser.getJsonRequestContext(engine, body);
         Predictor predictor = samanthaConfigService.routePredictor(requestContext);
-        List<Prediction> predictedResult = predictor.predict(requestContext);
+        List<Prediction> predictedResult = InstrumentationUtilities.time("predictor", engine,
+                InstrumentationUtilities.getComponentName(predictor.getConfig(), predictor),
+                () -> predictor.predict(requestContext));
         JsonNode data = responsePacker.packPrediction(predictor, predictedResult, requestContext);
         ObjectNode resp = JsonHelpers.successJson();
         resp.set("data", data);
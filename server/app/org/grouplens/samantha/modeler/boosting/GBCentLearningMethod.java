@@ -25,8 +25,11 @@ package org.grouplens.samantha.modeler.boosting;
 import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
 
 import it.unimi.dsi.fastutil.doubles.DoubleList;
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
 import it.unimi.dsi.fastutil.ints.IntList;
+import it.unimi.dsi.fastutil.ints.IntLists;
 import org.grouplens.samantha.modeler.common.LearningData;
 import org.grouplens.samantha.modeler.common.LearningInstance;
 import org.grouplens.samantha.modeler.common.LearningMethod;
@@ -34,7 +37,9 @@ import org.grouplens.samantha.modeler.common.PredictiveModel;
 import org.grouplens.samantha.modeler.featurizer.Feature;
 import org.grouplens.samantha.modeler.instance.StandardLearningInstance;
 import org.grouplens.samantha.modeler.solver.ObjectiveFunction;
+import org.grouplens.samantha.modeler.solver.ObjectiveRunnable;
 import org.grouplens.samantha.modeler.solver.OnlineOptimizationMethod;
+import org.grouplens.samantha.modeler.solver.SolverUtilities;
 import org.grouplens.samantha.modeler.solver.StochasticOracle;
 import org.grouplens.samantha.modeler.svdfeature.SVDFeatureKey;
 import org.grouplens.samantha.modeler.svdfeature.SVDFeature;
@@ -44,7 +49,9 @@ import org.slf4j.LoggerFactory;
 
 import javax.inject.Inject;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class GBCentLearningMethod implements LearningMethod {
     private static Logger logger = LoggerFactory.getLogger(GBCentLearningMethod.class);
@@ -54,6 +61,9 @@ public class GBCentLearningMethod implements LearningMethod {
     private final int minSupport;
     private final double minTreeGain;
     private final TreeLearningMethod treeLearningMethod;
+    private final int numThreads;
+    static private final int MAX_WAVES = 256;
+    static private final long MAX_COVER_BITS = 1L << 31;
 
     @Inject
     public GBCentLearningMethod(OnlineOptimizationMethod optimizationMethod,
@@ -63,17 +73,30 @@ public class GBCentLearningMethod implements LearningMethod {
         this.minSupport = 50;
         this.learnSvdfea = false;
         this.minTreeGain = 0.0;
+        this.numThreads = 1;
     }
 
     public GBCentLearningMethod(OnlineOptimizationMethod optimizationMethod,
                                 TreeLearningMethod treeLearningMethod,
                                 int minSupport, boolean learnSvdfea,
                                 double minTreeGain) {
+        this(optimizationMethod, treeLearningMethod, minSupport, learnSvdfea, minTreeGain, 1);
+    }
+
+    /**
+     * @param numThreads if more than one, the trees that do not share instances are learned concurrently by this
+     *                   number of threads.
+     */
+    public GBCentLearningMethod(OnlineOptimizationMethod optimizationMethod,
+                                TreeLearningMethod treeLearningMethod,
+                                int minSupport, boolean learnSvdfea,
+                                double minTreeGain, int numThreads) {
         this.optimizationMethod = optimizationMethod;
         this.treeLearningMethod = treeLearningMethod;
         this.minSupport = minSupport;
         this.learnSvdfea = learnSvdfea;
         this.minTreeGain = minTreeGain;
+        this.numThreads = numThreads;
     }
 
     private void initializeFeatureCount(List<double[]> feaCnt, int size) {
@@ -107,6 +130,116 @@ public class GBCentLearningMethod implements LearningMethod {
         }
     }
 
+    /**
+     * Collect the tree instances and their positions in the data for the bias features with trees to learn.
+     */
+    private void collectTreeDatas(LearningData data, Int2IntMap tree2pos,
+                                  List<List<StandardLearningInstance>> treeDatas, List<IntList> subset) {
+        data.startNewIteration();
+        int cnt = 0;
+        List<LearningInstance> instances;
+        while ((instances = data.getLearningInstance()).size() > 0) {
+            for (LearningInstance ins : instances) {
+                GBCentLearningInstance centIns = (GBCentLearningInstance) ins;
+                for (Feature feature : centIns.getSvdfeaIns().getBiasFeatures()) {
+                    int pos = tree2pos.get(feature.getIndex());
+                    if (pos >= 0) {
+                        treeDatas.get(pos).add(centIns.getTreeIns());
+                        subset.get(pos).add(cnt);
+                    }
+                }
+                cnt++;
+            }
+        }
+    }
+
+    /**
+     * Learn the numerical tree of one bias feature on top of the current predictions and add its predictions if it
+     * is accepted. Only the predictions of the instances in the subsets of the tree are read or written.
+     *
+     * @return the learned tree if accepted or null otherwise.
+     */
+    private PredictiveModel boostTree(GBCent cent, GradientBoostingMachine gbm, int treeIdx,
+                                      List<StandardLearningInstance> learnTreeData, IntList learnSub,
+                                      DoubleList learnPreds, double learnObj,
+                                      List<StandardLearningInstance> validTreeData, IntList validSub,
+                                      DoubleList validPreds, DoubleList validObjs, int validPos) {
+        PredictiveModel tree = cent.getNumericalTree(treeIdx);
+        LearningData treeLearnData = cent.getLearningData(learnTreeData);
+        LearningData treeValidData = null;
+        if (validTreeData != null) {
+            treeValidData = cent.getLearningData(validTreeData);
+        }
+        gbm.boostModel(learnPreds, validPreds, learnSub, validSub, tree,
+                treeLearningMethod, treeLearnData, treeValidData);
+        if (treeValidData != null) {
+            double curVal = gbm.evaluate(validPreds, tree, treeValidData, validSub);
+            double oldVal = validObjs.getDouble(validPos);
+            logger.debug("Before adding: {}, after adding: {}", oldVal, curVal);
+            if ((oldVal - curVal) / validSub.size() <= minTreeGain) {
+                return null;
+            }
+            validObjs.set(validPos, curVal);
+            gbm.boostPrediction(validPreds, tree, treeValidData, validSub);
+        } else if (minTreeGain > 0.0) {
+            double curLearn = gbm.evaluate(learnPreds, tree, treeLearnData, learnSub);
+            logger.debug("Before adding: {}, after adding: {}", learnObj, curLearn);
+            if ((learnObj - curLearn) / learnSub.size() <= minTreeGain) {
+                return null;
+            }
+        }
+        gbm.boostPrediction(learnPreds, tree, treeLearnData, learnSub);
+        return tree;
+    }
+
+    /**
+     * Group the trees into waves in which no two trees share a learning or validation instance. A tree goes into the
+     * wave after the last wave holding a tree it shares instances with, so any two trees sharing instances are
+     * learned in their original order and the result is the same as learning the trees one by one.
+     *
+     * Every wave keeps a bit per instance, so the number of waves is capped by {@link #MAX_WAVES} and by
+     * {@link #MAX_COVER_BITS} over all the waves.
+     *
+     * @return the waves, or null if the trees do not fit into the cap and should be learned sequentially.
+     */
+    static List<IntList> getDisjointWaves(List<IntList> learnSubset, List<IntList> validSubset,
+                                          int numLearn, int numValid) {
+        int maxWaves = (int) Math.max(1L, Math.min(MAX_WAVES, MAX_COVER_BITS / Math.max(1L,
+                (long) numLearn + numValid)));
+        List<IntList> waves = new ArrayList<>();
+        List<BitSet> learnCovers = new ArrayList<>();
+        List<BitSet> validCovers = new ArrayList<>();
+        for (int pos=0; pos<learnSubset.size(); pos++) {
+            BitSet learnBits = new BitSet(numLearn);
+            for (int idx : learnSubset.get(pos)) {
+                learnBits.set(idx);
+            }
+            BitSet validBits = new BitSet(numValid);
+            if (validSubset != null) {
+                for (int idx : validSubset.get(pos)) {
+                    validBits.set(idx);
+                }
+            }
+            int wave = waves.size();
+            while (wave > 0 && !learnCovers.get(wave - 1).intersects(learnBits)
+                    && !validCovers.get(wave - 1).intersects(validBits)) {
+                wave--;
+            }
+            if (wave == waves.size()) {
+                if (waves.size() >= maxWaves) {
+                    return null;
+                }
+                waves.add(new IntArrayList());
+                learnCovers.add(new BitSet(numLearn));
+                validCovers.add(new BitSet(numValid));
+            }
+            waves.get(wave).add(pos);
+            learnCovers.get(wave).or(learnBits);
+            validCovers.get(wave).or(validBits);
+        }
+        return waves;
+    }
+
     public void learn(PredictiveModel model, LearningData learnData, LearningData validData) {
         GBCent cent = (GBCent) model;
         SVDFeature svdfeaModel = cent.getSVDFeatureModel();
@@ -119,21 +252,16 @@ public class GBCentLearningMethod implements LearningMethod {
             optimizationMethod.minimize(svdfeaModel, gblearnData, gbvalidData);
         } else {
             learnData.startNewIteration();
-            while (learnData.getLearningInstance() != null) {}
+            while (learnData.getLearningInstance().size() > 0) {}
         }
         int numBiases = svdfeaModel.getScalarVarSizeByName(SVDFeatureKey.BIASES.get());
         List<double[]> feaCnt = new ArrayList<>(numBiases);
         initializeFeatureCount(feaCnt, numBiases);
-        List<List<StandardLearningInstance>> learnTreeDatas = new ArrayList<>(numBiases);
-        List<IntList> learnSubset = new ArrayList<>(numBiases);
         DoubleList learnObjs = new DoubleArrayList(numBiases);
-        initializeTreeDatas(learnTreeDatas, numBiases);
-        initializeSubset(learnSubset, numBiases);
         initializeLearnObjs(learnObjs, numBiases);
         DoubleList learnPreds = new DoubleArrayList();
         ObjectiveFunction objectiveFunction = svdfeaModel.getObjectiveFunction();
         learnData.startNewIteration();
-        int cnt = 0;
         List<LearningInstance> instances;
         while ((instances = learnData.getLearningInstance()).size() > 0) {
             List<StochasticOracle> oracles = new ArrayList<>(instances.size());
@@ -146,27 +274,40 @@ public class GBCentLearningMethod implements LearningMethod {
                     double[] one = feaCnt.get(idx);
                     one[0] = idx;
                     one[1] += 1;
-                    learnTreeDatas.get(idx).add(centIns.getTreeIns());
-                    learnSubset.get(idx).add(cnt);
                     learnObjs.set(idx, oracles.get(i).getObjectiveValue() + learnObjs.getDouble(idx));
                 }
-                cnt++;
             }
         }
+        feaCnt.sort(SortingUtilities.pairDoubleSecondReverseComparator());
+        IntList treeIdxs = new IntArrayList();
+        Int2IntMap tree2pos = new Int2IntOpenHashMap();
+        tree2pos.defaultReturnValue(-1);
+        for (double[] one : feaCnt) {
+            if (one[1] < minSupport) {
+                break;
+            }
+            tree2pos.put((int) one[0], treeIdxs.size());
+            treeIdxs.add((int) one[0]);
+        }
+        int numTrees = treeIdxs.size();
+        List<List<StandardLearningInstance>> learnTreeDatas = new ArrayList<>(numTrees);
+        List<IntList> learnSubset = new ArrayList<>(numTrees);
+        initializeTreeDatas(learnTreeDatas, numTrees);
+        initializeSubset(learnSubset, numTrees);
+        collectTreeDatas(learnData, tree2pos, learnTreeDatas, learnSubset);
         DoubleList validPreds = null;
         List<List<StandardLearningInstance>> validTreeDatas = null;
         List<IntList> validSubset = null;
         DoubleList validObjs = null;
         if (validData != null) {
             validPreds = new DoubleArrayList();
-            validTreeDatas = new ArrayList<>(numBiases);
-            validSubset = new ArrayList<>(numBiases);
-            validObjs = new DoubleArrayList(numBiases);
-            initializeTreeDatas(validTreeDatas, numBiases);
-            initializeSubset(validSubset, numBiases);
-            initializeValidObjs(validObjs, numBiases);
+            validTreeDatas = new ArrayList<>(numTrees);
+            validSubset = new ArrayList<>(numTrees);
+            validObjs = new DoubleArrayList(numTrees);
+            initializeTreeDatas(validTreeDatas, numTrees);
+            initializeSubset(validSubset, numTrees);
+            initializeValidObjs(validObjs, numTrees);
             validData.startNewIteration();
-            cnt = 0;
             while ((instances = validData.getLearningInstance()).size() > 0) {
                 List<StochasticOracle> oracles = new ArrayList<>(instances.size());
                 BoostingUtilities.setStochasticOracles(instances, oracles, svdfeaModel, validPreds);
@@ -174,58 +315,89 @@ public class GBCentLearningMethod implements LearningMethod {
                 for (int i=0; i<instances.size(); i++) {
                     GBCentLearningInstance centIns = (GBCentLearningInstance) instances.get(i);
                     for (Feature feature : centIns.getSvdfeaIns().getBiasFeatures()) {
-                        int idx = feature.getIndex();
-                        validTreeDatas.get(idx).add(centIns.getTreeIns());
-                        validSubset.get(idx).add(cnt);
-                        validObjs.set(idx, oracles.get(i).getObjectiveValue() + validObjs.getDouble(idx));
+                        int pos = tree2pos.get(feature.getIndex());
+                        if (pos >= 0) {
+                            validObjs.set(pos, oracles.get(i).getObjectiveValue() + validObjs.getDouble(pos));
+                        }
                     }
-                    cnt++;
                 }
             }
+            collectTreeDatas(validData, tree2pos, validTreeDatas, validSubset);
         }
         GradientBoostingMachine gbm = new GradientBoostingMachine(objectiveFunction);
-        feaCnt.sort(SortingUtilities.pairDoubleSecondReverseComparator());
         int acceptedTrees = 0;
-        int learnedTrees = 0;
-        for (double[] one : feaCnt) {
-            if (one[1] < minSupport) {
-                break;
+        List<IntList> waves = null;
+        if (numThreads > 1) {
+            waves = getDisjointWaves(learnSubset, validSubset, learnPreds.size(),
+                    validPreds == null ? 0 : validPreds.size());
+            if (waves == null) {
+                logger.info("Learning {} trees sequentially because they need more than the maximum number of waves.",
+                        numTrees);
+            } else {
+                logger.info("Learning {} trees in {} waves with {} threads.", numTrees, waves.size(), numThreads);
             }
-            learnedTrees++;
-            int treeIdx = (int)one[0];
-            PredictiveModel tree = cent.getNumericalTree(treeIdx);
-            LearningData treeLearnData = cent.getLearningData(learnTreeDatas.get(treeIdx));
-            LearningData treeValidData = null;
-            IntList validSub = null;
-            if (validData != null) {
-                treeValidData = cent.getLearningData(validTreeDatas.get(treeIdx));
-                validSub = validSubset.get(treeIdx);
+        }
+        if (waves == null) {
+            waves = new ArrayList<>(numTrees);
+            for (int pos=0; pos<numTrees; pos++) {
+                waves.add(IntLists.singleton(pos));
             }
-            IntList learnSub = learnSubset.get(treeIdx);
-            gbm.boostModel(learnPreds, validPreds, learnSub, validSub, tree,
-                    treeLearningMethod, treeLearnData, treeValidData);
-            if (validData != null) {
-                double curVal = gbm.evaluate(validPreds, tree, treeValidData, validSub);
-                double oldVal = validObjs.getDouble(treeIdx);
-                logger.debug("Before adding: {}, after adding: {}", oldVal, curVal);
-                if ((oldVal - curVal) / validSub.size() <= minTreeGain) {
-                    continue;
-                }
-                validObjs.set(treeIdx, curVal);
-                gbm.boostPrediction(validPreds, tree, treeValidData, validSub);
-            } else if (minTreeGain > 0.0) {
-                double curLearn = gbm.evaluate(learnPreds, tree, treeLearnData, learnSub);
-                double oldLearn = learnObjs.getDouble(treeIdx);
-                logger.debug("Before adding: {}, after adding: {}", oldLearn, curLearn);
-                if ((oldLearn - curLearn) / learnSub.size() <= minTreeGain) {
-                    continue;
+        }
+        final DoubleList finalValidPreds = validPreds;
+        final DoubleList finalValidObjs = validObjs;
+        final List<List<StandardLearningInstance>> finalValidTreeDatas = validTreeDatas;
+        final List<IntList> finalValidSubset = validSubset;
+        for (IntList wave : waves) {
+            PredictiveModel[] trees = new PredictiveModel[wave.size()];
+            AtomicInteger next = new AtomicInteger(0);
+            List<TreeRunnable> runnables = new ArrayList<>();
+            for (int t=0; t<numThreads && t<wave.size(); t++) {
+                runnables.add(new TreeRunnable(() -> {
+                    int w;
+                    while ((w = next.getAndIncrement()) < wave.size()) {
+                        int pos = wave.getInt(w);
+                        trees[w] = boostTree(cent, gbm, treeIdxs.getInt(pos),
+                                learnTreeDatas.get(pos), learnSubset.get(pos), learnPreds,
+                                learnObjs.getDouble(treeIdxs.getInt(pos)),
+                                validData == null ? null : finalValidTreeDatas.get(pos),
+                                validData == null ? null : finalValidSubset.get(pos),
+                                finalValidPreds, finalValidObjs, pos);
+                        learnTreeDatas.set(pos, null);
+                        if (validData != null) {
+                            finalValidTreeDatas.set(pos, null);
+                        }
+                    }
+                }));
+            }
+            if (runnables.size() == 1) {
+                runnables.get(0).run();
+            } else {
+                SolverUtilities.runObjectiveRunnables(runnables);
+            }
+            for (int w=0; w<trees.length; w++) {
+                if (trees[w] != null) {
+                    cent.setNumericalTree(treeIdxs.getInt(wave.getInt(w)), trees[w]);
+                    acceptedTrees++;
                 }
             }
-            gbm.boostPrediction(learnPreds, tree, treeLearnData, learnSub);
-            cent.setNumericalTree(treeIdx, tree);
-            acceptedTrees++;
         }
-        logger.info("Learned {} trees and accepted {} trees.", learnedTrees, acceptedTrees);
+        logger.info("Learned {} trees and accepted {} trees.", numTrees, acceptedTrees);
+    }
+
+    static private class TreeRunnable implements ObjectiveRunnable {
+        private final Runnable runnable;
+
+        TreeRunnable(Runnable runnable) {
+            this.runnable = runnable;
+        }
+
+        public void run() {
+            runnable.run();
+        }
+
+        public double getObjVal() {
+            return 0.0;
+        }
     }
 
     public double updateSVDFeatureModel(GBCent cent, LearningData learnData) {
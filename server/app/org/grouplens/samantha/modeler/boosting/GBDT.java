@@ -22,14 +22,18 @@
 
 package org.grouplens.samantha.modeler.boosting;
 
+import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 import org.grouplens.samantha.modeler.common.LearningInstance;
 import org.grouplens.samantha.modeler.common.LearningMethod;
 import org.grouplens.samantha.modeler.common.PredictiveModel;
 import org.grouplens.samantha.modeler.featurizer.FeatureExtractor;
 import org.grouplens.samantha.modeler.featurizer.FeatureExtractorUtilities;
+import org.grouplens.samantha.modeler.instance.StandardLearningInstance;
 import org.grouplens.samantha.modeler.solver.ObjectiveFunction;
 import org.grouplens.samantha.modeler.model.IndexSpace;
 import org.grouplens.samantha.modeler.model.VariableSpace;
+import org.grouplens.samantha.modeler.tree.FlattenedTree;
 import org.grouplens.samantha.modeler.tree.RegressionTree;
 import org.grouplens.samantha.modeler.tree.SplittingCriterion;
 import org.grouplens.samantha.modeler.featurizer.StandardFeaturizer;
@@ -66,15 +70,48 @@ public class GBDT extends StandardFeaturizer implements BoostedPredictiveModel {
     }
 
     public double[] predict(LearningInstance ins) {
+        Int2DoubleMap features = ((StandardLearningInstance) ins).getFeatures();
         double pred = 0.0;
         for (RegressionTree tree : trees) {
-            pred += tree.predict(ins)[0];
+            pred += tree.getFlattenedTree().predict(features);
         }
         double[] preds = new double[1];
         preds[0] = pred;
         return preds;
     }
 
+    /**
+     * Flatten the trees once, lay out the values of the features used by any split densely per instance, then walk
+     * the instances tree by tree.
+     */
+    public double[][] predict(List<LearningInstance> instances) {
+        Int2IntOpenHashMap fea2slot = new Int2IntOpenHashMap();
+        fea2slot.defaultReturnValue(-1);
+        FlattenedTree[] flattened = new FlattenedTree[trees.size()];
+        int[][] nodeSlots = new int[trees.size()][];
+        for (int t=0; t<flattened.length; t++) {
+            flattened[t] = trees.get(t).getFlattenedTree();
+            nodeSlots[t] = flattened[t].mapSplitFeatures(fea2slot);
+        }
+        double[][] slotValues = new double[instances.size()][fea2slot.size()];
+        for (int i=0; i<slotValues.length; i++) {
+            Int2DoubleMap features = ((StandardLearningInstance) instances.get(i)).getFeatures();
+            for (Int2DoubleMap.Entry entry : features.int2DoubleEntrySet()) {
+                int slot = fea2slot.get(entry.getIntKey());
+                if (slot >= 0) {
+                    slotValues[i][slot] = entry.getDoubleValue();
+                }
+            }
+        }
+        double[][] preds = new double[instances.size()][1];
+        for (int t=0; t<flattened.length; t++) {
+            for (int i=0; i<preds.length; i++) {
+                preds[i][0] += flattened[t].predict(slotValues[i], nodeSlots[t]);
+            }
+        }
+        return preds;
+    }
+
     public ObjectiveFunction getObjectiveFunction() {
         return this.objectiveFunction;
     }
@@ -46,14 +46,14 @@ public interface PredictiveModel extends SpaceModel {
      * @return the predicted values based on the model, which supports both regression with single output or
      *     classification with multiple outputs. The first dimension represents the number of instances while
      *     the second dimension represents the number of outputs for each instance. The introduction of this
-     *     method is to support matrix-like computation to enable more parallel such as TensorFlow. The default
-     *     implementation is treating the problem as regression.
+     *     method is to support matrix-like computation to enable more parallel such as TensorFlow, so that
+     *     models backed by a native library can score a whole candidate set in one call. The default
+     *     implementation predicts the instances one by one.
      */
     default double[][] predict(List<LearningInstance> instances) {
-        double[][] preds = new double[instances.size()][1];
+        double[][] preds = new double[instances.size()][];
         for (int i=0; i<instances.size(); i++) {
-            double[] insPreds = predict(instances.get(i));
-            preds[i][0] = insPreds[0];
+            preds[i] = predict(instances.get(i));
         }
         return preds;
     }
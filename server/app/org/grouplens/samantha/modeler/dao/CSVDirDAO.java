@@ -30,8 +30,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
-public class CSVDirDAO implements EntityDAO {
-    private final EntityDAO entityDAO;
+public class CSVDirDAO implements TimePartitionedDAO {
+    private final CSVFileListDAO entityDAO;
 
     public CSVDirDAO(String dirPath, String separator) {
         Collection<File> fileList = FileUtils.listFiles(new File(dirPath), null, true);
@@ -50,6 +50,10 @@ public class CSVDirDAO implements EntityDAO {
         return entityDAO.getNextEntity();
     }
 
+    public void prunePartitions(DatePartitionPruner pruner, int beginTime, int endTime) {
+        entityDAO.prunePartitions(pruner, beginTime, endTime);
+    }
+
     public void restart() {
         entityDAO.restart();
     }
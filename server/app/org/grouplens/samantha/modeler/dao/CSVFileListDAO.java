@@ -26,8 +26,8 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import java.util.List;
 
-public class CSVFileListDAO implements EntityDAO {
-    final private List<String> fileList;
+public class CSVFileListDAO implements TimePartitionedDAO {
+    private List<String> fileList;
     final private String separator;
     private int idx = 0;
     private CSVFileDAO csvFileDAO;
@@ -73,6 +73,12 @@ public class CSVFileListDAO implements EntityDAO {
         return null;
     }
 
+    public void prunePartitions(DatePartitionPruner pruner, int beginTime, int endTime) {
+        close();
+        fileList = pruner.prune(fileList, beginTime, endTime);
+        idx = 0;
+    }
+
     public void restart() {
         close();
         idx = 0;
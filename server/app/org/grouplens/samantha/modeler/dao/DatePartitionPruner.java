@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.grouplens.samantha.modeler.dao;
+
+import java.io.File;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Map files to the time partitions encoded in their directories by a {@link SimpleDateFormat} pattern, e.g.
+ * /yyyy/MM/dd/, and prune the partitions outside of a time range. The length of a partition is the smallest time
+ * unit in the pattern. The time zone is the default one, the same as the one used for writing the partitions.
+ */
+public class DatePartitionPruner {
+    private final String dirPattern;
+    private final int calendarField;
+    private final int patternLength;
+
+    public DatePartitionPruner(String dirPattern) {
+        this.dirPattern = dirPattern;
+        String letters = dirPattern.replaceAll("'[^']*'", "");
+        if (letters.indexOf('s') >= 0) {
+            calendarField = Calendar.SECOND;
+        } else if (letters.indexOf('m') >= 0) {
+            calendarField = Calendar.MINUTE;
+        } else if (letters.indexOf('H') >= 0 || letters.indexOf('k') >= 0) {
+            calendarField = Calendar.HOUR_OF_DAY;
+        } else if (letters.indexOf('d') >= 0) {
+            calendarField = Calendar.DAY_OF_MONTH;
+        } else if (letters.indexOf('M') >= 0) {
+            calendarField = Calendar.MONTH;
+        } else {
+            calendarField = Calendar.YEAR;
+        }
+        patternLength = new SimpleDateFormat(dirPattern).format(new Date(0L)).length();
+    }
+
+    private long getPartitionBegin(long ms) {
+        SimpleDateFormat dateFormat = new SimpleDateFormat(dirPattern);
+        return dateFormat.parse(dateFormat.format(new Date(ms)), new ParsePosition(0)).getTime();
+    }
+
+    private long getNextPartitionBegin(long partitionBegin) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(partitionBegin);
+        calendar.add(calendarField, 1);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * @return the formatted directories of the partitions overlapping with [beginTime, endTime] in time order.
+     */
+    public List<String> getPartitionDirs(int beginTime, int endTime) {
+        SimpleDateFormat dateFormat = new SimpleDateFormat(dirPattern);
+        List<String> dirs = new ArrayList<>();
+        long end = endTime * 1000L;
+        for (long ms = getPartitionBegin(beginTime * 1000L); ms <= end; ms = getNextPartitionBegin(ms)) {
+            dirs.add(dateFormat.format(new Date(ms)));
+        }
+        return dirs;
+    }
+
+    /**
+     * @return the beginning of the partition of the file in milliseconds or null if the file is not in a partition.
+     */
+    public Long getPartitionBegin(String filePath) {
+        String path = filePath.replace(File.separatorChar, '/');
+        int dirEnd = path.lastIndexOf('/') + 1;
+        int dirBegin = dirEnd - patternLength;
+        if (dirBegin < 0) {
+            return null;
+        }
+        SimpleDateFormat dateFormat = new SimpleDateFormat(dirPattern);
+        dateFormat.setLenient(false);
+        ParsePosition pos = new ParsePosition(0);
+        String dir = path.substring(dirBegin, dirEnd);
+        Date date = dateFormat.parse(dir, pos);
+        if (date == null || pos.getIndex() != dir.length()) {
+            return null;
+        }
+        return date.getTime();
+    }
+
+    /**
+     * @return the files in the partitions overlapping with [beginTime, endTime] ordered by the time of their
+     * partitions, followed by the files not in a partition.
+     */
+    public List<String> prune(List<String> files, int beginTime, int endTime) {
+        long begin = beginTime * 1000L;
+        long end = endTime * 1000L + 999L;
+        List<String> kept = new ArrayList<>(files.size());
+        List<Long> partitions = new ArrayList<>(files.size());
+        List<String> unknown = new ArrayList<>();
+        for (String file : files) {
+            Long partitionBegin = getPartitionBegin(file);
+            if (partitionBegin == null) {
+                unknown.add(file);
+            } else if (partitionBegin <= end && getNextPartitionBegin(partitionBegin) > begin) {
+                kept.add(file);
+                partitions.add(partitionBegin);
+            }
+        }
+        Integer[] order = new Integer[kept.size()];
+        for (int i=0; i<order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (left, right) -> Long.compare(partitions.get(left), partitions.get(right)));
+        List<String> pruned = new ArrayList<>(files.size());
+        for (int idx : order) {
+            pruned.add(kept.get(idx));
+        }
+        pruned.addAll(unknown);
+        return pruned;
+    }
+}
@@ -30,8 +30,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
-public class JsonDirDAO implements EntityDAO {
-    private final EntityDAO entityDAO;
+public class JsonDirDAO implements TimePartitionedDAO {
+    private final JsonFileListDAO entityDAO;
 
     public JsonDirDAO(String dirPath) {
         Collection<File> fileList = FileUtils.listFiles(new File(dirPath), null, true);
@@ -50,6 +50,10 @@ public class JsonDirDAO implements EntityDAO {
         return entityDAO.getNextEntity();
     }
 
+    public void prunePartitions(DatePartitionPruner pruner, int beginTime, int endTime) {
+        entityDAO.prunePartitions(pruner, beginTime, endTime);
+    }
+
     public void restart() {
         entityDAO.restart();
     }
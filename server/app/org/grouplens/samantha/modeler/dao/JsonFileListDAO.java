@@ -26,8 +26,8 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import java.util.List;
 
-public class JsonFileListDAO implements EntityDAO {
-    final private List<String> fileList;
+public class JsonFileListDAO implements TimePartitionedDAO {
+    private List<String> fileList;
     private int idx = 0;
     private JsonFileDAO jsonFileDAO;
 
@@ -71,6 +71,12 @@ public class JsonFileListDAO implements EntityDAO {
         return null;
     }
 
+    public void prunePartitions(DatePartitionPruner pruner, int beginTime, int endTime) {
+        close();
+        fileList = pruner.prune(fileList, beginTime, endTime);
+        idx = 0;
+    }
+
     public void restart() {
         close();
         idx = 0;
@@ -34,10 +34,22 @@ public class TimeFilteredDAO implements EntityDAO {
 
     public TimeFilteredDAO(EntityDAO entityDAO, int beginTime, int endTime,
                            String timestampField) {
+        this(entityDAO, beginTime, endTime, timestampField, null);
+    }
+
+    /**
+     * @param pruner if not null and the entityDAO is a {@link TimePartitionedDAO}, the partitions outside of
+     *               [beginTime, endTime] are not read at all.
+     */
+    public TimeFilteredDAO(EntityDAO entityDAO, int beginTime, int endTime,
+                           String timestampField, DatePartitionPruner pruner) {
         this.beginTime = beginTime;
         this.endTime = endTime;
         this.entityDAO = entityDAO;
         this.timestampField = timestampField;
+        if (pruner != null && entityDAO instanceof TimePartitionedDAO) {
+            ((TimePartitionedDAO) entityDAO).prunePartitions(pruner, beginTime, endTime);
+        }
     }
 
     public boolean hasNextEntity() {
@@ -63,7 +75,9 @@ public class TimeFilteredDAO implements EntityDAO {
             return ret;
         } else {
             if (hasNextEntity()) {
-                return cur;
+                ret = cur;
+                cur = null;
+                return ret;
             } else {
                 return null;
             }
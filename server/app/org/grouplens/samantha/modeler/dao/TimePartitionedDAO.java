@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.grouplens.samantha.modeler.dao;
+
+/**
+ * An {@link EntityDAO} reading files that are laid out in directories partitioned by time, e.g. by
+ * {@link org.grouplens.samantha.server.indexer.FileWriterService FileWriterService}.
+ */
+public interface TimePartitionedDAO extends EntityDAO {
+    /**
+     * Only read the files in the partitions overlapping with [beginTime, endTime] from now on, in the time order of
+     * the partitions. Files not in a partition recognized by the pruner are still read after the others.
+     */
+    void prunePartitions(DatePartitionPruner pruner, int beginTime, int endTime);
+}
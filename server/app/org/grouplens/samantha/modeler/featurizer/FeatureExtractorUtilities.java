@@ -45,11 +45,8 @@ public class FeatureExtractorUtilities {
                                                      IndexSpace indexSpace,
                                                      String indexName, Object key,
                                                      double val) {
-        if (indexSpace.containsKey(indexName, key)) {
-            Feature feature = new Feature(indexSpace.getIndexForKey(indexName, key), val);
-            features.add(feature);
-        } else if (update) {
-            int index = indexSpace.setKey(indexName, key);
+        int index = indexSpace.getOrSetKey(indexName, key, update);
+        if (index >= 0) {
             Feature feature = new Feature(index, val);
             features.add(feature);
         }
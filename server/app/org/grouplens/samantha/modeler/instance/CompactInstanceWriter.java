@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.grouplens.samantha.modeler.instance;
+
+import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
+import org.grouplens.samantha.modeler.common.LearningInstance;
+import org.grouplens.samantha.modeler.featurizer.Feature;
+import org.grouplens.samantha.modeler.svdfeature.SVDFeatureInstance;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Writes {@link LearningInstance}s into a compact binary instance cache which is read back by
+ * {@link CompactLearningData}. Every record is prefixed by its length and holds the label, weight, group and the
+ * feature index/value arrays of the instance:
+ * <pre>
+ *     int length, byte type, double label, double weight, int groupLength (-1 if null), group bytes,
+ *     byte numBlocks, numBlocks * (int numFeatures, numFeatures * int index, numFeatures * double value)
+ * </pre>
+ * {@link StandardLearningInstance} has one feature block and {@link SVDFeatureInstance} has three (bias, user and
+ * item features). Any other type of instance is stored as Java serialized bytes.
+ */
+public class CompactInstanceWriter implements AutoCloseable {
+    static final byte STANDARD_TYPE = 0;
+    static final byte SVDFEATURE_TYPE = 1;
+    static final byte SERIALIZED_TYPE = 2;
+    static final int BUFFER_SIZE = 1 << 22;
+
+    private final FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    public CompactInstanceWriter(String cachePath) throws IOException {
+        channel = FileChannel.open(new File(cachePath).toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+            if (buffer.capacity() < bytes) {
+                buffer = ByteBuffer.allocateDirect(bytes).order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+    }
+
+    static private int getBlockSize(int numFeatures) {
+        return Integer.BYTES + numFeatures * (Integer.BYTES + Double.BYTES);
+    }
+
+    private void putHeader(int length, byte type, LearningInstance ins, byte[] group) {
+        buffer.putInt(length);
+        buffer.put(type);
+        buffer.putDouble(ins.getLabel());
+        buffer.putDouble(ins.getWeight());
+        if (group == null) {
+            buffer.putInt(-1);
+        } else {
+            buffer.putInt(group.length);
+            buffer.put(group);
+        }
+    }
+
+    private void putFeatures(List<Feature> features) {
+        buffer.putInt(features.size());
+        for (Feature fea : features) {
+            buffer.putInt(fea.getIndex());
+        }
+        for (Feature fea : features) {
+            buffer.putDouble(fea.getValue());
+        }
+    }
+
+    private void putFeatures(Int2DoubleMap features) {
+        buffer.putInt(features.size());
+        for (Int2DoubleMap.Entry entry : features.int2DoubleEntrySet()) {
+            buffer.putInt(entry.getIntKey());
+        }
+        for (Int2DoubleMap.Entry entry : features.int2DoubleEntrySet()) {
+            buffer.putDouble(entry.getDoubleValue());
+        }
+    }
+
+    public void write(LearningInstance ins) throws IOException {
+        byte[] group = null;
+        if (ins instanceof AbstractLearningInstance && ((AbstractLearningInstance) ins).getGroup() != null) {
+            group = ((AbstractLearningInstance) ins).getGroup().getBytes(StandardCharsets.UTF_8);
+        }
+        int headerSize = Integer.BYTES + 1 + 2 * Double.BYTES + Integer.BYTES + (group == null ? 0 : group.length);
+        if (ins instanceof SVDFeatureInstance) {
+            SVDFeatureInstance svdIns = (SVDFeatureInstance) ins;
+            int length = headerSize + 1 + getBlockSize(svdIns.getBiasFeatures().size()) +
+                    getBlockSize(svdIns.getUserFeatures().size()) + getBlockSize(svdIns.getItemFeatures().size());
+            ensure(length);
+            putHeader(length, SVDFEATURE_TYPE, ins, group);
+            buffer.put((byte) 3);
+            putFeatures(svdIns.getBiasFeatures());
+            putFeatures(svdIns.getUserFeatures());
+            putFeatures(svdIns.getItemFeatures());
+        } else if (ins instanceof StandardLearningInstance) {
+            Int2DoubleMap features = ((StandardLearningInstance) ins).getFeatures();
+            int length = headerSize + 1 + getBlockSize(features.size());
+            ensure(length);
+            putHeader(length, STANDARD_TYPE, ins, group);
+            buffer.put((byte) 1);
+            putFeatures(features);
+        } else {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream outputStream = new ObjectOutputStream(bytes);
+            outputStream.writeUnshared(ins);
+            outputStream.close();
+            byte[] serialized = bytes.toByteArray();
+            int length = Integer.BYTES + 1 + Integer.BYTES + serialized.length;
+            ensure(length);
+            buffer.putInt(length);
+            buffer.put(SERIALIZED_TYPE);
+            buffer.putInt(serialized.length);
+            buffer.put(serialized);
+        }
+    }
+
+    public void close() throws IOException {
+        flush();
+        channel.close();
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.grouplens.samantha.modeler.instance;
+
+import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
+import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
+import org.grouplens.samantha.modeler.common.LearningData;
+import org.grouplens.samantha.modeler.common.LearningInstance;
+import org.grouplens.samantha.modeler.featurizer.Feature;
+import org.grouplens.samantha.modeler.svdfeature.SVDFeatureInstance;
+import org.grouplens.samantha.server.exception.BadRequestException;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the instance cache written by {@link CompactInstanceWriter} through a large direct buffer and returns the
+ * instances in batches. The file is closed once it is fully read and {@link #startNewIteration()} opens it again.
+ */
+public class CompactLearningData implements LearningData {
+    final private String filePath;
+    final private int batchSize;
+    private FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(CompactInstanceWriter.BUFFER_SIZE)
+            .order(ByteOrder.LITTLE_ENDIAN);
+    private boolean endOfFile;
+
+    public CompactLearningData(String filePath, int batchSize) {
+        this.filePath = filePath;
+        this.batchSize = batchSize;
+        startNewIteration();
+    }
+
+    public CompactLearningData(String filePath) {
+        this(filePath, 128);
+    }
+
+    private void fill() throws IOException {
+        buffer.compact();
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                endOfFile = true;
+                break;
+            }
+        }
+        buffer.flip();
+    }
+
+    private boolean ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes && !endOfFile) {
+            if (buffer.capacity() < bytes) {
+                ByteBuffer larger = ByteBuffer.allocateDirect(bytes).order(ByteOrder.LITTLE_ENDIAN);
+                larger.put(buffer);
+                larger.flip();
+                buffer = larger;
+            }
+            fill();
+        }
+        return buffer.remaining() >= bytes;
+    }
+
+    private List<Feature> getFeatureList() {
+        int size = buffer.getInt();
+        List<Feature> features = new ArrayList<>(size);
+        for (int i=0; i<size; i++) {
+            features.add(new Feature(buffer.getInt(), 0.0));
+        }
+        for (int i=0; i<size; i++) {
+            features.get(i).setValue(buffer.getDouble());
+        }
+        return features;
+    }
+
+    private Int2DoubleMap getFeatureMap() {
+        int size = buffer.getInt();
+        int[] indices = new int[size];
+        for (int i=0; i<size; i++) {
+            indices[i] = buffer.getInt();
+        }
+        Int2DoubleMap features = new Int2DoubleOpenHashMap(size);
+        for (int i=0; i<size; i++) {
+            features.put(indices[i], buffer.getDouble());
+        }
+        return features;
+    }
+
+    private LearningInstance readInstance() throws IOException, ClassNotFoundException {
+        buffer.getInt();
+        byte type = buffer.get();
+        if (type == CompactInstanceWriter.SERIALIZED_TYPE) {
+            byte[] serialized = new byte[buffer.getInt()];
+            buffer.get(serialized);
+            try (ObjectInputStream inputStream = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+                return (LearningInstance) inputStream.readUnshared();
+            }
+        }
+        double label = buffer.getDouble();
+        double weight = buffer.getDouble();
+        int groupLength = buffer.getInt();
+        String group = null;
+        if (groupLength >= 0) {
+            byte[] groupBytes = new byte[groupLength];
+            buffer.get(groupBytes);
+            group = new String(groupBytes, StandardCharsets.UTF_8);
+        }
+        buffer.get();
+        if (type == CompactInstanceWriter.SVDFEATURE_TYPE) {
+            List<Feature> gfeas = getFeatureList();
+            List<Feature> ufeas = getFeatureList();
+            List<Feature> ifeas = getFeatureList();
+            return new SVDFeatureInstance(gfeas, ufeas, ifeas, label, weight, group);
+        } else {
+            return new StandardLearningInstance(getFeatureMap(), label, weight, group);
+        }
+    }
+
+    public List<LearningInstance> getLearningInstance() {
+        List<LearningInstance> instances = new ArrayList<>(batchSize);
+        if (channel == null) {
+            return instances;
+        }
+        try {
+            while (instances.size() < batchSize && ensure(Integer.BYTES)) {
+                int length = buffer.getInt(buffer.position());
+                if (!ensure(length)) {
+                    throw new BadRequestException("The instance cache " + filePath + " is truncated.");
+                }
+                instances.add(readInstance());
+            }
+            if (instances.size() == 0) {
+                close();
+            }
+        } catch (IOException | ClassNotFoundException e) {
+            throw new BadRequestException(e);
+        }
+        return instances;
+    }
+
+    public void startNewIteration() {
+        try {
+            close();
+            channel = FileChannel.open(new File(filePath).toPath(), StandardOpenOption.READ);
+            endOfFile = false;
+            buffer.clear();
+            buffer.flip();
+        } catch (IOException e) {
+            throw new BadRequestException(e);
+        }
+    }
+
+    private void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+}
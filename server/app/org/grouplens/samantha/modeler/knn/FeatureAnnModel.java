@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.grouplens.samantha.modeler.knn;
+
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import org.apache.commons.math3.linear.RealVector;
+import org.grouplens.samantha.modeler.featurizer.FeatureExtractorUtilities;
+import org.grouplens.samantha.modeler.svdfeature.SVDFeature;
+import org.grouplens.samantha.modeler.svdfeature.SVDFeatureKey;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * An approximate nearest neighbor model by cosine similarity over the SVDFeature factors of the features composed
+ * exactly by feaAttrs, e.g. the item factors when feaAttrs is the item id attribute.
+ */
+public class FeatureAnnModel implements Serializable {
+    private static final long serialVersionUID = 1L;
+    static private final int NUM_ITERATIONS = 10;
+    final private List<String> feaAttrs;
+    final private List<String> features;
+    final private Object2IntMap<String> feature2pos;
+    final private IVFVectorIndex index;
+
+    /**
+     * @param numClusters the number of clusters of the index. Zero means the square root of the number of features.
+     */
+    public FeatureAnnModel(List<String> feaAttrs, int minSupport, int numClusters, SVDFeature svdFeature) {
+        this.feaAttrs = feaAttrs;
+        this.features = new ArrayList<>();
+        this.feature2pos = new Object2IntOpenHashMap<>();
+        this.feature2pos.defaultReturnValue(-1);
+        List<double[]> vectors = new ArrayList<>();
+        for (String feature : getComposedFeatures(feaAttrs, minSupport, svdFeature)) {
+            double[] vector = getFactor(feature, 0, svdFeature);
+            double norm = 0.0;
+            for (double value : vector) {
+                norm += value * value;
+            }
+            norm = Math.sqrt(norm);
+            if (norm > 0.0) {
+                for (int f=0; f<vector.length; f++) {
+                    vector[f] /= norm;
+                }
+            }
+            feature2pos.put(feature, features.size());
+            features.add(feature);
+            vectors.add(vector);
+        }
+        if (numClusters <= 0) {
+            numClusters = (int) Math.ceil(Math.sqrt(features.size()));
+        }
+        this.index = new IVFVectorIndex(vectors.toArray(new double[vectors.size()][]), numClusters,
+                NUM_ITERATIONS, features.size());
+    }
+
+    /**
+     * @return the features with factors of at least minSupport which are composed exactly by feaAttrs.
+     */
+    static List<String> getComposedFeatures(List<String> feaAttrs, int minSupport, SVDFeature svdFeature) {
+        List<String> composed = new ArrayList<>();
+        for (String feature : svdFeature.getFactorFeatures(minSupport).keySet()) {
+            if (isComposedBy(feature, feaAttrs)) {
+                composed.add(feature);
+            }
+        }
+        return composed;
+    }
+
+    /**
+     * @return a copy of the factor of the feature followed by numExtra zeros.
+     */
+    static double[] getFactor(String feature, int numExtra, SVDFeature svdFeature) {
+        int factIdx = svdFeature.getIndexForKey(SVDFeatureKey.FACTORS.get(), feature);
+        RealVector factor = svdFeature.getVectorVarViewByNameIndex(SVDFeatureKey.FACTORS.get(), factIdx);
+        double[] vector = new double[factor.getDimension() + numExtra];
+        for (int f=0; f<factor.getDimension(); f++) {
+            vector[f] = factor.getEntry(f);
+        }
+        return vector;
+    }
+
+    static boolean isComposedBy(String feature, List<String> feaAttrs) {
+        Map<String, String> attrVals = FeatureExtractorUtilities.decomposeKey(feature);
+        if (attrVals.size() != feaAttrs.size()) {
+            return false;
+        }
+        for (String attr : feaAttrs) {
+            if (!attrVals.containsKey(attr)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public List<String> getFeatureAttrs() {
+        return feaAttrs;
+    }
+
+    public int size() {
+        return features.size();
+    }
+
+    public String getFeature(int pos) {
+        return features.get(pos);
+    }
+
+    /**
+     * @return the position of the feature in this model or -1 if it is not in this model.
+     */
+    public int getPosition(String feature) {
+        return feature2pos.getInt(feature);
+    }
+
+    /**
+     * @param numProbes the number of clusters to probe. Zero or less means the exact brute-force search.
+     * @param reverse if true, return the least similar features instead.
+     * @param accept only the positions accepted by it are returned besides the query itself. It could be null.
+     * @return pairs of (position, cosine similarity), the most similar (or least similar if reverse) first.
+     */
+    public List<double[]> getNeighbors(int pos, int numNeighbors, int numProbes, boolean reverse, IntPredicate accept) {
+        double[] query = new double[index.getDimension()];
+        index.getVector(pos, query);
+        if (reverse) {
+            for (int f=0; f<query.length; f++) {
+                query[f] = -query[f];
+            }
+        }
+        List<double[]> neighbors = index.search(query, numNeighbors, numProbes,
+                target -> target != pos && (accept == null || accept.test(target)));
+        if (reverse) {
+            for (double[] pair : neighbors) {
+                pair[1] = -pair[1];
+            }
+        }
+        return neighbors;
+    }
+}
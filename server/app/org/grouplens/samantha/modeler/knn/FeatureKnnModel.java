@@ -22,27 +22,23 @@
 
 package org.grouplens.samantha.modeler.knn;
 
-import com.google.common.collect.Lists;
-import com.google.common.collect.Ordering;
-
-import it.unimi.dsi.fastutil.ints.IntArrayList;
-import it.unimi.dsi.fastutil.ints.IntList;
 import org.apache.commons.math3.linear.RealVector;
 import org.grouplens.samantha.modeler.featurizer.FeatureExtractorUtilities;
 import org.grouplens.samantha.modeler.model.IndexSpace;
 import org.grouplens.samantha.modeler.model.IndexedVectorModel;
 import org.grouplens.samantha.modeler.model.VariableSpace;
 import org.grouplens.samantha.modeler.svdfeature.SVDFeature;
-import org.grouplens.samantha.modeler.svdfeature.SVDFeatureKey;
-import org.grouplens.samantha.modeler.tree.SortingUtilities;
 import play.Logger;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
 
 public class FeatureKnnModel extends IndexedVectorModel {
     private static final long serialVersionUID = 1L;
+    static private final int NUM_RECALL_SAMPLES = 100;
     final private List<String> feaAttrs;
     transient final private SVDFeature svdFeature;
     final private int numNeighbors;
@@ -50,11 +46,24 @@ public class FeatureKnnModel extends IndexedVectorModel {
     final private boolean reverse;
     final private int minSupport;
     final private int numMatch;
+    final private int numProbes;
 
     public FeatureKnnModel(String modelName, List<String> feaAttrs, int numMatch,
                            int numNeighbors, boolean reverse,
                            int minSupport, SVDFeature svdFeature,
                            IndexSpace indexSpace, VariableSpace variableSpace) {
+        this(modelName, feaAttrs, numMatch, numNeighbors, reverse, minSupport, 0, svdFeature,
+                indexSpace, variableSpace);
+    }
+
+    /**
+     * @param numProbes if positive, the neighbors are searched approximately by probing this number of clusters of
+     *                  a {@link FeatureAnnModel} instead of comparing every pair of features.
+     */
+    public FeatureKnnModel(String modelName, List<String> feaAttrs, int numMatch,
+                           int numNeighbors, boolean reverse,
+                           int minSupport, int numProbes, SVDFeature svdFeature,
+                           IndexSpace indexSpace, VariableSpace variableSpace) {
         super(modelName, 0, 2 * numNeighbors, indexSpace, variableSpace);
         this.feaAttrs = feaAttrs;
         this.svdFeature = svdFeature;
@@ -63,79 +72,66 @@ public class FeatureKnnModel extends IndexedVectorModel {
         this.reverse = reverse;
         this.minSupport = minSupport;
         this.numMatch = numMatch;
+        this.numProbes = numProbes;
     }
 
-    private boolean matchPrefixFeatures(int first, int second, List<String> features) {
-        String firstFeature  = features.get(first);
-        String secondFeature  = features.get(second);
-        Map<String, String> firstAttrVals = FeatureExtractorUtilities.decomposeKey(firstFeature);
-        Map<String, String> secondAttrVals = FeatureExtractorUtilities.decomposeKey(secondFeature);
-        for (int i=0; i<numMatch; i++) {
-            String attr = feaAttrs.get(i);
-            if (!firstAttrVals.get(attr).equals(secondAttrVals.get(attr))) {
-                return false;
+    private String[] getMatchPrefixes(FeatureAnnModel annModel) {
+        String[] prefixes = new String[annModel.size()];
+        for (int i=0; i<prefixes.length; i++) {
+            Map<String, String> attrVals = FeatureExtractorUtilities.decomposeKey(annModel.getFeature(i));
+            StringBuilder prefix = new StringBuilder();
+            for (int j=0; j<numMatch; j++) {
+                prefix.append(attrVals.get(feaAttrs.get(j))).append('\t');
             }
+            prefixes[i] = prefix.toString();
         }
-        return true;
+        return prefixes;
     }
 
-    private List<double[]> getNeighbors(int curIndex, IntList svdIndices,
-                                        SVDFeature svdFeature,
-                                        List<String> features) {
-        List<double[]> raw = new ArrayList<>(svdIndices.size());
-        for (int target : svdIndices) {
-            if (target != curIndex && (numMatch == 0 || matchPrefixFeatures(curIndex, target, features))) {
-                double[] pair = new double[2];
-                pair[0] = target;
-                pair[1] = svdFeature.getVectorVarByNameIndex(SVDFeatureKey.FACTORS.get(), target)
-                        .cosine(svdFeature.getVectorVarByNameIndex(SVDFeatureKey.FACTORS.get(), curIndex));
-                raw.add(pair);
-            }
-        }
-        Ordering<double[]> pairDoubleOrdering = SortingUtilities.pairDoubleSecondOrdering();
-        List<double[]> neighbors;
-        if (reverse) {
-            neighbors = pairDoubleOrdering.leastOf(raw, numNeighbors);
-        } else {
-            neighbors = pairDoubleOrdering.greatestOf(raw, numNeighbors);
+    private void logRecall(FeatureAnnModel annModel, IntPredicate[] accepts) {
+        Random random = new Random(annModel.size());
+        double recall = 0.0;
+        int numSamples = Math.min(NUM_RECALL_SAMPLES, annModel.size());
+        for (int i=0; i<numSamples; i++) {
+            int pos = random.nextInt(annModel.size());
+            IntPredicate accept = accepts == null ? null : accepts[pos];
+            recall += IVFVectorIndex.recall(
+                    annModel.getNeighbors(pos, numNeighbors, numProbes, reverse, accept),
+                    annModel.getNeighbors(pos, numNeighbors, 0, reverse, accept));
         }
-        return neighbors;
+        Logger.info("Recall of the approximate neighbors against the exact ones for model {}: {}",
+                modelName, numSamples > 0 ? recall / numSamples : 1.0);
     }
 
     public FeatureKnnModel buildModel() {
-        List<String> features = Lists.newArrayList(svdFeature.getFactorFeatures(minSupport).keySet());
-        IntList svdIndices = new IntArrayList();
-        IntList simIndices = new IntArrayList(features.size());
-        for (int i=0; i<features.size(); i++) {
-            String feature = features.get(i);
-            Map<String, String> attrVals = FeatureExtractorUtilities.decomposeKey(feature);
-            boolean ifModel = true;
-            if (attrVals.size() == feaAttrs.size()) {
-                for (String attr : feaAttrs) {
-                    if (!attrVals.containsKey(attr)) {
-                        ifModel = false;
-                    }
-                }
-            } else {
-                ifModel = false;
-            }
-            if (ifModel) {
-                svdIndices.add(i);
-                ensureKey(feature);
-                simIndices.add(getIndexByKey(feature));
-            } else {
-                simIndices.add(-1);
+        FeatureAnnModel annModel = new FeatureAnnModel(feaAttrs, minSupport, numProbes > 0 ? 0 : 1, svdFeature);
+        int[] simIndices = new int[annModel.size()];
+        for (int i=0; i<simIndices.length; i++) {
+            simIndices[i] = ensureKey(annModel.getFeature(i));
+        }
+        IntPredicate[] accepts = null;
+        if (numMatch > 0) {
+            String[] prefixes = getMatchPrefixes(annModel);
+            accepts = new IntPredicate[prefixes.length];
+            for (int i=0; i<prefixes.length; i++) {
+                String prefix = prefixes[i];
+                accepts[i] = target -> prefix.equals(prefixes[target]);
             }
         }
         Logger.info("Total number of items to compute similarity model {}: {}",
-                modelName, svdIndices.size());
-        svdIndices.parallelStream().forEach(curIdx -> {
-            int simIdx = simIndices.getInt(curIdx);
-            List<double[]> neighbors = getNeighbors(curIdx, svdIndices, svdFeature, features);
+                modelName, annModel.size());
+        if (numProbes > 0) {
+            logRecall(annModel, accepts);
+        }
+        IntPredicate[] finalAccepts = accepts;
+        IntStream.range(0, annModel.size()).parallel().forEach(curIdx -> {
+            int simIdx = simIndices[curIdx];
+            List<double[]> neighbors = annModel.getNeighbors(curIdx, numNeighbors, numProbes, reverse,
+                    finalAccepts == null ? null : finalAccepts[curIdx]);
             RealVector sims = getIndexVector(simIdx);
             for (int j=0; j<neighbors.size(); j++) {
                 double[] neighbor = neighbors.get(j);
-                sims.setEntry(j*2, simIndices.getInt((int)neighbor[0]));
+                sims.setEntry(j*2, simIndices[(int)neighbor[0]]);
                 sims.setEntry(j*2+1, neighbor[1]);
             }
             setIndexVector(simIdx, sims);
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.grouplens.samantha.modeler.knn;
+
+import org.grouplens.samantha.modeler.svdfeature.SVDFeature;
+import org.grouplens.samantha.modeler.svdfeature.SVDFeatureKey;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A maximum inner product search model over the SVDFeature factors and biases of the features composed exactly by
+ * feaAttrs. The bias is kept as the last dimension of each indexed vector, so a query of the user factor sum
+ * followed by 1.0 scores an item as its bias plus the inner product of the factors.
+ */
+public class FeatureMipsModel implements Serializable {
+    private static final long serialVersionUID = 1L;
+    static private final int NUM_ITERATIONS = 10;
+    final private List<String> features;
+    final private IVFVectorIndex index;
+
+    /**
+     * @param numClusters the number of clusters of the index. One makes every search an exact blocked scan.
+     */
+    public FeatureMipsModel(List<String> feaAttrs, int minSupport, int numClusters, SVDFeature svdFeature) {
+        this.features = new ArrayList<>();
+        List<double[]> vectors = new ArrayList<>();
+        for (String feature : FeatureAnnModel.getComposedFeatures(feaAttrs, minSupport, svdFeature)) {
+            double[] vector = FeatureAnnModel.getFactor(feature, 1, svdFeature);
+            if (svdFeature.containsKey(SVDFeatureKey.BIASES.get(), feature)) {
+                int biasIdx = svdFeature.getIndexForKey(SVDFeatureKey.BIASES.get(), feature);
+                vector[vector.length - 1] = svdFeature.getScalarVarByNameIndex(SVDFeatureKey.BIASES.get(),
+                        biasIdx);
+            }
+            features.add(feature);
+            vectors.add(vector);
+        }
+        this.index = new IVFVectorIndex(vectors.toArray(new double[vectors.size()][]), numClusters,
+                NUM_ITERATIONS, features.size());
+    }
+
+    public int size() {
+        return features.size();
+    }
+
+    public String getFeature(int pos) {
+        return features.get(pos);
+    }
+
+    /**
+     * @param numProbes the number of clusters to probe. Zero or less means the exact scan of all the features.
+     * @return pairs of (position, score) in descending order of the score.
+     */
+    public List<double[]> getTopFeatures(double[] ufactSum, int numTop, int numProbes) {
+        double[] query = new double[ufactSum.length + 1];
+        System.arraycopy(ufactSum, 0, query, 0, ufactSum.length);
+        query[ufactSum.length] = 1.0;
+        return index.search(query, numTop, numProbes, null);
+    }
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.grouplens.samantha.modeler.knn;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntPredicate;
+
+/**
+ * An inverted file (IVF) index of dense vectors for top-K inner product search. The vectors are clustered by k-means
+ * and stored row-major in one array grouped by cluster, so both a probe of a few clusters and the exact scan of all
+ * vectors walk contiguous memory. Normalize the vectors and the query to search by cosine similarity. The index keeps
+ * the only copy of the vectors, so users of the index read them back through {@link #getVector(int, double[])}.
+ */
+public class IVFVectorIndex implements Serializable {
+    private static final long serialVersionUID = 1L;
+    static private final int SAMPLES_PER_CLUSTER = 64;
+    final private int dim;
+    final private int size;
+    final private int numClusters;
+    final private double[] vectors;
+    final private int[] ids;
+    final private int[] rows;
+    final private double[] centroids;
+    final private int[] offsets;
+
+    /**
+     * @param vecs the vectors to index, all of the same dimension. Search results refer to them by their position.
+     * @param numClusters the number of k-means clusters. One cluster makes the index an exact blocked scan.
+     * @param numIterations the number of k-means iterations, which are run on a sample of the vectors.
+     */
+    public IVFVectorIndex(double[][] vecs, int numClusters, int numIterations, long seed) {
+        this.size = vecs.length;
+        this.dim = size > 0 ? vecs[0].length : 0;
+        this.numClusters = Math.max(1, Math.min(numClusters, size));
+        this.centroids = new double[this.numClusters * dim];
+        int[] assignment = new int[size];
+        if (this.numClusters > 1) {
+            trainCentroids(vecs, numIterations, new Random(seed));
+            for (int i=0; i<size; i++) {
+                assignment[i] = nearestCentroid(vecs[i]);
+            }
+        }
+        this.offsets = new int[this.numClusters + 1];
+        for (int i=0; i<size; i++) {
+            offsets[assignment[i] + 1]++;
+        }
+        for (int c=0; c<this.numClusters; c++) {
+            offsets[c + 1] += offsets[c];
+        }
+        this.vectors = new double[size * dim];
+        this.ids = new int[size];
+        this.rows = new int[size];
+        int[] next = Arrays.copyOf(offsets, this.numClusters);
+        for (int i=0; i<size; i++) {
+            int row = next[assignment[i]]++;
+            ids[row] = i;
+            rows[i] = row;
+            System.arraycopy(vecs[i], 0, vectors, row * dim, dim);
+        }
+    }
+
+    private void trainCentroids(double[][] vecs, int numIterations, Random random) {
+        int[] sample = new int[size];
+        for (int i=0; i<size; i++) {
+            sample[i] = i;
+        }
+        int numSamples = Math.min(size, numClusters * SAMPLES_PER_CLUSTER);
+        for (int i=0; i<numSamples; i++) {
+            int j = i + random.nextInt(size - i);
+            int tmp = sample[i];
+            sample[i] = sample[j];
+            sample[j] = tmp;
+        }
+        for (int c=0; c<numClusters; c++) {
+            System.arraycopy(vecs[sample[c]], 0, centroids, c * dim, dim);
+        }
+        double[] sums = new double[numClusters * dim];
+        int[] counts = new int[numClusters];
+        for (int iter=0; iter<numIterations; iter++) {
+            Arrays.fill(sums, 0.0);
+            Arrays.fill(counts, 0);
+            for (int s=0; s<numSamples; s++) {
+                double[] vec = vecs[sample[s]];
+                int c = nearestCentroid(vec);
+                counts[c]++;
+                for (int f=0; f<dim; f++) {
+                    sums[c * dim + f] += vec[f];
+                }
+            }
+            for (int c=0; c<numClusters; c++) {
+                if (counts[c] > 0) {
+                    for (int f=0; f<dim; f++) {
+                        centroids[c * dim + f] = sums[c * dim + f] / counts[c];
+                    }
+                }
+            }
+        }
+    }
+
+    private int nearestCentroid(double[] vec) {
+        int nearest = 0;
+        double minDist = Double.MAX_VALUE;
+        for (int c=0; c<numClusters; c++) {
+            double dist = 0.0;
+            int base = c * dim;
+            for (int f=0; f<dim; f++) {
+                double diff = vec[f] - centroids[base + f];
+                dist += diff * diff;
+            }
+            if (dist < minDist) {
+                minDist = dist;
+                nearest = c;
+            }
+        }
+        return nearest;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getNumClusters() {
+        return numClusters;
+    }
+
+    public int getDimension() {
+        return dim;
+    }
+
+    /**
+     * Copy the vector at the position into out, which must be of the dimension of the index.
+     */
+    public void getVector(int pos, double[] out) {
+        System.arraycopy(vectors, rows[pos] * dim, out, 0, dim);
+    }
+
+    /**
+     * Find the vectors with the greatest inner products with the query.
+     *
+     * @param numProbes the number of clusters closest to the query to scan. If it is not positive or not less than
+     *                  the number of clusters, all vectors are scanned and the result is exact.
+     * @param accept only the vector positions accepted by this predicate are returned. It could be null.
+     * @return pairs of (vector position, inner product) in descending order of the inner product.
+     */
+    public List<double[]> search(double[] query, int k, int numProbes, IntPredicate accept) {
+        TopKHeap heap = new TopKHeap(k);
+        if (numProbes <= 0 || numProbes >= numClusters) {
+            scan(query, 0, size, accept, heap);
+        } else {
+            TopKHeap clusters = new TopKHeap(numProbes);
+            for (int c=0; c<numClusters; c++) {
+                if (offsets[c] < offsets[c + 1]) {
+                    clusters.offer(c, dot(query, centroids, c * dim));
+                }
+            }
+            for (int i=0; i<clusters.size; i++) {
+                int c = clusters.ids[i];
+                scan(query, offsets[c], offsets[c + 1], accept, heap);
+            }
+        }
+        return heap.toSortedList();
+    }
+
+    private void scan(double[] query, int startRow, int endRow, IntPredicate accept, TopKHeap heap) {
+        for (int row=startRow; row<endRow; row++) {
+            int id = ids[row];
+            if (accept == null || accept.test(id)) {
+                heap.offer(id, dot(query, vectors, row * dim));
+            }
+        }
+    }
+
+    private double dot(double[] query, double[] data, int base) {
+        double product = 0.0;
+        for (int f=0; f<dim; f++) {
+            product += query[f] * data[base + f];
+        }
+        return product;
+    }
+
+    /**
+     * @return the fraction of the exact neighbors found in the approximate ones.
+     */
+    static public double recall(List<double[]> approximate, List<double[]> exact) {
+        if (exact.size() == 0) {
+            return 1.0;
+        }
+        int hits = 0;
+        for (double[] exactPair : exact) {
+            for (double[] pair : approximate) {
+                if (pair[0] == exactPair[0]) {
+                    hits++;
+                    break;
+                }
+            }
+        }
+        return (double) hits / exact.size();
+    }
+
+    /**
+     * A bounded min-heap keeping the k greatest scores seen.
+     */
+    static private class TopKHeap {
+        final private int k;
+        final private int[] ids;
+        final private double[] scores;
+        private int size = 0;
+
+        TopKHeap(int k) {
+            this.k = Math.max(k, 0);
+            this.ids = new int[this.k];
+            this.scores = new double[this.k];
+        }
+
+        void offer(int id, double score) {
+            if (size < k) {
+                ids[size] = id;
+                scores[size] = score;
+                siftUp(size++);
+            } else if (k > 0 && score > scores[0]) {
+                ids[0] = id;
+                scores[0] = score;
+                siftDown(0);
+            }
+        }
+
+        private void swap(int i, int j) {
+            int id = ids[i];
+            ids[i] = ids[j];
+            ids[j] = id;
+            double score = scores[i];
+            scores[i] = scores[j];
+            scores[j] = score;
+        }
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) / 2;
+                if (scores[i] >= scores[parent]) {
+                    break;
+                }
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int smallest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < size && scores[left] < scores[smallest]) {
+                    smallest = left;
+                }
+                if (right < size && scores[right] < scores[smallest]) {
+                    smallest = right;
+                }
+                if (smallest == i) {
+                    break;
+                }
+                swap(i, smallest);
+                i = smallest;
+            }
+        }
+
+        List<double[]> toSortedList() {
+            List<double[]> pairs = new ArrayList<>(size);
+            for (int i=0; i<size; i++) {
+                pairs.add(new double[]{ids[i], scores[i]});
+            }
+            pairs.sort((a, b) -> Double.compare(b[1], a[1]));
+            return pairs;
+        }
+    }
+}
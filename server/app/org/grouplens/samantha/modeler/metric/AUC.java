@@ -45,6 +45,7 @@ public class AUC implements Metric {
     private double sumAUC = 0.0;
     private final AUCType aucType;
     private final double minValue;
+    private final AUCSketch sketch;
 
     static public double computeAUC(List<double[]> list, double threshold) {
         Ordering<double[]> ordering = SortingUtilities.pairDoubleSecondOrdering();
@@ -71,6 +72,7 @@ public class AUC implements Metric {
 
     private interface aucMethods {
         void add(List<ObjectNode> groundTruth, List<Prediction> predictions, AUC auc);
+        void merge(AUC auc, AUC other);
         double getAUC(AUC auc);
     }
 
@@ -81,6 +83,11 @@ public class AUC implements Metric {
                 auc.N += groundTruth.size();
                 addIntoList(groundTruth, predictions, auc);
             }
+            public void merge(AUC auc, AUC other) {
+                auc.N += other.N;
+                auc.numPos += other.numPos;
+                auc.list.addAll(other.list);
+            }
             public double getAUC(AUC auc) {
                 return computeAUC(auc.list, auc.threshold);
             }
@@ -95,6 +102,10 @@ public class AUC implements Metric {
                     auc.N++;
                 }
             }
+            public void merge(AUC auc, AUC other) {
+                auc.N += other.N;
+                auc.sumAUC += other.sumAUC;
+            }
             public double getAUC(AUC auc) {
                 if (auc.N > 0) {
                     return auc.sumAUC / auc.N;
@@ -102,6 +113,27 @@ public class AUC implements Metric {
                     return 0.0;
                 }
             }
+        },
+        STREAMING("streaming") {
+            public void add(List<ObjectNode> groundTruth, List<Prediction> predictions, AUC auc) {
+                auc.N += groundTruth.size();
+                for (int i=0; i<groundTruth.size(); i++) {
+                    double label = groundTruth.get(i).get(auc.labelName).asDouble();
+                    auc.sketch.add(predictions.get(i).getScore(), label >= auc.threshold);
+                }
+            }
+            public void merge(AUC auc, AUC other) {
+                auc.N += other.N;
+                auc.sketch.merge(other.sketch);
+            }
+            public double getAUC(AUC auc) {
+                if (auc.sketch.getNumPos() < 1 || auc.sketch.getNumNeg() < 1) {
+                    logger.warn("AUC is set to 0.5 for the number of negatives and positives is: {}, {}",
+                            auc.sketch.getNumNeg(), auc.sketch.getNumPos());
+                    return 0.5;
+                }
+                return auc.sketch.getAUC();
+            }
         };
         private final String key;
 
@@ -128,22 +160,43 @@ public class AUC implements Metric {
     }
 
     public AUC(String labelName, AUCType aucType, double threshold, double minValue) {
+        this(labelName, aucType, threshold, minValue, 0.001);
+    }
+
+    /**
+     * @param scoreAccuracy the relative accuracy of the scores for the STREAMING type, which keeps a histogram of
+     *                      the scores instead of all of them. It does not bound the error of the AUC, which is
+     *                      reported as maxError. See {@link AUCSketch}.
+     */
+    public AUC(String labelName, AUCType aucType, double threshold, double minValue, double scoreAccuracy) {
         this.labelName = labelName;
         this.aucType = aucType;
         this.threshold = threshold;
         this.minValue = minValue;
+        if (aucType == AUCType.STREAMING) {
+            this.sketch = new AUCSketch(scoreAccuracy, 1e-9);
+        } else {
+            this.sketch = null;
+        }
     }
 
     public void add(List<ObjectNode> groundTruth, List<Prediction> predictions) {
         aucType.add(groundTruth, predictions, this);
     }
 
+    public void merge(Metric other) {
+        aucType.merge(this, (AUC) other);
+    }
+
     public MetricResult getResults() {
         ObjectNode result = Json.newObject();
         result.put(ConfigKey.EVALUATOR_METRIC_NAME.get(), "AUC");
         ObjectNode para = Json.newObject();
         para.put("type", aucType.get());
         para.put("threshold", threshold);
+        if (sketch != null && sketch.getNumPos() > 0 && sketch.getNumNeg() > 0) {
+            para.put("maxError", sketch.getMaxError());
+        }
         result.set(ConfigKey.EVALUATOR_METRIC_PARA.get(), para);
         double value = aucType.getAUC(this);
         result.put(ConfigKey.EVALUATOR_METRIC_VALUE.get(), value);
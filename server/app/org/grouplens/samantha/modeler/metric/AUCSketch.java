@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.grouplens.samantha.modeler.metric;
+
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+
+import java.util.Collections;
+
+/**
+ * Mergeable histogram of the numbers of positive and negative labels by score, for computing AUC in bounded memory.
+ * Scores are put into logarithmic buckets whose values differ by at most a relative score accuracy, so the memory only
+ * depends on the dynamic range of the scores and the accuracy. The accuracy bounds the relative error of the score
+ * quantiles, not the error of the AUC: positives and negatives in the same bucket are counted as ties, which makes the
+ * AUC differ from the exact one by at most {@link #getMaxError()}. That depends on how many positive-negative pairs
+ * have scores closer than the accuracy, e.g. up to 0.5 if all the scores are within it of each other.
+ */
+public class AUCSketch {
+    private final double logGamma;
+    private final double minIndexedValue;
+    private final int minIndex;
+    private final Int2ObjectMap<long[]> buckets = new Int2ObjectOpenHashMap<>();
+    private long numPos = 0;
+    private long numNeg = 0;
+
+    /**
+     * @param scoreAccuracy the maximum relative difference of two scores in the same bucket, in (0, 1).
+     * @param minIndexedValue scores with an absolute value below it are all put into the same bucket around zero.
+     */
+    public AUCSketch(double scoreAccuracy, double minIndexedValue) {
+        double gamma = (1.0 + scoreAccuracy) / (1.0 - scoreAccuracy);
+        this.logGamma = Math.log(gamma);
+        this.minIndexedValue = minIndexedValue;
+        this.minIndex = index(minIndexedValue);
+    }
+
+    private int index(double value) {
+        return (int) Math.ceil(Math.log(value) / logGamma);
+    }
+
+    /**
+     * The key is monotone in the score: negative scores get negative keys and scores around zero get key zero.
+     */
+    private int getKey(double score) {
+        if (Double.isNaN(score) || Math.abs(score) < minIndexedValue) {
+            return 0;
+        } else if (score > 0.0) {
+            return index(score) - minIndex + 1;
+        } else {
+            return -(index(-score) - minIndex + 1);
+        }
+    }
+
+    public void add(double score, boolean positive) {
+        int key = getKey(score);
+        long[] counts = buckets.get(key);
+        if (counts == null) {
+            counts = new long[2];
+            buckets.put(key, counts);
+        }
+        if (positive) {
+            counts[0]++;
+            numPos++;
+        } else {
+            counts[1]++;
+            numNeg++;
+        }
+    }
+
+    public void merge(AUCSketch other) {
+        for (Int2ObjectMap.Entry<long[]> entry : other.buckets.int2ObjectEntrySet()) {
+            long[] counts = buckets.get(entry.getIntKey());
+            if (counts == null) {
+                counts = new long[2];
+                buckets.put(entry.getIntKey(), counts);
+            }
+            counts[0] += entry.getValue()[0];
+            counts[1] += entry.getValue()[1];
+        }
+        numPos += other.numPos;
+        numNeg += other.numNeg;
+    }
+
+    public long getNumPos() {
+        return numPos;
+    }
+
+    public long getNumNeg() {
+        return numNeg;
+    }
+
+    public int getNumBuckets() {
+        return buckets.size();
+    }
+
+    /**
+     * @return the AUC with the positives and negatives in the same bucket counted as half correctly ordered.
+     */
+    public double getAUC() {
+        IntList keys = new IntArrayList(buckets.keySet());
+        Collections.sort(keys);
+        double area = 0.0;
+        double negBelow = 0.0;
+        for (int i=0; i<keys.size(); i++) {
+            long[] counts = buckets.get(keys.getInt(i));
+            area += counts[0] * (negBelow + 0.5 * counts[1]);
+            negBelow += counts[1];
+        }
+        return area / ((double) numPos * numNeg);
+    }
+
+    /**
+     * @return the maximum absolute difference between {@link #getAUC()} and the exact AUC, i.e. half the fraction of
+     * positive-negative pairs falling into the same bucket.
+     */
+    public double getMaxError() {
+        double tied = 0.0;
+        for (long[] counts : buckets.values()) {
+            tied += (double) counts[0] * counts[1];
+        }
+        return 0.5 * tied / ((double) numPos * numNeg);
+    }
+}
@@ -50,6 +50,12 @@ public class MAE implements Metric {
         }
     }
 
+    public void merge(Metric other) {
+        MAE that = (MAE) other;
+        error += that.error;
+        n += that.n;
+    }
+
     public MetricResult getResults() {
         ObjectNode result = Json.newObject();
         result.put(ConfigKey.EVALUATOR_METRIC_NAME.get(), "MAE");
@@ -102,6 +102,12 @@ public class MAP implements Metric {
         cnt += 1;
     }
 
+    public void merge(Metric other) {
+        MAP that = (MAP) other;
+        MetricUtilities.mergeTopNMetrics(AP, that.AP);
+        cnt += that.cnt;
+    }
+
     public MetricResult getResults() {
         return MetricUtilities.getTopNResults("MAP", N, threshold, minValue, AP, cnt);
     }
@@ -98,6 +98,12 @@ public class MRR implements Metric {
         cnt += 1;
     }
 
+    public void merge(Metric other) {
+        MRR that = (MRR) other;
+        MetricUtilities.mergeTopNMetrics(RR, that.RR);
+        cnt += that.cnt;
+    }
+
     public MetricResult getResults() {
         return MetricUtilities.getTopNResults("MRR", N, threshold, minValue, RR, cnt);
     }
@@ -32,4 +32,10 @@ import java.util.List;
 public interface Metric {
     void add(List<ObjectNode> groundTruth, List<Prediction> results);
     MetricResult getResults();
+
+    /**
+     * Merge the accumulated state of another metric of the same class and parameters into this one, e.g. the
+     * metrics of the workers of a parallel evaluation. The other metric must not be used afterwards.
+     */
+    void merge(Metric other);
 }
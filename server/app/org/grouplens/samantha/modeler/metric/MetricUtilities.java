@@ -67,6 +67,12 @@ public class MetricUtilities {
         return new MetricResult(results, pass);
     }
 
+    static public void mergeTopNMetrics(DoubleList metrics, DoubleList others) {
+        for (int i=0; i<metrics.size(); i++) {
+            metrics.set(i, metrics.getDouble(i) + others.getDouble(i));
+        }
+    }
+
     static public Object2DoubleMap<String> getRelevantItemsWithValues(
             List<String> itemKeys, String separator,
             String relevanceKey, List<ObjectNode> groundTruth) {
@@ -115,6 +115,12 @@ public class NDCG implements Metric {
         cnt += 1;
     }
 
+    public void merge(Metric other) {
+        NDCG that = (NDCG) other;
+        MetricUtilities.mergeTopNMetrics(DCG, that.DCG);
+        cnt += that.cnt;
+    }
+
     public MetricResult getResults() {
         return MetricUtilities.getTopNResults("nDCG", N, null, minValue, DCG, cnt);
     }
@@ -99,6 +99,12 @@ public class Precision implements Metric {
         cnt += 1;
     }
 
+    public void merge(Metric other) {
+        Precision that = (Precision) other;
+        MetricUtilities.mergeTopNMetrics(AP, that.AP);
+        cnt += that.cnt;
+    }
+
     public MetricResult getResults() {
         return MetricUtilities.getTopNResults("Precision", N, threshold, minValue, AP, cnt);
     }
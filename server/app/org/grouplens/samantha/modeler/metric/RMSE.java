@@ -51,6 +51,12 @@ public class RMSE implements Metric {
         }
     }
 
+    public void merge(Metric other) {
+        RMSE that = (RMSE) other;
+        errorSquared += that.errorSquared;
+        n += that.n;
+    }
+
     public MetricResult getResults() {
         ObjectNode result = Json.newObject();
         result.put(ConfigKey.EVALUATOR_METRIC_NAME.get(), "RMSE");
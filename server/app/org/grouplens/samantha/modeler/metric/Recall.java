@@ -99,6 +99,12 @@ public class Recall implements Metric {
         cnt += 1;
     }
 
+    public void merge(Metric other) {
+        Recall that = (Recall) other;
+        MetricUtilities.mergeTopNMetrics(AR, that.AR);
+        cnt += that.cnt;
+    }
+
     public MetricResult getResults() {
         return MetricUtilities.getTopNResults("Recall", N, threshold, minValue, AR, cnt);
     }
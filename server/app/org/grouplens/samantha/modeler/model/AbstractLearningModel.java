@@ -41,6 +41,10 @@ abstract public class AbstractLearningModel implements LearningModel {
         variableSpace.publishSpaceVersion();
     }
 
+    public long getMemoryFootprint() {
+        return variableSpace.getMemoryFootprint();
+    }
+
     public RealVector getScalarVarByName(String name) {
         return variableSpace.getScalarVarByName(name);
     }
@@ -77,6 +81,10 @@ abstract public class AbstractLearningModel implements LearningModel {
         return variableSpace.getVectorVarByNameIndex(name, index);
     }
 
+    public RealVector getVectorVarViewByNameIndex(String name, int index) {
+        return variableSpace.getVectorVarViewByNameIndex(name, index);
+    }
+
     public void setVectorVarByNameIndex(String name, int index, RealVector var) {
         variableSpace.setVectorVarByNameIndex(name, index, var);
     }
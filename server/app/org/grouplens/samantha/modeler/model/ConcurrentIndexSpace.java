@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.grouplens.samantha.modeler.model;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An {@link IndexSpace} whose lookups never take a lock, meant for featurizing under concurrent prediction and online
+ * updates. Each key map is a {@link ConcurrentHashMap} from key to index plus an append-only chunked array from index
+ * back to key. Only adding a new key synchronizes on its key map, which keeps the indices dense.
+ */
+public final class ConcurrentIndexSpace implements IndexSpace {
+    private static final long serialVersionUID = 1L;
+    private final Map<String, KeyIndex> keyMap = new ConcurrentHashMap<>();
+
+    static final class KeyIndex implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private static final int CHUNK_SHIFT = 12;
+        private static final int KEYS_PER_CHUNK = 1 << CHUNK_SHIFT;
+        private static final int CHUNK_MASK = KEYS_PER_CHUNK - 1;
+        private transient Map<Object, Integer> key2idx = new ConcurrentHashMap<>();
+        private transient volatile Object[][] chunks = new Object[0][];
+        private transient volatile int size = 0;
+
+        int getIndex(Object key, int defaultIndex) {
+            Integer index = key2idx.get(key);
+            if (index == null) {
+                return defaultIndex;
+            }
+            return index;
+        }
+
+        Object getKey(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return chunks[index >>> CHUNK_SHIFT][index & CHUNK_MASK];
+        }
+
+        int size() {
+            return size;
+        }
+
+        synchronized int setKey(Object key) {
+            Integer existing = key2idx.get(key);
+            if (existing != null) {
+                return existing;
+            }
+            int index = size;
+            int chunk = index >>> CHUNK_SHIFT;
+            Object[][] curChunks = chunks;
+            if (chunk >= curChunks.length) {
+                curChunks = Arrays.copyOf(curChunks, chunk + 1);
+                curChunks[chunk] = new Object[KEYS_PER_CHUNK];
+            }
+            curChunks[chunk][index & CHUNK_MASK] = key;
+            chunks = curChunks;
+            size = index + 1;
+            key2idx.put(key, index);
+            return index;
+        }
+
+        synchronized private void writeObject(ObjectOutputStream stream) throws IOException {
+            stream.defaultWriteObject();
+            stream.writeInt(size);
+            for (int i=0; i<size; i++) {
+                stream.writeObject(getKey(i));
+            }
+        }
+
+        private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+            stream.defaultReadObject();
+            key2idx = new ConcurrentHashMap<>();
+            chunks = new Object[0][];
+            size = 0;
+            int numKeys = stream.readInt();
+            for (int i=0; i<numKeys; i++) {
+                setKey(stream.readObject());
+            }
+        }
+    }
+
+    @Inject
+    public ConcurrentIndexSpace() {}
+
+    public void setSpaceState(String spaceName, SpaceMode spaceMode) {}
+
+    public void publishSpaceVersion() {}
+
+    public void requestKeyMap(String name) {
+        keyMap.put(name, new KeyIndex());
+    }
+
+    public boolean hasKeyMap(String name) {
+        return keyMap.containsKey(name);
+    }
+
+    public int getKeyMapSize(String name) {
+        return keyMap.get(name).size();
+    }
+
+    public int setKey(String name, Object key) {
+        return keyMap.get(name).setKey(key);
+    }
+
+    public boolean containsKey(String name, Object key) {
+        return keyMap.get(name).getIndex(key, -1) >= 0;
+    }
+
+    public int getIndexForKey(String name, Object key) {
+        return keyMap.get(name).getIndex(key, 0);
+    }
+
+    public int getOrSetKey(String name, Object key, boolean update) {
+        KeyIndex keyIndex = keyMap.get(name);
+        int index = keyIndex.getIndex(key, -1);
+        if (index < 0 && update) {
+            index = keyIndex.setKey(key);
+        }
+        return index;
+    }
+
+    public Object getKeyForIndex(String name, int index) {
+        return keyMap.get(name).getKey(index);
+    }
+}
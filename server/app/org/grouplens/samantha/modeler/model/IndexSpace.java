@@ -40,4 +40,19 @@ public interface IndexSpace extends Serializable {
     int getIndexForKey(String name, Object key);
     Object getKeyForIndex(String name, int index);
     int getKeyMapSize(String name);
+
+    /**
+     * Look up the index of the key in a single call, adding the key if it is absent and {@code update} is true.
+     *
+     * @return the index of the key, or -1 if the key is absent and {@code update} is false.
+     */
+    default int getOrSetKey(String name, Object key, boolean update) {
+        if (containsKey(name, key)) {
+            return getIndexForKey(name, key);
+        } else if (update) {
+            return setKey(name, key);
+        } else {
+            return -1;
+        }
+    }
 }
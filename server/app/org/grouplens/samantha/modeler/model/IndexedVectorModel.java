@@ -85,4 +85,8 @@ public class IndexedVectorModel implements SpaceModel {
         indexSpace.publishSpaceVersion();
         variableSpace.publishSpaceVersion();
     }
+
+    public long getMemoryFootprint() {
+        return variableSpace.getMemoryFootprint();
+    }
 }
@@ -42,6 +42,14 @@ public class ObjectKeyIndex<K> implements Serializable {
         return key2idx.getInt(key);
     }
 
+    public int getIndex(K key, int defaultIndex) {
+        int idx = key2idx.getInt(key);
+        if (idx == key2idx.defaultReturnValue() && !key2idx.containsKey(key)) {
+            return defaultIndex;
+        }
+        return idx;
+    }
+
     public K getKey(int idx) {
         return keyList.get(idx);
     }
@@ -0,0 +1,631 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.grouplens.samantha.modeler.model;
+
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.linear.RealVector;
+import org.grouplens.samantha.modeler.solver.RandomInitializer;
+import org.grouplens.samantha.server.exception.BadRequestException;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A variable space keeping every variable in chunked primitive double slabs instead of one {@link RealVector}
+ * (or boxed list element) per row. Rows of a variable are laid out contiguously inside chunks of
+ * {@link #ROWS_PER_CHUNK} rows, so growing a variable through ensureScalarVar/ensureVectorVar only allocates new
+ * chunks and never copies existing rows. Row-level access is guarded by a fixed number of striped read-write locks.
+ * A chunk is either a wrapped heap array or a region of a memory-mapped snapshot (see {@link SnapshotUtilities}).
+ * A read-only mapped chunk is copied onto the heap the first time one of its rows is written.
+ *
+ * {@link #getVectorVarViewByNameIndex(String, int)} returns a {@link SlabRowVector} directly over the slab without
+ * copying, while {@link #getVectorVarByNameIndex(String, int)} keeps the copy semantics of the interface.
+ */
+public final class PrimitiveVariableSpace implements VariableSpace {
+    private static final long serialVersionUID = 1L;
+    static final int CHUNK_SHIFT = 12;
+    static final int ROWS_PER_CHUNK = 1 << CHUNK_SHIFT;
+    static final int CHUNK_MASK = ROWS_PER_CHUNK - 1;
+    private static final int NUM_STRIPES = 1024;
+    private final Map<String, Slab> scalarVars = new HashMap<>();
+    private final Map<String, Slab> vectorVars = new HashMap<>();
+    private final Lock readLock;
+    private final Lock writeLock;
+    private final Lock[] readLocks = new Lock[NUM_STRIPES];
+    private final Lock[] writeLocks = new Lock[NUM_STRIPES];
+
+    static final class Slab implements Serializable {
+        private static final long serialVersionUID = 1L;
+        final int dim;
+        transient volatile int size = 0;
+        transient volatile DoubleBuffer[] chunks = new DoubleBuffer[0];
+
+        Slab(int dim) {
+            this.dim = dim;
+        }
+
+        /**
+         * Build a slab over existing chunks, e.g. regions of a memory-mapped snapshot. Every chunk except the last
+         * one must hold exactly {@link #ROWS_PER_CHUNK} rows.
+         */
+        Slab(int dim, int size, DoubleBuffer[] chunks) {
+            this.dim = dim;
+            this.size = size;
+            this.chunks = chunks;
+        }
+
+        DoubleBuffer chunk(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("index " + index + " out of size " + size);
+            }
+            return chunks[index >>> CHUNK_SHIFT];
+        }
+
+        /**
+         * Same as {@link #chunk(int)} but copies a read-only chunk onto the heap first, so that it can be written.
+         * No write can land in a read-only chunk, so the copy does not need the row locks.
+         */
+        DoubleBuffer writableChunk(int index) {
+            DoubleBuffer chunk = chunk(index);
+            if (!chunk.isReadOnly()) {
+                return chunk;
+            }
+            synchronized (this) {
+                int chunkIndex = index >>> CHUNK_SHIFT;
+                chunk = chunks[chunkIndex];
+                if (chunk.isReadOnly()) {
+                    double[] values = new double[chunk.capacity()];
+                    for (int i=0; i<values.length; i++) {
+                        values[i] = chunk.get(i);
+                    }
+                    DoubleBuffer[] newChunks = chunks.clone();
+                    newChunks[chunkIndex] = DoubleBuffer.wrap(values);
+                    chunks = newChunks;
+                    chunk = newChunks[chunkIndex];
+                }
+                return chunk;
+            }
+        }
+
+        int offset(int index) {
+            return (index & CHUNK_MASK) * dim;
+        }
+
+        /**
+         * Whether {@link #grow(int)} has to copy the last chunk, which must then be done under all the row locks.
+         */
+        synchronized boolean hasPartialChunk() {
+            return chunks.length > 0 && chunks[chunks.length - 1].capacity() < ROWS_PER_CHUNK * dim;
+        }
+
+        synchronized void grow(int newSize) {
+            if (newSize <= size) {
+                return;
+            }
+            int numChunks = (newSize + ROWS_PER_CHUNK - 1) >>> CHUNK_SHIFT;
+            int chunkLength = ROWS_PER_CHUNK * dim;
+            DoubleBuffer[] newChunks = chunks;
+            if (hasPartialChunk()) {
+                DoubleBuffer last = chunks[chunks.length - 1];
+                DoubleBuffer full = DoubleBuffer.wrap(new double[chunkLength]);
+                for (int i=0; i<last.capacity(); i++) {
+                    full.put(i, last.get(i));
+                }
+                newChunks = chunks.clone();
+                newChunks[chunks.length - 1] = full;
+            }
+            if (numChunks > newChunks.length) {
+                DoubleBuffer[] grown = new DoubleBuffer[numChunks];
+                System.arraycopy(newChunks, 0, grown, 0, newChunks.length);
+                for (int i=newChunks.length; i<numChunks; i++) {
+                    grown[i] = DoubleBuffer.wrap(new double[chunkLength]);
+                }
+                newChunks = grown;
+            }
+            chunks = newChunks;
+            size = newSize;
+        }
+
+        long footprint() {
+            long footprint = 0L;
+            for (DoubleBuffer chunk : chunks) {
+                footprint += (long) chunk.capacity() * Double.BYTES;
+            }
+            return footprint;
+        }
+
+        private void writeObject(ObjectOutputStream stream) throws IOException {
+            stream.defaultWriteObject();
+            stream.writeInt(size);
+            for (int i=0; i<size; i++) {
+                DoubleBuffer chunk = chunk(i);
+                int offset = offset(i);
+                for (int j=0; j<dim; j++) {
+                    stream.writeDouble(chunk.get(offset + j));
+                }
+            }
+        }
+
+        private void readObject(ObjectInputStream stream) throws IOException, ClassNotFoundException {
+            stream.defaultReadObject();
+            chunks = new DoubleBuffer[0];
+            size = 0;
+            grow(stream.readInt());
+            for (int i=0; i<size; i++) {
+                DoubleBuffer chunk = chunk(i);
+                int offset = offset(i);
+                for (int j=0; j<dim; j++) {
+                    chunk.put(offset + j, stream.readDouble());
+                }
+            }
+        }
+    }
+
+    @Inject
+    public PrimitiveVariableSpace() {
+        ReentrantReadWriteLock rwl = new ReentrantReadWriteLock();
+        readLock = rwl.readLock();
+        writeLock = rwl.writeLock();
+        for (int i=0; i<NUM_STRIPES; i++) {
+            ReentrantReadWriteLock nrwl = new ReentrantReadWriteLock();
+            readLocks[i] = nrwl.readLock();
+            writeLocks[i] = nrwl.writeLock();
+        }
+    }
+
+    public void setSpaceState(String spaceName, SpaceMode spaceMode) {}
+
+    public void publishSpaceVersion() {}
+
+    private Lock getReadLock(int index) {
+        return readLocks[index & (NUM_STRIPES - 1)];
+    }
+
+    private Lock getWriteLock(int index) {
+        return writeLocks[index & (NUM_STRIPES - 1)];
+    }
+
+    private void lockAllRows() {
+        for (int i=0; i<NUM_STRIPES; i++) {
+            writeLocks[i].lock();
+        }
+    }
+
+    private void unlockAllRows() {
+        for (int i=NUM_STRIPES - 1; i>=0; i--) {
+            writeLocks[i].unlock();
+        }
+    }
+
+    private Slab getSlab(Map<String, Slab> vars, String name) {
+        readLock.lock();
+        try {
+            return vars.get(name);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    private void initializeRows(Slab slab, int from, int to, double initial,
+                                boolean randomize, boolean normalize) {
+        RandomInitializer randInit = new RandomInitializer();
+        for (int i=from; i<to; i++) {
+            DoubleBuffer chunk = slab.writableChunk(i);
+            int offset = slab.offset(i);
+            if (randomize) {
+                if (slab.dim == 1) {
+                    chunk.put(offset, randInit.randInitValue());
+                } else {
+                    randInit.randInitVector(new SlabRowVector(chunk, offset, slab.dim), normalize);
+                }
+            } else if (initial != 0.0) {
+                for (int j=0; j<slab.dim; j++) {
+                    chunk.put(offset + j, initial);
+                }
+            }
+        }
+    }
+
+    private void ensureSlab(Map<String, Slab> vars, String name, int size, double initial,
+                            boolean randomize, boolean normalize) {
+        writeLock.lock();
+        try {
+            Slab slab = vars.get(name);
+            int curSize = slab.size;
+            if (curSize < size) {
+                if (slab.hasPartialChunk()) {
+                    lockAllRows();
+                    try {
+                        slab.grow(size);
+                    } finally {
+                        unlockAllRows();
+                    }
+                } else {
+                    slab.grow(size);
+                }
+                initializeRows(slab, curSize, size, initial, randomize, normalize);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    final public void requestScalarVar(String name, int size, double initial, boolean randomize) {
+        Slab slab = new Slab(1);
+        slab.grow(size);
+        initializeRows(slab, 0, size, initial, randomize, false);
+        writeLock.lock();
+        try {
+            scalarVars.put(name, slab);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    final public boolean hasScalarVar(String name) {
+        readLock.lock();
+        try {
+            return scalarVars.containsKey(name);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    final public void ensureScalarVar(String name, int size, double initial, boolean randomize) {
+        ensureSlab(scalarVars, name, size, initial, randomize, false);
+    }
+
+    final public void requestVectorVar(String name, int size, int dim, double initial,
+                                       boolean randomize, boolean normalize) {
+        Slab slab = new Slab(dim);
+        slab.grow(size);
+        initializeRows(slab, 0, size, initial, randomize, normalize);
+        writeLock.lock();
+        try {
+            vectorVars.put(name, slab);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    final public boolean hasVectorVar(String name) {
+        readLock.lock();
+        try {
+            return vectorVars.containsKey(name);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    final public void ensureVectorVar(String name, int size, int dim, double initial,
+                                      boolean randomize, boolean normalize) {
+        ensureSlab(vectorVars, name, size, initial, randomize, normalize);
+    }
+
+    final public RealVector getScalarVarByName(String name) {
+        readLock.lock();
+        try {
+            Slab slab = scalarVars.get(name);
+            double[] newVar = new double[slab.size];
+            for (int i=0; i<slab.size; i++) {
+                newVar[i] = slab.chunk(i).get(slab.offset(i));
+            }
+            return MatrixUtils.createRealVector(newVar);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    final public int getScalarVarSizeByName(String name) {
+        readLock.lock();
+        try {
+            return scalarVars.get(name).size;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    final public void setScalarVarByName(String name, RealVector vars) {
+        writeLock.lock();
+        try {
+            Slab slab = scalarVars.get(name);
+            for (int i=0; i<slab.size; i++) {
+                slab.writableChunk(i).put(slab.offset(i), vars.getEntry(i));
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    final public double getScalarVarByNameIndex(String name, int index) {
+        Slab slab = getSlab(scalarVars, name);
+        Lock lock = getReadLock(index);
+        lock.lock();
+        try {
+            return slab.chunk(index).get(slab.offset(index));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    final public void setScalarVarByNameIndex(String name, int index, double var) {
+        Slab slab = getSlab(scalarVars, name);
+        Lock lock = getWriteLock(index);
+        lock.lock();
+        try {
+            slab.writableChunk(index).put(slab.offset(index), var);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    final public List<RealVector> getVectorVarByName(String name) {
+        readLock.lock();
+        try {
+            Slab slab = vectorVars.get(name);
+            List<RealVector> vars = new ArrayList<>(slab.size);
+            for (int i=0; i<slab.size; i++) {
+                vars.add(new SlabRowVector(slab.chunk(i), slab.offset(i), slab.dim).copy());
+            }
+            return vars;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    final public RealMatrix getMatrixVarByName(String name) {
+        readLock.lock();
+        try {
+            Slab slab = vectorVars.get(name);
+            RealMatrix matrix = MatrixUtils.createRealMatrix(slab.size, slab.dim);
+            for (int i=0; i<slab.size; i++) {
+                matrix.setRowVector(i, new SlabRowVector(slab.chunk(i), slab.offset(i), slab.dim));
+            }
+            return matrix;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    final public int getVectorVarSizeByName(String name) {
+        readLock.lock();
+        try {
+            return vectorVars.get(name).size;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    final public int getVectorVarDimensionByName(String name) {
+        readLock.lock();
+        try {
+            Slab slab = vectorVars.get(name);
+            if (slab.size == 0) {
+                return 0;
+            } else {
+                return slab.dim;
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    final public RealVector getVectorVarByNameIndex(String name, int index) {
+        Slab slab = getSlab(vectorVars, name);
+        Lock lock = getReadLock(index);
+        lock.lock();
+        try {
+            return new SlabRowVector(slab.chunk(index), slab.offset(index), slab.dim).copy();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    final public RealVector getVectorVarViewByNameIndex(String name, int index) {
+        Slab slab = getSlab(vectorVars, name);
+        return new SlabRowVector(slab.chunk(index), slab.offset(index), slab.dim);
+    }
+
+    final public void setVectorVarByNameIndex(String name, int index, RealVector var) {
+        Slab slab = getSlab(vectorVars, name);
+        Lock lock = getWriteLock(index);
+        lock.lock();
+        try {
+            DoubleBuffer chunk = slab.writableChunk(index);
+            int offset = slab.offset(index);
+            int dim = var.getDimension();
+            for (int i=0; i<dim; i++) {
+                chunk.put(offset + i, var.getEntry(i));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    static private void accumulate(Slab slab, int index, double scale, double[] out) {
+        DoubleBuffer chunk = slab.chunk(index);
+        int offset = slab.offset(index);
+        for (int i=0; i<out.length; i++) {
+            out[i] += scale * chunk.get(offset + i);
+        }
+    }
+
+    static private void update(Slab slab, int index, double decay, double delta) {
+        DoubleBuffer chunk = slab.writableChunk(index);
+        int offset = slab.offset(index);
+        chunk.put(offset, decay * chunk.get(offset) + delta);
+    }
+
+    static private void update(Slab slab, int index, double decay, double scale, double[] delta) {
+        DoubleBuffer chunk = slab.writableChunk(index);
+        int offset = slab.offset(index);
+        for (int i=0; i<delta.length; i++) {
+            chunk.put(offset + i, decay * chunk.get(offset + i) + scale * delta[i]);
+        }
+    }
+
+    final public void accumulateVectorVarByNameIndex(String name, int index, double scale, double[] out) {
+        Slab slab = getSlab(vectorVars, name);
+        Lock lock = getReadLock(index);
+        lock.lock();
+        try {
+            accumulate(slab, index, scale, out);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Neither the space lock nor the row locks are taken. The variable must not be requested, grown or freed
+     * concurrently.
+     */
+    final public void accumulateVectorVarByNameIndexLockFree(String name, int index, double scale, double[] out) {
+        accumulate(vectorVars.get(name), index, scale, out);
+    }
+
+    final public void updateScalarVarByNameIndex(String name, int index, double decay, double delta) {
+        Slab slab = getSlab(scalarVars, name);
+        Lock lock = getWriteLock(index);
+        lock.lock();
+        try {
+            update(slab, index, decay, delta);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    final public void updateScalarVarByNameIndexLockFree(String name, int index, double decay, double delta) {
+        update(scalarVars.get(name), index, decay, delta);
+    }
+
+    final public void updateVectorVarByNameIndex(String name, int index, double decay, double scale,
+                                                 double[] delta) {
+        Slab slab = getSlab(vectorVars, name);
+        Lock lock = getWriteLock(index);
+        lock.lock();
+        try {
+            update(slab, index, decay, scale, delta);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    final public void updateVectorVarByNameIndexLockFree(String name, int index, double decay, double scale,
+                                                         double[] delta) {
+        update(vectorVars.get(name), index, decay, scale, delta);
+    }
+
+    public List<String> getAllScalarVarNames() {
+        readLock.lock();
+        try {
+            return new ArrayList<>(scalarVars.keySet());
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    public List<String> getAllVectorVarNames() {
+        readLock.lock();
+        try {
+            return new ArrayList<>(vectorVars.keySet());
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    void putScalarSlab(String name, Slab slab) {
+        writeLock.lock();
+        try {
+            scalarVars.put(name, slab);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    void putVectorSlab(String name, Slab slab) {
+        writeLock.lock();
+        try {
+            vectorVars.put(name, slab);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public long getMemoryFootprint() {
+        readLock.lock();
+        try {
+            long footprint = 0L;
+            for (Slab slab : scalarVars.values()) {
+                footprint += slab.footprint();
+            }
+            for (Slab slab : vectorVars.values()) {
+                footprint += slab.footprint();
+            }
+            return footprint;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    public void freeSpace() {}
+
+    public void freeScalarVar(String name) {
+        writeLock.lock();
+        try {
+            scalarVars.remove(name);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void freeVectorVar(String name) {
+        writeLock.lock();
+        try {
+            vectorVars.remove(name);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void writeObject(ObjectOutputStream stream) {
+        readLock.lock();
+        try {
+            stream.defaultWriteObject();
+        } catch (IOException e) {
+            throw new BadRequestException(e);
+        } finally {
+            readLock.unlock();
+        }
+    }
+}
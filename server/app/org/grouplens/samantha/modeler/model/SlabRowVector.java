@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.grouplens.samantha.modeler.model;
+
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.RealVector;
+
+import java.nio.DoubleBuffer;
+
+/**
+ * A {@link RealVector} view of one row inside a contiguous primitive slab, i.e. the entries
+ * [offset, offset + dim) of the backing buffer, which is either a wrapped heap array or a memory-mapped
+ * region. No copy is made, so writes through this vector go directly into the backing slab.
+ */
+public final class SlabRowVector extends RealVector {
+    private final DoubleBuffer slab;
+    private final int offset;
+    private final int dim;
+
+    public SlabRowVector(DoubleBuffer slab, int offset, int dim) {
+        this.slab = slab;
+        this.offset = offset;
+        this.dim = dim;
+    }
+
+    private void checkRowIndex(int index) {
+        if (index < 0 || index >= dim) {
+            throw new IndexOutOfBoundsException("index " + index + " out of dimension " + dim);
+        }
+    }
+
+    public int getDimension() {
+        return dim;
+    }
+
+    public double getEntry(int index) {
+        checkRowIndex(index);
+        return slab.get(offset + index);
+    }
+
+    public void setEntry(int index, double value) {
+        checkRowIndex(index);
+        slab.put(offset + index, value);
+    }
+
+    public void addToEntry(int index, double increment) {
+        checkRowIndex(index);
+        slab.put(offset + index, slab.get(offset + index) + increment);
+    }
+
+    public double[] toArray() {
+        double[] out = new double[dim];
+        for (int i=0; i<dim; i++) {
+            out[i] = slab.get(offset + i);
+        }
+        return out;
+    }
+
+    public RealVector copy() {
+        return new ArrayRealVector(toArray(), false);
+    }
+
+    public RealVector append(RealVector v) {
+        return copy().append(v);
+    }
+
+    public RealVector append(double d) {
+        return copy().append(d);
+    }
+
+    public RealVector getSubVector(int index, int n) {
+        checkRowIndex(index);
+        if (n > 0) {
+            checkRowIndex(index + n - 1);
+        }
+        double[] out = new double[n];
+        for (int i=0; i<n; i++) {
+            out[i] = slab.get(offset + index + i);
+        }
+        return new ArrayRealVector(out, false);
+    }
+
+    public void setSubVector(int index, RealVector v) {
+        int n = v.getDimension();
+        checkRowIndex(index);
+        if (n > 0) {
+            checkRowIndex(index + n - 1);
+        }
+        for (int i=0; i<n; i++) {
+            slab.put(offset + index + i, v.getEntry(i));
+        }
+    }
+
+    public boolean isNaN() {
+        for (int i=0; i<dim; i++) {
+            if (Double.isNaN(slab.get(offset + i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isInfinite() {
+        if (isNaN()) {
+            return false;
+        }
+        for (int i=0; i<dim; i++) {
+            if (Double.isInfinite(slab.get(offset + i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public double dotProduct(RealVector v) {
+        checkVectorDimensions(v);
+        double sum = 0.0;
+        for (int i=0; i<dim; i++) {
+            sum += slab.get(offset + i) * v.getEntry(i);
+        }
+        return sum;
+    }
+
+    public RealVector ebeMultiply(RealVector v) {
+        checkVectorDimensions(v);
+        double[] out = toArray();
+        for (int i=0; i<dim; i++) {
+            out[i] *= v.getEntry(i);
+        }
+        return new ArrayRealVector(out, false);
+    }
+
+    public RealVector ebeDivide(RealVector v) {
+        checkVectorDimensions(v);
+        double[] out = toArray();
+        for (int i=0; i<dim; i++) {
+            out[i] /= v.getEntry(i);
+        }
+        return new ArrayRealVector(out, false);
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.grouplens.samantha.modeler.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+
+/**
+ * Deserializes a model written by {@link SnapshotOutputStream}, mapping the referenced variable space snapshots
+ * into memory and rebuilding the referenced index spaces from their key tables.
+ */
+public class SnapshotInputStream extends ObjectInputStream {
+    private final String modelFile;
+
+    public SnapshotInputStream(InputStream in, String modelFile) throws IOException {
+        super(in);
+        this.modelFile = modelFile;
+        enableResolveObject(true);
+    }
+
+    protected void readStreamHeader() throws IOException {
+        int magic = readInt();
+        int version = readInt();
+        if (magic != SnapshotUtilities.MODEL_MAGIC || version != SnapshotUtilities.VERSION) {
+            throw new IOException("Unsupported model snapshot header " + magic + ", version " + version);
+        }
+        super.readStreamHeader();
+    }
+
+    protected Object resolveObject(Object obj) throws IOException {
+        if (obj instanceof SnapshotSpaceReference) {
+            SnapshotSpaceReference reference = (SnapshotSpaceReference) obj;
+            File file = new File(modelFile + reference.fileSuffix);
+            if (reference.variableSpace) {
+                return SnapshotUtilities.mapVariableSpace(file);
+            } else {
+                return SnapshotUtilities.readIndexSpace(file);
+            }
+        } else {
+            return obj;
+        }
+    }
+}
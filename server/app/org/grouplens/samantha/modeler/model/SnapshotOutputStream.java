@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.grouplens.samantha.modeler.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serializes a model in the snapshot format: the model object graph goes through normal Java serialization except
+ * that every supported {@link VariableSpace} and {@link IndexSpace} is written into its own flat snapshot file (see
+ * {@link SnapshotUtilities}) and replaced by a small reference. Models without supported spaces are thus written
+ * exactly as by plain Java serialization.
+ *
+ * The space files are first written as temporary files and only moved into place by {@link #publishSpaceFiles()},
+ * so that processes which mapped a previous snapshot keep reading consistent data.
+ */
+public class SnapshotOutputStream extends ObjectOutputStream {
+    private final String modelFile;
+    private final List<String> fileSuffixes = new ArrayList<>();
+
+    public SnapshotOutputStream(OutputStream out, String modelFile) throws IOException {
+        super(out);
+        this.modelFile = modelFile;
+        enableReplaceObject(true);
+    }
+
+    protected void writeStreamHeader() throws IOException {
+        writeInt(SnapshotUtilities.MODEL_MAGIC);
+        writeInt(SnapshotUtilities.VERSION);
+        super.writeStreamHeader();
+    }
+
+    private File getTmpFile(String fileSuffix) {
+        return new File(modelFile + fileSuffix + ".tmp");
+    }
+
+    protected Object replaceObject(Object obj) throws IOException {
+        if (obj instanceof VariableSpace && SnapshotUtilities.supportsVariableSpace((VariableSpace) obj)) {
+            String fileSuffix = ".space" + fileSuffixes.size();
+            SnapshotUtilities.writeVariableSpace((VariableSpace) obj, getTmpFile(fileSuffix));
+            fileSuffixes.add(fileSuffix);
+            return new SnapshotSpaceReference(fileSuffix, true);
+        } else if (obj instanceof IndexSpace && SnapshotUtilities.supportsIndexSpace((IndexSpace) obj)) {
+            String fileSuffix = ".space" + fileSuffixes.size();
+            SnapshotUtilities.writeIndexSpace((SynchronizedIndexSpace) obj, getTmpFile(fileSuffix));
+            fileSuffixes.add(fileSuffix);
+            return new SnapshotSpaceReference(fileSuffix, false);
+        } else {
+            return obj;
+        }
+    }
+
+    public void publishSpaceFiles() throws IOException {
+        for (String fileSuffix : fileSuffixes) {
+            if (!getTmpFile(fileSuffix).renameTo(new File(modelFile + fileSuffix))) {
+                throw new IOException("Can not move the space snapshot " + getTmpFile(fileSuffix).getPath());
+            }
+        }
+    }
+}
@@ -0,0 +1,339 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.grouplens.samantha.modeler.model;
+
+import org.apache.commons.math3.linear.RealVector;
+import org.grouplens.samantha.server.exception.BadRequestException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Reading and writing of the versioned binary snapshot format of spaces.
+ *
+ * A variable space snapshot stores every variable as a flat little-endian column of size * dim doubles aligned to
+ * eight bytes, preceded by a small header (kind, size, dim and name). Loading maps these columns into memory
+ * privately (copy-on-write), so the loaded {@link PrimitiveVariableSpace} can be served right away, pages are shared
+ * with the page cache of other processes mapping the same file and updates never reach the file. A file which is not
+ * writable by the process is mapped read-only instead and a chunk is copied onto the heap when it is first updated.
+ * Both {@link PrimitiveVariableSpace} and {@link SynchronizedVariableSpace} are written in this format and always
+ * load as a {@link PrimitiveVariableSpace}, which implements the same {@link VariableSpace} contract.
+ *
+ * An index space snapshot stores the key table of every key map as length-prefixed UTF-8 strings. Only
+ * {@link SynchronizedIndexSpace} with string keys is supported; other index spaces stay in the Java serialization.
+ */
+public class SnapshotUtilities {
+    static final int MODEL_MAGIC = 0x534d4d53;
+    static final int VARIABLE_MAGIC = 0x534d5653;
+    static final int INDEX_MAGIC = 0x534d4953;
+    static final int VERSION = 1;
+    private static final int SCALAR_KIND = 0;
+    private static final int VECTOR_KIND = 1;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final long MAX_REGION_SIZE = 1L << 30;
+
+    private SnapshotUtilities() {}
+
+    static private void checkHeader(int magic, int version, int expectedMagic, File file) {
+        if (magic != expectedMagic) {
+            throw new BadRequestException(file.getPath() + " is not a valid snapshot file.");
+        }
+        if (version != VERSION) {
+            throw new BadRequestException("Snapshot version " + version + " of " + file.getPath() +
+                    " is not supported.");
+        }
+    }
+
+    static public boolean isModelSnapshot(String modelFile) {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(modelFile))) {
+            return in.readInt() == MODEL_MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    static boolean supportsVariableSpace(VariableSpace variableSpace) {
+        return variableSpace instanceof PrimitiveVariableSpace || variableSpace instanceof SynchronizedVariableSpace;
+    }
+
+    static boolean supportsIndexSpace(IndexSpace indexSpace) {
+        if (!(indexSpace instanceof SynchronizedIndexSpace)) {
+            return false;
+        }
+        SynchronizedIndexSpace space = (SynchronizedIndexSpace) indexSpace;
+        for (String name : space.getAllKeyMapNames()) {
+            int size = space.getKeyMapSize(name);
+            for (int i=0; i<size; i++) {
+                if (!(space.getKeyForIndex(name, i) instanceof String)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    static private class ColumnWriter implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private long position = 0L;
+
+        private ColumnWriter(File file) throws IOException {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private void putInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+            position += Integer.BYTES;
+        }
+
+        private void putDouble(double value) throws IOException {
+            ensure(Double.BYTES);
+            buffer.putDouble(value);
+            position += Double.BYTES;
+        }
+
+        private void putBytes(byte[] bytes) throws IOException {
+            ensure(bytes.length);
+            buffer.put(bytes);
+            position += bytes.length;
+        }
+
+        private void alignTo(int alignment) throws IOException {
+            while (position % alignment != 0) {
+                ensure(1);
+                buffer.put((byte) 0);
+                position++;
+            }
+        }
+
+        public void close() throws IOException {
+            flush();
+            channel.force(false);
+            channel.close();
+        }
+    }
+
+    static private void writeVariableHeader(ColumnWriter writer, int kind, String name,
+                                            int size, int dim) throws IOException {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        writer.putInt(kind);
+        writer.putInt(size);
+        writer.putInt(dim);
+        writer.putInt(nameBytes.length);
+        writer.putBytes(nameBytes);
+        writer.alignTo(Double.BYTES);
+    }
+
+    static private void writeVector(ColumnWriter writer, RealVector var, int dim) throws IOException {
+        for (int j=0; j<dim; j++) {
+            writer.putDouble(var.getEntry(j));
+        }
+    }
+
+    static void writeVariableSpace(VariableSpace variableSpace, File file) throws IOException {
+        List<String> scalarNames = variableSpace.getAllScalarVarNames();
+        List<String> vectorNames = variableSpace.getAllVectorVarNames();
+        try (ColumnWriter writer = new ColumnWriter(file)) {
+            writer.putInt(VARIABLE_MAGIC);
+            writer.putInt(VERSION);
+            writer.putInt(scalarNames.size() + vectorNames.size());
+            writer.putInt(0);
+            for (String name : scalarNames) {
+                RealVector vars = variableSpace.getScalarVarByName(name);
+                int size = vars.getDimension();
+                writeVariableHeader(writer, SCALAR_KIND, name, size, 1);
+                for (int i=0; i<size; i++) {
+                    writer.putDouble(vars.getEntry(i));
+                }
+            }
+            for (String name : vectorNames) {
+                int size = variableSpace.getVectorVarSizeByName(name);
+                int dim = variableSpace.getVectorVarDimensionByName(name);
+                writeVariableHeader(writer, VECTOR_KIND, name, size, dim);
+                if (variableSpace instanceof PrimitiveVariableSpace) {
+                    for (int i=0; i<size; i++) {
+                        writeVector(writer, variableSpace.getVectorVarViewByNameIndex(name, i), dim);
+                    }
+                } else {
+                    for (RealVector var : variableSpace.getVectorVarByName(name)) {
+                        writeVector(writer, var, dim);
+                    }
+                }
+            }
+        }
+    }
+
+    static private ByteBuffer readFully(FileChannel channel, long position, int bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of snapshot file.");
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    static private PrimitiveVariableSpace.Slab mapSlab(FileChannel channel, FileChannel.MapMode mode,
+                                                       long position, int size, int dim) throws IOException {
+        if (size == 0 || dim == 0) {
+            PrimitiveVariableSpace.Slab slab = new PrimitiveVariableSpace.Slab(dim);
+            slab.grow(size);
+            return slab;
+        }
+        long chunkBytes = (long) PrimitiveVariableSpace.ROWS_PER_CHUNK * dim * Double.BYTES;
+        long totalBytes = (long) size * dim * Double.BYTES;
+        int numChunks = (size + PrimitiveVariableSpace.ROWS_PER_CHUNK - 1) >>> PrimitiveVariableSpace.CHUNK_SHIFT;
+        long chunksPerRegion = Math.max(1L, MAX_REGION_SIZE / chunkBytes);
+        DoubleBuffer[] chunks = new DoubleBuffer[numChunks];
+        for (int start=0; start<numChunks; start+=chunksPerRegion) {
+            long regionStart = start * chunkBytes;
+            long regionBytes = Math.min(chunksPerRegion * chunkBytes, totalBytes - regionStart);
+            MappedByteBuffer region = channel.map(mode, position + regionStart, regionBytes);
+            for (int i=start; i<numChunks && i<start + chunksPerRegion; i++) {
+                int chunkStart = (int) ((i - start) * chunkBytes);
+                int chunkEnd = (int) Math.min(chunkStart + chunkBytes, regionBytes);
+                ByteBuffer chunk = region.duplicate();
+                chunk.position(chunkStart);
+                chunk.limit(chunkEnd);
+                chunks[i] = chunk.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+            }
+        }
+        return new PrimitiveVariableSpace.Slab(dim, size, chunks);
+    }
+
+    static PrimitiveVariableSpace mapVariableSpace(File file) throws IOException {
+        return mapVariableSpace(file, !Files.isWritable(file.toPath()));
+    }
+
+    static PrimitiveVariableSpace mapVariableSpace(File file, boolean readOnly) throws IOException {
+        PrimitiveVariableSpace variableSpace = new PrimitiveVariableSpace();
+        //opening for writing is required by private mapping, the file itself is never modified.
+        FileChannel.MapMode mode = readOnly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.PRIVATE;
+        try (FileChannel channel = readOnly ? FileChannel.open(file.toPath(), StandardOpenOption.READ) :
+                FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer header = readFully(channel, 0L, 4 * Integer.BYTES);
+            checkHeader(header.getInt(), header.getInt(), VARIABLE_MAGIC, file);
+            int numVars = header.getInt();
+            long position = 4 * Integer.BYTES;
+            for (int v=0; v<numVars; v++) {
+                ByteBuffer varHeader = readFully(channel, position, 4 * Integer.BYTES);
+                int kind = varHeader.getInt();
+                int size = varHeader.getInt();
+                int dim = varHeader.getInt();
+                int nameLength = varHeader.getInt();
+                position += 4 * Integer.BYTES;
+                ByteBuffer nameBuffer = readFully(channel, position, nameLength);
+                String name = new String(nameBuffer.array(), 0, nameLength, StandardCharsets.UTF_8);
+                position += nameLength;
+                position = (position + Double.BYTES - 1) / Double.BYTES * Double.BYTES;
+                PrimitiveVariableSpace.Slab slab = mapSlab(channel, mode, position, size, dim);
+                position += (long) size * dim * Double.BYTES;
+                if (kind == SCALAR_KIND) {
+                    variableSpace.putScalarSlab(name, slab);
+                } else {
+                    variableSpace.putVectorSlab(name, slab);
+                }
+            }
+        }
+        return variableSpace;
+    }
+
+    static void writeIndexSpace(SynchronizedIndexSpace indexSpace, File file) throws IOException {
+        List<String> names = indexSpace.getAllKeyMapNames();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(file), BUFFER_SIZE))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(names.size());
+            for (String name : names) {
+                byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(nameBytes.length);
+                out.write(nameBytes);
+                int size = indexSpace.getKeyMapSize(name);
+                out.writeInt(size);
+                for (int i=0; i<size; i++) {
+                    byte[] keyBytes = ((String) indexSpace.getKeyForIndex(name, i)).getBytes(StandardCharsets.UTF_8);
+                    out.writeInt(keyBytes.length);
+                    out.write(keyBytes);
+                }
+            }
+        }
+    }
+
+    static private String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static SynchronizedIndexSpace readIndexSpace(File file) throws IOException {
+        SynchronizedIndexSpace indexSpace = new SynchronizedIndexSpace();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file), BUFFER_SIZE))) {
+            checkHeader(in.readInt(), in.readInt(), INDEX_MAGIC, file);
+            int numMaps = in.readInt();
+            for (int m=0; m<numMaps; m++) {
+                String name = readString(in);
+                int size = in.readInt();
+                ObjectKeyIndex<Object> keyIndex = new ObjectKeyIndex<>();
+                for (int i=0; i<size; i++) {
+                    keyIndex.setKey(readString(in));
+                }
+                indexSpace.putKeyMap(name, keyIndex);
+            }
+        }
+        return indexSpace;
+    }
+}
@@ -26,4 +26,11 @@ import java.io.Serializable;
 
 public interface SpaceModel extends Serializable {
     void publishModel();
+
+    /**
+     * @return the approximate number of bytes held by the variables of the model, or -1 if unknown.
+     */
+    default long getMemoryFootprint() {
+        return -1L;
+    }
 }
@@ -27,7 +27,9 @@ import org.grouplens.samantha.server.exception.BadRequestException;
 import javax.inject.Inject;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -104,6 +106,20 @@ public final class SynchronizedIndexSpace implements IndexSpace {
         }
     }
 
+    public int getOrSetKey(String name, Object key, boolean update) {
+        int index;
+        readLock.lock();
+        try {
+            index = keyMap.get(name).getIndex(key, -1);
+        } finally {
+            readLock.unlock();
+        }
+        if (index < 0 && update) {
+            index = setKey(name, key);
+        }
+        return index;
+    }
+
     public Object getKeyForIndex (String name, int index) {
         readLock.lock();
         try {
@@ -113,6 +129,24 @@ public final class SynchronizedIndexSpace implements IndexSpace {
         }
     }
 
+    List<String> getAllKeyMapNames() {
+        readLock.lock();
+        try {
+            return new ArrayList<>(keyMap.keySet());
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    void putKeyMap(String name, ObjectKeyIndex<Object> keyIndex) {
+        writeLock.lock();
+        try {
+            keyMap.put(name, keyIndex);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
     private void writeObject(ObjectOutputStream stream) {
         readLock.lock();
         try {
@@ -297,6 +297,83 @@ public final class SynchronizedVariableSpace implements VariableSpace {
         }
     }
 
+    static private void accumulate(RealVector var, double scale, double[] out) {
+        for (int i=0; i<out.length; i++) {
+            out[i] += scale * var.getEntry(i);
+        }
+    }
+
+    static private void update(RealVector var, double decay, double scale, double[] delta) {
+        for (int i=0; i<delta.length; i++) {
+            var.setEntry(i, decay * var.getEntry(i) + scale * delta[i]);
+        }
+    }
+
+    final public void accumulateVectorVarByNameIndex(String name, int index, double scale, double[] out) {
+        readLocks.get(index).lock();
+        try {
+            accumulate(vectorVars.get(name).get(index), scale, out);
+        } finally {
+            readLocks.get(index).unlock();
+        }
+    }
+
+    /**
+     * The rows are never replaced, only appended by ensureVectorVar, so the lock-free methods resolve the row under
+     * the space read lock and then read or write it without any lock.
+     */
+    private RealVector getVectorVar(String name, int index) {
+        readLock.lock();
+        try {
+            return vectorVars.get(name).get(index);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    final public void accumulateVectorVarByNameIndexLockFree(String name, int index, double scale, double[] out) {
+        accumulate(getVectorVar(name, index), scale, out);
+    }
+
+    final public void updateScalarVarByNameIndex(String name, int index, double decay, double delta) {
+        writeLocks.get(index).lock();
+        try {
+            DoubleList var = scalarVars.get(name);
+            var.set(index, decay * var.getDouble(index) + delta);
+        } finally {
+            writeLocks.get(index).unlock();
+        }
+    }
+
+    /**
+     * The list of a scalar variable may be resized by ensureScalarVar, so the update is done under the space read
+     * lock, which is shared by all the concurrent updates, but without the row lock.
+     */
+    final public void updateScalarVarByNameIndexLockFree(String name, int index, double decay, double delta) {
+        readLock.lock();
+        try {
+            DoubleList var = scalarVars.get(name);
+            var.set(index, decay * var.getDouble(index) + delta);
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    final public void updateVectorVarByNameIndex(String name, int index, double decay, double scale,
+                                                 double[] delta) {
+        writeLocks.get(index).lock();
+        try {
+            update(vectorVars.get(name).get(index), decay, scale, delta);
+        } finally {
+            writeLocks.get(index).unlock();
+        }
+    }
+
+    final public void updateVectorVarByNameIndexLockFree(String name, int index, double decay, double scale,
+                                                         double[] delta) {
+        update(getVectorVar(name, index), decay, scale, delta);
+    }
+
     public List<String> getAllScalarVarNames() {
         readLock.lock();
         try {
@@ -315,6 +392,27 @@ public final class SynchronizedVariableSpace implements VariableSpace {
         }
     }
 
+    /**
+     * Only counts the values of the variables, i.e. eight bytes per double.
+     */
+    public long getMemoryFootprint() {
+        readLock.lock();
+        try {
+            long footprint = 0L;
+            for (DoubleList var : scalarVars.values()) {
+                footprint += 8L * var.size();
+            }
+            for (List<RealVector> var : vectorVars.values()) {
+                if (var.size() > 0) {
+                    footprint += 8L * var.size() * var.get(0).getDimension();
+                }
+            }
+            return footprint;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
     public void freeSpace() {}
 
     public void freeScalarVar(String name) {
@@ -82,6 +82,81 @@ public interface VariableSpace extends Serializable {
     RealVector getVectorVarByNameIndex(String name, int index);
     void setVectorVarByNameIndex(String name, int index, RealVector var);
 
+    /**
+     * Get a read-only view of a vector variable. Implementations may return a vector sharing storage with the space,
+     * so the caller must neither modify it nor hold on to it beyond the current computation.
+     */
+    default RealVector getVectorVarViewByNameIndex(String name, int index) {
+        return getVectorVarByNameIndex(name, index);
+    }
+
+    /**
+     * Add {@code scale} times the vector variable into {@code out} without copying the variable.
+     */
+    default void accumulateVectorVarByNameIndex(String name, int index, double scale, double[] out) {
+        RealVector var = getVectorVarViewByNameIndex(name, index);
+        for (int i=0; i<out.length; i++) {
+            out[i] += scale * var.getEntry(i);
+        }
+    }
+
+    /**
+     * Update the scalar variable in place as {@code var = decay * var + delta}. Concurrent updates of the same
+     * variable must not be lost, e.g. support counts. The default locks the whole space for the read-then-write;
+     * spaces with row level locking should override it.
+     */
+    default void updateScalarVarByNameIndex(String name, int index, double decay, double delta) {
+        synchronized (this) {
+            setScalarVarByNameIndex(name, index, decay * getScalarVarByNameIndex(name, index) + delta);
+        }
+    }
+
+    /**
+     * Update the vector variable in place as {@code var = decay * var + scale * delta}, atomically in the same way
+     * as {@link #updateScalarVarByNameIndex(String, int, double, double)}.
+     */
+    default void updateVectorVarByNameIndex(String name, int index, double decay, double scale, double[] delta) {
+        synchronized (this) {
+            RealVector var = getVectorVarByNameIndex(name, index);
+            for (int i=0; i<delta.length; i++) {
+                var.setEntry(i, decay * var.getEntry(i) + scale * delta[i]);
+            }
+            setVectorVarByNameIndex(name, index, var);
+        }
+    }
+
+    /**
+     * Lock-free version of {@link #accumulateVectorVarByNameIndex(String, int, double, double[])} for Hogwild style
+     * training, which may observe a row in the middle of a concurrent update.
+     */
+    default void accumulateVectorVarByNameIndexLockFree(String name, int index, double scale, double[] out) {
+        accumulateVectorVarByNameIndex(name, index, scale, out);
+    }
+
+    /**
+     * Lock-free version of {@link #updateScalarVarByNameIndex(String, int, double, double)} for Hogwild style
+     * training, where concurrent updates of the same variable may overwrite each other.
+     */
+    default void updateScalarVarByNameIndexLockFree(String name, int index, double decay, double delta) {
+        updateScalarVarByNameIndex(name, index, decay, delta);
+    }
+
+    /**
+     * Lock-free version of {@link #updateVectorVarByNameIndex(String, int, double, double, double[])} for Hogwild
+     * style training, where concurrent updates of the same row may interleave.
+     */
+    default void updateVectorVarByNameIndexLockFree(String name, int index, double decay, double scale,
+                                                    double[] delta) {
+        updateVectorVarByNameIndex(name, index, decay, scale, delta);
+    }
+
+    /**
+     * @return the approximate number of bytes held by the variables of this space, or -1 if unknown.
+     */
+    default long getMemoryFootprint() {
+        return -1L;
+    }
+
     List<String> getAllScalarVarNames();
     List<String> getAllVectorVarNames();
 }
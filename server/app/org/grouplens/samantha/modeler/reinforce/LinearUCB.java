@@ -41,15 +41,58 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
-public class LinearUCB extends AbstractLearningModel implements Featurizer {
+public class LinearUCB extends AbstractLearningModel implements Featurizer, FusedSGDModel {
     private static Logger logger = LoggerFactory.getLogger(LinearUCB.class);
     private final StandardFeaturizer featurizer;
     private final double lambda;
     private final double alpha;
     private final int numMainFeatures;
     private final List<String> features;
+    /**
+     * The inverse of A and theta derived from the variable space, shared by predictions until the variables are
+     * updated through this model, which changes the version. The fused update carries the state along with
+     * Sherman-Morrison updates, while the other updates make the next prediction rebuild it.
+     */
+    private transient volatile UCBState ucbState;
+    private transient volatile long version;
+
+    static private final int MAX_INCREMENTAL_UPDATES = 1000;
+    static private final AtomicLongFieldUpdater<LinearUCB> versionUpdater = AtomicLongFieldUpdater
+            .newUpdater(LinearUCB.class, "version");
+
+    static private class UCBState {
+        private final RealMatrix invA;
+        private final RealVector B;
+        private final RealVector theta;
+        private final long version;
+        private final int numUpdates;
+
+        private UCBState(RealMatrix invA, RealVector B, long version, int numUpdates) {
+            this.invA = invA;
+            this.B = B;
+            this.theta = invA.operate(B);
+            this.version = version;
+            this.numUpdates = numUpdates;
+        }
+
+        /**
+         * The state after A = decay * A + scale * x * x^T and B = decay * B + scale * label * x, using the
+         * Sherman-Morrison formula for the inverse of A.
+         */
+        private UCBState update(RealVector x, double label, double decay, double scale, long newVersion) {
+            RealVector u = invA.operate(x);
+            double ratio = scale / decay;
+            double denominator = 1.0 + ratio * x.dotProduct(u);
+            RealMatrix newInvA = invA.subtract(u.outerProduct(u).scalarMultiply(ratio / denominator))
+                    .scalarMultiply(1.0 / decay);
+            RealVector newB = B.mapMultiply(decay).combineToSelf(1.0, scale * label, x);
+            return new UCBState(newInvA, newB, newVersion, numUpdates + 1);
+        }
+    }
 
     /*
      * Directly calling this is discouraged. Use {@link LinearUCBProducer} instead.
@@ -86,7 +129,7 @@ public class LinearUCB extends AbstractLearningModel implements Featurizer {
             int dim = features.size();
             RealVector x = extractDenseVector(dim, ins);
             RealMatrix increA = x.outerProduct(x);
-            RealVector increB = x.mapMultiplyToSelf(instance.getLabel());
+            RealVector increB = x.mapMultiply(instance.getLabel());
             for (int i = 0; i < dim; i++) {
                 orc.addScalarOracle(LinearUCBKey.B.get(), i, -increB.getEntry(i));
                 orc.addVectorOracle(LinearUCBKey.A.get(), i, increA.getRowVector(i).mapMultiplyToSelf(-1.0));
@@ -96,6 +139,96 @@ public class LinearUCB extends AbstractLearningModel implements Featurizer {
         return oracles;
     }
 
+    /**
+     * The version is bumped after the variables are written, so a state carrying a version includes every update
+     * counted in it.
+     */
+    public void setScalarVarByName(String name, RealVector vars) {
+        super.setScalarVarByName(name, vars);
+        versionUpdater.incrementAndGet(this);
+    }
+
+    public void setScalarVarByNameIndex(String name, int index, double var) {
+        super.setScalarVarByNameIndex(name, index, var);
+        versionUpdater.incrementAndGet(this);
+    }
+
+    public void setVectorVarByNameIndex(String name, int index, RealVector var) {
+        super.setVectorVarByNameIndex(name, index, var);
+        versionUpdater.incrementAndGet(this);
+    }
+
+    private UCBState getUCBState() {
+        UCBState state = ucbState;
+        if (state != null && state.version == version) {
+            return state;
+        }
+        synchronized (this) {
+            long curVersion = version;
+            state = ucbState;
+            if (state == null || state.version != curVersion) {
+                RealMatrix A = variableSpace.getMatrixVarByName(LinearUCBKey.A.get());
+                RealVector B = variableSpace.getScalarVarByName(LinearUCBKey.B.get());
+                RealMatrix invA = new LUDecomposition(A).getSolver().getInverse();
+                state = new UCBState(invA, B, curVersion, 0);
+                ucbState = state;
+            }
+            return state;
+        }
+    }
+
+    RealMatrix getInverseA() {
+        return getUCBState().invA;
+    }
+
+    int getNumIncrementalUpdates() {
+        return getUCBState().numUpdates;
+    }
+
+    /**
+     * Apply each instance as the rank-one update A = decay * A + step * x * x^T and B = decay * B + step * label * x
+     * and carry the cached state along with {@link UCBState#update}, so that predictions during training do not
+     * invert A again. The state is rebuilt from the variable space with an LU decomposition after
+     * {@link #MAX_INCREMENTAL_UPDATES} incremental updates to bound the accumulation of numerical errors, or when
+     * the variables were also updated in another way. The updates of one model are serialized even if lockFree is
+     * set, because the cached inverse has to follow A exactly.
+     */
+    public double fusedStochasticGradientDescentUpdate(List<LearningInstance> instances, ObjectiveFunction objFunc,
+                                                       double l2coef, double lr, boolean lockFree) {
+        String nameA = LinearUCBKey.A.get();
+        String nameB = LinearUCBKey.B.get();
+        int dim = features.size();
+        double decay = 1.0 - 2.0 * lr * l2coef;
+        StochasticOracle orc = new StochasticOracle();
+        List<StochasticOracle> oracles = Collections.singletonList(orc);
+        double objVal = 0.0;
+        for (LearningInstance ins : instances) {
+            StandardLearningInstance instance = (StandardLearningInstance) ins;
+            double label = instance.getLabel();
+            orc.setValues(-label, label, instance.getWeight());
+            objFunc.wrapOracle(oracles);
+            objVal += orc.getObjectiveValue();
+            double step = lr * orc.getGradient();
+            RealVector x = extractDenseVector(dim, ins);
+            double[] delta = x.toArray();
+            synchronized (this) {
+                long curVersion = version;
+                UCBState state = ucbState;
+                for (int i=0; i<dim; i++) {
+                    variableSpace.updateScalarVarByNameIndex(nameB, i, decay, step * label * delta[i]);
+                    variableSpace.updateVectorVarByNameIndex(nameA, i, decay, step * delta[i], delta);
+                }
+                if (!versionUpdater.compareAndSet(this, curVersion, curVersion + 1)) {
+                    versionUpdater.incrementAndGet(this);
+                } else if (state != null && state.version == curVersion
+                        && state.numUpdates < MAX_INCREMENTAL_UPDATES && decay > 0.0) {
+                    ucbState = state.update(x, label, decay, step, curVersion + 1);
+                }
+            }
+        }
+        return objVal;
+    }
+
     public ObjectiveFunction getObjectiveFunction() {
         return new IdentityFunction();
     }
@@ -109,21 +242,31 @@ public class LinearUCB extends AbstractLearningModel implements Featurizer {
         return x;
     }
 
-    public double[] predict(LearningInstance instance) {
-        RealMatrix A = variableSpace.getMatrixVarByName(LinearUCBKey.A.get());
-        RealVector B = variableSpace.getScalarVarByName(LinearUCBKey.B.get());
-        RealMatrix invA = new LUDecomposition(A).getSolver().getInverse();
-        RealVector theta = invA.operate(B);
-        RealVector x = extractDenseVector(theta.getDimension(), instance);
-        double bound = Math.sqrt(x.dotProduct(invA.operate(x)));
-        double mean = x.dotProduct(theta);
+    private double predict(UCBState state, LearningInstance instance) {
+        RealVector x = extractDenseVector(state.theta.getDimension(), instance);
+        double bound = Math.sqrt(x.dotProduct(state.invA.operate(x)));
+        double mean = x.dotProduct(state.theta);
         double pred = mean + alpha * bound;
         if (Double.isNaN(pred)) {
             logger.error("Prediction is NaN, model parameter A probably goes wrong.");
             pred = 0.0;
         }
+        return pred;
+    }
+
+    public double[] predict(LearningInstance instance) {
+        UCBState state = getUCBState();
         double[] preds = new double[1];
-        preds[0] = pred;
+        preds[0] = predict(state, instance);
+        return preds;
+    }
+
+    public double[][] predict(List<LearningInstance> instances) {
+        UCBState state = getUCBState();
+        double[][] preds = new double[instances.size()][1];
+        for (int i=0; i<instances.size(); i++) {
+            preds[i][0] = predict(state, instances.get(i));
+        }
         return preds;
     }
 
@@ -35,20 +35,36 @@ public class AsyncParallelSGD extends AbstractOptimizationMethod  implements Onl
     final private double l2coef;
     final private double lr;
     final private int numThreads;
+    final private boolean fusedUpdate;
+    final private boolean hogwild;
 
     public AsyncParallelSGD() {
         super(5.0, 50, 2);
         l2coef = 0.0;
         lr = 0.001;
         numThreads = Runtime.getRuntime().availableProcessors();
+        fusedUpdate = false;
+        hogwild = false;
     }
 
     public AsyncParallelSGD(int maxIter, int minIter, double l2coef,
                             double learningRate, double tol, int numThreads) {
+        this(maxIter, minIter, l2coef, learningRate, tol, numThreads, false, false);
+    }
+
+    /**
+     * @param fusedUpdate use the in-place update of {@link FusedSGDModel} if the model supports it.
+     * @param hogwild use the lock-free (Hogwild) in-place update of {@link FusedSGDModel}, where the threads update
+     *                the sparse rows of the model without locking and may occasionally overwrite each other.
+     */
+    public AsyncParallelSGD(int maxIter, int minIter, double l2coef, double learningRate, double tol,
+                            int numThreads, boolean fusedUpdate, boolean hogwild) {
         super(tol, maxIter, minIter);
         this.l2coef = l2coef;
         this.lr = learningRate;
         this.numThreads = numThreads;
+        this.fusedUpdate = fusedUpdate;
+        this.hogwild = hogwild;
     }
 
     /**
@@ -56,17 +72,12 @@ public class AsyncParallelSGD extends AbstractOptimizationMethod  implements Onl
      */
     public double update(LearningModel model, LearningData learningData) {
         learningData.startNewIteration();
-        logger.info("Using numThreads={}", numThreads);
-        List<Thread> threads = new ArrayList<>(numThreads);
+        logger.info("Using numThreads={}, hogwild={}", numThreads, hogwild);
         List<ObjectiveRunnable> runnables = new ArrayList<>(numThreads);
         for (int i=0; i<numThreads; i++) {
-            SGDRunnable sgdRunnable = new SGDRunnable(model, learningData, l2coef, lr);
-            runnables.add(sgdRunnable);
-            Thread thread = new Thread(sgdRunnable);
-            threads.add(thread);
-            thread.start();
+            runnables.add(new SGDRunnable(model, learningData, l2coef, lr, fusedUpdate, hogwild));
         }
-        double objVal = SolverUtilities.joinObjectiveRunnableThreads(numThreads, runnables, threads);
+        double objVal = SolverUtilities.runObjectiveRunnables(runnables);
         return objVal;
     }
 }
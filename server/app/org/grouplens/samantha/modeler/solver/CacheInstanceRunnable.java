@@ -24,13 +24,12 @@ package org.grouplens.samantha.modeler.solver;
 
 import org.grouplens.samantha.modeler.common.LearningData;
 import org.grouplens.samantha.modeler.common.LearningInstance;
+import org.grouplens.samantha.modeler.instance.CompactInstanceWriter;
 import org.grouplens.samantha.server.exception.BadRequestException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
 import java.util.List;
 
 public class CacheInstanceRunnable implements ObjectiveRunnable {
@@ -46,21 +45,17 @@ public class CacheInstanceRunnable implements ObjectiveRunnable {
 
     @Override
     public void run() {
-        try {
-            ObjectOutputStream outputStream = new ObjectOutputStream(new FileOutputStream(cachePath));
+        try (CompactInstanceWriter writer = new CompactInstanceWriter(cachePath)) {
             List<LearningInstance> instances;
             while ((instances = data.getLearningInstance()).size() > 0) {
                 for (LearningInstance ins : instances) {
                     cnt++;
-                    outputStream.writeUnshared(ins);
-                    outputStream.reset();
+                    writer.write(ins);
                     if (cnt % 1000000 == 0) {
                         logger.info("Cached {} instances.", cnt);
                     }
                 }
             }
-            outputStream.flush();
-            outputStream.close();
         } catch (IOException e) {
             logger.error(e.getMessage());
             throw new BadRequestException(e);
@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.grouplens.samantha.modeler.solver;
+
+import org.grouplens.samantha.modeler.common.LearningInstance;
+import org.grouplens.samantha.modeler.model.LearningModel;
+
+import java.util.List;
+
+/**
+ * A {@link LearningModel} which computes the gradients and applies the L2 regularized SGD update directly into its
+ * variable space, one instance at a time, instead of going through {@link StochasticOracle}s.
+ */
+public interface FusedSGDModel extends LearningModel {
+    /**
+     * @param lockFree read and write the variables without locking (Hogwild), so concurrent updates of the same
+     *                 variable may partially overwrite each other.
+     * @return the sum of the objective values of the instances, computed before each of them is applied.
+     */
+    double fusedStochasticGradientDescentUpdate(List<LearningInstance> instances, ObjectiveFunction objFunc,
+                                                double l2coef, double lr, boolean lockFree);
+}
@@ -23,7 +23,7 @@
 package org.grouplens.samantha.modeler.solver;
 
 import org.grouplens.samantha.modeler.common.LearningData;
-import org.grouplens.samantha.modeler.instance.ObjectStreamLearningData;
+import org.grouplens.samantha.modeler.instance.CompactLearningData;
 import org.grouplens.samantha.modeler.model.LearningModel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,6 +40,8 @@ public class InstanceCachedAsyncParallelSGD extends AbstractOptimizationMethod i
     final private int numThreads;
     final private double l2coef;
     final private double lr;
+    final private boolean fusedUpdate;
+    final private boolean hogwild;
 
     public InstanceCachedAsyncParallelSGD(String cachePath) {
         super(5.0, 50, 2);
@@ -47,30 +49,39 @@ public class InstanceCachedAsyncParallelSGD extends AbstractOptimizationMethod i
         this.numThreads = Runtime.getRuntime().availableProcessors();
         this.lr = 0.001;
         this.l2coef = 0.0;
+        this.fusedUpdate = false;
+        this.hogwild = false;
     }
 
     public InstanceCachedAsyncParallelSGD(int maxIter, int minIter, double l2coef,
                                           double learningRate, double tol,
                                           int numThreads, String cachePath) {
+        this(maxIter, minIter, l2coef, learningRate, tol, numThreads, cachePath, false, false);
+    }
+
+    /**
+     * @param fusedUpdate use the in-place update of {@link FusedSGDModel} if the model supports it.
+     * @param hogwild use the lock-free (Hogwild) version of the in-place update, see {@link AsyncParallelSGD}.
+     */
+    public InstanceCachedAsyncParallelSGD(int maxIter, int minIter, double l2coef,
+                                          double learningRate, double tol, int numThreads,
+                                          String cachePath, boolean fusedUpdate, boolean hogwild) {
         super(tol, maxIter, minIter);
         this.cachePath = cachePath;
         this.numThreads = numThreads;
         this.l2coef = l2coef;
         this.lr = learningRate;
+        this.fusedUpdate = fusedUpdate;
+        this.hogwild = hogwild;
     }
 
     private void cacheLearningData(LearningData data, String prefix) {
-        List<Thread> threads = new ArrayList<>(numThreads);
         List<ObjectiveRunnable> runnables = new ArrayList<>(numThreads);
         for (int i=0; i<numThreads; i++) {
             String oneCachePath = getCachePath(prefix, i);
-            ObjectiveRunnable runnable = new CacheInstanceRunnable(oneCachePath, data);
-            runnables.add(runnable);
-            Thread thread = new Thread(runnable);
-            threads.add(thread);
-            thread.start();
+            runnables.add(new CacheInstanceRunnable(oneCachePath, data));
         }
-        double cnt = SolverUtilities.joinObjectiveRunnableThreads(numThreads, runnables, threads);
+        double cnt = SolverUtilities.runObjectiveRunnables(runnables);
         logger.info("Done Caching. Cached {} instances totally.", cnt);
     }
 
@@ -96,37 +107,30 @@ public class InstanceCachedAsyncParallelSGD extends AbstractOptimizationMethod i
         if (validData != null) {
             validCrit = new TerminationCriterion(tol, maxIter, minIter);
         }
-        logger.info("Using numThreads={}", numThreads);
-        List<Thread> threads = new ArrayList<>(numThreads);
+        logger.info("Using numThreads={}, hogwild={}", numThreads, hogwild);
         List<ObjectiveRunnable> runnables = new ArrayList<>(numThreads);
         double learnObjVal = 0.0;
         while (learnCrit.keepIterate()) {
             if (validCrit != null && !(validCrit.keepIterate())) {
                 break;
             }
-            threads.clear();
             runnables.clear();
             for (int i=0; i<numThreads; i++) {
                 String oneCachePath = getCachePath("learn", i);
-                SolverUtilities.startObjectiveRunnableThreads(oneCachePath, model, l2coef, lr,
-                        runnables, threads);
+                runnables.add(SolverUtilities.getCachedSGDRunnable(oneCachePath, model, l2coef, lr,
+                        fusedUpdate, hogwild));
             }
-            learnObjVal = SolverUtilities.joinObjectiveRunnableThreads(numThreads, runnables, threads);
+            learnObjVal = SolverUtilities.runObjectiveRunnables(runnables);
             learnCrit.addIteration(InstanceCachedAsyncParallelSGD.class.toString()
                     + " -- Learning", learnObjVal);
             if (validData != null) {
-                threads.clear();
                 runnables.clear();
                 for (int i=0; i<numThreads; i++) {
                     String oneCachePath = getCachePath("valid", i);
-                    LearningData learnData = new ObjectStreamLearningData(oneCachePath);
-                    EvaluateRunnable runnable = new EvaluateRunnable(model, learnData);
-                    runnables.add(runnable);
-                    Thread thread = new Thread(runnable);
-                    threads.add(thread);
-                    thread.start();
+                    LearningData learnData = new CompactLearningData(oneCachePath);
+                    runnables.add(new EvaluateRunnable(model, learnData));
                 }
-                double validObjVal = SolverUtilities.joinObjectiveRunnableThreads(numThreads, runnables, threads);
+                double validObjVal = SolverUtilities.runObjectiveRunnables(runnables);
                 validCrit.addIteration(InstanceCachedAsyncParallelSGD.class.toString()
                         + " -- Validating", validObjVal);
             }
@@ -140,15 +144,14 @@ public class InstanceCachedAsyncParallelSGD extends AbstractOptimizationMethod i
 
     public double update(LearningModel learningModel, LearningData learningData) {
         cacheLearningData(learningData, "update");
-        List<Thread> threads = new ArrayList<>(numThreads);
         List<ObjectiveRunnable> runnables = new ArrayList<>(numThreads);
-        logger.info("Using numThreads={}", numThreads);
+        logger.info("Using numThreads={}, hogwild={}", numThreads, hogwild);
         for (int i=0; i<numThreads; i++) {
             String oneCachePath = getCachePath("update", i);
-            SolverUtilities.startObjectiveRunnableThreads(oneCachePath, learningModel, l2coef,
-                    lr, runnables, threads);
+            runnables.add(SolverUtilities.getCachedSGDRunnable(oneCachePath, learningModel, l2coef,
+                    lr, fusedUpdate, hogwild));
         }
-        double objVal = SolverUtilities.joinObjectiveRunnableThreads(numThreads, runnables, threads);
+        double objVal = SolverUtilities.runObjectiveRunnables(runnables);
         clearCache("update");
         return objVal;
     }
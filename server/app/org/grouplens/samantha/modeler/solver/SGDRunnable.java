@@ -30,20 +30,25 @@ public class SGDRunnable implements ObjectiveRunnable {
     private final LearningData learningData;
     private final double l2coef;
     private final double lr;
+    private final boolean fusedUpdate;
+    private final boolean lockFree;
     private double objVal = 0.0;
 
-    SGDRunnable(LearningModel learningModel, LearningData learningData, double l2coef, double lr) {
+    SGDRunnable(LearningModel learningModel, LearningData learningData, double l2coef, double lr,
+                boolean fusedUpdate, boolean lockFree) {
         this.learningData = learningData;
         this.learningModel = learningModel;
         this.l2coef = l2coef;
         this.lr = lr;
+        this.fusedUpdate = fusedUpdate;
+        this.lockFree = lockFree;
     }
 
     public void run() {
         L2Regularizer l2term = new L2Regularizer();
         ObjectiveFunction objFunc = learningModel.getObjectiveFunction();
         objVal += SolverUtilities.stochasticGradientDescentUpdate(learningModel, objFunc,
-                learningData, l2term, l2coef, lr);
+                learningData, l2term, l2coef, lr, fusedUpdate, lockFree);
     }
 
     public double getObjVal() {
@@ -25,19 +25,29 @@ package org.grouplens.samantha.modeler.solver;
 import org.apache.commons.math3.linear.RealVector;
 import org.grouplens.samantha.modeler.common.LearningData;
 import org.grouplens.samantha.modeler.common.LearningInstance;
-import org.grouplens.samantha.modeler.instance.ObjectStreamLearningData;
+import org.grouplens.samantha.modeler.instance.CompactLearningData;
 import org.grouplens.samantha.modeler.model.LearningModel;
 import org.grouplens.samantha.server.exception.BadRequestException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class SolverUtilities {
 
     private SolverUtilities() {}
 
     private static Logger logger = LoggerFactory.getLogger(SolverUtilities.class);
+    private static final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "samantha-solver");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     public static double getRegularizationObjective(LearningModel model, Regularizer regularizer, double coef) {
         double objVal = 0.0;
@@ -93,28 +103,78 @@ public class SolverUtilities {
         return objVal;
     }
 
-    public static double joinObjectiveRunnableThreads(int numThreads, List<ObjectiveRunnable> runnables, List<Thread> threads) {
+    /**
+     * Use the fused update of the model if asked for and supported, or the generic oracle based update otherwise.
+     * The lock-free (Hogwild) update implies the fused update and is ignored for models without one.
+     */
+    public static double stochasticGradientDescentUpdate(LearningModel model, ObjectiveFunction objFunc,
+                                                         LearningData learningData, L2Regularizer l2term,
+                                                         double l2coef, double lr, boolean fusedUpdate,
+                                                         boolean lockFree) {
+        if ((fusedUpdate || lockFree) && model instanceof FusedSGDModel) {
+            return fusedStochasticGradientDescentUpdate((FusedSGDModel) model, objFunc, learningData,
+                    l2coef, lr, lockFree);
+        } else {
+            return stochasticGradientDescentUpdate(model, objFunc, learningData, l2term, l2coef, lr);
+        }
+    }
+
+    public static double fusedStochasticGradientDescentUpdate(FusedSGDModel model, ObjectiveFunction objFunc,
+                                                              LearningData learningData, double l2coef, double lr,
+                                                              boolean lockFree) {
+        int cnt = 0;
         double objVal = 0.0;
-        for (int i=0; i<numThreads; i++) {
+        List<LearningInstance> instances;
+        while ((instances = learningData.getLearningInstance()).size() > 0) {
+            objVal += model.fusedStochasticGradientDescentUpdate(instances, objFunc, l2coef, lr, lockFree);
+            if (Double.isNaN(objVal)) {
+                logger.error("Objective value becomes NaN before {}th instance.", cnt + instances.size());
+                throw new BadRequestException("Got NaN error.");
+            }
+            int before = cnt;
+            cnt += instances.size();
+            if (cnt / 100000 > before / 100000) {
+                logger.info("Updated the model using {} instances.", cnt);
+            }
+        }
+        return objVal;
+    }
+
+    /**
+     * Run the runnables on the shared solver thread pool and wait for all of them. The pool threads are kept alive
+     * and reused across iterations and solvers instead of creating new threads for every iteration.
+     *
+     * @return the sum of the objective values of the runnables.
+     */
+    public static double runObjectiveRunnables(List<? extends ObjectiveRunnable> runnables) {
+        List<Future<?>> futures = new ArrayList<>(runnables.size());
+        for (ObjectiveRunnable runnable : runnables) {
+            futures.add(executor.submit(runnable));
+        }
+        double objVal = 0.0;
+        for (int i=0; i<runnables.size(); i++) {
             try {
-                threads.get(i).join();
+                futures.get(i).get();
                 objVal += runnables.get(i).getObjVal();
             } catch (InterruptedException e) {
                 logger.error(e.getMessage());
+                Thread.currentThread().interrupt();
+                throw new BadRequestException(e);
+            } catch (ExecutionException e) {
+                logger.error(e.getCause().getMessage());
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new BadRequestException(e.getCause());
             }
         }
         return objVal;
     }
 
-    public static void startObjectiveRunnableThreads(String oneCachePath, LearningModel learningModel,
-                                                     double l2coef, double lr, List<ObjectiveRunnable> runnables,
-                                                     List<Thread> threads) {
-        LearningData learnData = new ObjectStreamLearningData(oneCachePath);
-        SGDRunnable runnable = new SGDRunnable(learningModel, learnData, l2coef, lr);
-        runnables.add(runnable);
-        Thread thread = new Thread(runnable);
-        threads.add(thread);
-        thread.start();
+    public static SGDRunnable getCachedSGDRunnable(String oneCachePath, LearningModel learningModel,
+                                                   double l2coef, double lr, boolean fusedUpdate, boolean lockFree) {
+        LearningData learnData = new CompactLearningData(oneCachePath);
+        return new SGDRunnable(learningModel, learnData, l2coef, lr, fusedUpdate, lockFree);
     }
 
     public static double evaluate(LearningModel model, LearningData validData) {
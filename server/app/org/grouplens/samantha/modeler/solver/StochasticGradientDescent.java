@@ -28,17 +28,28 @@ import org.grouplens.samantha.modeler.model.LearningModel;
 public class StochasticGradientDescent extends AbstractOptimizationMethod implements OnlineOptimizationMethod {
     private double l2coef;
     private double lr;
+    private boolean fusedUpdate;
 
     public StochasticGradientDescent() {
         super(5.0, 50, 2);
         l2coef = 0.0;
         lr = 0.001;
+        fusedUpdate = false;
     }
 
     public StochasticGradientDescent(int maxIter, int minIter, double l2coef, double learningRate, double tol) {
+        this(maxIter, minIter, l2coef, learningRate, tol, false);
+    }
+
+    /**
+     * @param fusedUpdate use the in-place update of {@link FusedSGDModel} if the model supports it.
+     */
+    public StochasticGradientDescent(int maxIter, int minIter, double l2coef, double learningRate, double tol,
+                                     boolean fusedUpdate) {
         super(tol, maxIter, minIter);
         this.l2coef = l2coef;
         this.lr = learningRate;
+        this.fusedUpdate = fusedUpdate;
     }
 
     public double update(LearningModel model, LearningData learningData) {
@@ -46,7 +57,7 @@ public class StochasticGradientDescent extends AbstractOptimizationMethod implem
         ObjectiveFunction objFunc = model.getObjectiveFunction();
         learningData.startNewIteration();
         double objVal = SolverUtilities.stochasticGradientDescentUpdate(model, objFunc,
-                learningData, l2term, l2coef, lr);
+                learningData, l2term, l2coef, lr, fusedUpdate, false);
         return objVal;
     }
 }
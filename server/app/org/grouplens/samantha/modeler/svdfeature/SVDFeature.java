@@ -46,9 +46,10 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.util.*;
 
-public class SVDFeature extends AbstractLearningModel implements Featurizer {
+public class SVDFeature extends AbstractLearningModel implements Featurizer, FusedSGDModel {
     private static final long serialVersionUID = 1L;
     private static Logger logger = LoggerFactory.getLogger(SVDFeature.class);
+    private static final ThreadLocal<double[][]> factorSums = new ThreadLocal<>();
 
     private final ObjectiveFunction objectiveFunction;
     private final List<String> biasFeas = new ArrayList<>();
@@ -125,8 +126,8 @@ public class SVDFeature extends AbstractLearningModel implements Featurizer {
         Object2DoubleMap<String> fea2sup = new Object2DoubleOpenHashMap<>();
         for (int i=0; i<numFeas; i++) {
             String feature = (String)indexSpace.getKeyForIndex(SVDFeatureKey.FACTORS.get(), i);
-            if (indexSpace.containsKey(SVDFeatureKey.BIASES.get(), feature)) {
-                int idx = indexSpace.getIndexForKey(SVDFeatureKey.BIASES.get(), feature);
+            int idx = indexSpace.getOrSetKey(SVDFeatureKey.BIASES.get(), feature, false);
+            if (idx >= 0) {
                 double support = variableSpace.getScalarVarByNameIndex(SVDFeatureKey.SUPPORT.get(), idx);
                 if (support >= minSupport) {
                     fea2sup.put(feature, support);
@@ -191,11 +192,8 @@ public class SVDFeature extends AbstractLearningModel implements Featurizer {
     }
 
     private void updateFeatureSupport(List<Feature> gfeas) {
-        synchronized (variableSpace) {
-            for (Feature fea : gfeas) {
-                double support = variableSpace.getScalarVarByNameIndex(SVDFeatureKey.SUPPORT.get(), fea.getIndex());
-                variableSpace.setScalarVarByNameIndex(SVDFeatureKey.SUPPORT.get(), fea.getIndex(), support + 1.0);
-            }
+        for (Feature fea : gfeas) {
+            variableSpace.updateScalarVarByNameIndex(SVDFeatureKey.SUPPORT.get(), fea.getIndex(), 1.0, 1.0);
         }
     }
 
@@ -233,6 +231,17 @@ public class SVDFeature extends AbstractLearningModel implements Featurizer {
         return new SVDFeatureInstance(gfeas, ufeas, ifeas, label, weight, group);
     }
 
+    /**
+     * @return the sum of the user side factors of the entity, which scores an item by the inner product with its
+     * factors.
+     */
+    public double[] getUserFactorSum(JsonNode entity) {
+        SVDFeatureInstance ins = (SVDFeatureInstance) featurize(entity, false);
+        double[] ufactSum = new double[factDim];
+        sumFactors(ins.ufeas, ufactSum, false);
+        return ufactSum;
+    }
+
     public ObjectiveFunction getObjectiveFunction() {
         return objectiveFunction;
     }
@@ -253,14 +262,14 @@ public class SVDFeature extends AbstractLearningModel implements Featurizer {
         for (int i=0; i<ins.ufeas.size(); i++) {
             int index = ins.ufeas.get(i).getIndex();
             outUfactSum.combineToSelf(1.0, ins.ufeas.get(i).getValue(),
-                                      getVectorVarByNameIndex(SVDFeatureKey.FACTORS.get(), index));
+                                      getVectorVarViewByNameIndex(SVDFeatureKey.FACTORS.get(), index));
         }
 
         outIfactSum.set(0.0);
         for (int i=0; i<ins.ifeas.size(); i++) {
             int index = ins.ifeas.get(i).getIndex();
             outIfactSum.combineToSelf(1.0, ins.ifeas.get(i).getValue(),
-                                      getVectorVarByNameIndex(SVDFeatureKey.FACTORS.get(), index));
+                                      getVectorVarViewByNameIndex(SVDFeatureKey.FACTORS.get(), index));
         }
 
         pred += outUfactSum.dotProduct(outIfactSum);
@@ -293,6 +302,131 @@ public class SVDFeature extends AbstractLearningModel implements Featurizer {
         return oracles;
     }
 
+    private double[][] getFactorSums() {
+        return getFactorSums(1);
+    }
+
+    /**
+     * @return thread-local buffers holding a user side and an item side factor sum for each of numInstances
+     * instances.
+     */
+    private double[][] getFactorSums(int numInstances) {
+        double[][] sums = factorSums.get();
+        if (sums == null || sums.length < 2 * numInstances || sums[0].length != factDim) {
+            sums = new double[2 * numInstances][factDim];
+            factorSums.set(sums);
+        }
+        return sums;
+    }
+
+    private void sumFactors(List<Feature> feas, double[] outFactSum, boolean lockFree) {
+        String factName = SVDFeatureKey.FACTORS.get();
+        Arrays.fill(outFactSum, 0.0);
+        for (int i=0; i<feas.size(); i++) {
+            Feature fea = feas.get(i);
+            if (lockFree) {
+                variableSpace.accumulateVectorVarByNameIndexLockFree(factName, fea.getIndex(), fea.getValue(),
+                        outFactSum);
+            } else {
+                variableSpace.accumulateVectorVarByNameIndex(factName, fea.getIndex(), fea.getValue(), outFactSum);
+            }
+        }
+    }
+
+    /**
+     * Predict with the user side factor sum already in {@code ufactSum}.
+     */
+    private double predictWithUserFactorSum(SVDFeatureInstance ins, double[] ufactSum, double[] outIfactSum,
+                                            boolean lockFree) {
+        String biasName = SVDFeatureKey.BIASES.get();
+        double pred = 0.0;
+        for (int i=0; i<ins.gfeas.size(); i++) {
+            Feature fea = ins.gfeas.get(i);
+            pred += variableSpace.getScalarVarByNameIndex(biasName, fea.getIndex()) * fea.getValue();
+        }
+        sumFactors(ins.ifeas, outIfactSum, lockFree);
+        for (int f=0; f<factDim; f++) {
+            pred += ufactSum[f] * outIfactSum[f];
+        }
+        return pred;
+    }
+
+    private double predict(SVDFeatureInstance ins, double[] outUfactSum, double[] outIfactSum, boolean lockFree) {
+        sumFactors(ins.ufeas, outUfactSum, lockFree);
+        return predictWithUserFactorSum(ins, outUfactSum, outIfactSum, lockFree);
+    }
+
+    static private boolean sameFeatures(List<Feature> left, List<Feature> right) {
+        if (left == right) {
+            return true;
+        }
+        if (left == null || right == null || left.size() != right.size()) {
+            return false;
+        }
+        for (int i=0; i<left.size(); i++) {
+            Feature lfea = left.get(i);
+            Feature rfea = right.get(i);
+            if (lfea.getIndex() != rfea.getIndex() || lfea.getValue() != rfea.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void updateFactors(List<Feature> feas, double decay, double step, double[] grad, boolean lockFree) {
+        String factName = SVDFeatureKey.FACTORS.get();
+        for (int i=0; i<feas.size(); i++) {
+            Feature fea = feas.get(i);
+            if (lockFree) {
+                variableSpace.updateVectorVarByNameIndexLockFree(factName, fea.getIndex(), decay,
+                        step * fea.getValue(), grad);
+            } else {
+                variableSpace.updateVectorVarByNameIndex(factName, fea.getIndex(), decay,
+                        step * fea.getValue(), grad);
+            }
+        }
+    }
+
+    /**
+     * The same update as {@link #getStochasticOracle(List)} followed by
+     * {@link SolverUtilities#stochasticGradientDescentUpdate}, but the factor sums are kept in thread-local buffers
+     * and the gradients are applied straight into the variable space. As in the generic update, the whole group of
+     * instances is predicted and wrapped by the objective function before any of them is applied, so that ranking
+     * losses see the group.
+     */
+    public double fusedStochasticGradientDescentUpdate(List<LearningInstance> instances, ObjectiveFunction objFunc,
+                                                       double l2coef, double lr, boolean lockFree) {
+        String biasName = SVDFeatureKey.BIASES.get();
+        double[][] sums = getFactorSums(instances.size());
+        double decay = 1.0 - 2.0 * lr * l2coef;
+        List<StochasticOracle> oracles = new ArrayList<>(instances.size());
+        for (int j=0; j<instances.size(); j++) {
+            SVDFeatureInstance ins = (SVDFeatureInstance) instances.get(j);
+            double pred = predict(ins, sums[2 * j], sums[2 * j + 1], lockFree);
+            oracles.add(new StochasticOracle(pred, ins.label, ins.weight));
+        }
+        objFunc.wrapOracle(oracles);
+        double objVal = 0.0;
+        for (int j=0; j<instances.size(); j++) {
+            SVDFeatureInstance ins = (SVDFeatureInstance) instances.get(j);
+            StochasticOracle orc = oracles.get(j);
+            objVal += orc.getObjectiveValue();
+            double step = -lr * orc.getGradient();
+            for (int i=0; i<ins.gfeas.size(); i++) {
+                Feature fea = ins.gfeas.get(i);
+                if (lockFree) {
+                    variableSpace.updateScalarVarByNameIndexLockFree(biasName, fea.getIndex(), decay,
+                            step * fea.getValue());
+                } else {
+                    variableSpace.updateScalarVarByNameIndex(biasName, fea.getIndex(), decay, step * fea.getValue());
+                }
+            }
+            updateFactors(ins.ufeas, decay, step, sums[2 * j + 1], lockFree);
+            updateFactors(ins.ifeas, decay, step, sums[2 * j], lockFree);
+        }
+        return objVal;
+    }
+
     private List<Feature> ensureMinSupport(List<Feature> feas, boolean bias) {
         double minSupport = 10;
         List<Feature> nfeas = new ArrayList<>();
@@ -312,13 +446,31 @@ public class SVDFeature extends AbstractLearningModel implements Featurizer {
     }
 
     public double[] predict(LearningInstance ins) {
-        SVDFeatureInstance svdIns = (SVDFeatureInstance) ins;
-        RealVector ufactSum = MatrixUtils.createRealVector(new double[factDim]);
-        RealVector ifactSum = MatrixUtils.createRealVector(new double[factDim]);
-        double output = predict(svdIns, null, ufactSum, ifactSum);
+        double[][] sums = getFactorSums();
+        double output = predict((SVDFeatureInstance) ins, sums[0], sums[1], false);
         double pred = objectiveFunction.wrapOutput(output);
         double[] preds = new double[1];
         preds[0] = pred;
         return preds;
     }
+
+    /**
+     * Candidates of one request usually share the same user features, so the user side factor sum is only
+     * recomputed when the user features change from the previous instance.
+     */
+    public double[][] predict(List<LearningInstance> instances) {
+        double[][] sums = getFactorSums();
+        double[][] preds = new double[instances.size()][1];
+        List<Feature> summedUfeas = null;
+        for (int i=0; i<preds.length; i++) {
+            SVDFeatureInstance ins = (SVDFeatureInstance) instances.get(i);
+            if (summedUfeas == null || !sameFeatures(summedUfeas, ins.ufeas)) {
+                sumFactors(ins.ufeas, sums[0], false);
+                summedUfeas = ins.ufeas;
+            }
+            double output = predictWithUserFactorSum(ins, sums[0], sums[1], false);
+            preds[i][0] = objectiveFunction.wrapOutput(output);
+        }
+        return preds;
+    }
 }
@@ -80,16 +80,11 @@ public class TensorFlowMethod extends AbstractOptimizationMethod implements Onli
     public double update(LearningModel model, LearningData learningData) {
         learningData.startNewIteration();
         logger.info("Using numThreads={}", numThreads);
-        List<Thread> threads = new ArrayList<>(numThreads);
         List<ObjectiveRunnable> runnables = new ArrayList<>(numThreads);
         for (int i=0; i<numThreads; i++) {
-            TensorFlowRunnable runnable = new TensorFlowRunnable(model, learningData);
-            runnables.add(runnable);
-            Thread thread = new Thread(runnable);
-            threads.add(thread);
-            thread.start();
+            runnables.add(new TensorFlowRunnable(model, learningData));
         }
-        double objVal = SolverUtilities.joinObjectiveRunnableThreads(numThreads, runnables, threads);
+        double objVal = SolverUtilities.runObjectiveRunnables(runnables);
         return objVal;
     }
 }
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.grouplens.samantha.modeler.tree;
+
+import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
+import it.unimi.dsi.fastutil.ints.Int2IntMap;
+import org.apache.commons.math3.linear.RealVector;
+
+import java.util.List;
+
+/**
+ * A read-only copy of a {@link RegressionTree} in parallel primitive arrays, so that prediction walks plain arrays
+ * instead of copying every visited node out of the variable space.
+ */
+public class FlattenedTree {
+    final private int[] splitFeatures;
+    final private double[] splitValues;
+    final private int[] leftChildren;
+    final private int[] rightChildren;
+    final private double[] values;
+
+    /**
+     * @param nodes the node vectors in the layout of {@link RegressionTree#createNode}.
+     */
+    public FlattenedTree(List<RealVector> nodes) {
+        int numNodes = nodes.size();
+        splitFeatures = new int[numNodes];
+        splitValues = new double[numNodes];
+        leftChildren = new int[numNodes];
+        rightChildren = new int[numNodes];
+        values = new double[numNodes];
+        for (int i=0; i<numNodes; i++) {
+            RealVector node = nodes.get(i);
+            splitFeatures[i] = (int) node.getEntry(0);
+            splitValues[i] = node.getEntry(1);
+            leftChildren[i] = (int) node.getEntry(2);
+            rightChildren[i] = (int) node.getEntry(3);
+            values[i] = node.getEntry(4);
+        }
+    }
+
+    /**
+     * @return the index of the node where the features end up, or -1 if the tree is empty. Missing features are 0.0.
+     */
+    public int predictLeaf(Int2DoubleMap features) {
+        if (values.length == 0) {
+            return -1;
+        }
+        int node = 0;
+        while (splitFeatures[node] != -1) {
+            int next;
+            if (features.get(splitFeatures[node]) <= splitValues[node]) {
+                next = leftChildren[node];
+            } else {
+                next = rightChildren[node];
+            }
+            if (next == -1) {
+                break;
+            }
+            node = next;
+        }
+        return node;
+    }
+
+    public double predict(Int2DoubleMap features) {
+        int leaf = predictLeaf(features);
+        if (leaf == -1) {
+            return 0.0;
+        }
+        return values[leaf];
+    }
+
+    /**
+     * Map the split features of this tree to dense slots, assigning the next free slot to features new to fea2slot,
+     * which needs -1 as its default return value. Used to predict many instances with an ensemble of trees.
+     *
+     * @return the slot of every node, or -1 for the leaves.
+     */
+    public int[] mapSplitFeatures(Int2IntMap fea2slot) {
+        int[] nodeSlots = new int[splitFeatures.length];
+        for (int i=0; i<nodeSlots.length; i++) {
+            int feature = splitFeatures[i];
+            if (feature == -1) {
+                nodeSlots[i] = -1;
+            } else {
+                int slot = fea2slot.get(feature);
+                if (slot < 0) {
+                    slot = fea2slot.size();
+                    fea2slot.put(feature, slot);
+                }
+                nodeSlots[i] = slot;
+            }
+        }
+        return nodeSlots;
+    }
+
+    /**
+     * The same as {@link #predict(Int2DoubleMap)} with the feature values laid out densely by the nodeSlots from
+     * {@link #mapSplitFeatures(Int2IntMap)}.
+     */
+    public double predict(double[] slotValues, int[] nodeSlots) {
+        if (values.length == 0) {
+            return 0.0;
+        }
+        int node = 0;
+        while (nodeSlots[node] != -1) {
+            int next;
+            if (slotValues[nodeSlots[node]] <= splitValues[node]) {
+                next = leftChildren[node];
+            } else {
+                next = rightChildren[node];
+            }
+            if (next == -1) {
+                break;
+            }
+            node = next;
+        }
+        return values[node];
+    }
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.grouplens.samantha.modeler.tree;
+
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import org.grouplens.samantha.modeler.common.LearningData;
+import org.grouplens.samantha.modeler.common.LearningInstance;
+import org.grouplens.samantha.modeler.featurizer.Feature;
+import org.grouplens.samantha.modeler.instance.StandardLearningInstance;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Histogram based tree learning. Feature values are bucketed into at most maxNumBins quantile bins once, and kept
+ * as compact bin ids in a sparse row-major layout. A node is split by scanning the per-bin histograms of its
+ * splitting criterion instead of sorting the instance values, and the histograms of the larger child are derived
+ * from the parent by subtracting those of the smaller child. Missing features are treated as 0.0 as in
+ * {@link ExactGreedy}, while the split points are restricted to the bin bounds.
+ */
+public class HistogramGreedy extends AbstractTreeLearningMethod {
+    private static Logger logger = LoggerFactory.getLogger(HistogramGreedy.class);
+    private final int minNodeSplit;
+    private final int maxTreeDepth;
+    private final int maxNumBins;
+
+    public HistogramGreedy(int minNodeSplit, int maxTreeDepth, int maxNumBins) {
+        this.minNodeSplit = minNodeSplit;
+        this.maxTreeDepth = maxTreeDepth;
+        this.maxNumBins = Math.max(2, Math.min(maxNumBins, Short.MAX_VALUE));
+    }
+
+    static private class BinnedData {
+        private final List<double[]> respList;
+        private final int[] features;
+        private final double[][] upperBounds;
+        private final int[] zeroBins;
+        private final int[] rowStarts;
+        private final int[] cols;
+        private final short[] bins;
+
+        private BinnedData(List<double[]> respList, int[] features, double[][] upperBounds, int[] zeroBins,
+                           int[] rowStarts, int[] cols, short[] bins) {
+            this.respList = respList;
+            this.features = features;
+            this.upperBounds = upperBounds;
+            this.zeroBins = zeroBins;
+            this.rowStarts = rowStarts;
+            this.cols = cols;
+            this.bins = bins;
+        }
+
+        private int getBin(int row, int col) {
+            for (int e=rowStarts[row]; e<rowStarts[row + 1]; e++) {
+                if (cols[e] == col) {
+                    return bins[e];
+                }
+            }
+            return zeroBins[col];
+        }
+    }
+
+    private double[] getUpperBounds(double[] values) {
+        Arrays.sort(values);
+        DoubleArrayList bounds = new DoubleArrayList();
+        int numBins = maxNumBins - 1;
+        for (int q=1; q<=numBins; q++) {
+            int pos = (int) ((long) q * values.length / numBins) - 1;
+            if (pos >= 0) {
+                double bound = values[pos];
+                if (bounds.size() == 0 || bounds.getDouble(bounds.size() - 1) < bound) {
+                    bounds.add(bound);
+                }
+            }
+        }
+        if (values.length > 0 && bounds.getDouble(bounds.size() - 1) < values[values.length - 1]) {
+            bounds.add(values[values.length - 1]);
+        }
+        int zero = Arrays.binarySearch(bounds.elements(), 0, bounds.size(), 0.0);
+        if (zero < 0) {
+            bounds.add(-zero - 1, 0.0);
+        }
+        return bounds.toDoubleArray();
+    }
+
+    private BinnedData loadBinnedData(DecisionTree tree, LearningData learningData) {
+        List<double[]> respList = new ArrayList<>();
+        Int2IntOpenHashMap fea2col = new Int2IntOpenHashMap();
+        fea2col.defaultReturnValue(-1);
+        IntList features = new IntArrayList();
+        IntList colCounts = new IntArrayList();
+        IntList rowStarts = new IntArrayList();
+        IntList cols = new IntArrayList();
+        DoubleArrayList values = new DoubleArrayList();
+        learningData.startNewIteration();
+        List<LearningInstance> instances;
+        while ((instances = learningData.getLearningInstance()).size() > 0) {
+            for (LearningInstance ins : instances) {
+                StandardLearningInstance treeIns = tree.getLearningInstance(ins);
+                double[] resp = {treeIns.getLabel(), treeIns.getWeight()};
+                respList.add(resp);
+                rowStarts.add(cols.size());
+                for (Int2DoubleMap.Entry feature : treeIns.getFeatures().int2DoubleEntrySet()) {
+                    int col = fea2col.get(feature.getIntKey());
+                    if (col < 0) {
+                        col = features.size();
+                        fea2col.put(feature.getIntKey(), col);
+                        features.add(feature.getIntKey());
+                        colCounts.add(0);
+                    }
+                    colCounts.set(col, colCounts.getInt(col) + 1);
+                    cols.add(col);
+                    values.add(feature.getDoubleValue());
+                }
+                if (respList.size() % 10000 == 0) {
+                    logger.info("Loaded {} instances.", respList.size());
+                }
+            }
+        }
+        rowStarts.add(cols.size());
+        int numCols = features.size();
+        double[][] colValues = new double[numCols][];
+        for (int c=0; c<numCols; c++) {
+            colValues[c] = new double[colCounts.getInt(c)];
+        }
+        int[] filled = new int[numCols];
+        for (int e=0; e<cols.size(); e++) {
+            int col = cols.getInt(e);
+            colValues[col][filled[col]++] = values.getDouble(e);
+        }
+        double[][] upperBounds = new double[numCols][];
+        int[] zeroBins = new int[numCols];
+        for (int c=0; c<numCols; c++) {
+            upperBounds[c] = getUpperBounds(colValues[c]);
+            zeroBins[c] = Arrays.binarySearch(upperBounds[c], 0.0);
+            colValues[c] = null;
+        }
+        short[] bins = new short[cols.size()];
+        for (int e=0; e<bins.length; e++) {
+            double[] bounds = upperBounds[cols.getInt(e)];
+            int bin = Arrays.binarySearch(bounds, values.getDouble(e));
+            if (bin < 0) {
+                bin = -bin - 1;
+            }
+            bins[e] = (short) Math.min(bin, bounds.length - 1);
+        }
+        logger.info("Binned {} instances with {} features.", respList.size(), numCols);
+        return new BinnedData(respList, features.toIntArray(), upperBounds, zeroBins,
+                rowStarts.toIntArray(), cols.toIntArray(), bins);
+    }
+
+    private SplittingCriterion[][] buildHistograms(DecisionTree tree, BinnedData data, IntList rows) {
+        SplittingCriterion[][] hists = new SplittingCriterion[data.features.length][];
+        for (int i=0; i<rows.size(); i++) {
+            int row = rows.getInt(i);
+            for (int e=data.rowStarts[row]; e<data.rowStarts[row + 1]; e++) {
+                int col = data.cols[e];
+                if (hists[col] == null) {
+                    hists[col] = new SplittingCriterion[data.upperBounds[col].length];
+                }
+                SplittingCriterion bin = hists[col][data.bins[e]];
+                if (bin == null) {
+                    bin = tree.createSplittingCriterion();
+                    hists[col][data.bins[e]] = bin;
+                }
+                bin.add(row, data.respList);
+            }
+        }
+        return hists;
+    }
+
+    private SplittingCriterion[][] subtractHistograms(DecisionTree tree, SplittingCriterion[][] parent,
+                                                      SplittingCriterion[][] child) {
+        SplittingCriterion[][] hists = new SplittingCriterion[parent.length][];
+        for (int col=0; col<parent.length; col++) {
+            if (parent[col] == null) {
+                continue;
+            }
+            SplittingCriterion[] bins = new SplittingCriterion[parent[col].length];
+            boolean nonEmpty = false;
+            for (int b=0; b<bins.length; b++) {
+                if (parent[col][b] != null) {
+                    bins[b] = tree.createSplittingCriterion();
+                    bins[b].add(parent[col][b]);
+                    if (child[col] != null && child[col][b] != null) {
+                        bins[b].remove(child[col][b]);
+                    }
+                    nonEmpty = true;
+                }
+            }
+            if (nonEmpty) {
+                hists[col] = bins;
+            }
+        }
+        return hists;
+    }
+
+    /**
+     * @return {gain, bin} of the best split of the column, where the instances in bins up to bin go left.
+     */
+    private double[] findBestColumnSplit(DecisionTree tree, BinnedData data, int col, SplittingCriterion[] hist,
+                                         SplittingCriterion total, double beforeValue) {
+        SplittingCriterion[] bins = Arrays.copyOf(hist, hist.length);
+        SplittingCriterion zeros = tree.createSplittingCriterion();
+        zeros.add(total);
+        for (SplittingCriterion bin : hist) {
+            if (bin != null) {
+                zeros.remove(bin);
+            }
+        }
+        int zeroBin = data.zeroBins[col];
+        SplittingCriterion zeroBinCrit = tree.createSplittingCriterion();
+        zeroBinCrit.add(zeros);
+        if (bins[zeroBin] != null) {
+            zeroBinCrit.add(bins[zeroBin]);
+        }
+        bins[zeroBin] = zeroBinCrit;
+        int lastBin = bins.length - 1;
+        while (lastBin > 0 && bins[lastBin] == null) {
+            lastBin--;
+        }
+        SplittingCriterion leftSplit = tree.createSplittingCriterion();
+        SplittingCriterion rightSplit = tree.createSplittingCriterion();
+        rightSplit.add(total);
+        double[] best = {0.0, -1};
+        for (int b=0; b<lastBin; b++) {
+            if (bins[b] == null) {
+                continue;
+            }
+            leftSplit.add(bins[b]);
+            rightSplit.remove(bins[b]);
+            double gain = rightSplit.getSplittingGain(beforeValue, leftSplit, rightSplit, data.respList);
+            if (gain >= best[0]) {
+                best[0] = gain;
+                best[1] = b;
+            }
+        }
+        return best;
+    }
+
+    private boolean toSplit(IntList rows, int depth) {
+        return rows.size() > minNodeSplit && depth < maxTreeDepth;
+    }
+
+    private void learnTreeNode(DecisionTree tree, int parentNode, boolean left, int depth, BinnedData data,
+                               IntList relevant, SplittingCriterion[][] hists) {
+        if (relevant.size() == 0) {
+            return;
+        }
+        Feature bestSplit = new Feature(-1, 0.0);
+        if (!toSplit(relevant, depth)) {
+            tree.createNode(parentNode, left, relevant, data.respList, bestSplit);
+            return;
+        }
+        if (hists == null) {
+            hists = buildHistograms(tree, data, relevant);
+        }
+        SplittingCriterion total = tree.createSplittingCriterion();
+        total.add(relevant, data.respList);
+        double beforeValue = total.getValue(data.respList);
+        SplittingCriterion[][] nodeHists = hists;
+        double[][] colSplits = new double[nodeHists.length][];
+        IntStream.range(0, nodeHists.length).parallel().forEach(col -> {
+            if (nodeHists[col] != null) {
+                colSplits[col] = findBestColumnSplit(tree, data, col, nodeHists[col], total, beforeValue);
+            }
+        });
+        double bestGain = 0.0;
+        int bestCol = -1;
+        int bestBin = -1;
+        for (int col=0; col<colSplits.length; col++) {
+            if (colSplits[col] != null && colSplits[col][1] >= 0 && colSplits[col][0] > bestGain) {
+                bestGain = colSplits[col][0];
+                bestCol = col;
+                bestBin = (int) colSplits[col][1];
+            }
+        }
+        if (bestGain <= 0.0) {
+            tree.createNode(parentNode, left, relevant, data.respList, bestSplit);
+            return;
+        }
+        bestSplit = new Feature(data.features[bestCol], data.upperBounds[bestCol][bestBin]);
+        IntList leftRows = new IntArrayList();
+        IntList rightRows = new IntArrayList();
+        for (int i=0; i<relevant.size(); i++) {
+            int row = relevant.getInt(i);
+            if (data.getBin(row, bestCol) <= bestBin) {
+                leftRows.add(row);
+            } else {
+                rightRows.add(row);
+            }
+        }
+        SplittingCriterion[][] leftHists = null;
+        SplittingCriterion[][] rightHists = null;
+        if (toSplit(leftRows, depth + 1) && toSplit(rightRows, depth + 1)) {
+            if (leftRows.size() <= rightRows.size()) {
+                leftHists = buildHistograms(tree, data, leftRows);
+                rightHists = subtractHistograms(tree, hists, leftHists);
+            } else {
+                rightHists = buildHistograms(tree, data, rightRows);
+                leftHists = subtractHistograms(tree, hists, rightHists);
+            }
+        }
+        int node = tree.createNode(parentNode, left, relevant, data.respList, bestSplit);
+        relevant.clear();
+        learnTreeNode(tree, node, true, depth + 1, data, leftRows, leftHists);
+        learnTreeNode(tree, node, false, depth + 1, data, rightRows, rightHists);
+    }
+
+    public void learn(DecisionTree tree, LearningData learningData) {
+        BinnedData data = loadBinnedData(tree, learningData);
+        IntList relevant = new IntArrayList(data.respList.size());
+        for (int i=0; i<data.respList.size(); i++) {
+            relevant.add(i);
+        }
+        learnTreeNode(tree, -1, true, 0, data, relevant, null);
+    }
+}
@@ -70,6 +70,24 @@ public class MeanDivergence implements RegressionCriterion {
         sumVal -= resp[0];
     }
 
+    public void add(SplittingCriterion other) {
+        MeanDivergence that = (MeanDivergence) other;
+        sumWeight += that.sumWeight;
+        sumVal += that.sumVal;
+        if (minVal > that.minVal) {
+            minVal = that.minVal;
+        }
+        if (maxVal < that.maxVal) {
+            maxVal = that.maxVal;
+        }
+    }
+
+    public void remove(SplittingCriterion other) {
+        MeanDivergence that = (MeanDivergence) other;
+        sumWeight -= that.sumWeight;
+        sumVal -= that.sumVal;
+    }
+
     public double getValue(List<double[]> resps) {
         if (sumWeight > 0.0) {
             return sumVal / sumWeight;
@@ -22,19 +22,21 @@
 
 package org.grouplens.samantha.modeler.tree;
 
-import it.unimi.dsi.fastutil.ints.IntIterator;
 import it.unimi.dsi.fastutil.ints.IntList;
-import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
-import it.unimi.dsi.fastutil.ints.IntSet;
 
 import java.util.List;
 
-import static java.lang.Math.abs;
-
+/**
+ * Keeps only the sufficient statistics of the instances added, so adding or removing a whole histogram bin is O(1).
+ * An instance must not be added twice nor removed without having been added.
+ */
 public class MeanSquaredError implements RegressionCriterion {
     private static final long serialVersionUID = 1L;
-    transient private final IntSet relevant = new IntOpenHashSet();
+    transient private int count = 0;
+    transient private double sumLabel = 0.0;
     transient private double sumWeight = 0.0;
+    transient private double sumWeightedLabel = 0.0;
+    transient private double sumWeightedSquare = 0.0;
 
     public MeanSquaredError() {
 
@@ -47,7 +49,12 @@ public class MeanSquaredError implements RegressionCriterion {
     }
 
     public void add(int idx, List<double[]> resps) {
-        relevant.add(idx);
+        double[] resp = resps.get(idx);
+        count++;
+        sumLabel += resp[0];
+        sumWeight += resp[1];
+        sumWeightedLabel += resp[1] * resp[0];
+        sumWeightedSquare += resp[1] * resp[0] * resp[0];
     }
 
     public void remove(IntList idxList, List<double[]> resps) {
@@ -57,28 +64,39 @@ public class MeanSquaredError implements RegressionCriterion {
     }
 
     public void remove(int idx, List<double[]> resps) {
-        relevant.remove(idx);
+        double[] resp = resps.get(idx);
+        count--;
+        sumLabel -= resp[0];
+        sumWeight -= resp[1];
+        sumWeightedLabel -= resp[1] * resp[0];
+        sumWeightedSquare -= resp[1] * resp[0] * resp[0];
+    }
+
+    public void add(SplittingCriterion other) {
+        MeanSquaredError that = (MeanSquaredError) other;
+        count += that.count;
+        sumLabel += that.sumLabel;
+        sumWeight += that.sumWeight;
+        sumWeightedLabel += that.sumWeightedLabel;
+        sumWeightedSquare += that.sumWeightedSquare;
     }
 
+    public void remove(SplittingCriterion other) {
+        MeanSquaredError that = (MeanSquaredError) other;
+        count -= that.count;
+        sumLabel -= that.sumLabel;
+        sumWeight -= that.sumWeight;
+        sumWeightedLabel -= that.sumWeightedLabel;
+        sumWeightedSquare -= that.sumWeightedSquare;
+    }
+
+    /**
+     * The weighted squared error around the unweighted mean of the labels, divided by the sum of the weights.
+     */
     public double getValue(List<double[]> resps) {
-        double sse = 0.0;
-        double mean = 0.0;
-        IntIterator iter = relevant.iterator();
-        while (iter.hasNext()) {
-            int idx = iter.nextInt();
-            mean += resps.get(idx)[0];
-        }
-        mean /= relevant.size();
-        iter = relevant.iterator();
-        sumWeight = 0.0;
-        while (iter.hasNext()) {
-            int idx = iter.nextInt();
-            double[] resp = resps.get(idx);
-            double err = mean - resp[0];
-            sse += (resp[1] * err * err);
-            sumWeight += resp[1];
-        }
-        return sse / sumWeight;
+        double mean = sumLabel / count;
+        double sse = sumWeightedSquare - 2.0 * mean * sumWeightedLabel + mean * mean * sumWeight;
+        return Math.max(sse, 0.0) / sumWeight;
     }
 
     public double getSplittingGain(double beforeValue, SplittingCriterion leftSplit,
@@ -33,14 +33,34 @@ import org.grouplens.samantha.modeler.model.IndexSpace;
 import org.grouplens.samantha.modeler.model.VariableSpace;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 
 public class RegressionTree extends AbstractDecisionTree {
     private static final long serialVersionUID = 1L;
     private final SplittingCriterion criterion;
     private final String treeName;
+    /**
+     * The flattened copy of the nodes with the version of the tree it was built from. The version is bumped after
+     * every change of the nodes, so a copy built concurrently with a change is rebuilt by the next prediction.
+     */
+    transient private volatile VersionedTree flattenedTree;
+    transient private volatile long version;
     static final public int nodeSize = 6;
     static final public String indexName = TreeKey.TREE.get();
 
+    static private final AtomicLongFieldUpdater<RegressionTree> versionUpdater = AtomicLongFieldUpdater
+            .newUpdater(RegressionTree.class, "version");
+
+    static private class VersionedTree {
+        private final FlattenedTree tree;
+        private final long version;
+
+        private VersionedTree(FlattenedTree tree, long version) {
+            this.tree = tree;
+            this.version = version;
+        }
+    }
+
     /**
      * Directly calling this is discouraged. Use {@link RegressionTreeProducer} instead.
      */
@@ -94,69 +114,46 @@ public class RegressionTree extends AbstractDecisionTree {
         nodeVec.setEntry(4, mean);
         nodeVec.setEntry(5, sumWeight);
         variableSpace.setVectorVarByNameIndex(treeName, node, nodeVec);
+        versionUpdater.incrementAndGet(this);
         return node;
     }
 
+    /**
+     * @return the flattened copy of this tree for prediction, which is built on the first call after the tree is
+     * published, loaded or changed.
+     */
+    public FlattenedTree getFlattenedTree() {
+        long curVersion = version;
+        VersionedTree flattened = flattenedTree;
+        if (flattened == null || flattened.version != curVersion) {
+            flattened = new VersionedTree(new FlattenedTree(variableSpace.getVectorVarByName(treeName)), curVersion);
+            flattenedTree = flattened;
+        }
+        return flattened.tree;
+    }
+
     public double[] predict(LearningInstance instance) {
         double[] preds = new double[1];
-        if (variableSpace.getVectorVarSizeByName(treeName) > 0) {
-            StandardLearningInstance ins = (StandardLearningInstance) instance;
-            int node = 0;
-            do {
-                RealVector nodeVec = variableSpace.getVectorVarByNameIndex(treeName, node);
-                int splitIdx = (int)nodeVec.getEntry(0);
-                if (splitIdx == -1) {
-                    preds[0] = nodeVec.getEntry(4);
-                    return preds;
-                }
-                double splitVal = nodeVec.getEntry(1);
-                double feaVal = 0.0;
-                if (ins.getFeatures().containsKey(splitIdx)) {
-                    feaVal = ins.getFeatures().get(splitIdx);
-                }
-                if (feaVal <= splitVal) {
-                    node = (int)nodeVec.getEntry(2);
-                } else {
-                    node = (int)nodeVec.getEntry(3);
-                }
-                if (node == -1) {
-                    preds[0] = nodeVec.getEntry(4);
-                    return preds;
-                }
-            } while (node != -1);
+        preds[0] = getFlattenedTree().predict(((StandardLearningInstance) instance).getFeatures());
+        return preds;
+    }
+
+    public double[][] predict(List<LearningInstance> instances) {
+        FlattenedTree flattened = getFlattenedTree();
+        double[][] preds = new double[instances.size()][1];
+        for (int i=0; i<preds.length; i++) {
+            preds[i][0] = flattened.predict(((StandardLearningInstance) instances.get(i)).getFeatures());
         }
-        preds[0] = 0.0;
         return preds;
     }
 
     private int predictLeaf(LearningInstance instance) {
-        int predNode = -1;
-        if (variableSpace.getVectorVarSizeByName(treeName) > 0) {
-            StandardLearningInstance ins = (StandardLearningInstance) instance;
-            int node = 0;
-            do {
-                predNode = node;
-                RealVector nodeVec = variableSpace.getVectorVarByNameIndex(treeName, node);
-                int splitIdx = (int)nodeVec.getEntry(0);
-                if (splitIdx == -1) {
-                    return predNode;
-                }
-                double splitVal = nodeVec.getEntry(1);
-                double feaVal = 0.0;
-                if (ins.getFeatures().containsKey(splitIdx)) {
-                    feaVal = ins.getFeatures().get(splitIdx);
-                }
-                if (feaVal <= splitVal) {
-                    node = (int)nodeVec.getEntry(2);
-                } else {
-                    node = (int)nodeVec.getEntry(3);
-                }
-                if (node == -1) {
-                    return predNode;
-                }
-            } while (node != -1);
-        }
-        return predNode;
+        return getFlattenedTree().predictLeaf(((StandardLearningInstance) instance).getFeatures());
+    }
+
+    public void publishModel() {
+        super.publishModel();
+        versionUpdater.incrementAndGet(this);
     }
 
     public int predictLeaf(JsonNode entity) {
@@ -32,6 +32,12 @@ public interface SplittingCriterion extends Serializable {
     void add(int idx, List<double[]> resps);
     void remove(IntList idxList, List<double[]> resps);
     void remove(int idx, List<double[]> resps);
+
+    /**
+     * Add or remove all the instances summarized by another criterion of the same type, e.g. a histogram bin.
+     */
+    void add(SplittingCriterion other);
+    void remove(SplittingCriterion other);
     double getValue(List<double[]> resps);
     double getSplittingGain(double beforeValue, SplittingCriterion leftSplit,
                             SplittingCriterion rightSplit, List<double[]> resps);
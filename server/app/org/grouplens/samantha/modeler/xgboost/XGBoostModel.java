@@ -67,25 +67,44 @@ public class XGBoostModel implements PredictiveModel, Featurizer {
     }
 
     public double[] predict(LearningInstance ins) {
+        List<LearningInstance> instances = new ArrayList<>(1);
+        instances.add(ins);
+        return predict(instances)[0];
+    }
+
+    /**
+     * Build a single {@link DMatrix} for all the instances so that they are scored in one native call.
+     */
+    public double[][] predict(List<LearningInstance> instances) {
+        double[][] preds = new double[instances.size()][];
         if (booster == null) {
-            double[] preds = new double[1];
-            preds[0] = 0.0;
+            for (int i=0; i<preds.length; i++) {
+                preds[i] = new double[1];
+            }
             return preds;
-        } else {
-            List<LabeledPoint> list = new ArrayList<>(1);
+        }
+        List<LabeledPoint> list = new ArrayList<>(instances.size());
+        for (LearningInstance ins : instances) {
             list.add(((XGBoostInstance) ins).getLabeledPoint());
+        }
+        float[][] rawPreds;
+        try {
+            DMatrix data = new DMatrix(list.iterator(), null);
             try {
-                DMatrix data = new DMatrix(list.iterator(), null);
-                float[][] rawPreds = booster.predict(data);
-                double[] preds = new double[rawPreds[0].length];
-                for (int i=0; i<preds.length; i++) {
-                    preds[i] = rawPreds[0][i];
-                }
-                return preds;
-            } catch (XGBoostError e) {
-                throw new BadRequestException(e);
+                rawPreds = booster.predict(data);
+            } finally {
+                data.dispose();
+            }
+        } catch (XGBoostError e) {
+            throw new BadRequestException(e);
+        }
+        for (int i=0; i<preds.length; i++) {
+            preds[i] = new double[rawPreds[i].length];
+            for (int j=0; j<preds[i].length; j++) {
+                preds[i][j] = rawPreds[i][j];
             }
         }
+        return preds;
     }
 
     public List<ObjectNode> classify(List<ObjectNode> entities) {
@@ -24,6 +24,9 @@ package org.grouplens.samantha.server.common;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.grouplens.samantha.modeler.model.SnapshotInputStream;
+import org.grouplens.samantha.modeler.model.SnapshotOutputStream;
+import org.grouplens.samantha.modeler.model.SnapshotUtilities;
 import org.grouplens.samantha.modeler.model.SpaceMode;
 import org.grouplens.samantha.modeler.model.SpaceModel;
 import org.grouplens.samantha.server.config.ConfigKey;
@@ -142,9 +145,11 @@ abstract public class AbstractModelManager implements ModelManager {
         Object model = getOrDefaultModel(requestContext);
         try {
             String tmpFile = modelFile + ".tmp";
-            ObjectOutputStream fout = new ObjectOutputStream(new FileOutputStream(tmpFile));
+            SnapshotOutputStream fout = new SnapshotOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tmpFile)), modelFile);
             fout.writeObject(model);
             fout.close();
+            fout.publishSpaceFiles();
             File file = new File(tmpFile);
             file.renameTo(new File(modelFile));
         } catch (IOException e) {
@@ -159,7 +164,13 @@ abstract public class AbstractModelManager implements ModelManager {
         String toLoadFile = JsonHelpers.getOptionalString(requestContext.getRequestBody(),
                 ConfigKey.MODEL_FILE.get(), modelFile);
         try {
-            ObjectInputStream fin = new ObjectInputStream(new FileInputStream(toLoadFile));
+            InputStream in = new BufferedInputStream(new FileInputStream(toLoadFile));
+            ObjectInputStream fin;
+            if (SnapshotUtilities.isModelSnapshot(toLoadFile)) {
+                fin = new SnapshotInputStream(in, toLoadFile);
+            } else {
+                fin = new ObjectInputStream(in);
+            }
             Object model = fin.readObject();
             fin.close();
             modelService.setModel(engineName, modelName, model);
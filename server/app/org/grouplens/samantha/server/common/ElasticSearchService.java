@@ -158,16 +158,17 @@ public class ElasticSearchService {
                     .setSize(defaultSize)
                     .setQuery(request.toString()));
         }
-        return builder.execute().actionGet();
+        return InstrumentationUtilities.time("elasticsearch", null, "multiSearch",
+                () -> builder.execute().actionGet());
     }
 
     public SearchResponse search(String index, String type, QueryBuilder query) {
-        return client.prepareSearch(index)
+        return InstrumentationUtilities.time("elasticsearch", null, "search", () -> client.prepareSearch(index)
                 .setTypes(type)
                 .setQuery(query)
                 .setFrom(defaultFrom)
                 .setSize(defaultSize)
-                .execute().actionGet();
+                .execute().actionGet());
     }
 
     public SearchResponse search(String index, String type, QueryBuilder query, List<String> fields) {
@@ -179,7 +180,8 @@ public class ElasticSearchService {
         for (String field : fields) {
             builder.addField(field);
         }
-        return builder.execute().actionGet();
+        return InstrumentationUtilities.time("elasticsearch", null, "search",
+                () -> builder.execute().actionGet());
     }
 
     public SearchHits searchHitsByKeys(String index, String type,
@@ -242,12 +244,12 @@ public class ElasticSearchService {
     }
 
     public SearchResponse search(String index, String type, JsonNode query) {
-        return client.prepareSearch(index)
+        return InstrumentationUtilities.time("elasticsearch", null, "search", () -> client.prepareSearch(index)
                 .setTypes(type)
                 .setQuery(query.toString())
                 .setFrom(defaultFrom)
                 .setSize(defaultSize)
-                .execute().actionGet();
+                .execute().actionGet());
     }
 
     public SearchResponse search(String index, String type, JsonNode query, Set<String> fields,
@@ -267,15 +269,17 @@ public class ElasticSearchService {
         }
         builder.setSize(size);
         builder.setFrom(from);
-        return builder.execute().actionGet();
+        return InstrumentationUtilities.time("elasticsearch", null, "search",
+                () -> builder.execute().actionGet());
     }
 
     public SearchResponse search(String index, String type, JsonNode query, List<String> fields,
                                  boolean setScroll, String scrollId, Integer size, Integer from) {
         if (scrollId != null) {
-            return client.prepareSearchScroll(scrollId)
-                    .setScroll(new TimeValue(scrollTimeout))
-                    .execute().actionGet();
+            return InstrumentationUtilities.time("elasticsearch", null, "scroll",
+                    () -> client.prepareSearchScroll(scrollId)
+                            .setScroll(new TimeValue(scrollTimeout))
+                            .execute().actionGet());
         } else {
             SearchRequestBuilder builder = client.prepareSearch(index)
                     .setTypes(type)
@@ -295,7 +299,8 @@ public class ElasticSearchService {
                 from = defaultFrom;
             }
             builder.setFrom(from);
-            return builder.execute().actionGet();
+            return InstrumentationUtilities.time("elasticsearch", null, "search",
+                () -> builder.execute().actionGet());
         }
     }
 
@@ -314,7 +319,8 @@ public class ElasticSearchService {
             bulkRequest.add(client.prepareIndex(index, type)
                     .setSource(document.toString()));
         }
-        return bulkRequest.execute().actionGet();
+        return InstrumentationUtilities.time("elasticsearch", null, "bulkIndex",
+                () -> bulkRequest.execute().actionGet());
     }
 
     public IndexResponse index(String index, String type, JsonNode document) {
@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.grouplens.samantha.server.common;
+
+import play.Configuration;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide latency histograms and event counters of the engine components (recommenders, retrievers, rankers,
+ * predictors, expanders, indexers) and the backend calls (Redis, Elasticsearch, SQL), exported in the Prometheus
+ * text format. Recording is lock-free so it can stay on the serving path.
+ */
+public class InstrumentationUtilities {
+    static private final double[] BUCKETS = {0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5,
+            1.0, 2.5, 5.0, 10.0, 30.0};
+    static private final String[] LE_LABELS = new String[BUCKETS.length];
+    static private final Map<String, Histogram> histograms = new ConcurrentHashMap<>();
+    static private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    static {
+        for (int i=0; i<BUCKETS.length; i++) {
+            LE_LABELS[i] = BigDecimal.valueOf(BUCKETS[i]).stripTrailingZeros().toPlainString();
+        }
+    }
+
+    private InstrumentationUtilities() {}
+
+    static private class Histogram {
+        final private Map<String, String> labels;
+        final private LongAdder[] counts = new LongAdder[BUCKETS.length + 1];
+        final private DoubleAdder sum = new DoubleAdder();
+
+        private Histogram(Map<String, String> labels) {
+            this.labels = labels;
+            for (int i=0; i<counts.length; i++) {
+                counts[i] = new LongAdder();
+            }
+        }
+
+        private void observe(double seconds) {
+            int idx = 0;
+            while (idx < BUCKETS.length && seconds > BUCKETS[idx]) {
+                idx++;
+            }
+            counts[idx].increment();
+            sum.add(seconds);
+        }
+    }
+
+    static private class Counter {
+        final private Map<String, String> labels;
+        final private LongAdder count = new LongAdder();
+
+        private Counter(Map<String, String> labels) {
+            this.labels = labels;
+        }
+    }
+
+    /**
+     * A value computed at scraping time, e.g. the memory footprint of a model.
+     */
+    static public class Gauge {
+        final private String metric;
+        final private Map<String, String> labels;
+        final private double value;
+
+        public Gauge(String metric, Map<String, String> labels, double value) {
+            this.metric = metric;
+            this.labels = labels;
+            this.value = value;
+        }
+    }
+
+    static private Map<String, String> getLabels(String component, String engine, String name) {
+        Map<String, String> labels = new LinkedHashMap<>();
+        labels.put("component", component);
+        labels.put("engine", engine == null ? "" : engine);
+        labels.put("name", name == null ? "" : name);
+        return labels;
+    }
+
+    /**
+     * Record the latency of a call of a component started at {@code startNanos}, from {@link System#nanoTime()}.
+     *
+     * @param engine the engine name, or null for shared backends.
+     */
+    static public void recordLatency(String component, String engine, String name, long startNanos) {
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        String key = Utilities.composeKey(component, Utilities.composeKey(engine, name));
+        Histogram histogram = histograms.get(key);
+        if (histogram == null) {
+            histogram = histograms.computeIfAbsent(key, k -> new Histogram(getLabels(component, engine, name)));
+        }
+        histogram.observe(seconds);
+    }
+
+    static public <T> T time(String component, String engine, String name, Supplier<T> call) {
+        long start = System.nanoTime();
+        try {
+            return call.get();
+        } finally {
+            recordLatency(component, engine, name, start);
+        }
+    }
+
+    static public void increment(String component, String engine, String name, String event) {
+        String key = Utilities.composeKey(Utilities.composeKey(component, engine), Utilities.composeKey(name, event));
+        Counter counter = counters.get(key);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(key, k -> {
+                Map<String, String> labels = getLabels(component, engine, name);
+                labels.put("event", event);
+                return new Counter(labels);
+            });
+        }
+        counter.count.increment();
+    }
+
+    /**
+     * @return the name of a component from its configuration, or its class name if not configured with a name.
+     */
+    static public String getComponentName(Configuration config, Object component) {
+        if (config != null) {
+            String name = config.getString("name");
+            if (name != null) {
+                return name;
+            }
+        }
+        return component.getClass().getSimpleName();
+    }
+
+    static private String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    static private void appendSample(StringBuilder text, String metric, Map<String, String> labels,
+                                     String extraLabel, String extraValue, double value) {
+        text.append(metric).append('{');
+        boolean first = true;
+        for (Map.Entry<String, String> entry : labels.entrySet()) {
+            if (!first) {
+                text.append(',');
+            }
+            text.append(entry.getKey()).append("=\"").append(escape(entry.getValue())).append('"');
+            first = false;
+        }
+        if (extraLabel != null) {
+            if (!first) {
+                text.append(',');
+            }
+            text.append(extraLabel).append("=\"").append(extraValue).append('"');
+        }
+        text.append("} ");
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            text.append((long) value);
+        } else {
+            text.append(value);
+        }
+        text.append('\n');
+    }
+
+    static private <T> List<T> sorted(Map<String, T> map) {
+        List<String> keys = new ArrayList<>(map.keySet());
+        Collections.sort(keys);
+        List<T> values = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            values.add(map.get(key));
+        }
+        return values;
+    }
+
+    /**
+     * @return all the recorded latencies and events and the given gauges in the Prometheus text format (0.0.4).
+     */
+    static public String getMetricsText(List<Gauge> gauges) {
+        StringBuilder text = new StringBuilder();
+        String latency = "samantha_latency_seconds";
+        text.append("# HELP ").append(latency).append(" Latency of the engine components and backend calls.\n");
+        text.append("# TYPE ").append(latency).append(" histogram\n");
+        for (Histogram histogram : sorted(histograms)) {
+            long cumulative = 0L;
+            for (int i=0; i<BUCKETS.length; i++) {
+                cumulative += histogram.counts[i].sum();
+                appendSample(text, latency + "_bucket", histogram.labels, "le", LE_LABELS[i], cumulative);
+            }
+            cumulative += histogram.counts[BUCKETS.length].sum();
+            appendSample(text, latency + "_bucket", histogram.labels, "le", "+Inf", cumulative);
+            appendSample(text, latency + "_sum", histogram.labels, null, null, histogram.sum.sum());
+            appendSample(text, latency + "_count", histogram.labels, null, null, cumulative);
+        }
+        String events = "samantha_events_total";
+        text.append("# HELP ").append(events).append(" Number of events of the engine components.\n");
+        text.append("# TYPE ").append(events).append(" counter\n");
+        for (Counter counter : sorted(counters)) {
+            appendSample(text, events, counter.labels, null, null, counter.count.sum());
+        }
+        List<Gauge> ordered = new ArrayList<>(gauges);
+        ordered.sort(Comparator.comparing(gauge -> gauge.metric));
+        String metric = null;
+        for (Gauge gauge : ordered) {
+            if (!gauge.metric.equals(metric)) {
+                metric = gauge.metric;
+                text.append("# TYPE ").append(metric).append(" gauge\n");
+            }
+            appendSample(text, gauge.metric, gauge.labels, null, null, gauge.value);
+        }
+        return text.toString();
+    }
+}
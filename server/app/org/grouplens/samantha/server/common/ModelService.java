@@ -28,6 +28,7 @@ import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -37,6 +38,7 @@ public class ModelService {
     private final ReentrantReadWriteLock rwl = new ReentrantReadWriteLock();
     private final Lock readLock = rwl.readLock();
     private final Lock writeLock = rwl.writeLock();
+    private final AtomicLong modelVersion = new AtomicLong(0L);
 
     @Inject
     private ModelService() {}
@@ -64,9 +66,33 @@ public class ModelService {
         }
     }
 
+    /**
+     * @return a copy of the models of every engine by model name.
+     */
+    public Map<String, Map<String, Object>> getModels() {
+        readLock.lock();
+        try {
+            Map<String, Map<String, Object>> models = new HashMap<>();
+            for (Map.Entry<String, Map<String, Object>> entry : engineNamedModels.entrySet()) {
+                models.put(entry.getKey(), new HashMap<>(entry.getValue()));
+            }
+            return models;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * @return a version number that changes whenever a model is set or removed, e.g. by BUILD/LOAD/RESET.
+     */
+    public long getModelVersion() {
+        return modelVersion.get();
+    }
+
     public void setModel(String engineName, String modelName, Object object) {
         writeLock.lock();
         try {
+            modelVersion.incrementAndGet();
             if (!engineNamedModels.containsKey(engineName)) {
                 engineNamedModels.put(engineName, new HashMap<>());
             }
@@ -92,6 +118,7 @@ public class ModelService {
                     //((UncollectableModel) model).destroyModel(); TODO: problematic when sharing resources in different model names
                 }
                 engineNamedModels.get(engineName).remove(modelName);
+                modelVersion.incrementAndGet();
             }
         } finally {
             writeLock.unlock();
@@ -25,10 +25,12 @@ package org.grouplens.samantha.server.common;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.lambdaworks.redis.KeyScanCursor;
 import com.lambdaworks.redis.LettuceFutures;
 import com.lambdaworks.redis.RedisClient;
 import com.lambdaworks.redis.RedisFuture;
 import com.lambdaworks.redis.RedisURI;
+import com.lambdaworks.redis.ScanArgs;
 import com.lambdaworks.redis.api.StatefulRedisConnection;
 import com.lambdaworks.redis.api.async.RedisAsyncCommands;
 import com.lambdaworks.redis.api.sync.RedisCommands;
@@ -44,34 +46,55 @@ import play.libs.Json;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
 
+/**
+ * Single commands go through one shared connection, which Lettuce multiplexes across threads, so no lock is taken.
+ * Pipelined bulk operations and WATCH/MULTI/EXEC transactions borrow an exclusive connection from a bounded pool:
+ * a pipeline holds it until all its replies arrive and a transaction holds it (per thread) from watch/multi to exec
+ * or discard.
+ *
+ * Transactions are not serialized against each other or against single commands by a process-wide lock anymore,
+ * so callers must WATCH every key their transaction depends on and retry when exec reports an abort, just as they
+ * already had to against other processes sharing the same Redis.
+ */
 @Singleton
 public class RedisLettuceService implements RedisService {
     private static Logger logger = LoggerFactory.getLogger(RedisLettuceService.class);
+    private static final int SCAN_BATCH_SIZE = 1000;
     private final String cfgHost;
     private final Integer cfgPort;
     private final Integer cfgDb;
-
-    private final ReentrantReadWriteLock rwl = new ReentrantReadWriteLock();
-    private final Lock readLock = rwl.readLock();
-    private final Lock writeLock = rwl.writeLock();
+    private final int cfgPoolSize;
+    private final long cfgTimeoutMs;
 
     private RedisClient client = null;
     private StatefulRedisConnection<String, String> connection = null;
-    private StatefulRedisConnection<String, String> asyncConnection = null;
-    private RedisCommands syncCommands = null;
-    private RedisAsyncCommands asyncCommands = null;
+    private RedisCommands<String, String> syncCommands = null;
+    private BlockingQueue<StatefulRedisConnection<String, String>> pool = null;
+    private final ThreadLocal<Transaction> transaction = new ThreadLocal<>();
+
+    static private class Transaction {
+        private final StatefulRedisConnection<String, String> connection;
+        private boolean multi = false;
+
+        private Transaction(StatefulRedisConnection<String, String> connection) {
+            this.connection = connection;
+        }
+    }
 
     @Inject
     private RedisLettuceService(Configuration configuration, ApplicationLifecycle lifecycle) {
         cfgHost = configuration.getString(ConfigKey.REDIS_HOST.get());
         cfgPort = configuration.getInt(ConfigKey.REDIS_PORT.get());
         cfgDb = configuration.getInt(ConfigKey.REDIS_DBID.get());
+        cfgPoolSize = configuration.getInt(ConfigKey.REDIS_POOL_SIZE.get(), 8);
+        cfgTimeoutMs = configuration.getLong(ConfigKey.REDIS_TIMEOUT_MS.get(), 60000L);
         startUp();
         lifecycle.addStopHook(() -> {
             shutDown();
@@ -86,27 +109,99 @@ public class RedisLettuceService implements RedisService {
             logger.debug("* host={}", cfgHost);
             logger.debug("* port={}", cfgPort);
             logger.debug("* db={}", cfgDb);
+            logger.debug("* poolSize={}", cfgPoolSize);
+            logger.debug("* timeoutMs={}", cfgTimeoutMs);
         }
 
         RedisURI redisURI = new RedisURI();
         redisURI.setHost(cfgHost);
         redisURI.setPort(cfgPort);
         redisURI.setDatabase(cfgDb);
+        redisURI.setTimeout(cfgTimeoutMs);
+        redisURI.setUnit(TimeUnit.MILLISECONDS);
         client = RedisClient.create(redisURI);
         connection = client.connect();
-        asyncConnection = client.connect();
         syncCommands = connection.sync();
-        asyncCommands = asyncConnection.async();
-        asyncConnection.setAutoFlushCommands(false);
+        pool = new ArrayBlockingQueue<>(cfgPoolSize);
+        for (int i=0; i<cfgPoolSize; i++) {
+            pool.add(client.connect());
+        }
 
         logger.info("Connected to a redis client");
     }
 
     private void shutDown() {
         connection.close();
+        for (StatefulRedisConnection<String, String> pooled : pool) {
+            pooled.close();
+        }
         client.shutdown();
     }
 
+    private StatefulRedisConnection<String, String> borrowConnection() {
+        try {
+            StatefulRedisConnection<String, String> pooled = pool.poll(cfgTimeoutMs, TimeUnit.MILLISECONDS);
+            if (pooled == null) {
+                throw new BadRequestException("Timed out waiting for a pooled redis connection.");
+            }
+            return pooled;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BadRequestException(e);
+        }
+    }
+
+    private void releaseConnection(StatefulRedisConnection<String, String> pooled) {
+        pool.offer(pooled);
+    }
+
+    private Transaction getTransaction() {
+        Transaction tx = transaction.get();
+        if (tx == null) {
+            tx = new Transaction(borrowConnection());
+            transaction.set(tx);
+        }
+        return tx;
+    }
+
+    /**
+     * The commands of the transaction started by this thread if any, or the shared commands otherwise.
+     */
+    private RedisCommands<String, String> getCommands() {
+        Transaction tx = transaction.get();
+        if (tx != null) {
+            return tx.connection.sync();
+        } else {
+            return syncCommands;
+        }
+    }
+
+    /**
+     * Queue the commands on a pooled connection without flushing, send them in one write and wait for all replies.
+     */
+    private <T> List<T> pipeline(Function<RedisAsyncCommands<String, String>, List<RedisFuture<T>>> commands) {
+        long start = System.nanoTime();
+        StatefulRedisConnection<String, String> pooled = borrowConnection();
+        try {
+            pooled.setAutoFlushCommands(false);
+            List<RedisFuture<T>> futures = commands.apply(pooled.async());
+            pooled.flushCommands();
+            LettuceFutures.awaitAll(cfgTimeoutMs, TimeUnit.MILLISECONDS,
+                    futures.toArray(new RedisFuture[futures.size()]));
+            List<T> results = new ArrayList<>(futures.size());
+            for (RedisFuture<T> future : futures) {
+                results.add(future.get(cfgTimeoutMs, TimeUnit.MILLISECONDS));
+            }
+            return results;
+        } catch (ExecutionException | TimeoutException | InterruptedException e) {
+            throw new BadRequestException(e);
+        } finally {
+            pooled.setAutoFlushCommands(true);
+            releaseConnection(pooled);
+            InstrumentationUtilities.recordLatency("redis", null, "pipeline", start);
+        }
+    }
+
     private JsonNode getArrayNode(JsonNode data) {
         if (!data.isArray()) {
             ArrayNode arr = Json.newArray();
@@ -118,55 +213,57 @@ public class RedisLettuceService implements RedisService {
     }
 
     public void watch(String prefix, String key) {
-        writeLock.lock();
-        syncCommands.watch(Utilities.composeKey(prefix, key));
+        getTransaction().connection.sync().watch(Utilities.composeKey(prefix, key));
     }
 
-    public void multi(boolean lock) {
-        if (lock) {
-            writeLock.lock();
-        }
-        syncCommands.multi();
+    public void multi() {
+        Transaction tx = getTransaction();
+        tx.connection.sync().multi();
+        tx.multi = true;
     }
 
     public List<Object> exec() {
+        Transaction tx = getTransaction();
         try {
-            return syncCommands.exec();
+            return tx.connection.sync().exec();
         } finally {
-            writeLock.unlock();
+            transaction.remove();
+            releaseConnection(tx.connection);
         }
     }
 
-    public Long incre(String prefix, String key) {
-        readLock.lock();
+    public void discard() {
+        Transaction tx = transaction.get();
+        if (tx == null) {
+            return;
+        }
+        transaction.remove();
         try {
-            return syncCommands.incr(Utilities.composeKey(prefix, key));
+            if (tx.multi) {
+                tx.connection.sync().discard();
+            } else {
+                tx.connection.sync().unwatch();
+            }
         } finally {
-            readLock.unlock();
+            releaseConnection(tx.connection);
         }
     }
 
-    public Long increWithoutLock(String prefix, String key) {
+    public Long incre(String prefix, String key) {
         return syncCommands.incr(Utilities.composeKey(prefix, key));
     }
 
+    public Long increWithoutLock(String prefix, String key) {
+        return getCommands().incr(Utilities.composeKey(prefix, key));
+    }
+
     public String get(String prefix, String key) {
-        readLock.lock();
-        try {
-            return (String) syncCommands.get(Utilities.composeKey(prefix, key));
-        } finally {
-            readLock.unlock();
-        }
+        return InstrumentationUtilities.time("redis", null, "get",
+                () -> syncCommands.get(Utilities.composeKey(prefix, key)));
     }
 
     public JsonNode getValue(String prefix, String key) {
-        String val = null;
-        readLock.lock();
-        try {
-            val = (String) syncCommands.get(Utilities.composeKey(prefix, key));
-        } finally {
-            readLock.unlock();
-        }
+        String val = get(prefix, key);
         if (val != null) {
             return Json.parse(val);
         } else {
@@ -175,108 +272,74 @@ public class RedisLettuceService implements RedisService {
     }
 
     public String set(String prefix, String key, String value) {
-        readLock.lock();
-        try {
-            return syncCommands.set(Utilities.composeKey(prefix, key), value);
-        } finally {
-            readLock.unlock();
-        }
+        return syncCommands.set(Utilities.composeKey(prefix, key), value);
     }
 
     public String setWithoutLock(String prefix, String key, String value) {
-        return syncCommands.set(Utilities.composeKey(prefix, key), value);
+        return getCommands().set(Utilities.composeKey(prefix, key), value);
     }
 
     public void setValue(String prefix, String key, JsonNode value) {
-        readLock.lock();
-        try {
-            syncCommands.set(Utilities.composeKey(prefix, key), value.toString());
-        } finally {
-            readLock.unlock();
-        }
+        syncCommands.set(Utilities.composeKey(prefix, key), value.toString());
     }
 
     public void del(String prefix, String key) {
-        readLock.lock();
-        try {
-            syncCommands.del(Utilities.composeKey(prefix, key));
-        } finally {
-            readLock.unlock();
-        }
+        syncCommands.del(Utilities.composeKey(prefix, key));
     }
 
     public void delWithKey(String key) {
-        readLock.lock();
-        try {
-            syncCommands.del(key);
-        } finally {
-            readLock.unlock();
-        }
+        syncCommands.del(key);
     }
 
+    /**
+     * Iterate the matching keys with SCAN instead of KEYS, so Redis is never blocked by a full key space walk.
+     */
     public List<String> keysWithPrefixPattern(String prefix, String key) {
         String pattern = prefix;
         if (key != null) {
             pattern = Utilities.composeKey(prefix, key);
         }
-        readLock.lock();
-        try {
-            return syncCommands.keys(pattern + "*");
-        } finally {
-            readLock.unlock();
+        ScanArgs scanArgs = new ScanArgs().match(pattern + "*").limit(SCAN_BATCH_SIZE);
+        List<String> keys = new ArrayList<>();
+        KeyScanCursor<String> cursor = syncCommands.scan(scanArgs);
+        keys.addAll(cursor.getKeys());
+        while (!cursor.isFinished()) {
+            cursor = syncCommands.scan(cursor, scanArgs);
+            keys.addAll(cursor.getKeys());
         }
+        return keys;
     }
 
     public List<JsonNode> bulkGet(List<String> keys) {
-        readLock.lock();
-        try {
-            List<RedisFuture<String>> futures = new ArrayList<>();
+        List<String> values = pipeline(commands -> {
+            List<RedisFuture<String>> futures = new ArrayList<>(keys.size());
             for (String key : keys) {
-                RedisFuture<String> future = asyncCommands.get(key);
-                futures.add(future);
-            }
-            asyncConnection.flushCommands();
-            LettuceFutures.awaitAll(1, TimeUnit.MINUTES, futures.toArray(new RedisFuture[futures.size()]));
-            List<JsonNode> results = new ArrayList<>(keys.size());
-            for (RedisFuture<String> future : futures) {
-                try {
-                    String ret = future.get(5, TimeUnit.SECONDS);
-                    results.add(Json.parse(ret));
-                } catch (ExecutionException | TimeoutException | InterruptedException e) {
-                    throw new BadRequestException(e);
-                }
+                futures.add(commands.get(key));
             }
-            return results;
-        } finally {
-            readLock.unlock();
+            return futures;
+        });
+        List<JsonNode> results = new ArrayList<>(values.size());
+        for (String ret : values) {
+            results.add(Json.parse(ret));
         }
+        return results;
     }
 
     private List<JsonNode> bulkGetFromHashSetWithKeys(Collection<String> keys) {
-        readLock.lock();
-        try {
-            List<RedisFuture<List>> futures = new ArrayList<>();
+        List<List<String>> values = pipeline(commands -> {
+            List<RedisFuture<List<String>>> futures = new ArrayList<>(keys.size());
             for (String key : keys) {
-                RedisFuture<List> future = asyncCommands.hvals(key);
-                futures.add(future);
+                futures.add(commands.hvals(key));
             }
-            asyncConnection.flushCommands();
-            LettuceFutures.awaitAll(1, TimeUnit.MINUTES, futures.toArray(new RedisFuture[futures.size()]));
-            List<JsonNode> results = new ArrayList<>(keys.size());
-            for (RedisFuture<List> future : futures) {
-                try {
-                    List<String> ret = future.get(5, TimeUnit.SECONDS);
-                    for (String val : ret) {
-                        results.add(Json.parse(val));
-                    }
-                } catch (ExecutionException | TimeoutException | InterruptedException e) {
-                    throw new BadRequestException(e);
-                }
+            return futures;
+        });
+        List<JsonNode> results = new ArrayList<>(keys.size());
+        for (List<String> ret : values) {
+            for (String val : ret) {
+                results.add(Json.parse(val));
             }
-            return results;
-        } finally {
-            readLock.unlock();
         }
+        return results;
     }
 
     public List<JsonNode> bulkUniqueGetFromHashSet(String prefix, List<String> keyAttrs, List<ObjectNode> data) {
@@ -302,58 +365,45 @@ public class RedisLettuceService implements RedisService {
 
     public void indexIntoSortedSet(String prefix, String key, String scoreAttr, JsonNode data) {
         double score = data.get(scoreAttr).asDouble();
-        readLock.lock();
-        try {
-            syncCommands.zadd(Utilities.composeKey(prefix, key), score, data.toString());
-        } finally {
-            readLock.unlock();
-        }
+        syncCommands.zadd(Utilities.composeKey(prefix, key), score, data.toString());
     }
 
     public void indexIntoHashSet(String prefix, String key, String hash, JsonNode data) {
-        readLock.lock();
-        try {
-            syncCommands.hset(Utilities.composeKey(prefix, key), hash, data.toString());
-        } finally {
-            readLock.unlock();
-        }
+        syncCommands.hset(Utilities.composeKey(prefix, key), hash, data.toString());
     }
 
     public void bulkIndexIntoHashSet(String prefix, List<String> keyAttrs, List<String> hashAttrs, JsonNode data) {
-        data = getArrayNode(data);
-        for (JsonNode entity : data) {
-            indexIntoHashSet(prefix, Utilities.composeKey(entity, keyAttrs),
-                    Utilities.composeKey(entity, hashAttrs), entity);
-        }
+        JsonNode entities = getArrayNode(data);
+        pipeline(commands -> {
+            List<RedisFuture<Boolean>> futures = new ArrayList<>(entities.size());
+            for (JsonNode entity : entities) {
+                futures.add(commands.hset(Utilities.composeKey(prefix, Utilities.composeKey(entity, keyAttrs)),
+                        Utilities.composeKey(entity, hashAttrs), entity.toString()));
+            }
+            return futures;
+        });
     }
 
     public void bulkIndexIntoSortedSet(String prefix, List<String> keyAttrs, String scoreAttr, JsonNode data) {
-        data = getArrayNode(data);
-        for (JsonNode entity : data) {
-            indexIntoSortedSet(prefix, Utilities.composeKey(entity, keyAttrs), scoreAttr, entity);
-        }
+        JsonNode entities = getArrayNode(data);
+        pipeline(commands -> {
+            List<RedisFuture<Long>> futures = new ArrayList<>(entities.size());
+            for (JsonNode entity : entities) {
+                futures.add(commands.zadd(Utilities.composeKey(prefix, Utilities.composeKey(entity, keyAttrs)),
+                        entity.get(scoreAttr).asDouble(), entity.toString()));
+            }
+            return futures;
+        });
     }
 
     public void bulkDelWithKeys(Collection<String> keys) {
-        readLock.lock();
-        try {
-            List<RedisFuture<String>> futures = new ArrayList<>();
+        pipeline(commands -> {
+            List<RedisFuture<Long>> futures = new ArrayList<>(keys.size());
             for (String key : keys) {
-                RedisFuture<String> future = asyncCommands.del(key);
-                futures.add(future);
-            }
-            asyncConnection.flushCommands();
-            LettuceFutures.awaitAll(1, TimeUnit.MINUTES, futures.toArray(new RedisFuture[futures.size()]));
-            for (RedisFuture<String> future : futures) {
-                try {
-                    future.get(5, TimeUnit.SECONDS);
-                } catch (ExecutionException | TimeoutException | InterruptedException e) {
-                    throw new BadRequestException(e);
-                }
+                futures.add(commands.del(key));
             }
-        } finally {
-            readLock.unlock();
-        }
+            return futures;
+        });
     }
 
     public void bulkDelWithData(String prefix, List<String> keyAttrs, JsonNode data) {
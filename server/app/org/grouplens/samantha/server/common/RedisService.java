@@ -33,8 +33,15 @@ import java.util.List;
 public interface RedisService {
 
     void watch(String prefix, String key);
-    void multi(boolean lock);
+    void multi();
     List<Object> exec();
+
+    /**
+     * End the transaction started by watch or multi on this thread without executing it, which is a no-op if exec
+     * already ended it. Call it in a finally block around every transaction, so that a failed transaction does not
+     * leave its connection and state to the next commands of the thread.
+     */
+    void discard();
     String get(String prefix, String key);
     Long incre(String prefix, String key);
     Long increWithoutLock(String prefix, String key);
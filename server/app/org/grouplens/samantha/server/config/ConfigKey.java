@@ -31,11 +31,18 @@ public enum ConfigKey {
     REDIS_HOST("samantha.redis.host"),
     REDIS_PORT("samantha.redis.port"),
     REDIS_DBID("samantha.redis.dbid"),
+    REDIS_POOL_SIZE("samantha.redis.poolSize"),
+    REDIS_TIMEOUT_MS("samantha.redis.timeoutMs"),
     ENGINES_ENABLED("samantha.engines.enabled"),
     FILE_SERVICE_SEPARATOR("samantha.fileService.separator"),
     FILE_SERVICE_DATA_DIRS("samantha.fileService.dataDirs"),
     FILE_SERVICE_DIR_PATTERN("samantha.fileService.dirPattern"),
     FILE_SERVICE_MAX_WRITER("samantha.fileService.maxWriter"),
+    FILE_SERVICE_ASYNC_WRITE("samantha.fileService.asyncWrite"),
+    FILE_SERVICE_QUEUE_CAPACITY("samantha.fileService.queueCapacity"),
+    FILE_SERVICE_FLUSH_INTERVAL_MS("samantha.fileService.flushIntervalMs"),
+    FILE_SERVICE_MAX_FILE_BYTES("samantha.fileService.maxFileBytes"),
+    FILE_SERVICE_ROTATE_INTERVAL_MS("samantha.fileService.rotateIntervalMs"),
     ENGINE_NAME("engine"),
     ENGINE_TYPE("engineType"),
     ENGINE_COMPONENT_NAME("name"),
@@ -26,6 +26,7 @@ import org.grouplens.samantha.server.evaluator.EvaluatorConfig;
 import org.grouplens.samantha.server.indexer.IndexerConfig;
 import org.grouplens.samantha.server.predictor.PredictorConfig;
 import org.grouplens.samantha.server.ranker.RankerConfig;
+import org.grouplens.samantha.server.recommender.RecommendationCache;
 import org.grouplens.samantha.server.recommender.RecommenderConfig;
 import org.grouplens.samantha.server.retriever.RetrieverConfig;
 import org.grouplens.samantha.server.router.RouterConfig;
@@ -42,4 +43,5 @@ interface EngineConfig {
     Map<String, RecommenderConfig> getRecommenderConfigs();
     Map<String, SchedulerConfig> getSchedulerConfigs();
     RouterConfig getRouterConfig();
+    RecommendationCache getRecommendationCache();
 }
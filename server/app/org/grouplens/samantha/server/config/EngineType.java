@@ -22,11 +22,13 @@
 
 package org.grouplens.samantha.server.config;
 
+import com.typesafe.config.ConfigValueFactory;
 import org.grouplens.samantha.server.evaluator.EvaluatorConfig;
 import org.grouplens.samantha.server.exception.ConfigurationException;
 import org.grouplens.samantha.server.indexer.IndexerConfig;
 import org.grouplens.samantha.server.predictor.PredictorConfig;
 import org.grouplens.samantha.server.ranker.RankerConfig;
+import org.grouplens.samantha.server.recommender.RecommendationCache;
 import org.grouplens.samantha.server.recommender.RecommenderConfig;
 import org.grouplens.samantha.server.retriever.RetrieverConfig;
 import org.grouplens.samantha.server.router.RouterConfig;
@@ -59,9 +61,12 @@ public enum EngineType implements EngineConfigLoader {
             Map<String, SchedulerConfig> schedulerConfigs =
                     getSchedulerConfigs(engineConfig, injector, engineName);
             RouterConfig routerConfig = getRouterConfig(engineConfig, injector);
+            RecommendationCache recommendationCache = RecommendationCache
+                    .getRecommendationCache(engineName, engineConfig);
             return new RecommenderEngineConfig(retrieverConfigs,
                     predictorConfigs, rankerConfigs, recommenderConfigs,
-                    indexerConfigs, evaluatorConfigs, schedulerConfigs, routerConfig);
+                    indexerConfigs, evaluatorConfigs, schedulerConfigs, routerConfig,
+                    recommendationCache);
         }
     },
     PREDICTOR("predictor") {
@@ -94,6 +99,18 @@ public enum EngineType implements EngineConfigLoader {
         return engineType;
     }
 
+    /**
+     * Put the name of the component into its configuration unless configured, so that the component can be
+     * identified by its name, e.g. in the instrumentation metrics or the recommendation cache.
+     */
+    static private Configuration getNamedConfig(Configuration componentConfig, String name) {
+        if (componentConfig.asMap().containsKey(ConfigKey.ENGINE_COMPONENT_NAME.get())) {
+            return componentConfig;
+        }
+        return new Configuration(componentConfig.underlying()
+                .withValue(ConfigKey.ENGINE_COMPONENT_NAME.get(), ConfigValueFactory.fromAnyRef(name)));
+    }
+
     protected Map<String, RetrieverConfig> getRetrieverConfigs (
             Configuration engineConfig, Injector injector)
             throws ConfigurationException {
@@ -101,7 +118,7 @@ public enum EngineType implements EngineConfigLoader {
             Map<String, RetrieverConfig> retrieverConfigs = new HashMap<>();
             Configuration retrConfigs = engineConfig.getConfig(EngineComponent.RETRIEVER.get());
             for (String name : retrConfigs.subKeys()) {
-                Configuration retrConfig = retrConfigs.getConfig(name);
+                Configuration retrConfig = getNamedConfig(retrConfigs.getConfig(name), name);
                 String retrConfigClass = retrConfig.
                         getString(ConfigKey.ENGINE_COMPONENT_CONFIG_CLASS.get());
                 Method method = Class.forName(retrConfigClass)
@@ -124,7 +141,7 @@ public enum EngineType implements EngineConfigLoader {
             Map<String, PredictorConfig> predictorConfigs = new HashMap<>();
             Configuration predConfigs = engineConfig.getConfig(EngineComponent.PREDICTOR.get());
             for (String name : predConfigs.subKeys()) {
-                Configuration predConfig = predConfigs.getConfig(name);
+                Configuration predConfig = getNamedConfig(predConfigs.getConfig(name), name);
                 String predConfigClass = predConfig.
                         getString(ConfigKey.ENGINE_COMPONENT_CONFIG_CLASS.get());
                 Method method = Class.forName(predConfigClass)
@@ -147,7 +164,7 @@ public enum EngineType implements EngineConfigLoader {
             Map<String, RankerConfig> rankerConfigs = new HashMap<>();
             Configuration rankConfigs = engineConfig.getConfig(EngineComponent.RANKER.get());
             for (String name : rankConfigs.subKeys()) {
-                Configuration rankConfig = rankConfigs.getConfig(name);
+                Configuration rankConfig = getNamedConfig(rankConfigs.getConfig(name), name);
                 String rankConfigClass = rankConfig.
                         getString(ConfigKey.ENGINE_COMPONENT_CONFIG_CLASS.get());
                 Method method = Class.forName(rankConfigClass)
@@ -170,7 +187,7 @@ public enum EngineType implements EngineConfigLoader {
             Map<String, RecommenderConfig> recommenderConfigs = new HashMap<>();
             Configuration recConfigs = engineConfig.getConfig(EngineComponent.RECOMMENDER.get());
             for (String name : recConfigs.subKeys()) {
-                Configuration recConfig = recConfigs.getConfig(name);
+                Configuration recConfig = getNamedConfig(recConfigs.getConfig(name), name);
                 String recConfigClass = recConfig.
                         getString(ConfigKey.ENGINE_COMPONENT_CONFIG_CLASS.get());
                 Method method = Class.forName(recConfigClass)
@@ -193,7 +210,7 @@ public enum EngineType implements EngineConfigLoader {
             Map<String, EvaluatorConfig> evaluatorConfigs = new HashMap<>();
             Configuration evalConfigs = engineConfig.getConfig(EngineComponent.EVALUATOR.get());
             for (String name : evalConfigs.subKeys()) {
-                Configuration evalConfig = evalConfigs.getConfig(name);
+                Configuration evalConfig = getNamedConfig(evalConfigs.getConfig(name), name);
                 String evaluatorConfigClass = evalConfig.
                         getString(ConfigKey.ENGINE_COMPONENT_CONFIG_CLASS.get());
                 Method method = Class.forName(evaluatorConfigClass)
@@ -259,7 +276,7 @@ public enum EngineType implements EngineConfigLoader {
             Map<String, IndexerConfig> indexerConfigs = new HashMap<>();
             Configuration indConfigs = engineConfig.getConfig(EngineComponent.INDEXER.get());
             for (String name : indConfigs.subKeys()) {
-                Configuration indConfig = indConfigs.getConfig(name);
+                Configuration indConfig = getNamedConfig(indConfigs.getConfig(name), name);
                 String indConfigClass = indConfig.
                         getString(ConfigKey.ENGINE_COMPONENT_CONFIG_CLASS.get());
                 Method method = Class.forName(indConfigClass)
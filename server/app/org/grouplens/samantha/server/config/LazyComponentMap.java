@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.grouplens.samantha.server.config;
+
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * A map of named components that only builds a component when it is looked up, so that routing a request does not
+ * instantiate the components that the router does not select.
+ */
+class LazyComponentMap<T> extends AbstractMap<String, T> {
+    private final Set<String> names;
+    private final Function<String, T> builder;
+    private final Map<String, T> built = new HashMap<>();
+
+    LazyComponentMap(Set<String> names, Function<String, T> builder) {
+        this.names = names;
+        this.builder = builder;
+    }
+
+    public boolean containsKey(Object key) {
+        return names.contains(key);
+    }
+
+    public T get(Object key) {
+        if (!names.contains(key)) {
+            return null;
+        }
+        String name = (String) key;
+        if (!built.containsKey(name)) {
+            built.put(name, builder.apply(name));
+        }
+        return built.get(name);
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    public Set<String> keySet() {
+        return names;
+    }
+
+    public Set<Entry<String, T>> entrySet() {
+        Set<Entry<String, T>> entries = new HashSet<>();
+        for (String name : names) {
+            entries.add(new SimpleImmutableEntry<>(name, get(name)));
+        }
+        return entries;
+    }
+}
@@ -27,6 +27,7 @@ import org.grouplens.samantha.server.exception.ConfigurationException;
 import org.grouplens.samantha.server.indexer.IndexerConfig;
 import org.grouplens.samantha.server.predictor.PredictorConfig;
 import org.grouplens.samantha.server.ranker.RankerConfig;
+import org.grouplens.samantha.server.recommender.RecommendationCache;
 import org.grouplens.samantha.server.recommender.RecommenderConfig;
 import org.grouplens.samantha.server.retriever.RetrieverConfig;
 import org.grouplens.samantha.server.router.RouterConfig;
@@ -80,4 +81,7 @@ class PredictorEngineConfig implements EngineConfig {
     public RouterConfig getRouterConfig() {
         return routerConfig;
     }
+    public RecommendationCache getRecommendationCache() {
+        return null;
+    }
 }
@@ -26,6 +26,7 @@ import org.grouplens.samantha.server.evaluator.EvaluatorConfig;
 import org.grouplens.samantha.server.indexer.IndexerConfig;
 import org.grouplens.samantha.server.predictor.PredictorConfig;
 import org.grouplens.samantha.server.ranker.RankerConfig;
+import org.grouplens.samantha.server.recommender.RecommendationCache;
 import org.grouplens.samantha.server.recommender.RecommenderConfig;
 import org.grouplens.samantha.server.retriever.RetrieverConfig;
 import org.grouplens.samantha.server.router.RouterConfig;
@@ -36,6 +37,7 @@ import java.util.Map;
 class RecommenderEngineConfig extends PredictorEngineConfig {
     private final Map<String, RankerConfig> rankerConfigs;
     private final Map<String, RecommenderConfig> recommenderConfigs;
+    private final RecommendationCache recommendationCache;
 
     RecommenderEngineConfig(Map<String, RetrieverConfig> retrieverConfigs,
                             Map<String, PredictorConfig> predictorConfigs,
@@ -44,11 +46,13 @@ class RecommenderEngineConfig extends PredictorEngineConfig {
                             Map<String, IndexerConfig> indexerConfigs,
                             Map<String, EvaluatorConfig> evaluatorConfigs,
                             Map<String, SchedulerConfig> schedulerConfigs,
-                            RouterConfig routerConfig) {
+                            RouterConfig routerConfig,
+                            RecommendationCache recommendationCache) {
         super(retrieverConfigs, predictorConfigs, indexerConfigs, evaluatorConfigs,
                 schedulerConfigs, routerConfig);
         this.rankerConfigs = rankerConfigs;
         this.recommenderConfigs = recommenderConfigs;
+        this.recommendationCache = recommendationCache;
     }
 
     public Map<String, RankerConfig> getRankerConfigs() {
@@ -57,4 +61,7 @@ class RecommenderEngineConfig extends PredictorEngineConfig {
     public Map<String, RecommenderConfig> getRecommenderConfigs() {
         return recommenderConfigs;
     }
+    public RecommendationCache getRecommendationCache() {
+        return recommendationCache;
+    }
 }
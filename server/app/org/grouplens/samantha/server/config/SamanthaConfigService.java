@@ -22,8 +22,11 @@
 
 package org.grouplens.samantha.server.config;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
+import org.grouplens.samantha.server.common.ModelService;
+import org.grouplens.samantha.server.common.Utilities;
 import org.grouplens.samantha.server.evaluator.Evaluator;
 import org.grouplens.samantha.server.evaluator.EvaluatorConfig;
 import org.grouplens.samantha.server.exception.BadRequestException;
@@ -38,6 +41,8 @@ import org.grouplens.samantha.server.scheduler.QuartzSchedulerService;
 import org.grouplens.samantha.server.predictor.Predictor;
 import org.grouplens.samantha.server.predictor.PredictorConfig;
 import org.grouplens.samantha.server.ranker.Ranker;
+import org.grouplens.samantha.server.recommender.CachedRecommender;
+import org.grouplens.samantha.server.recommender.RecommendationCache;
 import org.grouplens.samantha.server.recommender.Recommender;
 import org.grouplens.samantha.server.recommender.RecommenderConfig;
 import org.grouplens.samantha.server.retriever.Retriever;
@@ -51,12 +56,24 @@ import javax.inject.Singleton;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Singleton
 public class SamanthaConfigService {
     private Configuration configuration;
     final private Injector injector;
     final private Map<String, EngineConfig> namedEngineConfig = new HashMap<>();
+    final private Map<String, CachedPredictor> cachedPredictors = new ConcurrentHashMap<>();
+
+    static private class CachedPredictor {
+        final private long modelVersion;
+        final private Predictor predictor;
+
+        private CachedPredictor(long modelVersion, Predictor predictor) {
+            this.modelVersion = modelVersion;
+            this.predictor = predictor;
+        }
+    }
 
     @Inject
     private SamanthaConfigService(Configuration configuration,
@@ -71,6 +88,7 @@ public class SamanthaConfigService {
         QuartzSchedulerService jobService = injector.instanceOf(QuartzSchedulerService.class);
         jobService.clearAllJobs();
         namedEngineConfig.clear();
+        cachedPredictors.clear();
         List<String> enabledEngines = config.
                 getStringList(ConfigKey.ENGINES_ENABLED.get());
         for (String engine : enabledEngines) {
@@ -135,7 +153,30 @@ public class SamanthaConfigService {
         PredictorConfig predictorConfig = namedEngineConfig.get(engineName)
                 .getPredictorConfigs().get(predictorName);
         checkNullWithTypeName(predictorConfig, "predictor", predictorName);
-        return predictorConfig.getPredictor(requestContext);
+        return getCachedPredictor(engineName, predictorName, predictorConfig, requestContext);
+    }
+
+    /**
+     * Predictors do not depend on the request once built, so they are built once and reused until any model is
+     * set or removed in {@link ModelService} (e.g. by BUILD/LOAD/RESET) or the configuration is reloaded.
+     * Requests carrying a model operation always go through the predictor config because building the predictor
+     * is what carries out the operation.
+     */
+    private Predictor getCachedPredictor(String engineName, String predictorName,
+                                         PredictorConfig predictorConfig, RequestContext requestContext) {
+        JsonNode reqBody = requestContext.getRequestBody();
+        if (reqBody != null && reqBody.has(ConfigKey.MODEL_OPERATION.get())) {
+            return predictorConfig.getPredictor(requestContext);
+        }
+        long modelVersion = injector.instanceOf(ModelService.class).getModelVersion();
+        String key = Utilities.composeKey(engineName, predictorName);
+        CachedPredictor cached = cachedPredictors.get(key);
+        if (cached != null && cached.modelVersion == modelVersion) {
+            return cached.predictor;
+        }
+        Predictor predictor = predictorConfig.getPredictor(requestContext);
+        cachedPredictors.put(key, new CachedPredictor(modelVersion, predictor));
+        return predictor;
     }
 
     public Ranker getRanker(String rankerName, RequestContext requestContext) {
@@ -181,13 +222,8 @@ public class SamanthaConfigService {
                 .getRouterConfig().getRouter(requestContext);
         Map<String, PredictorConfig> predictorConfigs = namedEngineConfig.get(engineName)
                 .getPredictorConfigs();
-        Map<String, Predictor> predictors = new HashMap<>();
-        for (Map.Entry<String, PredictorConfig> entry : predictorConfigs.entrySet()) {
-            predictors.put(
-                    entry.getKey(),
-                    entry.getValue().getPredictor(requestContext)
-            );
-        }
+        Map<String, Predictor> predictors = new LazyComponentMap<>(predictorConfigs.keySet(),
+                name -> getCachedPredictor(engineName, name, predictorConfigs.get(name), requestContext));
         return router.routePredictor(predictors, requestContext);
     }
 
@@ -197,13 +233,23 @@ public class SamanthaConfigService {
                 .getRouterConfig().getRouter(requestContext);
         Map<String, RecommenderConfig> recommenderConfigs = namedEngineConfig.get(engineName)
                 .getRecommenderConfigs();
-        Map<String, Recommender> recommenders = new HashMap<>();
-        for (Map.Entry<String, RecommenderConfig> entry : recommenderConfigs.entrySet()) {
-            recommenders.put(
-                    entry.getKey(),
-                    entry.getValue().getRecommender(requestContext)
-            );
+        Map<String, Recommender> recommenders = new LazyComponentMap<>(recommenderConfigs.keySet(),
+                name -> recommenderConfigs.get(name).getRecommender(requestContext));
+        Recommender recommender = router.routeRecommender(recommenders, requestContext);
+        RecommendationCache cache = namedEngineConfig.get(engineName).getRecommendationCache();
+        if (cache != null) {
+            return new CachedRecommender(recommender, cache, injector.instanceOf(ModelService.class));
+        }
+        return recommender;
+    }
+
+    /**
+     * Invalidate the cached recommendations of the engine depending on the newly indexed data.
+     */
+    public void invalidateRecommendations(String engineName, JsonNode data) {
+        EngineConfig engineConfig = namedEngineConfig.get(engineName);
+        if (engineConfig != null && engineConfig.getRecommendationCache() != null) {
+            engineConfig.getRecommendationCache().invalidate(data);
         }
-        return router.routeRecommender(recommenders, requestContext);
     }
 }
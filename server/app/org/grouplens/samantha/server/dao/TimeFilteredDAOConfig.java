@@ -23,10 +23,12 @@
 package org.grouplens.samantha.server.dao;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import org.grouplens.samantha.modeler.dao.DatePartitionPruner;
 import org.grouplens.samantha.modeler.dao.EntityDAO;
 import org.grouplens.samantha.modeler.dao.TimeFilteredDAO;
 import org.grouplens.samantha.server.common.JsonHelpers;
 import org.grouplens.samantha.server.config.ConfigKey;
+import org.grouplens.samantha.server.indexer.FileWriterService;
 import org.grouplens.samantha.server.indexer.IndexerUtilities;
 import org.grouplens.samantha.server.io.RequestContext;
 import play.Configuration;
@@ -41,10 +43,12 @@ public class TimeFilteredDAOConfig implements EntityDAOConfig {
     final private String endTimeKey;
     final private String timestampField;
     final private String subDaoConfigKey;
+    final private DatePartitionPruner pruner;
 
     private TimeFilteredDAOConfig(Configuration daosConfig, Injector injector,
                                   String beginTime, String endTime, String timestampField,
-                                  String beginTimeKey, String endTimeKey, String subDaoConfigKey) {
+                                  String beginTimeKey, String endTimeKey, String subDaoConfigKey,
+                                  DatePartitionPruner pruner) {
         this.daosConfig = daosConfig;
         this.injector = injector;
         this.beginTime = beginTime;
@@ -53,17 +57,28 @@ public class TimeFilteredDAOConfig implements EntityDAOConfig {
         this.endTimeKey = endTimeKey;
         this.subDaoConfigKey = subDaoConfigKey;
         this.timestampField = timestampField;
+        this.pruner = pruner;
     }
 
     public static EntityDAOConfig getEntityDAOConfig(Configuration daoConfig,
                                                      Injector injector) {
+        DatePartitionPruner pruner = null;
+        Boolean prunePartitions = daoConfig.getBoolean("prunePartitions");
+        if (prunePartitions == null || prunePartitions) {
+            String dirPattern = daoConfig.getString("dirPattern");
+            if (dirPattern == null) {
+                dirPattern = injector.instanceOf(Configuration.class)
+                        .getString(ConfigKey.FILE_SERVICE_DIR_PATTERN.get(), FileWriterService.DEFAULT_DIR_PATTERN);
+            }
+            pruner = new DatePartitionPruner(dirPattern);
+        }
         return new TimeFilteredDAOConfig(daoConfig.getConfig(ConfigKey.ENTITY_DAOS_CONFIG.get()),
                 injector, daoConfig.getString("beginTime"),
                 daoConfig.getString("endTime"),
                 daoConfig.getString("timestampField"),
                 daoConfig.getString("beginTimeKey"),
                 daoConfig.getString("endTimeKey"),
-                daoConfig.getString("subDaoConfigKey"));
+                daoConfig.getString("subDaoConfigKey"), pruner);
     }
 
     public EntityDAO getEntityDAO(RequestContext requestContext, JsonNode daoConfig) {
@@ -76,6 +91,6 @@ public class TimeFilteredDAOConfig implements EntityDAOConfig {
                 endTime);
         int start = IndexerUtilities.parseTime(startStr);
         int end = IndexerUtilities.parseTime(endStr);
-        return new TimeFilteredDAO(entityDAO, start, end, timestampField);
+        return new TimeFilteredDAO(entityDAO, start, end, timestampField, pruner);
     }
 }
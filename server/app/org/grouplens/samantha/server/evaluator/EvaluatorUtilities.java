@@ -23,14 +23,19 @@
 package org.grouplens.samantha.server.evaluator;
 
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.grouplens.samantha.modeler.instance.GroupedEntityList;
 import org.grouplens.samantha.server.config.ConfigKey;
 import org.grouplens.samantha.modeler.metric.Metric;
 import org.grouplens.samantha.server.evaluator.metric.MetricConfig;
 import org.grouplens.samantha.modeler.metric.MetricResult;
+import org.grouplens.samantha.server.exception.BadRequestException;
 import org.grouplens.samantha.server.exception.ConfigurationException;
+import org.grouplens.samantha.server.expander.EntityExpander;
+import org.grouplens.samantha.server.expander.ExpanderUtilities;
 import org.grouplens.samantha.server.indexer.Indexer;
 import org.grouplens.samantha.server.io.RequestContext;
 import play.Configuration;
+import play.Logger;
 import play.inject.Injector;
 import play.libs.Json;
 
@@ -38,10 +43,151 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class EvaluatorUtilities {
+    private static final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "samantha-evaluator");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private EvaluatorUtilities() {}
 
+    /**
+     * Evaluates one expanded, non-empty group of entities into the given metrics.
+     */
+    interface GroupEvaluator {
+        void evaluate(List<ObjectNode> entityList, List<Metric> metrics);
+    }
+
+    static private void logProgress(int cnt) {
+        if (cnt % 10000 == 0) {
+            Logger.info("Evaluated on {} groups.", cnt);
+        }
+    }
+
+    static private void putGroup(BlockingQueue<List<ObjectNode>> queue, List<ObjectNode> group,
+                                 AtomicBoolean failed) throws InterruptedException {
+        while (!failed.get()) {
+            if (queue.offer(group, 1, TimeUnit.SECONDS)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Expand and evaluate all the groups of the grouped entity list. With worker metrics, the groups are read
+     * sequentially and dispatched to one worker per metric list (the given metrics included), each worker
+     * accumulating into its own metrics only. The worker metrics are merged into the given metrics at the end. The
+     * workers run in a pool of daemon threads shared by all the evaluations.
+     */
+    static void evaluateGroups(GroupedEntityList groupedEntityList,
+                               List<EntityExpander> expanders,
+                               RequestContext requestContext,
+                               List<Metric> metrics,
+                               List<List<Metric>> workerMetrics,
+                               GroupEvaluator groupEvaluator) {
+        AtomicInteger cnt = new AtomicInteger(0);
+        AtomicInteger skipped = new AtomicInteger(0);
+        if (workerMetrics.size() == 0) {
+            List<ObjectNode> entityList;
+            while ((entityList = groupedEntityList.getNextGroup()).size() > 0) {
+                entityList = ExpanderUtilities.expand(entityList, expanders, requestContext);
+                if (entityList.size() > 0) {
+                    groupEvaluator.evaluate(entityList, metrics);
+                    logProgress(cnt.incrementAndGet());
+                } else {
+                    skipped.incrementAndGet();
+                }
+            }
+        } else {
+            List<List<Metric>> allMetrics = new ArrayList<>(workerMetrics.size() + 1);
+            allMetrics.add(metrics);
+            allMetrics.addAll(workerMetrics);
+            int numThreads = allMetrics.size();
+            BlockingQueue<List<ObjectNode>> queue = new ArrayBlockingQueue<>(numThreads * 4);
+            AtomicBoolean failed = new AtomicBoolean(false);
+            List<Future<?>> futures = new ArrayList<>(numThreads);
+            try {
+                for (List<Metric> oneMetrics : allMetrics) {
+                    futures.add(executor.submit(() -> {
+                        try {
+                            while (!failed.get()) {
+                                List<ObjectNode> entityList = queue.poll(1, TimeUnit.SECONDS);
+                                if (entityList == null) {
+                                    continue;
+                                } else if (entityList.size() == 0) {
+                                    break;
+                                }
+                                entityList = ExpanderUtilities.expand(entityList, expanders, requestContext);
+                                if (entityList.size() > 0) {
+                                    groupEvaluator.evaluate(entityList, oneMetrics);
+                                    logProgress(cnt.incrementAndGet());
+                                } else {
+                                    skipped.incrementAndGet();
+                                }
+                            }
+                        } catch (InterruptedException | RuntimeException e) {
+                            failed.set(true);
+                            throw e;
+                        }
+                        return null;
+                    }));
+                }
+                List<ObjectNode> entityList;
+                while (!failed.get() && (entityList = groupedEntityList.getNextGroup()).size() > 0) {
+                    putGroup(queue, entityList, failed);
+                }
+                for (int i=0; i<numThreads; i++) {
+                    putGroup(queue, new ArrayList<>(), failed);
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException | ExecutionException e) {
+                throw new BadRequestException(e);
+            } finally {
+                failed.set(true);
+                for (Future<?> future : futures) {
+                    future.cancel(true);
+                }
+            }
+            for (List<Metric> oneMetrics : workerMetrics) {
+                for (int i=0; i<metrics.size(); i++) {
+                    metrics.get(i).merge(oneMetrics.get(i));
+                }
+            }
+        }
+        Logger.info("Evaluated on {} groups.", cnt.get());
+        Logger.info("Skipped {} groups to evaluate on because of empty ground truth.", skipped.get());
+    }
+
+    /**
+     * Create one list of metrics for each worker of a parallel evaluation beyond the first one, which uses the
+     * metrics of the evaluator itself.
+     */
+    static List<List<Metric>> getWorkerMetrics(List<MetricConfig> metricConfigs, int numThreads,
+                                               RequestContext requestContext) {
+        List<List<Metric>> workerMetrics = new ArrayList<>();
+        for (int i=1; i<numThreads; i++) {
+            List<Metric> metrics = new ArrayList<>(metricConfigs.size());
+            for (MetricConfig metricConfig : metricConfigs) {
+                metrics.add(metricConfig.getMetric(requestContext));
+            }
+            workerMetrics.add(metrics);
+        }
+        return workerMetrics;
+    }
+
     static public List<MetricResult> indexMetrics(Configuration config,
                                                   RequestContext requestContext,
                                                   List<Metric> metrics,
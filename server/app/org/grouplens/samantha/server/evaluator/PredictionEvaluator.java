@@ -26,7 +26,6 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.grouplens.samantha.modeler.instance.GroupedEntityList;
 import org.grouplens.samantha.modeler.metric.MetricResult;
 import org.grouplens.samantha.server.expander.EntityExpander;
-import org.grouplens.samantha.server.expander.ExpanderUtilities;
 import org.grouplens.samantha.server.predictor.Prediction;
 import org.grouplens.samantha.modeler.metric.Metric;
 import org.grouplens.samantha.server.indexer.Indexer;
@@ -50,6 +49,7 @@ public class PredictionEvaluator implements Evaluator {
     final private List<Indexer> predIndexers;
     final private String labelAttr;
     final private String separator;
+    final private List<List<Metric>> workerMetrics;
 
     public PredictionEvaluator(Predictor predictor,
                                EntityDAO entityDAO,
@@ -60,6 +60,24 @@ public class PredictionEvaluator implements Evaluator {
                                List<Indexer> predIndexers,
                                String labelAttr,
                                String separator) {
+        this(predictor, entityDAO, expanders, groupKeys, metrics, indexers, predIndexers, labelAttr, separator,
+                new ArrayList<>());
+    }
+
+    /**
+     * @param workerMetrics one list of metrics per additional evaluation worker, created from the same metric
+     *                      configurations as the metrics. Empty to evaluate on the calling thread only.
+     */
+    public PredictionEvaluator(Predictor predictor,
+                               EntityDAO entityDAO,
+                               List<EntityExpander> expanders,
+                               List<String> groupKeys,
+                               List<Metric> metrics,
+                               List<Indexer> indexers,
+                               List<Indexer> predIndexers,
+                               String labelAttr,
+                               String separator,
+                               List<List<Metric>> workerMetrics) {
         this.predictor = predictor;
         this.entityDAO = entityDAO;
         this.expanders = expanders;
@@ -69,9 +87,11 @@ public class PredictionEvaluator implements Evaluator {
         this.predIndexers = predIndexers;
         this.labelAttr = labelAttr;
         this.separator = separator;
+        this.workerMetrics = workerMetrics;
     }
 
-    private void getPredictionMetrics(RequestContext requestContext, List<ObjectNode> entityList) {
+    private void getPredictionMetrics(RequestContext requestContext, List<ObjectNode> entityList,
+                                      List<Metric> metrics) {
         List<ObjectNode> labels = new ArrayList<>();
         List<Prediction> preds;
         List<Prediction> predictions;
@@ -121,23 +141,8 @@ public class PredictionEvaluator implements Evaluator {
             Logger.info("Note that the input evaluation data must be sorted by the group keys, e.g. groupId");
         }
         GroupedEntityList groupedEntityList = new GroupedEntityList(groupKeys, 1, entityDAO);
-        List<ObjectNode> entityList;
-        int cnt = 0;
-        int skipped = 0;
-        while ((entityList = groupedEntityList.getNextGroup()).size() > 0) {
-            entityList = ExpanderUtilities.expand(entityList, expanders, requestContext);
-            if (entityList.size() > 0) {
-                getPredictionMetrics(requestContext, entityList);
-                cnt++;
-                if (cnt % 10000 == 0) {
-                    Logger.info("Evaluated on {} groups.", cnt);
-                }
-            } else {
-                skipped++;
-            }
-        }
-        Logger.info("Evaluated on {} groups.", cnt);
-        Logger.info("Skipped {} groups to evaluate on because of empty ground truth.", skipped);
+        EvaluatorUtilities.evaluateGroups(groupedEntityList, expanders, requestContext, metrics, workerMetrics,
+                (entityList, groupMetrics) -> getPredictionMetrics(requestContext, entityList, groupMetrics));
         List<MetricResult> metricResults = EvaluatorUtilities.indexMetrics(predictor.getConfig(),
                 requestContext, metrics, indexers);
         return new Evaluation(metricResults);
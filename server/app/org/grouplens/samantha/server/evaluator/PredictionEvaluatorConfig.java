@@ -54,6 +54,7 @@ public class PredictionEvaluatorConfig extends AbstractComponentConfig implement
     final private List<MetricConfig> metricConfigs;
     final private Configuration daoConfigs;
     final private String daoConfigKey;
+    final private int numThreads;
 
     private PredictionEvaluatorConfig(Configuration config,
                                       List<MetricConfig> metricConfigs,
@@ -65,7 +66,8 @@ public class PredictionEvaluatorConfig extends AbstractComponentConfig implement
                                       String labelAttr,
                                       String separator,
                                       Configuration daoConfigs,
-                                      Injector injector, String daoConfigKey) {
+                                      Injector injector, String daoConfigKey,
+                                      int numThreads) {
         super(config);
         this.metricConfigs = metricConfigs;
         this.predictorName = predictorName;
@@ -76,6 +78,7 @@ public class PredictionEvaluatorConfig extends AbstractComponentConfig implement
         this.injector = injector;
         this.daoConfigs = daoConfigs;
         this.daoConfigKey = daoConfigKey;
+        this.numThreads = numThreads;
         this.labelAttr = labelAttr;
         this.separator = separator;
     }
@@ -84,6 +87,10 @@ public class PredictionEvaluatorConfig extends AbstractComponentConfig implement
                                               Injector injector) {
         List<MetricConfig> metricConfigs = EvaluatorUtilities
                 .getMetricConfigs(evalConfig.getConfigList("metrics"), injector);
+        int numThreads = 1;
+        if (evalConfig.asMap().containsKey("numThreads")) {
+            numThreads = evalConfig.getInt("numThreads");
+        }
         return new PredictionEvaluatorConfig(evalConfig,
                 metricConfigs,
                 evalConfig.getString("predictor"),
@@ -94,7 +101,7 @@ public class PredictionEvaluatorConfig extends AbstractComponentConfig implement
                 evalConfig.getString("labelAttr"),
                 evalConfig.getString("separator"),
                 evalConfig.getConfig(ConfigKey.ENTITY_DAOS_CONFIG.get()), injector,
-                evalConfig.getString("daoConfigKey"));
+                evalConfig.getString("daoConfigKey"), numThreads);
     }
 
     public Evaluator getEvaluator(RequestContext requestContext) {
@@ -108,6 +115,8 @@ public class PredictionEvaluatorConfig extends AbstractComponentConfig implement
         for (MetricConfig metricConfig : metricConfigs) {
             metrics.add(metricConfig.getMetric(requestContext));
         }
+        List<List<Metric>> workerMetrics = EvaluatorUtilities.getWorkerMetrics(metricConfigs, numThreads,
+                requestContext);
         List<Indexer> indexers = new ArrayList<>(indexerNames.size());
         for (String indexerName : indexerNames) {
             indexers.add(configService.getIndexer(indexerName, requestContext));
@@ -121,6 +130,6 @@ public class PredictionEvaluatorConfig extends AbstractComponentConfig implement
         List<EntityExpander> entityExpanders = ExpanderUtilities.getEntityExpanders(requestContext,
                 expandersConfig, injector);
         return new PredictionEvaluator(predictor, entityDao, entityExpanders,
-                groupKeys, metrics, indexers, predIndexers, labelAttr, separator);
+                groupKeys, metrics, indexers, predIndexers, labelAttr, separator, workerMetrics);
     }
 }
@@ -28,7 +28,6 @@ import org.grouplens.samantha.modeler.instance.GroupedEntityList;
 import org.grouplens.samantha.modeler.metric.Metric;
 import org.grouplens.samantha.modeler.metric.MetricResult;
 import org.grouplens.samantha.server.expander.EntityExpander;
-import org.grouplens.samantha.server.expander.ExpanderUtilities;
 import org.grouplens.samantha.server.indexer.Indexer;
 import org.grouplens.samantha.server.io.IOUtilities;
 import org.grouplens.samantha.server.io.RequestContext;
@@ -37,6 +36,7 @@ import org.grouplens.samantha.server.recommender.Recommender;
 import org.grouplens.samantha.modeler.dao.EntityDAO;
 import play.Logger;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class RecommendationEvaluator implements Evaluator {
@@ -48,6 +48,7 @@ public class RecommendationEvaluator implements Evaluator {
     final private List<Metric> metrics;
     final private List<Indexer> indexers;
     final private List<Indexer> recIndexers;
+    final private List<List<Metric>> workerMetrics;
 
     public RecommendationEvaluator(Recommender recommender,
                                    EntityDAO entityDAO,
@@ -57,6 +58,23 @@ public class RecommendationEvaluator implements Evaluator {
                                    List<Metric> metrics,
                                    List<Indexer> indexers, 
                                    List<Indexer> recIndexers) {
+        this(recommender, entityDAO, expanders, groupKeys, itemKeys, metrics, indexers, recIndexers,
+                new ArrayList<>());
+    }
+
+    /**
+     * @param workerMetrics one list of metrics per additional evaluation worker, created from the same metric
+     *                      configurations as the metrics. Empty to evaluate on the calling thread only.
+     */
+    public RecommendationEvaluator(Recommender recommender,
+                                   EntityDAO entityDAO,
+                                   List<EntityExpander> expanders,
+                                   List<String> groupKeys,
+                                   List<String> itemKeys,
+                                   List<Metric> metrics,
+                                   List<Indexer> indexers,
+                                   List<Indexer> recIndexers,
+                                   List<List<Metric>> workerMetrics) {
         this.recommender = recommender;
         this.entityDAO = entityDAO;
         this.expanders = expanders;
@@ -65,10 +83,12 @@ public class RecommendationEvaluator implements Evaluator {
         this.recIndexers = recIndexers;
         this.groupKeys = groupKeys;
         this.itemKeys = itemKeys;
+        this.workerMetrics = workerMetrics;
     }
 
     private void getRecommendationMetrics(RequestContext requestContext,
-                                          List<ObjectNode> entityList) {
+                                          List<ObjectNode> entityList,
+                                          List<Metric> metrics) {
         if (itemKeys != null && itemKeys.size() > 0) {
             boolean include = false;
             for (JsonNode entity : entityList) {
@@ -99,23 +119,8 @@ public class RecommendationEvaluator implements Evaluator {
     public Evaluation evaluate(RequestContext requestContext) {
         Logger.info("Note that the input evaluation data must be sorted by the group keys, e.g. groupId");
         GroupedEntityList groupedEntityList = new GroupedEntityList(groupKeys, null, entityDAO);
-        List<ObjectNode> entityList;
-        int cnt = 0;
-        int skipped = 0;
-        while ((entityList = groupedEntityList.getNextGroup()).size() > 0) {
-            entityList = ExpanderUtilities.expand(entityList, expanders, requestContext);
-            if (entityList.size() > 0) {
-                getRecommendationMetrics(requestContext, entityList);
-                cnt++;
-                if (cnt % 10000 == 0) {
-                    Logger.info("Evaluated on {} groups.", cnt);
-                }
-            } else {
-                skipped++;
-            }
-        }
-        Logger.info("Evaluated on {} groups.", cnt);
-        Logger.info("Skipped {} groups to evaluate on because of empty ground truth.", skipped);
+        EvaluatorUtilities.evaluateGroups(groupedEntityList, expanders, requestContext, metrics, workerMetrics,
+                (entityList, groupMetrics) -> getRecommendationMetrics(requestContext, entityList, groupMetrics));
         List<MetricResult> metricResults = EvaluatorUtilities.indexMetrics(recommender.getConfig(),
                 requestContext, metrics, indexers);
         return new Evaluation(metricResults);
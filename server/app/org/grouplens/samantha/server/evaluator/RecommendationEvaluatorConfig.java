@@ -51,6 +51,7 @@ public class RecommendationEvaluatorConfig extends AbstractComponentConfig imple
     final private List<MetricConfig> metricConfigs;
     final private Configuration daoConfigs;
     final private String daoConfigKey;
+    final private int numThreads;
     final private List<String> groupKeys;
     final private List<String> itemKeys;
 
@@ -63,7 +64,8 @@ public class RecommendationEvaluatorConfig extends AbstractComponentConfig imple
                                           List<String> groupKeys,
                                           List<String> itemKeys,
                                           String daoConfigKey,
-                                          Injector injector) {
+                                          Injector injector,
+                                          int numThreads) {
         super(config);
         this.metricConfigs = metricConfigs;
         this.recommenderName = recommenderName;
@@ -72,6 +74,7 @@ public class RecommendationEvaluatorConfig extends AbstractComponentConfig imple
         this.recIndexerNames = recIndexerNames;
         this.injector = injector;
         this.daoConfigKey = daoConfigKey;
+        this.numThreads = numThreads;
         this.groupKeys = groupKeys;
         this.itemKeys = itemKeys;
         this.daoConfigs = daoConfigs;
@@ -81,6 +84,10 @@ public class RecommendationEvaluatorConfig extends AbstractComponentConfig imple
                                                      Injector injector) {
         List<MetricConfig> metricConfigs = EvaluatorUtilities
                 .getMetricConfigs(evalConfig.getConfigList("metrics"), injector);
+        int numThreads = 1;
+        if (evalConfig.asMap().containsKey("numThreads")) {
+            numThreads = evalConfig.getInt("numThreads");
+        }
         return new RecommendationEvaluatorConfig(evalConfig,
                 metricConfigs,
                 evalConfig.getString("recommender"),
@@ -91,7 +98,7 @@ public class RecommendationEvaluatorConfig extends AbstractComponentConfig imple
                 evalConfig.getStringList("groupKeys"),
                 evalConfig.getStringList("itemKeys"),
                 evalConfig.getString("daoConfigKey"),
-                injector);
+                injector, numThreads);
     }
 
     public Evaluator getEvaluator(RequestContext requestContext) {
@@ -106,6 +113,8 @@ public class RecommendationEvaluatorConfig extends AbstractComponentConfig imple
         for (MetricConfig metricConfig : metricConfigs) {
             metrics.add(metricConfig.getMetric(requestContext));
         }
+        List<List<Metric>> workerMetrics = EvaluatorUtilities.getWorkerMetrics(metricConfigs, numThreads,
+                requestContext);
         List<Indexer> indexers = new ArrayList<>(indexerNames.size());
         for (String indexerName : indexerNames) {
             indexers.add(configService.getIndexer(indexerName, requestContext));
@@ -119,6 +128,6 @@ public class RecommendationEvaluatorConfig extends AbstractComponentConfig imple
         List<EntityExpander> entityExpanders = ExpanderUtilities.getEntityExpanders(requestContext,
                 expandersConfig, injector);
         return new RecommendationEvaluator(recommender, entityDao, entityExpanders,
-                groupKeys, itemKeys, metrics, indexers, recIndexers);
+                groupKeys, itemKeys, metrics, indexers, recIndexers, workerMetrics);
     }
 }
@@ -25,6 +25,7 @@ package org.grouplens.samantha.server.evaluator.metric;
 import com.fasterxml.jackson.databind.JsonNode;
 import org.grouplens.samantha.modeler.metric.AUC;
 import org.grouplens.samantha.modeler.metric.Metric;
+import org.grouplens.samantha.server.exception.ConfigurationException;
 import org.grouplens.samantha.server.io.RequestContext;
 import play.Configuration;
 import play.inject.Injector;
@@ -35,14 +36,16 @@ public class AUCConfig implements MetricConfig {
     final private String labelKey;
     final private double threshold;
     final private double minValue;
+    final private double scoreAccuracy;
 
     private AUCConfig(AUC.AUCType aucType, String labelName, String labelKey,
-                      double threshold, double minValue) {
+                      double threshold, double minValue, double scoreAccuracy) {
         this.aucType = aucType;
         this.labelName = labelName;
         this.labelKey = labelKey;
         this.threshold = threshold;
         this.minValue = minValue;
+        this.scoreAccuracy = scoreAccuracy;
     }
 
     public static MetricConfig getMetricConfig(Configuration metricConfig,
@@ -56,10 +59,17 @@ public class AUCConfig implements MetricConfig {
         if (metricConfig.asMap().containsKey("minValue")) {
             minValue = metricConfig.getDouble("minValue");
         }
+        double scoreAccuracy = 0.001;
+        if (metricConfig.asMap().containsKey("scoreAccuracy")) {
+            scoreAccuracy = metricConfig.getDouble("scoreAccuracy");
+            if (scoreAccuracy <= 0.0 || scoreAccuracy >= 1.0) {
+                throw new ConfigurationException("scoreAccuracy of AUC must be in (0, 1).");
+            }
+        }
         return new AUCConfig(AUC.AUCType.valueOf(aucType),
                 metricConfig.getString("labelName"),
                 metricConfig.getString("labelKey"),
-                threshold, minValue);
+                threshold, minValue, scoreAccuracy);
     }
 
     public Metric getMetric(RequestContext requestContext) {
@@ -68,6 +78,6 @@ public class AUCConfig implements MetricConfig {
         if (reqBody.has(labelKey)) {
             label = reqBody.get(labelKey).asText();
         }
-        return new AUC(label, aucType, threshold, minValue);
+        return new AUC(label, aucType, threshold, minValue, scoreAccuracy);
     }
 }
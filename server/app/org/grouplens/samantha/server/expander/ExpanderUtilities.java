@@ -28,6 +28,7 @@ import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHitField;
 import org.grouplens.samantha.modeler.dao.EntityDAO;
 import org.grouplens.samantha.modeler.featurizer.FeatureExtractorUtilities;
+import org.grouplens.samantha.server.common.InstrumentationUtilities;
 import org.grouplens.samantha.server.config.ConfigKey;
 import org.grouplens.samantha.server.exception.BadRequestException;
 import org.grouplens.samantha.server.io.RequestContext;
@@ -40,19 +41,32 @@ import play.libs.Json;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ExpanderUtilities {
 
+    private static final Map<String, Method> expanderGetters = new ConcurrentHashMap<>();
+
     private ExpanderUtilities() {}
 
+    static private Method getExpanderGetter(String expanderClass)
+            throws NoSuchMethodException, ClassNotFoundException {
+        Method method = expanderGetters.get(expanderClass);
+        if (method == null) {
+            method = Class.forName(expanderClass)
+                    .getMethod("getExpander", Configuration.class, Injector.class, RequestContext.class);
+            expanderGetters.put(expanderClass, method);
+        }
+        return method;
+    }
+
     static public List<EntityExpander> getEntityExpanders(RequestContext requestContext,
                                                           List<Configuration> expandersConfig,
                                                           Injector injector) {
         try {
             List<EntityExpander> resultExpanders = new ArrayList<>(expandersConfig.size());
             for (Configuration expanderConfig : expandersConfig) {
-                Method method = Class.forName(expanderConfig.getString(ConfigKey.EXPANDER_CLASS.get()))
-                        .getMethod("getExpander", Configuration.class, Injector.class, RequestContext.class);
+                Method method = getExpanderGetter(expanderConfig.getString(ConfigKey.EXPANDER_CLASS.get()));
                 EntityExpander expander = (EntityExpander) method
                         .invoke(null, expanderConfig, injector, requestContext);
                 resultExpanders.add(expander);
@@ -83,9 +97,11 @@ public class ExpanderUtilities {
     static public List<ObjectNode> expand(List<ObjectNode> initial, List<EntityExpander> expanders,
                                           RequestContext requestContext) {
         for (EntityExpander expander : expanders) {
-            long start = System.currentTimeMillis();
+            long start = System.nanoTime();
             initial = expander.expand(initial, requestContext);
-            Logger.debug("{} time: {}", expander, System.currentTimeMillis() - start);
+            InstrumentationUtilities.recordLatency("expander", requestContext.getEngineName(),
+                    expander.getClass().getSimpleName(), start);
+            Logger.debug("{} time: {}", expander, (System.nanoTime() - start) / 1000000);
         }
         return initial;
     }
@@ -27,6 +27,7 @@ import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.typesafe.config.ConfigRenderOptions;
 import org.grouplens.samantha.modeler.dao.EntityDAO;
+import org.grouplens.samantha.server.common.InstrumentationUtilities;
 import org.grouplens.samantha.server.config.ConfigKey;
 import org.grouplens.samantha.server.config.EngineComponent;
 import org.grouplens.samantha.server.config.SamanthaConfigService;
@@ -75,6 +76,7 @@ abstract public class AbstractIndexer implements Indexer {
     }
 
     private void notifyDataSubscribers(JsonNode entities, RequestContext requestContext) {
+        configService.invalidateRecommendations(requestContext.getEngineName(), entities);
         if (subscribers == null) {
             return;
         }
@@ -96,25 +98,31 @@ abstract public class AbstractIndexer implements Indexer {
     }
 
     public void index(RequestContext requestContext) {
-        JsonNode reqBody = requestContext.getRequestBody();
-        EntityDAO entityDAO = EntityDAOUtilities.getEntityDAO(daoConfigs, requestContext,
-                reqBody.get(daoConfigKey), injector);
-        ArrayNode toIndex = Json.newArray();
-        ExpandedEntityDAO expandedEntityDAO = new ExpandedEntityDAO(expanders, entityDAO, requestContext);
-        while (expandedEntityDAO.hasNextEntity()) {
-            toIndex.add(expandedEntityDAO.getNextEntity());
-            if (toIndex.size() >= batchSize) {
+        long start = System.nanoTime();
+        try {
+            JsonNode reqBody = requestContext.getRequestBody();
+            EntityDAO entityDAO = EntityDAOUtilities.getEntityDAO(daoConfigs, requestContext,
+                    reqBody.get(daoConfigKey), injector);
+            ArrayNode toIndex = Json.newArray();
+            ExpandedEntityDAO expandedEntityDAO = new ExpandedEntityDAO(expanders, entityDAO, requestContext);
+            while (expandedEntityDAO.hasNextEntity()) {
+                toIndex.add(expandedEntityDAO.getNextEntity());
+                if (toIndex.size() >= batchSize) {
+                    index(toIndex, requestContext);
+                    notifyDataSubscribers(toIndex, requestContext);
+                    toIndex.removeAll();
+                }
+            }
+            if (toIndex.size() > 0) {
                 index(toIndex, requestContext);
                 notifyDataSubscribers(toIndex, requestContext);
-                toIndex.removeAll();
             }
+            expandedEntityDAO.close();
+            entityDAO.close();
+        } finally {
+            InstrumentationUtilities.recordLatency("indexer", requestContext.getEngineName(),
+                    InstrumentationUtilities.getComponentName(config, this), start);
         }
-        if (toIndex.size() > 0) {
-            index(toIndex, requestContext);
-            notifyDataSubscribers(toIndex, requestContext);
-        }
-        expandedEntityDAO.close();
-        entityDAO.close();
     }
 
     public EntityDAO getEntityDAO(RequestContext requestContext) {
@@ -0,0 +1,337 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.grouplens.samantha.server.indexer;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.Lists;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import play.libs.Json;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The asynchronous writer of one data type of {@link FileWriterService}. Rows are formatted by the calling threads
+ * and put into a lock-free queue, which is drained by a dedicated thread that owns all the files of the type, so
+ * that no locking is needed for picking and writing files. Writes are buffered and flushed and synced to disk in
+ * groups every flushIntervalMs. A file is rotated to the next one in its directory when it reaches maxFileBytes of
+ * UTF-8 or has been open for rotateIntervalMs, where zero disables the limit, and a rotated file is not written
+ * again by the writer. Callers are blocked when queueCapacity rows are
+ * pending.
+ */
+class AsyncFileWriter implements Runnable {
+    private static Logger logger = LoggerFactory.getLogger(AsyncFileWriter.class);
+    private static final int bufferSize = 1 << 20;
+    private static final long blockedParkNanos = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long minIdleParkNanos = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final int newLineBytes = System.lineSeparator().getBytes(StandardCharsets.UTF_8).length;
+    private final String type;
+    private final List<String> dataDirs;
+    private final String separator;
+    private final int maxWriter;
+    private final int queueCapacity;
+    private final long flushIntervalNanos;
+    private final long maxFileBytes;
+    private final long rotateIntervalMs;
+    private final SimpleDateFormat dateFormat;
+    private final ConcurrentLinkedQueue<Row> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger(0);
+    private final AtomicLong maxPending = new AtomicLong(0);
+    private final AtomicLong written = new AtomicLong(0);
+    private final AtomicLong blocked = new AtomicLong(0);
+    private final AtomicLong failed = new AtomicLong(0);
+    private final AtomicLong flushes = new AtomicLong(0);
+    private final Thread thread;
+    private volatile boolean running = true;
+    private final LinkedHashMap<String, OpenFile> openFiles = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, String> currentFiles = new HashMap<>();
+    private final Map<String, Integer> fileIndexes = new HashMap<>();
+    private final Map<String, List<String>> schemas = new HashMap<>();
+    private int curDirIdx = 0;
+    private long lastFlush = System.nanoTime();
+
+    static private class Row {
+        private final String line;
+        private final int bytes;
+        private final List<String> dataFields;
+        private final int tstamp;
+        private final String appendix;
+
+        private Row(String line, List<String> dataFields, int tstamp, String appendix) {
+            this.line = line;
+            this.bytes = line.getBytes(StandardCharsets.UTF_8).length + newLineBytes;
+            this.dataFields = dataFields;
+            this.tstamp = tstamp;
+            this.appendix = appendix;
+        }
+    }
+
+    static private class OpenFile {
+        private final int index;
+        private final FileOutputStream stream;
+        private final BufferedWriter writer;
+        private final long openTime;
+        private long bytes;
+        private boolean dirty = false;
+
+        private OpenFile(String file, int index) throws IOException {
+            this.index = index;
+            stream = new FileOutputStream(file, true);
+            writer = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), bufferSize);
+            openTime = System.currentTimeMillis();
+            bytes = stream.getChannel().size();
+        }
+
+        private boolean flush() throws IOException {
+            if (dirty) {
+                writer.flush();
+                stream.getFD().sync();
+                dirty = false;
+                return true;
+            }
+            return false;
+        }
+
+        private void close() throws IOException {
+            flush();
+            writer.close();
+        }
+    }
+
+    AsyncFileWriter(String type, List<String> dataDirs, String dirPattern, String separator, int maxWriter,
+                    int queueCapacity, long flushIntervalMs, long maxFileBytes, long rotateIntervalMs) {
+        this.type = type;
+        this.dataDirs = dataDirs;
+        this.separator = separator;
+        this.maxWriter = maxWriter;
+        this.queueCapacity = queueCapacity;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.maxFileBytes = maxFileBytes;
+        this.rotateIntervalMs = rotateIntervalMs;
+        this.dateFormat = new SimpleDateFormat(dirPattern);
+        this.thread = new Thread(this, "samantha-file-writer-" + type);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    void write(String line, List<String> dataFields, int tstamp, String appendix) {
+        if (!running) {
+            failed.incrementAndGet();
+            logger.error("The file writer of {} is already stopped.", type);
+            return;
+        }
+        if (pending.get() >= queueCapacity) {
+            blocked.incrementAndGet();
+            while (pending.get() >= queueCapacity && running) {
+                LockSupport.parkNanos(this, blockedParkNanos);
+            }
+        }
+        queue.add(new Row(line, dataFields, tstamp, appendix));
+        if (pending.getAndIncrement() == 0) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    public void run() {
+        while (running || !queue.isEmpty()) {
+            Row row = queue.poll();
+            if (row == null) {
+                flushAll();
+                LockSupport.parkNanos(this, Math.max(flushIntervalNanos, minIdleParkNanos));
+                continue;
+            }
+            int cur = pending.getAndDecrement();
+            if (cur > maxPending.get()) {
+                maxPending.set(cur);
+            }
+            writeRow(row);
+            if (System.nanoTime() - lastFlush >= flushIntervalNanos) {
+                flushAll();
+            }
+        }
+        closeAll();
+    }
+
+    void stop() {
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            logger.error("Interrupted when stopping the file writer of {}.", type);
+        }
+    }
+
+    ObjectNode getMetrics() {
+        ObjectNode metrics = Json.newObject();
+        metrics.put("pending", pending.get());
+        metrics.put("maxPending", maxPending.get());
+        metrics.put("written", written.get());
+        metrics.put("blocked", blocked.get());
+        metrics.put("failed", failed.get());
+        metrics.put("flushes", flushes.get());
+        return metrics;
+    }
+
+    private void writeRow(Row row) {
+        int numDirs = dataDirs.size();
+        for (int i=0; i<numDirs; i++) {
+            int idx = (curDirIdx + i) % numDirs;
+            String directory = Paths.get(dataDirs.get(idx), type,
+                    dateFormat.format(new Date(row.tstamp * 1000L))).toString() + File.separator;
+            String key = directory + row.appendix + row.dataFields;
+            try {
+                OpenFile openFile = getOpenFile(key, directory, row.dataFields, row.appendix);
+                openFile.writer.write(row.line);
+                openFile.writer.newLine();
+                openFile.bytes += row.bytes;
+                openFile.dirty = true;
+                if ((maxFileBytes > 0 && openFile.bytes >= maxFileBytes) || (rotateIntervalMs > 0
+                        && System.currentTimeMillis() - openFile.openTime >= rotateIntervalMs)) {
+                    fileIndexes.put(key, openFile.index + 1);
+                    closeFile(currentFiles.remove(key));
+                }
+                written.incrementAndGet();
+                curDirIdx = idx;
+                return;
+            } catch (IOException e) {
+                logger.error("Failed to write {} into {}: {}", type, directory, e.getMessage());
+                closeFile(currentFiles.remove(key));
+            }
+        }
+        failed.incrementAndGet();
+    }
+
+    private OpenFile getOpenFile(String key, String directory, List<String> dataFields, String appendix)
+            throws IOException {
+        String file = currentFiles.get(key);
+        if (file != null) {
+            OpenFile openFile = openFiles.get(file);
+            if (openFile != null) {
+                return openFile;
+            }
+        }
+        for (int i=fileIndexes.getOrDefault(key, 0); i<Integer.MAX_VALUE; i++) {
+            file = directory + Integer.valueOf(i) + appendix;
+            File curFile = new File(file);
+            if (curFile.isFile() && curFile.length() > 0L) {
+                if (openFiles.containsKey(file) || (maxFileBytes > 0 && curFile.length() >= maxFileBytes)) {
+                    continue;
+                }
+                if (dataFields != null && !dataFields.equals(getSchema(file))) {
+                    continue;
+                }
+            } else if (!curFile.isFile()) {
+                new File(directory).mkdirs();
+            }
+            while (openFiles.size() >= maxWriter) {
+                Iterator<String> it = openFiles.keySet().iterator();
+                closeFile(it.next());
+            }
+            OpenFile openFile = new OpenFile(file, i);
+            if (openFile.bytes == 0L && dataFields != null) {
+                IndexerUtilities.writeCSVHeader(dataFields, openFile.writer, separator);
+                openFile.bytes = openFile.stream.getChannel().size();
+                schemas.put(file, dataFields);
+            }
+            openFiles.put(file, openFile);
+            currentFiles.put(key, file);
+            fileIndexes.put(key, i);
+            return openFile;
+        }
+        throw new IOException("Can not find a good file to write in the directory.");
+    }
+
+    private List<String> getSchema(String file) throws IOException {
+        List<String> schema = schemas.get(file);
+        if (schema == null) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new FileInputStream(file), StandardCharsets.UTF_8));
+            String line = reader.readLine();
+            reader.close();
+            if (line == null) {
+                return null;
+            }
+            schema = Lists.newArrayList(line.split(separator, -1));
+            schemas.put(file, schema);
+        }
+        return schema;
+    }
+
+    private void closeFile(String file) {
+        if (file == null) {
+            return;
+        }
+        OpenFile openFile = openFiles.remove(file);
+        schemas.remove(file);
+        if (openFile != null) {
+            try {
+                openFile.close();
+            } catch (IOException e) {
+                logger.error("Failed to close {}: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    private void flushAll() {
+        boolean flushed = false;
+        for (Map.Entry<String, OpenFile> entry : openFiles.entrySet()) {
+            try {
+                flushed |= entry.getValue().flush();
+            } catch (IOException e) {
+                logger.error("Failed to flush {}: {}", entry.getKey(), e.getMessage());
+            }
+        }
+        lastFlush = System.nanoTime();
+        if (flushed) {
+            flushes.incrementAndGet();
+        }
+    }
+
+    private void closeAll() {
+        for (String file : Lists.newArrayList(openFiles.keySet())) {
+            closeFile(file);
+        }
+        currentFiles.clear();
+    }
+}
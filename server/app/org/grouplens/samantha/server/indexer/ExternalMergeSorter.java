@@ -0,0 +1,351 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.grouplens.samantha.server.indexer;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.grouplens.samantha.server.exception.BadRequestException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sort CSV rows by typed sort keys with bounded memory. Every row is encoded into a byte array holding its sort keys
+ * followed by its CSV line. A file of encoded rows is sorted in chunks of at most maxBufferBytes, chunks that do
+ * not fit are spilled to run files and the runs are merged into the resulting CSV file. At most maxFanIn runs are
+ * open at once: when there are more, consecutive runs are first merged into intermediate runs, pass after pass.
+ * The sort is stable.
+ */
+public class ExternalMergeSorter {
+    private static Logger logger = LoggerFactory.getLogger(ExternalMergeSorter.class);
+    private static final byte[] newLine = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
+    private static final int rowOverheadBytes = 32;
+    private static final int defaultMaxFanIn = 64;
+    private final List<String> sortFields;
+    private final SQLBasedIndexer.BasicType[] sortTypes;
+    private final boolean descending;
+    private final long maxBufferBytes;
+    private final int maxFanIn;
+    private final ByteArrayOutputStream encodeBuffer = new ByteArrayOutputStream();
+    private final DataOutputStream encodeStream = new DataOutputStream(encodeBuffer);
+
+    /**
+     * @param sortTypes the names of {@link SQLBasedIndexer.BasicType}, one for each sort field.
+     */
+    public ExternalMergeSorter(List<String> sortFields, List<String> sortTypes,
+                               boolean descending, long maxBufferBytes) {
+        this(sortFields, sortTypes, descending, maxBufferBytes, defaultMaxFanIn);
+    }
+
+    ExternalMergeSorter(List<String> sortFields, List<String> sortTypes,
+                        boolean descending, long maxBufferBytes, int maxFanIn) {
+        this.sortFields = sortFields;
+        this.sortTypes = new SQLBasedIndexer.BasicType[sortTypes.size()];
+        for (int i=0; i<sortTypes.size(); i++) {
+            this.sortTypes[i] = SQLBasedIndexer.BasicType.valueOf(sortTypes.get(i));
+        }
+        this.descending = descending;
+        this.maxBufferBytes = maxBufferBytes;
+        this.maxFanIn = Math.max(2, maxFanIn);
+    }
+
+    /**
+     * Encode the entity with its CSV line into a row. Missing sort keys are treated as empty strings, the same as
+     * they are written into CSV files. Not thread-safe.
+     */
+    public byte[] encode(JsonNode entity, String line) throws IOException {
+        encodeBuffer.reset();
+        for (int i=0; i<sortTypes.length; i++) {
+            JsonNode value = entity.get(sortFields.get(i));
+            switch (sortTypes[i]) {
+                case TEXT:
+                    String text = value == null ? "" : value.asText();
+                    encodeStream.writeInt(text.length());
+                    encodeStream.writeChars(text);
+                    break;
+                case INT:
+                    encodeStream.writeLong(value == null ? 0 : value.asInt());
+                    break;
+                case LONG:
+                    encodeStream.writeLong(value == null ? 0L : value.asLong());
+                    break;
+                default:
+                    encodeStream.writeDouble(value == null ? 0.0 : value.asDouble());
+                    break;
+            }
+        }
+        encodeStream.write(line.getBytes(StandardCharsets.UTF_8));
+        encodeStream.flush();
+        return encodeBuffer.toByteArray();
+    }
+
+    static public void writeRow(DataOutputStream out, byte[] row) throws IOException {
+        out.writeInt(row.length);
+        out.write(row);
+    }
+
+    static private byte[] readRow(DataInputStream in) throws IOException {
+        int length;
+        try {
+            length = in.readInt();
+        } catch (EOFException e) {
+            return null;
+        }
+        byte[] row = new byte[length];
+        in.readFully(row);
+        return row;
+    }
+
+    static private int readInt(byte[] row, int offset) {
+        return ((row[offset] & 0xFF) << 24) | ((row[offset + 1] & 0xFF) << 16)
+                | ((row[offset + 2] & 0xFF) << 8) | (row[offset + 3] & 0xFF);
+    }
+
+    static private long readLong(byte[] row, int offset) {
+        return ((long) readInt(row, offset) << 32) | (readInt(row, offset + 4) & 0xFFFFFFFFL);
+    }
+
+    static private char readChar(byte[] row, int offset) {
+        return (char) (((row[offset] & 0xFF) << 8) | (row[offset + 1] & 0xFF));
+    }
+
+    private int getLineOffset(byte[] row) {
+        int offset = 0;
+        for (SQLBasedIndexer.BasicType type : sortTypes) {
+            if (type == SQLBasedIndexer.BasicType.TEXT) {
+                offset += 4 + 2 * readInt(row, offset);
+            } else {
+                offset += 8;
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Compare two rows by their sort keys with the same semantics as
+     * {@link SQLBasedIndexer.BasicType#compareValue(String, JsonNode, JsonNode)}.
+     */
+    public int compare(byte[] left, byte[] right) {
+        int lo = 0, ro = 0;
+        for (SQLBasedIndexer.BasicType type : sortTypes) {
+            int ret;
+            switch (type) {
+                case TEXT:
+                    int llen = readInt(left, lo);
+                    int rlen = readInt(right, ro);
+                    lo += 4;
+                    ro += 4;
+                    ret = 0;
+                    int len = Math.min(llen, rlen);
+                    for (int i=0; i<len && ret == 0; i++) {
+                        ret = Character.compare(readChar(left, lo + 2 * i), readChar(right, ro + 2 * i));
+                    }
+                    if (ret == 0) {
+                        ret = Integer.compare(llen, rlen);
+                    }
+                    lo += 2 * llen;
+                    ro += 2 * rlen;
+                    break;
+                case INT:
+                case LONG:
+                    ret = Long.compare(readLong(left, lo), readLong(right, ro));
+                    lo += 8;
+                    ro += 8;
+                    break;
+                default:
+                    ret = Double.compare(Double.longBitsToDouble(readLong(left, lo)),
+                            Double.longBitsToDouble(readLong(right, ro)));
+                    lo += 8;
+                    ro += 8;
+                    break;
+            }
+            if (ret != 0) {
+                return descending ? -ret : ret;
+            }
+        }
+        return 0;
+    }
+
+    private void writeRun(List<byte[]> buffer, String runFile) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(runFile), 1 << 16));
+        for (byte[] row : buffer) {
+            writeRow(out, row);
+        }
+        out.close();
+    }
+
+    static private class RunReader {
+        private final int run;
+        private final DataInputStream in;
+        private byte[] row;
+
+        private RunReader(int run, String runFile) throws IOException {
+            this.run = run;
+            this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(runFile), 1 << 16));
+            this.row = readRow(in);
+        }
+
+        private void advance() throws IOException {
+            row = readRow(in);
+        }
+    }
+
+    /**
+     * Sort the encoded rows of inFile into the CSV file outFile with the given header.
+     */
+    public void sort(String inFile, String outFile, List<String> dataFields, String separator) {
+        List<String> runFiles = new ArrayList<>();
+        List<String> allRunFiles = new ArrayList<>();
+        try {
+            List<byte[]> buffer = new ArrayList<>();
+            long bufferBytes = 0L;
+            DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    new FileInputStream(inFile), 1 << 16));
+            byte[] row;
+            while ((row = readRow(in)) != null) {
+                buffer.add(row);
+                bufferBytes += row.length + rowOverheadBytes;
+                if (bufferBytes >= maxBufferBytes) {
+                    buffer.sort(this::compare);
+                    String runFile = inFile + "." + allRunFiles.size() + ".run";
+                    allRunFiles.add(runFile);
+                    writeRun(buffer, runFile);
+                    runFiles.add(runFile);
+                    buffer.clear();
+                    bufferBytes = 0L;
+                }
+            }
+            in.close();
+            buffer.sort(this::compare);
+            if (runFiles.size() > 0 && buffer.size() > 0) {
+                String runFile = inFile + "." + allRunFiles.size() + ".run";
+                allRunFiles.add(runFile);
+                writeRun(buffer, runFile);
+                runFiles.add(runFile);
+                buffer.clear();
+            }
+            while (runFiles.size() > maxFanIn) {
+                logger.info("Merging {} sorted runs of {} into intermediate runs.", runFiles.size(), inFile);
+                List<String> mergedFiles = new ArrayList<>();
+                for (int i=0; i<runFiles.size(); i+=maxFanIn) {
+                    List<String> group = runFiles.subList(i, Math.min(i + maxFanIn, runFiles.size()));
+                    String runFile = inFile + "." + allRunFiles.size() + ".run";
+                    allRunFiles.add(runFile);
+                    DataOutputStream runOut = new DataOutputStream(new BufferedOutputStream(
+                            new FileOutputStream(runFile), 1 << 16));
+                    try {
+                        merge(group, runOut, false);
+                    } finally {
+                        runOut.close();
+                    }
+                    for (String merged : group) {
+                        new File(merged).delete();
+                    }
+                    mergedFiles.add(runFile);
+                }
+                runFiles = mergedFiles;
+            }
+            BufferedOutputStream out = new BufferedOutputStream(new FileOutputStream(outFile), 1 << 16);
+            BufferedWriter headerWriter = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            IndexerUtilities.writeCSVHeader(dataFields, headerWriter, separator);
+            if (runFiles.size() == 0) {
+                for (byte[] one : buffer) {
+                    writeLine(out, one);
+                }
+            } else {
+                logger.info("Merging {} sorted runs of {}.", runFiles.size(), inFile);
+                merge(runFiles, new DataOutputStream(out), true);
+            }
+            out.close();
+        } catch (IOException e) {
+            throw new BadRequestException(e);
+        } finally {
+            for (String runFile : allRunFiles) {
+                new File(runFile).delete();
+            }
+        }
+    }
+
+    /**
+     * @param lines write the merged rows as CSV lines, or as encoded rows into an intermediate run otherwise.
+     */
+    private void merge(List<String> runFiles, DataOutputStream out, boolean lines) throws IOException {
+        Comparator<RunReader> comparator = (left, right) -> {
+            int ret = compare(left.row, right.row);
+            if (ret == 0) {
+                ret = Integer.compare(left.run, right.run);
+            }
+            return ret;
+        };
+        PriorityQueue<RunReader> queue = new PriorityQueue<>(runFiles.size(), comparator);
+        List<RunReader> readers = new ArrayList<>(runFiles.size());
+        try {
+            for (int i=0; i<runFiles.size(); i++) {
+                RunReader reader = new RunReader(i, runFiles.get(i));
+                readers.add(reader);
+                if (reader.row != null) {
+                    queue.add(reader);
+                }
+            }
+            while (!queue.isEmpty()) {
+                RunReader reader = queue.poll();
+                if (lines) {
+                    writeLine(out, reader.row);
+                } else {
+                    writeRow(out, reader.row);
+                }
+                reader.advance();
+                if (reader.row != null) {
+                    queue.add(reader);
+                }
+            }
+        } finally {
+            for (RunReader reader : readers) {
+                reader.in.close();
+            }
+        }
+    }
+
+    private void writeLine(OutputStream out, byte[] row) throws IOException {
+        int offset = getLineOffset(row);
+        out.write(row, offset, row.length - offset);
+        out.write(newLine);
+    }
+}
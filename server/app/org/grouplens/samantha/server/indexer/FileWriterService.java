@@ -23,11 +23,16 @@
 package org.grouplens.samantha.server.indexer;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.collect.Lists;
+import org.grouplens.samantha.modeler.dao.DatePartitionPruner;
 import org.grouplens.samantha.server.config.ConfigKey;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import play.Configuration;
+import play.inject.ApplicationLifecycle;
+import play.libs.F;
+import play.libs.Json;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -36,16 +41,19 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 @Singleton
 public class FileWriterService {
     private static Logger logger = LoggerFactory.getLogger(FileWriterService.class);
+    static public final String DEFAULT_DIR_PATTERN = "/yyyy/MM/dd/";
     private final int maxWriter;
     private final String separator;
     private final List<String> dataDirs;
     private final String dirPattern;
+    private final DatePartitionPruner pruner;
     private final ReentrantReadWriteLock serviceLock = new ReentrantReadWriteLock();
     private Lock writeLock = serviceLock.writeLock();
     private final Map<String, TreeMap<String, BufferedWriter>> activeFiles = new HashMap<>();
@@ -53,8 +61,15 @@ public class FileWriterService {
     private final Map<String, Map<String, Lock>> activeLocks = new HashMap<>();
     private int curDirIdx = 0;
 
+    private final boolean asyncWrite;
+    private final int queueCapacity;
+    private final long flushIntervalMs;
+    private final long maxFileBytes;
+    private final long rotateIntervalMs;
+    private final Map<String, AsyncFileWriter> asyncWriters = new ConcurrentHashMap<>();
+
     @Inject
-    private FileWriterService(Configuration configuration) {
+    FileWriterService(Configuration configuration, ApplicationLifecycle lifecycle) {
         String sep = configuration.getString(ConfigKey.FILE_SERVICE_SEPARATOR.get());
         if (sep != null) {
             separator = sep;
@@ -64,17 +79,29 @@ public class FileWriterService {
         dataDirs = configuration.getStringList(ConfigKey.FILE_SERVICE_DATA_DIRS.get());
         String pattern = configuration.getString(ConfigKey.FILE_SERVICE_DIR_PATTERN.get());
         if (pattern == null) {
-            dirPattern = "/yyyy/MM/dd/";
+            dirPattern = DEFAULT_DIR_PATTERN;
         } else {
             dirPattern = pattern;
         }
+        pruner = new DatePartitionPruner(dirPattern);
         maxWriter = configuration.getInt(ConfigKey.FILE_SERVICE_MAX_WRITER.get());
+        asyncWrite = configuration.getBoolean(ConfigKey.FILE_SERVICE_ASYNC_WRITE.get(), false);
+        queueCapacity = configuration.getInt(ConfigKey.FILE_SERVICE_QUEUE_CAPACITY.get(), 100000);
+        flushIntervalMs = configuration.getLong(ConfigKey.FILE_SERVICE_FLUSH_INTERVAL_MS.get(), 1000L);
+        maxFileBytes = configuration.getLong(ConfigKey.FILE_SERVICE_MAX_FILE_BYTES.get(), 0L);
+        rotateIntervalMs = configuration.getLong(ConfigKey.FILE_SERVICE_ROTATE_INTERVAL_MS.get(), 0L);
+        lifecycle.addStopHook(() -> {
+            for (AsyncFileWriter writer : asyncWriters.values()) {
+                writer.stop();
+            }
+            return F.Promise.pure(null);
+        });
     }
 
     private String pickDirectory(int idx, String type, int tstamp) {
         SimpleDateFormat dateFormat = new SimpleDateFormat(dirPattern);
         long ms = tstamp * 1000L;
-        return Paths.get(dataDirs.get(idx), type, dateFormat.format(new Date(ms))).toString();
+        return Paths.get(dataDirs.get(idx), type, dateFormat.format(new Date(ms))).toString() + File.separator;
     }
 
     private void freeResources(String type, int remain) {
@@ -165,11 +192,49 @@ public class FileWriterService {
     }
 
     public void writeCSV(String type, JsonNode entity, List<String> dataFields, int tstamp) {
-        write(type, entity, dataFields, tstamp, separator, ".csv");
+        if (asyncWrite) {
+            writeAsync(type, entity, dataFields, tstamp, ".csv");
+        } else {
+            write(type, entity, dataFields, tstamp, separator, ".csv");
+        }
     }
 
     public void writeJson(String type, JsonNode entity, int tstamp) {
-        write(type, entity, null, tstamp, separator, ".json");
+        if (asyncWrite) {
+            writeAsync(type, entity, null, tstamp, ".json");
+        } else {
+            write(type, entity, null, tstamp, separator, ".json");
+        }
+    }
+
+    private void writeAsync(String type, JsonNode entity, List<String> dataFields,
+                            int tstamp, String appendix) {
+        String line;
+        if (dataFields != null && dataFields.size() > 0 && separator != null) {
+            try {
+                line = IndexerUtilities.composeCSVLine(entity, dataFields, separator);
+            } catch (IOException e) {
+                logger.error(e.getMessage());
+                return;
+            }
+        } else {
+            dataFields = null;
+            line = entity.toString();
+        }
+        AsyncFileWriter writer = asyncWriters.computeIfAbsent(type, key -> new AsyncFileWriter(key, dataDirs,
+                dirPattern, separator, maxWriter, queueCapacity, flushIntervalMs, maxFileBytes, rotateIntervalMs));
+        writer.write(line, dataFields, tstamp, appendix);
+    }
+
+    /**
+     * @return the queue and write counters of the asynchronous writer of every type.
+     */
+    public ObjectNode getAsyncWriterMetrics() {
+        ObjectNode metrics = Json.newObject();
+        for (Map.Entry<String, AsyncFileWriter> entry : asyncWriters.entrySet()) {
+            metrics.set(entry.getKey(), entry.getValue().getMetrics());
+        }
+        return metrics;
     }
 
     private void write(String type, JsonNode entity,
@@ -211,22 +276,24 @@ public class FileWriterService {
         }
     }
 
+    /**
+     * @return the files in the partitions overlapping with [beginTime, endTime], ordered by the time of the partitions.
+     */
     public List<String> getFiles(String type, int beginTime, int endTime) {
-        Set<String> files = new HashSet<>();
-        for (int idx=0; idx<dataDirs.size(); idx ++) {
-            for (int i = beginTime; i <= endTime; i+=3600) {
-                String dir = pickDirectory(idx, type, i);
-                File folder = new File(dir);
+        List<String> files = new ArrayList<>();
+        for (String partition : pruner.getPartitionDirs(beginTime, endTime)) {
+            for (int idx=0; idx<dataDirs.size(); idx ++) {
+                File folder = new File(Paths.get(dataDirs.get(idx), type, partition).toString());
                 if (folder.isDirectory()) {
                     File[] list = folder.listFiles();
+                    Arrays.sort(list);
                     for (File file : list) {
-                        String path = file.getAbsolutePath();
-                        files.add(path);
+                        files.add(file.getAbsolutePath());
                     }
                 }
             }
         }
-        return Lists.newArrayList(files);
+        return files;
     }
 
     public String getSeparator() {
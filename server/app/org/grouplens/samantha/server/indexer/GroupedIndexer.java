@@ -24,25 +24,27 @@ package org.grouplens.samantha.server.indexer;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import org.grouplens.samantha.modeler.dao.CSVFileDAO;
 import org.grouplens.samantha.modeler.dao.EntityDAO;
 import org.grouplens.samantha.modeler.featurizer.FeatureExtractorUtilities;
 import org.grouplens.samantha.server.config.SamanthaConfigService;
 import org.grouplens.samantha.server.exception.BadRequestException;
 import org.grouplens.samantha.server.io.RequestContext;
-import org.grouplens.samantha.server.retriever.RetrieverUtilities;
 import play.Configuration;
 import play.inject.Injector;
 import play.libs.Json;
 
-import java.io.BufferedWriter;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class GroupedIndexer extends AbstractIndexer {
     private final Indexer indexer;
@@ -61,7 +63,12 @@ public class GroupedIndexer extends AbstractIndexer {
     private final String separatorKey;
     private final int usedBuckets;
     private final boolean skip;
+    private final int numThreads;
+    private final long maxSortBufferBytes;
 
+    /**
+     * @param maxSortBufferBytes the total memory for sorting the buckets, divided among the sorting threads.
+     */
     public GroupedIndexer(SamanthaConfigService configService,
                           Configuration config, Injector injector,
                           Configuration daoConfigs, String daoConfigKey,
@@ -72,6 +79,7 @@ public class GroupedIndexer extends AbstractIndexer {
                           String filesKey, String daoName, String daoNameKey,
                           String separatorKey, int usedBuckets, boolean skip,
                           List<String> groupKeysTypes, List<String> orderFieldsTypes,
+                          int numThreads, long maxSortBufferBytes,
                           int batchSize, RequestContext requestContext) {
         super(config, configService, daoConfigs, daoConfigKey, batchSize, requestContext, injector);
         this.indexer = indexer;
@@ -90,6 +98,8 @@ public class GroupedIndexer extends AbstractIndexer {
         this.groupKeysTypes = groupKeysTypes;
         this.orderFieldsTypes = orderFieldsTypes;
         this.skip = skip;
+        this.numThreads = numThreads;
+        this.maxSortBufferBytes = maxSortBufferBytes;
     }
 
     public ObjectNode getIndexedDataDAOConfig(RequestContext requestContext) {
@@ -100,14 +110,24 @@ public class GroupedIndexer extends AbstractIndexer {
                 files.add(resultFile);
             }
         } else {
+            List<String> sortFields = new ArrayList<>(groupKeys);
+            List<String> sortFieldsTypes = new ArrayList<>(groupKeysTypes);
+            boolean reversed = false;
+            if (orderFields != null && orderFields.size() > 0) {
+                sortFields.addAll(orderFields);
+                sortFieldsTypes.addAll(orderFieldsTypes);
+                reversed = descending != null && descending;
+            }
+            int sortThreads = Math.max(1, Math.min(numThreads, usedBuckets));
+            ExternalMergeSorter sorter = new ExternalMergeSorter(sortFields, sortFieldsTypes,
+                    reversed, Math.max(1L, maxSortBufferBytes / sortThreads));
             EntityDAO entityDAO = indexer.getEntityDAO(requestContext);
-            List<BufferedWriter> writers = new ArrayList<>();
+            List<DataOutputStream> writers = new ArrayList<>();
             try {
                 new File(dataDir).mkdirs();
                 for (int i = 0; i < usedBuckets; i++) {
-                    BufferedWriter writer = new BufferedWriter(new FileWriter(
-                            Paths.get(dataDir, Integer.valueOf(i).toString() + ".tmp").toString()));
-                    IndexerUtilities.writeCSVHeader(dataFields, writer, separator);
+                    DataOutputStream writer = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(
+                            Paths.get(dataDir, Integer.valueOf(i).toString() + ".tmp").toString())));
                     writers.add(writer);
                 }
                 while (entityDAO.hasNextEntity()) {
@@ -115,7 +135,8 @@ public class GroupedIndexer extends AbstractIndexer {
                     int idx = Math.floorMod(FeatureExtractorUtilities.composeConcatenatedKey(entity, groupKeys)
                             .hashCode(), numBuckets);
                     if (idx < usedBuckets) {
-                        IndexerUtilities.writeCSVFields(entity, dataFields, writers.get(idx), separator);
+                        String line = IndexerUtilities.composeCSVLine(entity, dataFields, separator);
+                        ExternalMergeSorter.writeRow(writers.get(idx), sorter.encode(entity, line));
                     }
                 }
                 for (int i = 0; i < usedBuckets; i++) {
@@ -127,47 +148,32 @@ public class GroupedIndexer extends AbstractIndexer {
             } finally {
                 entityDAO.close();
             }
-            for (int i=0; i<usedBuckets; i++) {
-                String tmpFilePath = Paths.get(dataDir, Integer.valueOf(i).toString() + ".tmp").toString();
-                File tmpFile = new File(tmpFilePath);
-                if (tmpFile.isFile()) {
-                    List<ObjectNode> buffer = new ArrayList<>();
-                    EntityDAO csvDao = new CSVFileDAO(separator, tmpFilePath);
-                    while (csvDao.hasNextEntity()) {
-                        buffer.add(csvDao.getNextEntity());
-                    }
-                    csvDao.close();
-                    tmpFile.delete();
-                    Comparator<ObjectNode> comparator;
-                    if (orderFields == null || orderFields.size() == 0) {
-                        comparator = RetrieverUtilities.jsonTypedFieldsComparator(groupKeys, groupKeysTypes);
-                    } else {
-                        List<String> sortFields = new ArrayList<>();
-                        sortFields.addAll(groupKeys);
-                        sortFields.addAll(orderFields);
-                        List<String> sortFieldsTypes = new ArrayList<>();
-                        sortFieldsTypes.addAll(groupKeysTypes);
-                        sortFieldsTypes.addAll(orderFieldsTypes);
-                        comparator = RetrieverUtilities.jsonTypedFieldsComparator(sortFields, sortFieldsTypes);
-                        if (descending != null && descending) {
-                            comparator = comparator.reversed();
-                        }
-                    }
-                    buffer.sort(comparator);
+            ExecutorService executor = Executors.newFixedThreadPool(sortThreads);
+            try {
+                List<Future<String>> futures = new ArrayList<>(usedBuckets);
+                for (int i=0; i<usedBuckets; i++) {
+                    String tmpFilePath = Paths.get(dataDir, Integer.valueOf(i).toString() + ".tmp").toString();
                     String resultFile = Paths.get(dataDir, Integer.valueOf(i).toString() + ".csv").toString();
-                    try {
-                        BufferedWriter writer = new BufferedWriter(new FileWriter(resultFile));
-                        IndexerUtilities.writeCSVHeader(dataFields, writer, separator);
-                        for (ObjectNode entity : buffer) {
-                            IndexerUtilities.writeCSVFields(entity, dataFields, writer, separator);
+                    futures.add(executor.submit(() -> {
+                        File tmpFile = new File(tmpFilePath);
+                        if (!tmpFile.isFile()) {
+                            return null;
                         }
-                        buffer.clear();
-                        writer.close();
-                    } catch (IOException e) {
-                        throw new BadRequestException(e);
+                        sorter.sort(tmpFilePath, resultFile, dataFields, separator);
+                        tmpFile.delete();
+                        return resultFile;
+                    }));
+                }
+                for (Future<String> future : futures) {
+                    String resultFile = future.get();
+                    if (resultFile != null) {
+                        files.add(resultFile);
                     }
-                    files.add(resultFile);
                 }
+            } catch (InterruptedException | ExecutionException e) {
+                throw new BadRequestException(e);
+            } finally {
+                executor.shutdownNow();
             }
         }
         ObjectNode reqDao = Json.newObject();
@@ -55,6 +55,8 @@ public class GroupedIndexerConfig implements IndexerConfig {
     private final Boolean descending;
     private final String separator;
     private final boolean skip;
+    private final int numThreads;
+    private final long maxSortBufferBytes;
 
     private GroupedIndexerConfig(Configuration config, Injector injector, String dataDir,
                                  String indexerName, String dataDirKey, List<String> dataFields,
@@ -62,7 +64,8 @@ public class GroupedIndexerConfig implements IndexerConfig {
                                  String separatorKey, int numBuckets, List<String> groupKeys,
                                  List<String> orderFields, Boolean descending, String separator,
                                  Configuration daoConfigs, String daoConfigKey, int usedBuckets, boolean skip,
-                                 List<String> groupKeysTypes, List<String> orderFieldsTypes) {
+                                 List<String> groupKeysTypes, List<String> orderFieldsTypes,
+                                 int numThreads, long maxSortBufferBytes) {
         this.config = config;
         this.injector = injector;
         this.dataFields = dataFields;
@@ -84,6 +87,8 @@ public class GroupedIndexerConfig implements IndexerConfig {
         this.usedBuckets = usedBuckets;
         this.orderFieldsTypes = orderFieldsTypes;
         this.groupKeysTypes = groupKeysTypes;
+        this.numThreads = numThreads;
+        this.maxSortBufferBytes = maxSortBufferBytes;
     }
 
     public static IndexerConfig getIndexerConfig(Configuration indexerConfig,
@@ -113,6 +118,14 @@ public class GroupedIndexerConfig implements IndexerConfig {
         if (skip == null) {
             skip = false;
         }
+        int numThreads = Runtime.getRuntime().availableProcessors();
+        if (indexerConfig.asMap().containsKey("numThreads")) {
+            numThreads = indexerConfig.getInt("numThreads");
+        }
+        long maxSortBufferBytes = 64L * 1024 * 1024;
+        if (indexerConfig.asMap().containsKey("maxSortBufferBytes")) {
+            maxSortBufferBytes = indexerConfig.getLong("maxSortBufferBytes");
+        }
         return new GroupedIndexerConfig(indexerConfig, injector,
                 indexerConfig.getString("dataDir"), indexerConfig.getString("dependedIndexer"),
                 indexerConfig.getString("dataDirKey"), indexerConfig.getStringList("dataFields"),
@@ -122,7 +135,7 @@ public class GroupedIndexerConfig implements IndexerConfig {
                 indexerConfig.getString("separator"),
                 indexerConfig.getConfig(ConfigKey.ENTITY_DAOS_CONFIG.get()),
                 indexerConfig.getString("daoConfigKey"), usedBuckets, skip,
-                groupKeysTypes, orderFieldsTypes);
+                groupKeysTypes, orderFieldsTypes, numThreads, maxSortBufferBytes);
     }
 
     public Indexer getIndexer(RequestContext requestContext) {
@@ -133,6 +146,6 @@ public class GroupedIndexerConfig implements IndexerConfig {
         return new GroupedIndexer(configService, config, injector, daoConfigs, daoConfigKey,
                 indexer, datDir, numBuckets, groupKeys, dataFields, separator, orderFields, descending,
                 filesKey, daoName, daoNameKey, separatorKey, usedBuckets, skip, groupKeysTypes, orderFieldsTypes,
-                128, requestContext);
+                numThreads, maxSortBufferBytes, 128, requestContext);
     }
 }
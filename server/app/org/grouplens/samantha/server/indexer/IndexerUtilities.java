@@ -45,6 +45,7 @@ import java.util.concurrent.TimeUnit;
 @Singleton
 public class IndexerUtilities {
     private static Logger logger = LoggerFactory.getLogger(IndexerUtilities.class);
+    private static final ObjectMapper mapper = new ObjectMapper();
 
     private IndexerUtilities() {}
 
@@ -94,9 +95,8 @@ public class IndexerUtilities {
         writer.flush();
     }
 
-    public static void writeCSVFields(JsonNode entity, List<String> curFields, BufferedWriter writer,
-                                      String separator) throws IOException {
-        ObjectMapper mapper = new ObjectMapper();
+    public static String composeCSVLine(JsonNode entity, List<String> curFields,
+                                        String separator) throws IOException {
         List<String> fields = new ArrayList<>(curFields.size());
         for (String field : curFields) {
             String value;
@@ -114,8 +114,12 @@ public class IndexerUtilities {
             }
             fields.add(StringEscapeUtils.unescapeCsv(value));
         }
-        String line = StringUtils.join(fields, separator);
-        writer.write(line);
+        return StringUtils.join(fields, separator);
+    }
+
+    public static void writeCSVFields(JsonNode entity, List<String> curFields, BufferedWriter writer,
+                                      String separator) throws IOException {
+        writer.write(composeCSVLine(entity, curFields, separator));
         writer.newLine();
         writer.flush();
     }
@@ -123,7 +123,9 @@ public class GBDTPredictorConfig implements PredictorConfig {
             GBDTProducer producer = injector.instanceOf(GBDTProducer.class);
             ObjectiveFunction objectiveFunction = PredictorUtilities.getObjectiveFunction(objectiveConfig,
                     injector, requestContext);
-            GBDT model = producer.createGBRT(modelName, spaceMode, objectiveFunction, method,
+            TreeLearningMethod treeLearningMethod = PredictorUtilities.getTreeLearningMethod(config, method,
+                    injector, requestContext);
+            GBDT model = producer.createGBRT(modelName, spaceMode, objectiveFunction, treeLearningMethod,
                     features, groupKeys, featureExtractors, labelName, weightName);
             return model;
         }
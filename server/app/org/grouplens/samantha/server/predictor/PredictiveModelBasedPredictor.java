@@ -64,10 +64,14 @@ public class PredictiveModelBasedPredictor extends AbstractPredictor {
             instanceList.add(featurizer.featurize(entity, false));
         }
         List<Prediction> results = new ArrayList<>(entityList.size());
+        if (instanceList.size() == 0) {
+            return results;
+        }
+        double[][] preds = predictiveModel.predict(instanceList);
         for (int i=0; i<entityList.size(); i++) {
             ObjectNode entity = entityList.get(i);
             LearningInstance ins = instanceList.get(i);
-            double[] scores = predictiveModel.predict(ins);
+            double[] scores = preds[i];
             results.add(new Prediction(entity, ins, scores[0], scores));
         }
         return results;
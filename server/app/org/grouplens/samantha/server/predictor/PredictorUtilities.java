@@ -29,6 +29,7 @@ import org.grouplens.samantha.modeler.dao.EntityDAO;
 import org.grouplens.samantha.modeler.featurizer.Featurizer;
 import org.grouplens.samantha.modeler.common.LearningData;
 import org.grouplens.samantha.modeler.solver.ObjectiveFunction;
+import org.grouplens.samantha.modeler.tree.TreeLearningMethod;
 import org.grouplens.samantha.server.config.ConfigKey;
 import org.grouplens.samantha.server.dao.EntityDAOUtilities;
 import org.grouplens.samantha.server.exception.BadRequestException;
@@ -88,6 +89,19 @@ public class PredictorUtilities {
         }
     }
 
+    /**
+     * @return the method configured by treeLearningMethod in the config, or defaultMethod if there is none.
+     */
+    static public TreeLearningMethod getTreeLearningMethod(Configuration config, TreeLearningMethod defaultMethod,
+                                                           Injector injector, RequestContext requestContext) {
+        if (config.asMap().containsKey("treeLearningMethod")) {
+            return (TreeLearningMethod) getLearningMethod(config.getConfig("treeLearningMethod"),
+                    injector, requestContext);
+        } else {
+            return defaultMethod;
+        }
+    }
+
     static public ObjectiveFunction getObjectiveFunction(Configuration config, Injector injector,
                                                          RequestContext requestContext) {
         String objectiveClass = config.getString(ConfigKey.OBJECTIVE_CLASS.get());
@@ -115,7 +115,8 @@ public class RegressionTreePredictorConfig implements PredictorConfig {
             LearningData data = PredictorUtilities.getLearningData(regressionTree, requestContext,
                     requestContext.getRequestBody().get(daoConfigKey), daoConfigs, expandersConfig,
                     injector, true, null, 128);
-            method.learn(regressionTree, data, null);
+            PredictorUtilities.getTreeLearningMethod(config, method, injector, requestContext)
+                    .learn(regressionTree, data, null);
             return model;
         }
     }
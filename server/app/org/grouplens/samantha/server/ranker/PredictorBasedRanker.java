@@ -24,6 +24,7 @@ package org.grouplens.samantha.server.ranker;
 
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.collect.Ordering;
+import org.grouplens.samantha.server.common.InstrumentationUtilities;
 import org.grouplens.samantha.server.expander.ExpanderUtilities;
 import org.grouplens.samantha.server.predictor.Prediction;
 import org.grouplens.samantha.server.io.RequestContext;
@@ -55,7 +56,10 @@ public class PredictorBasedRanker extends AbstractRanker {
                              RequestContext requestContext) {
         List<ObjectNode> entityList = retrievedResult.getEntityList();
         entityList = ExpanderUtilities.expand(entityList, expanders, requestContext);
-        List<Prediction> predictions = predictor.predict(entityList, requestContext);
+        List<ObjectNode> toPredict = entityList;
+        List<Prediction> predictions = InstrumentationUtilities.time("predictor", requestContext.getEngineName(),
+                InstrumentationUtilities.getComponentName(predictor.getConfig(), predictor),
+                () -> predictor.predict(toPredict, requestContext));
         int curLimit = limit;
         if (pageSize == 0 || limit > predictions.size()) {
             curLimit = predictions.size();
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.grouplens.samantha.server.recommender;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.grouplens.samantha.server.common.ModelService;
+import org.grouplens.samantha.server.config.ConfigKey;
+import org.grouplens.samantha.server.exception.BadRequestException;
+import org.grouplens.samantha.server.io.RequestContext;
+import org.grouplens.samantha.server.ranker.RankedResult;
+import play.Configuration;
+
+/**
+ * Serve the recommendations of a recommender through a {@link RecommendationCache}. Requests carrying a model
+ * operation always go through the recommender.
+ */
+public class CachedRecommender implements Recommender {
+    final private Recommender recommender;
+    final private RecommendationCache cache;
+    final private ModelService modelService;
+
+    public CachedRecommender(Recommender recommender, RecommendationCache cache, ModelService modelService) {
+        this.recommender = recommender;
+        this.cache = cache;
+        this.modelService = modelService;
+    }
+
+    public RankedResult recommend(RequestContext requestContext) throws BadRequestException {
+        JsonNode reqBody = requestContext.getRequestBody();
+        if (reqBody != null && reqBody.has(ConfigKey.MODEL_OPERATION.get())) {
+            return recommender.recommend(requestContext);
+        }
+        String name = getConfig().getString(ConfigKey.ENGINE_COMPONENT_NAME.get());
+        long modelVersion = modelService.getModelVersion();
+        long generation = cache.getGeneration();
+        RankedResult result = cache.get(name, requestContext, modelVersion);
+        if (result == null) {
+            result = recommender.recommend(requestContext);
+            cache.put(name, requestContext, modelVersion, generation, result);
+        }
+        return result;
+    }
+
+    public Configuration getConfig() {
+        return recommender.getConfig();
+    }
+}
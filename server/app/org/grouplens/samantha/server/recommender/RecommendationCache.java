@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.grouplens.samantha.server.recommender;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.grouplens.samantha.server.common.InstrumentationUtilities;
+import org.grouplens.samantha.server.common.Utilities;
+import org.grouplens.samantha.server.io.RequestContext;
+import org.grouplens.samantha.server.ranker.RankedResult;
+import play.Configuration;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Size-bounded LRU cache of recommendations with a time to live, configured per engine under the key
+ * "recommendationCache". The recommendations are cached by the values of the request fields in "keys"
+ * (e.g. userId), which identify the data that recommendations depend on, and of the fields in "extraKeys"
+ * (e.g. offset and limit for paging). "maxEntries" bounds the number of cached recommendations over all the keys.
+ * Indexing data with the same values of "keys" invalidates all the recommendations for them, and so does any model
+ * change in {@link org.grouplens.samantha.server.common.ModelService}, e.g. by BUILD/LOAD.
+ *
+ * Recommendations computed while their keys are invalidated are not cached: callers read {@link #getGeneration()}
+ * before computing the recommendations and pass it to {@link #put}, which drops them if their keys have been
+ * invalidated since then.
+ */
+public class RecommendationCache {
+    final private String engineName;
+    final private List<String> keys;
+    final private List<String> extraKeys;
+    final private long ttlMs;
+    final private LinkedHashMap<String, CachedResult> entries;
+    final private Map<String, Set<String>> keyEntries = new HashMap<>();
+    final private LinkedHashMap<String, Long> invalidations;
+    private long generation = 0L;
+    private long evictedGeneration = 0L;
+    private long nextSweepTime;
+
+    static private class CachedResult {
+        final private String key;
+        final private RankedResult result;
+        final private long modelVersion;
+        final private long expireTime;
+
+        private CachedResult(String key, RankedResult result, long modelVersion, long expireTime) {
+            this.key = key;
+            this.result = result;
+            this.modelVersion = modelVersion;
+            this.expireTime = expireTime;
+        }
+    }
+
+    public RecommendationCache(String engineName, List<String> keys, List<String> extraKeys,
+                               int maxEntries, long ttlMs) {
+        this.engineName = engineName;
+        this.keys = keys;
+        this.extraKeys = extraKeys;
+        this.ttlMs = ttlMs;
+        this.nextSweepTime = System.currentTimeMillis() + ttlMs;
+        this.entries = new LinkedHashMap<String, CachedResult>(16, 0.75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+                if (size() > maxEntries) {
+                    unindex(eldest.getKey(), eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.invalidations = new LinkedHashMap<String, Long>() {
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                if (size() > maxEntries) {
+                    evictedGeneration = Math.max(evictedGeneration, eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return the cache configured by the engine configuration or null if not configured.
+     */
+    static public RecommendationCache getRecommendationCache(String engineName, Configuration engineConfig) {
+        Configuration cacheConfig = engineConfig.getConfig("recommendationCache");
+        if (cacheConfig == null) {
+            return null;
+        }
+        List<String> extraKeys = new ArrayList<>();
+        if (cacheConfig.asMap().containsKey("extraKeys")) {
+            extraKeys = cacheConfig.getStringList("extraKeys");
+        }
+        return new RecommendationCache(engineName, cacheConfig.getStringList("keys"), extraKeys,
+                cacheConfig.getInt("maxEntries", 10000), cacheConfig.getLong("ttlMs", 60000L));
+    }
+
+    static private String getKey(JsonNode entity, List<String> attrs) {
+        for (String attr : attrs) {
+            if (!entity.has(attr)) {
+                return null;
+            }
+        }
+        return Utilities.composeKey(entity, attrs);
+    }
+
+    private String getEntryKey(String key, String recommenderName, JsonNode reqBody) {
+        String extraKey = getKey(reqBody, extraKeys);
+        if (extraKey == null) {
+            extraKey = "";
+        }
+        return Utilities.composeKey(key, Utilities.composeKey(recommenderName, extraKey));
+    }
+
+    private void unindex(String entryKey, CachedResult cached) {
+        Set<String> entryKeys = keyEntries.get(cached.key);
+        if (entryKeys != null) {
+            entryKeys.remove(entryKey);
+            if (entryKeys.size() == 0) {
+                keyEntries.remove(cached.key);
+            }
+        }
+    }
+
+    private void remove(String entryKey) {
+        CachedResult cached = entries.remove(entryKey);
+        if (cached != null) {
+            unindex(entryKey, cached);
+        }
+    }
+
+    private void removeExpired(long now) {
+        Iterator<Map.Entry<String, CachedResult>> iter = entries.entrySet().iterator();
+        while (iter.hasNext()) {
+            Map.Entry<String, CachedResult> entry = iter.next();
+            if (entry.getValue().expireTime < now) {
+                iter.remove();
+                unindex(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return the invalidation generation to pass to {@link #put} for recommendations computed from now on.
+     */
+    public long getGeneration() {
+        synchronized (entries) {
+            return generation;
+        }
+    }
+
+    /**
+     * @return the cached recommendations, or null if there are none, they expired or the models have changed.
+     */
+    public RankedResult get(String recommenderName, RequestContext requestContext, long modelVersion) {
+        JsonNode reqBody = requestContext.getRequestBody();
+        String key = getKey(reqBody, keys);
+        if (key == null) {
+            return null;
+        }
+        String entryKey = getEntryKey(key, recommenderName, reqBody);
+        CachedResult cached;
+        synchronized (entries) {
+            cached = entries.get(entryKey);
+            if (cached != null && (cached.modelVersion != modelVersion
+                    || cached.expireTime < System.currentTimeMillis())) {
+                remove(entryKey);
+                cached = null;
+            }
+        }
+        if (cached != null) {
+            InstrumentationUtilities.increment("recommendationCache", engineName, recommenderName, "hit");
+            return cached.result;
+        } else {
+            InstrumentationUtilities.increment("recommendationCache", engineName, recommenderName, "miss");
+            return null;
+        }
+    }
+
+    /**
+     * Cache the recommendations unless their keys have been invalidated after {@link #getGeneration()} returned
+     * the given generation.
+     */
+    public void put(String recommenderName, RequestContext requestContext, long modelVersion, long generation,
+                    RankedResult result) {
+        JsonNode reqBody = requestContext.getRequestBody();
+        String key = getKey(reqBody, keys);
+        if (key == null) {
+            return;
+        }
+        String entryKey = getEntryKey(key, recommenderName, reqBody);
+        long now = System.currentTimeMillis();
+        CachedResult cached = new CachedResult(key, result, modelVersion, now + ttlMs);
+        synchronized (entries) {
+            Long invalidated = invalidations.get(key);
+            if (evictedGeneration > generation || (invalidated != null && invalidated > generation)) {
+                return;
+            }
+            if (now >= nextSweepTime) {
+                removeExpired(now);
+                nextSweepTime = now + ttlMs;
+            }
+            remove(entryKey);
+            entries.put(entryKey, cached);
+            Set<String> entryKeys = keyEntries.get(key);
+            if (entryKeys == null) {
+                entryKeys = new HashSet<>();
+                keyEntries.put(key, entryKeys);
+            }
+            entryKeys.add(entryKey);
+        }
+    }
+
+    /**
+     * Invalidate the recommendations for the values of the keys in the entities, i.e. one entity or an array of them.
+     */
+    public void invalidate(JsonNode entities) {
+        List<String> toRemove = new ArrayList<>();
+        if (entities.isArray()) {
+            for (JsonNode entity : entities) {
+                String key = getKey(entity, keys);
+                if (key != null) {
+                    toRemove.add(key);
+                }
+            }
+        } else {
+            String key = getKey(entities, keys);
+            if (key != null) {
+                toRemove.add(key);
+            }
+        }
+        int removed = 0;
+        synchronized (entries) {
+            for (String key : toRemove) {
+                generation++;
+                invalidations.remove(key);
+                invalidations.put(key, generation);
+                Set<String> entryKeys = keyEntries.remove(key);
+                if (entryKeys != null) {
+                    for (String entryKey : entryKeys) {
+                        entries.remove(entryKey);
+                    }
+                    removed++;
+                }
+            }
+        }
+        for (int i=0; i<removed; i++) {
+            InstrumentationUtilities.increment("recommendationCache", engineName, null, "invalidation");
+        }
+    }
+}
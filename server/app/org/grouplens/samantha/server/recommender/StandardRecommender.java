@@ -22,6 +22,7 @@
 
 package org.grouplens.samantha.server.recommender;
 
+import org.grouplens.samantha.server.common.InstrumentationUtilities;
 import org.grouplens.samantha.server.exception.BadRequestException;
 import org.grouplens.samantha.server.io.RequestContext;
 import org.grouplens.samantha.server.ranker.RankedResult;
@@ -44,12 +45,17 @@ public class StandardRecommender implements Recommender {
 
     public RankedResult recommend(RequestContext requestContext)
             throws BadRequestException {
-        long start = System.currentTimeMillis();
+        String engineName = requestContext.getEngineName();
+        long start = System.nanoTime();
         RetrievedResult retrievedResult = retriever.retrieve(requestContext);
-        Logger.debug("Retriever time: {}", System.currentTimeMillis() - start);
-        start = System.currentTimeMillis();
+        InstrumentationUtilities.recordLatency("retriever", engineName,
+                InstrumentationUtilities.getComponentName(retriever.getConfig(), retriever), start);
+        Logger.debug("Retriever time: {}", (System.nanoTime() - start) / 1000000);
+        start = System.nanoTime();
         RankedResult recommendations = ranker.rank(retrievedResult, requestContext);
-        Logger.debug("Ranker time: {}", System.currentTimeMillis() - start);
+        InstrumentationUtilities.recordLatency("ranker", engineName,
+                InstrumentationUtilities.getComponentName(ranker.getConfig(), ranker), start);
+        Logger.debug("Ranker time: {}", (System.nanoTime() - start) / 1000000);
         return recommendations;
     }
 
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.grouplens.samantha.server.retriever;
+
+import org.grouplens.samantha.modeler.knn.FeatureAnnModel;
+import org.grouplens.samantha.modeler.model.SpaceMode;
+import org.grouplens.samantha.modeler.svdfeature.SVDFeature;
+import org.grouplens.samantha.server.common.AbstractModelManager;
+import org.grouplens.samantha.server.common.ModelService;
+import org.grouplens.samantha.server.config.SamanthaConfigService;
+import org.grouplens.samantha.server.io.RequestContext;
+import play.inject.Injector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class FeatureAnnModelManager extends AbstractModelManager {
+    private final String svdfeaPredictorName;
+    private final String svdfeaModelName;
+    private final List<String> feaAttrs;
+    private final int minSupport;
+    private final int numClusters;
+
+    public FeatureAnnModelManager(String modelName, String modelFile, Injector injector,
+                                  String svdfeaPredictorName, String svdfeaModelName,
+                                  List<String> feaAttrs, int minSupport, int numClusters) {
+        super(injector, modelName, modelFile, new ArrayList<>());
+        this.svdfeaPredictorName = svdfeaPredictorName;
+        this.svdfeaModelName = svdfeaModelName;
+        this.feaAttrs = feaAttrs;
+        this.minSupport = minSupport;
+        this.numClusters = numClusters;
+    }
+
+    /**
+     * @return the SVDFeature model after making sure it is set up through its predictor.
+     */
+    static SVDFeature getSVDFeature(Injector injector, String svdfeaPredictorName, String svdfeaModelName,
+                                    RequestContext requestContext) {
+        SamanthaConfigService configService = injector.instanceOf(SamanthaConfigService.class);
+        configService.getPredictor(svdfeaPredictorName, requestContext);
+        ModelService modelService = injector.instanceOf(ModelService.class);
+        return (SVDFeature) modelService.getModel(requestContext.getEngineName(), svdfeaModelName);
+    }
+
+    public Object createModel(RequestContext requestContext, SpaceMode spaceMode) {
+        SVDFeature svdFeature = getSVDFeature(injector, svdfeaPredictorName, svdfeaModelName, requestContext);
+        return new FeatureAnnModel(feaAttrs, minSupport, numClusters, svdFeature);
+    }
+
+    public Object buildModel(Object model, RequestContext requestContext) {
+        return model;
+    }
+}
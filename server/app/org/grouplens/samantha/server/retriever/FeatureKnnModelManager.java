@@ -45,11 +45,12 @@ public class FeatureKnnModelManager extends AbstractModelManager {
     private final boolean reverse;
     private final int minSupport;
     private final int numMatch;
+    private final int numProbes;
 
     public FeatureKnnModelManager(String modelName, String modelFile, Injector injector,
                                   String svdfeaPredictorName, String svdfeaModelName,
                                   List<String> itemAttrs, int numMatch,
-                                  int numNeighbors, boolean reverse, int minSupport) {
+                                  int numNeighbors, boolean reverse, int minSupport, int numProbes) {
         super(injector, modelName, modelFile, new ArrayList<>());
         this.svdfeaModelName = svdfeaModelName;
         this.svdfeaPredictorName = svdfeaPredictorName;
@@ -58,6 +59,7 @@ public class FeatureKnnModelManager extends AbstractModelManager {
         this.reverse = reverse;
         this.minSupport = minSupport;
         this.numMatch = numMatch;
+        this.numProbes = numProbes;
     }
 
     public Object createModel(RequestContext requestContext, SpaceMode spaceMode) {
@@ -71,7 +73,7 @@ public class FeatureKnnModelManager extends AbstractModelManager {
         IndexSpace indexSpace = spaceProducer.getIndexSpace(modelName, spaceMode);
         VariableSpace variableSpace = spaceProducer.getVariableSpace(modelName, spaceMode);
         FeatureKnnModel knnModel = new FeatureKnnModel(modelName, itemAttrs, numMatch,
-                numNeighbors, reverse, minSupport, svdFeature, indexSpace, variableSpace);
+                numNeighbors, reverse, minSupport, numProbes, svdFeature, indexSpace, variableSpace);
         return knnModel;
     }
 
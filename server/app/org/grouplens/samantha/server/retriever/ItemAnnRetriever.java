@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.grouplens.samantha.server.retriever;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import it.unimi.dsi.fastutil.objects.Object2DoubleMap;
+import it.unimi.dsi.fastutil.objects.Object2DoubleOpenHashMap;
+import org.grouplens.samantha.modeler.featurizer.FeatureExtractorUtilities;
+import org.grouplens.samantha.modeler.knn.FeatureAnnModel;
+import org.grouplens.samantha.modeler.tree.SortingUtilities;
+import org.grouplens.samantha.server.expander.ExpanderUtilities;
+import org.grouplens.samantha.server.io.RequestContext;
+import play.Configuration;
+import play.Logger;
+import play.inject.Injector;
+import play.libs.Json;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Retrieve the items similar to the ones the user interacted with by querying a {@link FeatureAnnModel} at request
+ * time, instead of looking up the neighbor lists precomputed by a FeatureKnnModel.
+ */
+public class ItemAnnRetriever extends AbstractRetriever {
+    private final Retriever retriever;
+    private final FeatureAnnModel annModel;
+    private final List<String> itemAttrs;
+    private final String weightAttr;
+    private final String scoreAttr;
+    private final int numNeighbors;
+    private final int numProbes;
+    private final int maxInter = 2000;
+
+    public ItemAnnRetriever(Retriever retriever, FeatureAnnModel annModel, List<String> itemAttrs,
+                            String weightAttr, String scoreAttr, int numNeighbors, int numProbes,
+                            Configuration config, RequestContext requestContext, Injector injector) {
+        super(config, requestContext, injector);
+        this.retriever = retriever;
+        this.annModel = annModel;
+        this.itemAttrs = itemAttrs;
+        this.weightAttr = weightAttr;
+        this.scoreAttr = scoreAttr;
+        this.numNeighbors = numNeighbors;
+        this.numProbes = numProbes;
+    }
+
+    private List<ObjectNode> getNeighborItems(List<ObjectNode> bases) {
+        Object2DoubleMap<String> item2score = new Object2DoubleOpenHashMap<>();
+        int numInter = 0;
+        for (ObjectNode inter : bases) {
+            double weight = 1.0;
+            if (inter.has(weightAttr)) {
+                weight = inter.get(weightAttr).asDouble();
+            }
+            int pos = annModel.getPosition(FeatureExtractorUtilities.composeConcatenatedKey(inter, itemAttrs));
+            if (pos >= 0) {
+                List<double[]> neighbors = annModel.getNeighbors(pos, numNeighbors, numProbes,
+                        weight < 0.5, null);
+                for (double[] neighbor : neighbors) {
+                    String recItem = annModel.getFeature((int) neighbor[0]);
+                    double oldVal = item2score.getOrDefault(recItem, 0.0);
+                    item2score.put(recItem, weight * neighbor[1] + oldVal);
+                }
+            }
+            numInter++;
+            if (numInter >= maxInter) {
+                break;
+            }
+        }
+        List<ObjectNode> results = new ArrayList<>(item2score.size());
+        for (Map.Entry<String, Double> entry : item2score.entrySet()) {
+            ObjectNode entity = Json.newObject();
+            Map<String, String> attrVals = FeatureExtractorUtilities.decomposeKey(entry.getKey());
+            for (Map.Entry<String, String> ent : attrVals.entrySet()) {
+                entity.put(ent.getKey(), ent.getValue());
+            }
+            entity.put(scoreAttr, entry.getValue());
+            results.add(entity);
+        }
+        results.sort(SortingUtilities.jsonFieldReverseComparator(scoreAttr));
+        return results;
+    }
+
+    public RetrievedResult retrieve(RequestContext requestContext) {
+        long start = System.currentTimeMillis();
+        RetrievedResult interactions = retriever.retrieve(requestContext);
+        Logger.debug("Interaction retrieving time: {}", System.currentTimeMillis() - start);
+        start = System.currentTimeMillis();
+        List<ObjectNode> results = getNeighborItems(interactions.getEntityList());
+        Logger.debug("Approximate neighbor searching time: {}", System.currentTimeMillis() - start);
+        start = System.currentTimeMillis();
+        results = ExpanderUtilities.expand(results, expanders, requestContext);
+        Logger.debug("Expanding time: {}", System.currentTimeMillis() - start);
+        interactions.setEntityList(results);
+        return interactions;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.grouplens.samantha.server.retriever;
+
+import org.grouplens.samantha.modeler.knn.FeatureAnnModel;
+import org.grouplens.samantha.server.common.AbstractComponentConfig;
+import org.grouplens.samantha.server.common.ModelManager;
+import org.grouplens.samantha.server.config.SamanthaConfigService;
+import org.grouplens.samantha.server.io.RequestContext;
+import play.Configuration;
+import play.inject.Injector;
+
+import java.util.List;
+
+public class ItemAnnRetrieverConfig extends AbstractComponentConfig implements RetrieverConfig {
+    final private String retrieverName;
+    final private String annModelName;
+    final private String annModelFile;
+    final private String weightAttr;
+    final private String scoreAttr;
+    final private List<String> itemAttrs;
+    final private int numNeighbors;
+    final private int minSupport;
+    final private int numClusters;
+    final private int numProbes;
+    final private String svdfeaPredictorName;
+    final private String svdfeaModelName;
+    final private Injector injector;
+
+    private ItemAnnRetrieverConfig(String retrieverName, String annModelName, String annModelFile,
+                                   int minSupport, String weightAttr, String scoreAttr, List<String> itemAttrs,
+                                   int numNeighbors, int numClusters, int numProbes,
+                                   String svdfeaPredictorName, String svdfeaModelName, Injector injector,
+                                   Configuration config) {
+        super(config);
+        this.retrieverName = retrieverName;
+        this.annModelName = annModelName;
+        this.annModelFile = annModelFile;
+        this.minSupport = minSupport;
+        this.weightAttr = weightAttr;
+        this.scoreAttr = scoreAttr;
+        this.itemAttrs = itemAttrs;
+        this.numNeighbors = numNeighbors;
+        this.numClusters = numClusters;
+        this.numProbes = numProbes;
+        this.svdfeaPredictorName = svdfeaPredictorName;
+        this.svdfeaModelName = svdfeaModelName;
+        this.injector = injector;
+    }
+
+    public static RetrieverConfig getRetrieverConfig(Configuration retrieverConfig,
+                                                     Injector injector) {
+        Integer numClusters = retrieverConfig.getInt("numClusters");
+        if (numClusters == null) {
+            numClusters = 0;
+        }
+        Integer numProbes = retrieverConfig.getInt("numProbes");
+        if (numProbes == null) {
+            numProbes = 8;
+        }
+        return new ItemAnnRetrieverConfig(retrieverConfig.getString("userInterRetrieverName"),
+                retrieverConfig.getString("annModelName"),
+                retrieverConfig.getString("annModelFile"),
+                retrieverConfig.getInt("minSupport"),
+                retrieverConfig.getString("weightAttr"),
+                retrieverConfig.getString("scoreAttr"),
+                retrieverConfig.getStringList("itemAttrs"),
+                retrieverConfig.getInt("numNeighbors"), numClusters, numProbes,
+                retrieverConfig.getString("svdfeaPredictorName"),
+                retrieverConfig.getString("svdfeaModelName"),
+                injector, retrieverConfig);
+    }
+
+    public Retriever getRetriever(RequestContext requestContext) {
+        SamanthaConfigService configService = injector.instanceOf(SamanthaConfigService.class);
+        Retriever retriever = configService.getRetriever(retrieverName, requestContext);
+        ModelManager annModelManager = new FeatureAnnModelManager(annModelName, annModelFile, injector,
+                svdfeaPredictorName, svdfeaModelName, itemAttrs, minSupport, numClusters);
+        FeatureAnnModel annModel = (FeatureAnnModel) annModelManager.manage(requestContext);
+        return new ItemAnnRetriever(retriever, annModel, itemAttrs, weightAttr, scoreAttr,
+                numNeighbors, numProbes, config, requestContext, injector);
+    }
+}
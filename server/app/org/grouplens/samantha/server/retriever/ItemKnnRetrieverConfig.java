@@ -47,11 +47,12 @@ public class ItemKnnRetrieverConfig extends AbstractComponentConfig implements R
     final private String svdfeaModelName;
     final private Injector injector;
     final private int numMatch;
+    final private int numProbes;
 
     private ItemKnnRetrieverConfig(String retrieverName, String knnModelName, String kdnModelName,
                                    String knnModelFile, String kdnModelFile, int minSupport,
                                    String weightAttr, String scoreAttr, List<String> itemAttrs,
-                                   int numNeighbors, int numMatch,
+                                   int numNeighbors, int numMatch, int numProbes,
                                    String svdfeaPredictorName, String svdfeaModelName, Injector injector,
                                    Configuration config) {
         super(config);
@@ -69,6 +70,7 @@ public class ItemKnnRetrieverConfig extends AbstractComponentConfig implements R
         this.svdfeaPredictorName = svdfeaPredictorName;
         this.numNeighbors = numNeighbors;
         this.numMatch = numMatch;
+        this.numProbes = numProbes;
     }
 
     public static RetrieverConfig getRetrieverConfig(Configuration retrieverConfig,
@@ -77,6 +79,10 @@ public class ItemKnnRetrieverConfig extends AbstractComponentConfig implements R
         if (numMatch == null) {
             numMatch = 0;
         }
+        Integer numProbes = retrieverConfig.getInt("numProbes");
+        if (numProbes == null) {
+            numProbes = 0;
+        }
         return new ItemKnnRetrieverConfig(retrieverConfig.getString("userInterRetrieverName"),
                 retrieverConfig.getString("knnModelName"),
                 retrieverConfig.getString("kdnModelName"),
@@ -86,7 +92,7 @@ public class ItemKnnRetrieverConfig extends AbstractComponentConfig implements R
                 retrieverConfig.getString("weightAttr"),
                 retrieverConfig.getString("scoreAttr"),
                 retrieverConfig.getStringList("itemAttrs"),
-                retrieverConfig.getInt("numNeighbors"), numMatch,
+                retrieverConfig.getInt("numNeighbors"), numMatch, numProbes,
                 retrieverConfig.getString("svdfeaPredictorName"),
                 retrieverConfig.getString("svdfeaModelName"),
                 injector, retrieverConfig);
@@ -97,10 +103,12 @@ public class ItemKnnRetrieverConfig extends AbstractComponentConfig implements R
         SamanthaConfigService configService = injector.instanceOf(SamanthaConfigService.class);
         Retriever retriever = configService.getRetriever(retrieverName, requestContext);
         ModelManager knnModelManager = new FeatureKnnModelManager(knnModelName, knnModelFile, injector,
-                svdfeaPredictorName, svdfeaModelName, itemAttrs, numMatch, numNeighbors, false, minSupport);
+                svdfeaPredictorName, svdfeaModelName, itemAttrs, numMatch, numNeighbors, false, minSupport,
+                numProbes);
         FeatureKnnModel knnModel = (FeatureKnnModel) knnModelManager.manage(requestContext);
         ModelManager kdnModelManager = new FeatureKnnModelManager(kdnModelName, kdnModelFile, injector,
-                svdfeaPredictorName, svdfeaModelName, itemAttrs, numMatch, numNeighbors, true, minSupport);
+                svdfeaPredictorName, svdfeaModelName, itemAttrs, numMatch, numNeighbors, true, minSupport,
+                numProbes);
         FeatureKnnModel kdnModel = (FeatureKnnModel) kdnModelManager.manage(requestContext);
         KnnModelTrigger trigger = new KnnModelTrigger(knnModel, kdnModel,
                 itemAttrs, weightAttr, scoreAttr);
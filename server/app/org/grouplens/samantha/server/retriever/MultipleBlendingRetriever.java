@@ -26,6 +26,8 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
 import it.unimi.dsi.fastutil.objects.ObjectSet;
 import org.grouplens.samantha.modeler.featurizer.FeatureExtractorUtilities;
+import org.grouplens.samantha.server.common.InstrumentationUtilities;
+import org.grouplens.samantha.server.exception.BadRequestException;
 import org.grouplens.samantha.server.expander.ExpanderUtilities;
 import org.grouplens.samantha.server.io.RequestContext;
 import play.Configuration;
@@ -34,38 +36,135 @@ import play.inject.Injector;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class MultipleBlendingRetriever extends AbstractRetriever {
     private final List<Retriever> retrievers;
     private final Integer maxHits;
     private final List<String> itemAttrs;
+    private final ExecutorService executor;
+    private final List<Long> timeoutMs;
 
     public MultipleBlendingRetriever(List<Retriever> retrievers, List<String> itemAttrs, Integer maxHits,
                                      Configuration config, RequestContext requestContext, Injector injector) {
+        this(retrievers, itemAttrs, maxHits, null, null, config, requestContext, injector);
+    }
+
+    /**
+     * @param executor the executor to run the retrievers concurrently on, or null to run them one by one. If the
+     *                 executor runs a retriever on the requesting thread, e.g. by the caller-runs policy when it is
+     *                 saturated, the timeout of the retriever can not be enforced, which is logged and counted as
+     *                 the callerRuns event of the retriever.
+     * @param timeoutMs the timeout of each retriever in milliseconds, counted from the start of the retrieval. The
+     *                  results of a retriever timing out are left out of the blended results. Non-positive values
+     *                  mean no timeout.
+     */
+    public MultipleBlendingRetriever(List<Retriever> retrievers, List<String> itemAttrs, Integer maxHits,
+                                     ExecutorService executor, List<Long> timeoutMs,
+                                     Configuration config, RequestContext requestContext, Injector injector) {
         super(config, requestContext, injector);
         this.maxHits = maxHits;
         this.retrievers = retrievers;
         this.itemAttrs = itemAttrs;
+        this.executor = executor;
+        this.timeoutMs = timeoutMs;
     }
 
-    public RetrievedResult retrieve(RequestContext requestContext) {
-        ObjectSet<String> items = new ObjectOpenHashSet<>();
-        List<ObjectNode> entities = new ArrayList<>(maxHits);
+    private List<ObjectNode> retrieveOne(Retriever retriever, RequestContext requestContext) {
+        long start = System.nanoTime();
+        RetrievedResult results = retriever.retrieve(requestContext);
+        InstrumentationUtilities.recordLatency("retriever", requestContext.getEngineName(),
+                InstrumentationUtilities.getComponentName(retriever.getConfig(), retriever), start);
+        Logger.debug("{} time: {}", retriever, (System.nanoTime() - start) / 1000000);
+        List<ObjectNode> initial = results.getEntityList();
+        return ExpanderUtilities.expand(initial, expanders, requestContext);
+    }
+
+    /**
+     * @return true if the maximum number of hits is reached.
+     */
+    private boolean blend(List<ObjectNode> initial, ObjectSet<String> items, List<ObjectNode> entities) {
+        for (ObjectNode entity : initial) {
+            String item = FeatureExtractorUtilities.composeConcatenatedKey(entity, itemAttrs);
+            if (!items.contains(item)) {
+                items.add(item);
+                entities.add(entity);
+                if (maxHits != null && entities.size() >= maxHits) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private RetrievedResult concurrentRetrieve(RequestContext requestContext) {
+        long start = System.currentTimeMillis();
+        Thread caller = Thread.currentThread();
+        List<Future<List<ObjectNode>>> futures = new ArrayList<>(retrievers.size());
         for (Retriever retriever : retrievers) {
-            long start = System.currentTimeMillis();
-            RetrievedResult results = retriever.retrieve(requestContext);
-            Logger.debug("{} time: {}", retriever, System.currentTimeMillis() - start);
-            List<ObjectNode> initial = results.getEntityList();
-            initial = ExpanderUtilities.expand(initial, expanders, requestContext);
-            for (ObjectNode entity : initial) {
-                String item = FeatureExtractorUtilities.composeConcatenatedKey(entity, itemAttrs);
-                if (!items.contains(item)) {
-                    items.add(item);
-                    entities.add(entity);
-                    if (maxHits != null && entities.size() >= maxHits) {
-                        return new RetrievedResult(entities, maxHits);
+            futures.add(executor.submit(() -> {
+                if (Thread.currentThread() == caller) {
+                    Logger.warn("{} is run on the requesting thread without its timeout.", retriever);
+                    InstrumentationUtilities.increment("retriever", requestContext.getEngineName(),
+                            InstrumentationUtilities.getComponentName(retriever.getConfig(), retriever),
+                            "callerRuns");
+                }
+                return retrieveOne(retriever, requestContext);
+            }));
+        }
+        ObjectSet<String> items = new ObjectOpenHashSet<>();
+        List<ObjectNode> entities = new ArrayList<>();
+        try {
+            for (int i=0; i<futures.size(); i++) {
+                Future<List<ObjectNode>> future = futures.get(i);
+                List<ObjectNode> initial;
+                long timeout = timeoutMs.get(i);
+                try {
+                    if (timeout > 0) {
+                        long remaining = start + timeout - System.currentTimeMillis();
+                        initial = future.get(Math.max(remaining, 0L), TimeUnit.MILLISECONDS);
+                    } else {
+                        initial = future.get();
                     }
+                } catch (TimeoutException e) {
+                    Logger.warn("{} timed out after {} ms. Blending without its results.",
+                            retrievers.get(i), timeout);
+                    future.cancel(true);
+                    continue;
                 }
+                if (blend(initial, items, entities)) {
+                    return new RetrievedResult(entities, maxHits);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the retrievers.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new BadRequestException(e.getCause());
+        } finally {
+            for (Future<List<ObjectNode>> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return new RetrievedResult(entities, entities.size());
+    }
+
+    public RetrievedResult retrieve(RequestContext requestContext) {
+        if (executor != null) {
+            return concurrentRetrieve(requestContext);
+        }
+        ObjectSet<String> items = new ObjectOpenHashSet<>();
+        List<ObjectNode> entities = new ArrayList<>();
+        for (Retriever retriever : retrievers) {
+            if (blend(retrieveOne(retriever, requestContext), items, entities)) {
+                return new RetrievedResult(entities, maxHits);
             }
         }
         return new RetrievedResult(entities, entities.size());
@@ -24,33 +24,76 @@ package org.grouplens.samantha.server.retriever;
 
 import org.grouplens.samantha.server.common.AbstractComponentConfig;
 import org.grouplens.samantha.server.config.SamanthaConfigService;
+import org.grouplens.samantha.server.exception.ConfigurationException;
 import org.grouplens.samantha.server.io.RequestContext;
 import play.Configuration;
 import play.inject.Injector;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 public class MultipleBlendingRetrieverConfig extends AbstractComponentConfig implements RetrieverConfig {
     private final List<String> retrieverNames;
     private final List<String> itemAttrs;
     private final Integer maxHits;
     private final Injector injector;
+    private final ThreadPoolExecutor executor;
+    private final List<Long> timeoutMs;
 
     private MultipleBlendingRetrieverConfig(List<String> retrieverNames, List<String> itemAttrs, Integer maxHits,
+                                            ThreadPoolExecutor executor, List<Long> timeoutMs,
                                             Injector injector, Configuration config) {
         super(config);
         this.injector = injector;
         this.retrieverNames = retrieverNames;
         this.itemAttrs = itemAttrs;
         this.maxHits = maxHits;
+        this.executor = executor;
+        this.timeoutMs = timeoutMs;
     }
 
+    /**
+     * The retrievers are run concurrently if "concurrent" is true, on a pool of at most "numThreads" daemon threads
+     * shared by all the requests to this retriever. When the pool and its queue of "queueCapacity" are full, a
+     * retriever runs on the request thread instead. "timeoutMs" applies to every retriever unless overridden by
+     * "retrieverTimeoutMs", a list aligned with "retrieverNames".
+     */
     public static RetrieverConfig getRetrieverConfig(Configuration retrieverConfig,
                                                      Injector injector) {
-        return new MultipleBlendingRetrieverConfig(retrieverConfig.getStringList("retrieverNames"),
+        List<String> retrieverNames = retrieverConfig.getStringList("retrieverNames");
+        ThreadPoolExecutor executor = null;
+        List<Long> timeoutMs = new ArrayList<>(retrieverNames.size());
+        Boolean concurrent = retrieverConfig.getBoolean("concurrent");
+        if (concurrent != null && concurrent) {
+            int numThreads = retrieverConfig.getInt("numThreads", 4 * retrieverNames.size());
+            int queueCapacity = retrieverConfig.getInt("queueCapacity", 4 * numThreads);
+            executor = new ThreadPoolExecutor(numThreads, numThreads, 60L, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                        Thread thread = new Thread(runnable, "samantha-blending-retriever");
+                        thread.setDaemon(true);
+                        return thread;
+                    }, new ThreadPoolExecutor.CallerRunsPolicy());
+            executor.allowCoreThreadTimeOut(true);
+            List<Long> retrieverTimeoutMs = retrieverConfig.getLongList("retrieverTimeoutMs");
+            if (retrieverTimeoutMs != null && retrieverTimeoutMs.size() > 0) {
+                if (retrieverTimeoutMs.size() != retrieverNames.size()) {
+                    throw new ConfigurationException(
+                            "retrieverTimeoutMs must have the same size as retrieverNames.");
+                }
+                timeoutMs.addAll(retrieverTimeoutMs);
+            } else {
+                long timeout = retrieverConfig.getLong("timeoutMs", 0L);
+                for (int i=0; i<retrieverNames.size(); i++) {
+                    timeoutMs.add(timeout);
+                }
+            }
+        }
+        return new MultipleBlendingRetrieverConfig(retrieverNames,
                 retrieverConfig.getStringList("itemAttrs"),
-                retrieverConfig.getInt("maxHits"), injector, retrieverConfig);
+                retrieverConfig.getInt("maxHits"), executor, timeoutMs, injector, retrieverConfig);
     }
 
     public Retriever getRetriever(RequestContext requestContext) {
@@ -59,6 +102,7 @@ public class MultipleBlendingRetrieverConfig extends AbstractComponentConfig imp
         for (String name : retrieverNames) {
             retrievers.add(configService.getRetriever(name, requestContext));
         }
-        return new MultipleBlendingRetriever(retrievers, itemAttrs, maxHits, config, requestContext, injector);
+        return new MultipleBlendingRetriever(retrievers, itemAttrs, maxHits, executor, timeoutMs,
+                config, requestContext, injector);
     }
 }
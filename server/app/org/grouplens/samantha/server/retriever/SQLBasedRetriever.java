@@ -24,6 +24,7 @@ package org.grouplens.samantha.server.retriever;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.grouplens.samantha.server.common.InstrumentationUtilities;
 import org.grouplens.samantha.server.common.JsonHelpers;
 import org.grouplens.samantha.server.expander.ExpanderUtilities;
 import org.grouplens.samantha.server.indexer.SQLBasedIndexer;
@@ -122,7 +123,8 @@ public class SQLBasedRetriever extends AbstractRetriever {
             if (cursorComplete) {
                 return new RetrievedResult(new ArrayList<>(), 0);
             } else if (cursor != null) {
-                Result<Record> result = cursor.fetch(limit);
+                Result<Record> result = InstrumentationUtilities.time("sql", requestContext.getEngineName(),
+                        "fetch", () -> cursor.fetch(limit));
                 List<ObjectNode> resultList = parseResult(result);
                 resultList = ExpanderUtilities.expand(resultList, expanders, requestContext);
                 if (resultList.size() == 0) {
@@ -197,6 +199,7 @@ public class SQLBasedRetriever extends AbstractRetriever {
             }
         }
         Result<Record> result;
+        long start = System.nanoTime();
         if (setCursor) {
             //TODO: https://stackoverflow.com/questions/26241941/is-jooqs-fetchlazy-truly-lazy
             //https://github.com/jOOQ/jOOQ/issues/4280
@@ -205,6 +208,7 @@ public class SQLBasedRetriever extends AbstractRetriever {
         } else {
             result = create.fetch(sql);
         }
+        InstrumentationUtilities.recordLatency("sql", requestContext.getEngineName(), "fetch", start);
         List<ObjectNode> resultList = parseResult(result);
         resultList = ExpanderUtilities.expand(resultList, expanders, requestContext);
         if (setCursor && resultList.size() == 0) {
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.grouplens.samantha.server.retriever;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.grouplens.samantha.modeler.featurizer.FeatureExtractorUtilities;
+import org.grouplens.samantha.modeler.knn.FeatureMipsModel;
+import org.grouplens.samantha.modeler.svdfeature.SVDFeature;
+import org.grouplens.samantha.server.expander.ExpanderUtilities;
+import org.grouplens.samantha.server.io.RequestContext;
+import play.Configuration;
+import play.inject.Injector;
+import play.libs.Json;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Retrieve the items with the greatest SVDFeature scores for the user features in the request body, i.e. item bias
+ * plus the inner product of the item factors with the user factor sum, by searching the whole item catalogue in
+ * memory.
+ */
+public class SVDFeatureMipsRetriever extends AbstractRetriever {
+    private final SVDFeature svdFeature;
+    private final FeatureMipsModel model;
+    private final List<String> itemAttrs;
+    private final String scoreAttr;
+    private final int maxHits;
+    private final int numProbes;
+
+    public SVDFeatureMipsRetriever(SVDFeature svdFeature, FeatureMipsModel model, List<String> itemAttrs,
+                                   String scoreAttr, int maxHits, int numProbes,
+                                   Configuration config, RequestContext requestContext, Injector injector) {
+        super(config, requestContext, injector);
+        this.svdFeature = svdFeature;
+        this.model = model;
+        this.itemAttrs = itemAttrs;
+        this.scoreAttr = scoreAttr;
+        this.maxHits = maxHits;
+        this.numProbes = numProbes;
+    }
+
+    public RetrievedResult retrieve(RequestContext requestContext) {
+        double[] ufactSum = svdFeature.getUserFactorSum(requestContext.getRequestBody());
+        List<double[]> tops = model.getTopFeatures(ufactSum, maxHits, numProbes);
+        List<ObjectNode> results = new ArrayList<>(tops.size());
+        for (double[] top : tops) {
+            ObjectNode entity = Json.newObject();
+            Map<String, String> attrVals = FeatureExtractorUtilities.decomposeKey(model.getFeature((int) top[0]));
+            for (String attr : itemAttrs) {
+                entity.put(attr, attrVals.get(attr));
+            }
+            if (scoreAttr != null) {
+                entity.put(scoreAttr, top[1]);
+            }
+            results.add(entity);
+        }
+        results = ExpanderUtilities.expand(results, expanders, requestContext);
+        return new RetrievedResult(results, results.size());
+    }
+}
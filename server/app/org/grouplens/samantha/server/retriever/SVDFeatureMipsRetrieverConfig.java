@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.grouplens.samantha.server.retriever;
+
+import org.grouplens.samantha.modeler.knn.FeatureMipsModel;
+import org.grouplens.samantha.modeler.svdfeature.SVDFeature;
+import org.grouplens.samantha.server.common.AbstractComponentConfig;
+import org.grouplens.samantha.server.common.ModelManager;
+import org.grouplens.samantha.server.io.RequestContext;
+import play.Configuration;
+import play.inject.Injector;
+
+import java.util.List;
+
+public class SVDFeatureMipsRetrieverConfig extends AbstractComponentConfig implements RetrieverConfig {
+    final private String svdfeaModelName;
+    final private String svdfeaPredictorName;
+    final private String modelName;
+    final private String modelFile;
+    final private List<String> itemAttrs;
+    final private String scoreAttr;
+    final private int minSupport;
+    final private int maxHits;
+    final private int numClusters;
+    final private int numProbes;
+    final private Injector injector;
+
+    private SVDFeatureMipsRetrieverConfig(String svdfeaModelName, String svdfeaPredictorName,
+                                          String modelName, String modelFile,
+                                          List<String> itemAttrs, String scoreAttr,
+                                          int minSupport, int maxHits, int numClusters, int numProbes,
+                                          Injector injector, Configuration config) {
+        super(config);
+        this.svdfeaModelName = svdfeaModelName;
+        this.svdfeaPredictorName = svdfeaPredictorName;
+        this.modelName = modelName;
+        this.modelFile = modelFile;
+        this.itemAttrs = itemAttrs;
+        this.scoreAttr = scoreAttr;
+        this.minSupport = minSupport;
+        this.maxHits = maxHits;
+        this.numClusters = numClusters;
+        this.numProbes = numProbes;
+        this.injector = injector;
+    }
+
+    public static RetrieverConfig getRetrieverConfig(Configuration retrieverConfig,
+                                                     Injector injector) {
+        Integer minSupport = retrieverConfig.getInt("minSupport");
+        if (minSupport == null) {
+            minSupport = 0;
+        }
+        Integer numClusters = retrieverConfig.getInt("numClusters");
+        if (numClusters == null) {
+            numClusters = 1;
+        }
+        Integer numProbes = retrieverConfig.getInt("numProbes");
+        if (numProbes == null) {
+            numProbes = 0;
+        }
+        return new SVDFeatureMipsRetrieverConfig(
+                retrieverConfig.getString("svdfeaModelName"),
+                retrieverConfig.getString("svdfeaPredictorName"),
+                retrieverConfig.getString("modelName"),
+                retrieverConfig.getString("modelFile"),
+                retrieverConfig.getStringList("itemAttrs"),
+                retrieverConfig.getString("scoreAttr"),
+                minSupport, retrieverConfig.getInt("maxHits"), numClusters, numProbes,
+                injector, retrieverConfig);
+    }
+
+    public Retriever getRetriever(RequestContext requestContext) {
+        ModelManager manager = new FeatureMipsModelManager(modelName, modelFile, injector,
+                svdfeaPredictorName, svdfeaModelName, itemAttrs, minSupport, numClusters);
+        FeatureMipsModel model = (FeatureMipsModel) manager.manage(requestContext);
+        SVDFeature svdFeature = FeatureAnnModelManager.getSVDFeature(injector, svdfeaPredictorName,
+                svdfeaModelName, requestContext);
+        return new SVDFeatureMipsRetriever(svdFeature, model, itemAttrs, scoreAttr,
+                maxHits, numProbes, config, requestContext, injector);
+    }
+}
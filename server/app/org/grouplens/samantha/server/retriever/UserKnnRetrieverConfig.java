@@ -46,6 +46,7 @@ public class UserKnnRetrieverConfig extends AbstractComponentConfig implements R
     final private int numNeighbors;
     final private int minSupport;
     final private int numMatch;
+    final private int numProbes;
     final private String svdfeaPredictorName;
     final private String svdfeaModelName;
     final private Injector injector;
@@ -53,7 +54,7 @@ public class UserKnnRetrieverConfig extends AbstractComponentConfig implements R
     private UserKnnRetrieverConfig(String retrieverName, String knnModelName, String kdnModelName,
                                    String knnModelFile, String kdnModelFile, int minSupport,
                                    String weightAttr, String scoreAttr, List<String> itemAttrs,
-                                   int numMatch, List<String> userAttrs,
+                                   int numMatch, int numProbes, List<String> userAttrs,
                                    int numNeighbors, String svdfeaPredictorName,
                                    String svdfeaModelName, Injector injector,
                                    Configuration config) {
@@ -70,6 +71,7 @@ public class UserKnnRetrieverConfig extends AbstractComponentConfig implements R
         this.userAttrs = userAttrs;
         this.injector = injector;
         this.numMatch = numMatch;
+        this.numProbes = numProbes;
         this.svdfeaModelName = svdfeaModelName;
         this.svdfeaPredictorName = svdfeaPredictorName;
         this.numNeighbors = numNeighbors;
@@ -81,6 +83,10 @@ public class UserKnnRetrieverConfig extends AbstractComponentConfig implements R
         if (numMatch == null) {
             numMatch = 0;
         }
+        Integer numProbes = retrieverConfig.getInt("numProbes");
+        if (numProbes == null) {
+            numProbes = 0;
+        }
         return new UserKnnRetrieverConfig(retrieverConfig.getString("userInterRetrieverName"),
                 retrieverConfig.getString("knnModelName"),
                 retrieverConfig.getString("kdnModelName"),
@@ -89,7 +95,7 @@ public class UserKnnRetrieverConfig extends AbstractComponentConfig implements R
                 retrieverConfig.getInt("minSupport"),
                 retrieverConfig.getString("weightAttr"),
                 retrieverConfig.getString("scoreAttr"),
-                retrieverConfig.getStringList("itemAttrs"), numMatch,
+                retrieverConfig.getStringList("itemAttrs"), numMatch, numProbes,
                 retrieverConfig.getStringList("userAttrs"),
                 retrieverConfig.getInt("numNeighbors"),
                 retrieverConfig.getString("svdfeaPredictorName"),
@@ -101,10 +107,12 @@ public class UserKnnRetrieverConfig extends AbstractComponentConfig implements R
     public Retriever getRetriever(RequestContext requestContext) {
         SamanthaConfigService configService = injector.instanceOf(SamanthaConfigService.class);
         ModelManager knnModelManager = new FeatureKnnModelManager(knnModelName, knnModelFile, injector,
-                svdfeaPredictorName, svdfeaModelName, userAttrs, numMatch, numNeighbors, false, minSupport);
+                svdfeaPredictorName, svdfeaModelName, userAttrs, numMatch, numNeighbors, false, minSupport,
+                numProbes);
         FeatureKnnModel knnModel = (FeatureKnnModel) knnModelManager.manage(requestContext);
         ModelManager kdnModelManager = new FeatureKnnModelManager(kdnModelName, kdnModelFile, injector,
-                svdfeaPredictorName, svdfeaModelName, userAttrs, numMatch, numNeighbors, true, minSupport);
+                svdfeaPredictorName, svdfeaModelName, userAttrs, numMatch, numNeighbors, true, minSupport,
+                numProbes);
         FeatureKnnModel kdnModel = (FeatureKnnModel) kdnModelManager.manage(requestContext);
         Retriever retriever = configService.getRetriever(retrieverName, requestContext);
         KnnModelTrigger trigger = new KnnModelTrigger(knnModel, kdnModel,
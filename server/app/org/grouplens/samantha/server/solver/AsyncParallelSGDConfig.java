@@ -59,8 +59,16 @@ public class AsyncParallelSGDConfig implements LearningMethodConfig {
         if (lr == null) {
             lr = 0.01;
         }
+        boolean fusedUpdate = false;
+        if (methodConfig.asMap().containsKey("fusedUpdate")) {
+            fusedUpdate = methodConfig.getBoolean("fusedUpdate");
+        }
+        boolean hogwild = false;
+        if (methodConfig.asMap().containsKey("hogwild")) {
+            hogwild = methodConfig.getBoolean("hogwild");
+        }
         OnlineOptimizationMethod onlineMethod = new AsyncParallelSGD(
-                maxIter, minIter, l2coef, lr, tol, num);
+                maxIter, minIter, l2coef, lr, tol, num, fusedUpdate, hogwild);
         return onlineMethod;
     }
 }
@@ -41,6 +41,10 @@ public class GBCentLearningMethodConfig implements LearningMethodConfig {
         if (methodConfig.asMap().containsKey("minTreeGain")) {
             minTreeGain = methodConfig.getDouble("minTreeGain");
         }
+        int numThreads = 1;
+        if (methodConfig.asMap().containsKey("numThreads")) {
+            numThreads = methodConfig.getInt("numThreads");
+        }
         GBCentLearningMethod method = new GBCentLearningMethod(
                 (OnlineOptimizationMethod) PredictorUtilities.getLearningMethod(methodConfig
                         .getConfig("onlineOptimizationMethod"), injector, requestContext),
@@ -48,7 +52,7 @@ public class GBCentLearningMethodConfig implements LearningMethodConfig {
                         .getConfig("treeLearningMethod"), injector, requestContext),
                 methodConfig.getInt("minSupport"),
                 methodConfig.getBoolean("learnSvdfea"),
-                minTreeGain
+                minTreeGain, numThreads
         );
         return method;
     }
@@ -52,12 +52,21 @@ public class InstanceCachedAsyncParallelSGDConfig {
         if (methodConfig.asMap().containsKey("numProcessors")) {
             num = methodConfig.getInt("numProcessors");
         }
+        boolean fusedUpdate = false;
+        if (methodConfig.asMap().containsKey("fusedUpdate")) {
+            fusedUpdate = methodConfig.getBoolean("fusedUpdate");
+        }
+        boolean hogwild = false;
+        if (methodConfig.asMap().containsKey("hogwild")) {
+            hogwild = methodConfig.getBoolean("hogwild");
+        }
         OptimizationMethod optMethod = new InstanceCachedAsyncParallelSGD(
                 maxIter, minIter,
                 methodConfig.getDouble("l2coef"),
                 methodConfig.getDouble("learningRate"),
                 tol, num,
-                methodConfig.getString("cachePath")
+                methodConfig.getString("cachePath"),
+                fusedUpdate, hogwild
         );
         return optMethod;
     }
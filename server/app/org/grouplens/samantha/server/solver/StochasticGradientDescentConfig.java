@@ -56,8 +56,12 @@ public class StochasticGradientDescentConfig implements LearningMethodConfig {
         if (lr == null) {
             lr = 0.01;
         }
+        boolean fusedUpdate = false;
+        if (methodConfig.asMap().containsKey("fusedUpdate")) {
+            fusedUpdate = methodConfig.getBoolean("fusedUpdate");
+        }
         OnlineOptimizationMethod onlineMethod = new StochasticGradientDescent(
-                maxIter, minIter, l2coef, lr, tol);
+                maxIter, minIter, l2coef, lr, tol, fusedUpdate);
         return onlineMethod;
     }
 }
@@ -65,24 +65,34 @@ public class RedisIndexSpace extends RedisSpace implements IndexSpace {
         }
     }
 
+    /**
+     * Both the key and the size of the key map are watched, so that concurrent callers setting the same key agree
+     * on its index and callers setting different keys never take the same index.
+     */
     public int setKey(String name, Object key) {
         String watchKey = Utilities.composeKey(name, (String) key);
-        String value = redisService.get(spaceIdentifier, watchKey);
-        if (value != null) {
-            return Integer.parseInt(value);
-        }
-        int index = Integer.parseInt(redisService.get(spaceIdentifier, name));
-        index += 1;
-        String idxStr = Utilities.composeKey(name + "_IDX_", Integer.valueOf(index).toString());
-        redisService.watch(spaceIdentifier, watchKey);
-        redisService.multi(false);
-        redisService.setWithoutLock(spaceIdentifier, watchKey, Integer.valueOf(index).toString());
-        redisService.increWithoutLock(spaceIdentifier, name);
-        redisService.setWithoutLock(spaceIdentifier, idxStr, (String) key);
-        List<Object> resps = redisService.exec();
-        if (resps.get(0) == null) {
-            index = getIndexForKey(name, key);
-        }
+        List<Object> resps;
+        int index;
+        do {
+            try {
+                redisService.watch(spaceIdentifier, watchKey);
+                redisService.watch(spaceIdentifier, name);
+                String value = redisService.get(spaceIdentifier, watchKey);
+                if (value != null) {
+                    return Integer.parseInt(value);
+                }
+                index = Integer.parseInt(redisService.get(spaceIdentifier, name));
+                index += 1;
+                String idxStr = Utilities.composeKey(name + "_IDX_", Integer.valueOf(index).toString());
+                redisService.multi();
+                redisService.setWithoutLock(spaceIdentifier, watchKey, Integer.valueOf(index).toString());
+                redisService.increWithoutLock(spaceIdentifier, name);
+                redisService.setWithoutLock(spaceIdentifier, idxStr, (String) key);
+                resps = redisService.exec();
+            } finally {
+                redisService.discard();
+            }
+        } while (resps == null || resps.size() == 0 || resps.get(0) == null);
         return index;
     }
 
@@ -99,6 +109,17 @@ public class RedisIndexSpace extends RedisSpace implements IndexSpace {
         return Integer.parseInt(redisService.get(spaceIdentifier, Utilities.composeKey(name, (String) key)));
     }
 
+    public int getOrSetKey(String name, Object key, boolean update) {
+        String value = redisService.get(spaceIdentifier, Utilities.composeKey(name, (String) key));
+        if (value != null) {
+            return Integer.parseInt(value);
+        } else if (update) {
+            return setKey(name, key);
+        } else {
+            return -1;
+        }
+    }
+
     public Object getKeyForIndex(String name, int index) {
         String idxStr = Utilities.composeKey(Utilities.composeKey(name, "index"),
                 Integer.valueOf(index).toString());
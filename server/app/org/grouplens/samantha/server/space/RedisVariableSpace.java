@@ -109,24 +109,29 @@ public class RedisVariableSpace extends RedisSpace implements VariableSpace {
         }
     }
 
+    /**
+     * The variable is watched before it is read, so that concurrent callers never shrink a size set by another one.
+     */
     private void ensureVar(ObjectNode obj, String varName, int size) {
         List<Object> resps;
         do {
-            JsonNode val = redisService.getValue(spaceIdentifier, varName);
-            redisService.watch(spaceIdentifier, varName);
-            redisService.multi(false);
-            if (val != null) {
-                IOUtilities.parseEntityFromJsonNode(val, obj);
-                if (size > obj.get("size").asInt()) {
-                    obj.put("size", size);
-                    redisService.setWithoutLock(spaceIdentifier, varName, obj.toString());
+            try {
+                redisService.watch(spaceIdentifier, varName);
+                JsonNode val = redisService.getValue(spaceIdentifier, varName);
+                if (val != null) {
+                    IOUtilities.parseEntityFromJsonNode(val, obj);
+                    if (size <= obj.get("size").asInt()) {
+                        return;
+                    }
                 }
-            } else {
                 obj.put("size", size);
+                redisService.multi();
                 redisService.setWithoutLock(spaceIdentifier, varName, obj.toString());
+                resps = redisService.exec();
+            } finally {
+                redisService.discard();
             }
-            resps = redisService.exec();
-        } while (resps.size() > 0 && resps.get(0) == null);
+        } while (resps == null || resps.size() == 0 || resps.get(0) == null);
     }
 
     public void ensureVectorVar(String name, int size, int dim, double initial,
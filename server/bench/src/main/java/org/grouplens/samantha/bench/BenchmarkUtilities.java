@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.grouplens.samantha.bench;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
+import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
+import org.grouplens.samantha.modeler.common.LearningData;
+import org.grouplens.samantha.modeler.common.LearningInstance;
+import org.grouplens.samantha.modeler.featurizer.FeatureExtractor;
+import org.grouplens.samantha.modeler.featurizer.StringValueExtractor;
+import org.grouplens.samantha.modeler.instance.StandardLearningInstance;
+import org.grouplens.samantha.modeler.model.IndexSpace;
+import org.grouplens.samantha.modeler.model.SynchronizedIndexSpace;
+import org.grouplens.samantha.modeler.model.SynchronizedVariableSpace;
+import org.grouplens.samantha.modeler.model.VariableSpace;
+import org.grouplens.samantha.modeler.solver.L2NormLoss;
+import org.grouplens.samantha.modeler.svdfeature.SVDFeature;
+import org.grouplens.samantha.modeler.svdfeature.SVDFeatureKey;
+import org.grouplens.samantha.modeler.tree.HistogramGreedy;
+import org.grouplens.samantha.modeler.tree.MeanDivergence;
+import org.grouplens.samantha.modeler.tree.RegressionTree;
+import org.grouplens.samantha.modeler.tree.TreeKey;
+import play.libs.Json;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic models and data shared by the benchmarks. Everything is generated from fixed seeds so that runs are
+ * comparable.
+ */
+public class BenchmarkUtilities {
+    static public final String USER_ATTR = "userId";
+    static public final String ITEM_ATTR = "itemId";
+    static public final String RATING_ATTR = "rating";
+
+    private BenchmarkUtilities() {}
+
+    static public List<FeatureExtractor> getSVDFeatureExtractors() {
+        List<FeatureExtractor> extractors = new ArrayList<>();
+        extractors.add(new StringValueExtractor(SVDFeatureKey.BIASES.get(), USER_ATTR, "userBias"));
+        extractors.add(new StringValueExtractor(SVDFeatureKey.BIASES.get(), ITEM_ATTR, "itemBias"));
+        extractors.add(new StringValueExtractor(SVDFeatureKey.FACTORS.get(), USER_ATTR, "userFactor"));
+        extractors.add(new StringValueExtractor(SVDFeatureKey.FACTORS.get(), ITEM_ATTR, "itemFactor"));
+        return extractors;
+    }
+
+    static public ObjectNode getEntity(int user, int item, double rating) {
+        ObjectNode entity = Json.newObject();
+        entity.put(USER_ATTR, Integer.toString(user));
+        entity.put(ITEM_ATTR, Integer.toString(item));
+        entity.put(RATING_ATTR, rating);
+        return entity;
+    }
+
+    /**
+     * An SVDFeature model with user and item biases and factors, with every user and item already indexed.
+     */
+    static public SVDFeature getSVDFeature(int numUsers, int numItems, int factDim) {
+        IndexSpace indexSpace = new SynchronizedIndexSpace();
+        indexSpace.requestKeyMap(SVDFeatureKey.BIASES.get());
+        indexSpace.requestKeyMap(SVDFeatureKey.FACTORS.get());
+        VariableSpace variableSpace = new SynchronizedVariableSpace();
+        variableSpace.requestScalarVar(SVDFeatureKey.BIASES.get(), 0, 0.0, false);
+        variableSpace.requestScalarVar(SVDFeatureKey.SUPPORT.get(), 0, 0.0, false);
+        variableSpace.requestVectorVar(SVDFeatureKey.FACTORS.get(), 0, factDim, 0.0, true, false);
+        SVDFeature model = new SVDFeature(Arrays.asList("userBias", "itemBias"),
+                Arrays.asList("userFactor"), Arrays.asList("itemFactor"), RATING_ATTR, "weight", null,
+                getSVDFeatureExtractors(), factDim, new L2NormLoss(), indexSpace, variableSpace);
+        int num = Math.max(numUsers, numItems);
+        for (int i=0; i<num; i++) {
+            model.featurize(getEntity(i % numUsers, i % numItems, 0.0), true);
+        }
+        return model;
+    }
+
+    static public List<ObjectNode> getCandidates(int user, int numCandidates, int numItems, long seed) {
+        Random random = new Random(seed);
+        List<ObjectNode> candidates = new ArrayList<>(numCandidates);
+        for (int i=0; i<numCandidates; i++) {
+            candidates.add(getEntity(user, random.nextInt(numItems), random.nextInt(5) + 1.0));
+        }
+        return candidates;
+    }
+
+    static public List<LearningInstance> getTreeInstances(int numInstances, int numFeatures, long seed) {
+        Random random = new Random(seed);
+        List<LearningInstance> instances = new ArrayList<>(numInstances);
+        for (int i=0; i<numInstances; i++) {
+            Int2DoubleMap features = new Int2DoubleOpenHashMap();
+            double label = 0.0;
+            for (int j=0; j<numFeatures; j++) {
+                if (random.nextDouble() < 0.7) {
+                    double value = random.nextGaussian();
+                    features.put(j, value);
+                    if (j < 3) {
+                        label += value > 0.3 ? 1.0 : -0.5 * value;
+                    }
+                }
+            }
+            instances.add(new StandardLearningInstance(features, label + 0.1 * random.nextGaussian(), 1.0, null));
+        }
+        return instances;
+    }
+
+    static public LearningData getLearningData(List<LearningInstance> instances) {
+        return new LearningData() {
+            private int pos = 0;
+
+            public List<LearningInstance> getLearningInstance() {
+                if (pos >= instances.size()) {
+                    return new ArrayList<>();
+                }
+                List<LearningInstance> batch = instances.subList(pos, Math.min(pos + 1000, instances.size()));
+                pos += batch.size();
+                return batch;
+            }
+
+            public void startNewIteration() {
+                pos = 0;
+            }
+        };
+    }
+
+    static public RegressionTree getRegressionTree(List<LearningInstance> instances, int maxTreeDepth) {
+        IndexSpace indexSpace = new SynchronizedIndexSpace();
+        indexSpace.requestKeyMap(TreeKey.TREE.get());
+        VariableSpace variableSpace = new SynchronizedVariableSpace();
+        variableSpace.requestVectorVar("tree", 0, RegressionTree.nodeSize, 0.0, false, false);
+        RegressionTree tree = new RegressionTree("tree", new MeanDivergence(), indexSpace, variableSpace,
+                new ArrayList<>(), new ArrayList<>(), "label", "weight");
+        new HistogramGreedy(20, maxTreeDepth, 64).learn(tree, getLearningData(instances));
+        return tree;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.grouplens.samantha.bench;
+
+import org.grouplens.samantha.modeler.dao.CSVFileDAO;
+import org.grouplens.samantha.server.indexer.IndexerUtilities;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read a tab separated file of 100k rows through CSVFileDAO. The score is the time of reading the whole file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CSVFileDAOBenchmark {
+    static private final int numRows = 100000;
+    private File file;
+
+    @Setup
+    public void setup() throws IOException {
+        file = File.createTempFile("samantha-bench", ".csv");
+        file.deleteOnExit();
+        List<String> fields = Arrays.asList(BenchmarkUtilities.USER_ATTR, BenchmarkUtilities.ITEM_ATTR,
+                BenchmarkUtilities.RATING_ATTR, "tstamp");
+        Random random = new Random(6L);
+        BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+        IndexerUtilities.writeCSVHeader(fields, writer, "\t");
+        for (int i=0; i<numRows; i++) {
+            writer.write(random.nextInt(10000) + "\t" + random.nextInt(50000) + "\t"
+                    + (random.nextInt(5) + 1) + "\t" + (1500000000 + i));
+            writer.newLine();
+        }
+        writer.close();
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public int readAll() {
+        CSVFileDAO dao = new CSVFileDAO("\t", file.getAbsolutePath());
+        int cnt = 0;
+        while (dao.hasNextEntity()) {
+            dao.getNextEntity();
+            cnt++;
+        }
+        dao.close();
+        return cnt;
+    }
+}
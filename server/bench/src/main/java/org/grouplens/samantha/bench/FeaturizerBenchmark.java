@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.grouplens.samantha.bench;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.grouplens.samantha.modeler.featurizer.Feature;
+import org.grouplens.samantha.modeler.featurizer.FeatureExtractor;
+import org.grouplens.samantha.modeler.featurizer.FeaturizerUtilities;
+import org.grouplens.samantha.modeler.model.IndexSpace;
+import org.grouplens.samantha.modeler.model.SynchronizedIndexSpace;
+import org.grouplens.samantha.modeler.svdfeature.SVDFeatureKey;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeaturizerBenchmark {
+    private List<FeatureExtractor> extractors;
+    private IndexSpace indexSpace;
+    private List<ObjectNode> entities;
+    private int pos = 0;
+
+    @Setup
+    public void setup() {
+        extractors = BenchmarkUtilities.getSVDFeatureExtractors();
+        indexSpace = new SynchronizedIndexSpace();
+        indexSpace.requestKeyMap(SVDFeatureKey.BIASES.get());
+        indexSpace.requestKeyMap(SVDFeatureKey.FACTORS.get());
+        entities = BenchmarkUtilities.getCandidates(1, 10000, 10000, 1L);
+        for (ObjectNode entity : entities) {
+            FeaturizerUtilities.getFeatureMap(entity, true, extractors, indexSpace);
+        }
+    }
+
+    @Benchmark
+    public Map<String, List<Feature>> getFeatureMap() {
+        pos = (pos + 1) % entities.size();
+        return FeaturizerUtilities.getFeatureMap(entities.get(pos), false, extractors, indexSpace);
+    }
+}
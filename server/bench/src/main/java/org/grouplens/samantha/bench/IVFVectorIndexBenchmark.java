@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.grouplens.samantha.bench;
+
+import org.grouplens.samantha.modeler.knn.IVFVectorIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Top-20 queries of an IVFVectorIndex over 100k clustered 32-d unit vectors with sqrt(n) clusters, probing
+ * numProbes clusters (0 is the exact scan). The recall against the exact scan of the queries is computed at setup
+ * and reported as the recall secondary result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IVFVectorIndexBenchmark {
+    static private final int size = 100000;
+    static private final int dim = 32;
+    static private final int numQueries = 100;
+
+    @Param({"0", "4", "8", "16"})
+    public int numProbes;
+
+    private IVFVectorIndex index;
+    private double[][] queries;
+    private double recall;
+    private int next = 0;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class RecallCounter {
+        public double recall;
+    }
+
+    static private void normalize(double[] vec) {
+        double norm = 0.0;
+        for (double value : vec) {
+            norm += value * value;
+        }
+        norm = Math.sqrt(norm);
+        for (int f=0; f<vec.length; f++) {
+            vec[f] /= norm;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        Random random = new Random(1L);
+        double[][] centers = new double[1000][dim];
+        for (double[] center : centers) {
+            for (int f=0; f<dim; f++) {
+                center[f] = random.nextGaussian();
+            }
+        }
+        double[][] vecs = new double[size][dim];
+        for (int i=0; i<size; i++) {
+            double[] center = centers[random.nextInt(centers.length)];
+            for (int f=0; f<dim; f++) {
+                vecs[i][f] = center[f] + random.nextGaussian();
+            }
+            normalize(vecs[i]);
+        }
+        index = new IVFVectorIndex(vecs, (int) Math.ceil(Math.sqrt(size)), 10, 2L);
+        queries = new double[numQueries][];
+        recall = 0.0;
+        for (int q=0; q<numQueries; q++) {
+            queries[q] = vecs[random.nextInt(size)];
+            List<double[]> exact = index.search(queries[q], 20, 0, null);
+            recall += IVFVectorIndex.recall(index.search(queries[q], 20, numProbes, null), exact);
+        }
+        recall /= numQueries;
+    }
+
+    @Benchmark
+    public List<double[]> search(RecallCounter counter) {
+        counter.recall = recall;
+        next = (next + 1) % numQueries;
+        return index.search(queries[next], 20, numProbes, null);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.grouplens.samantha.bench;
+
+import org.grouplens.samantha.modeler.model.ConcurrentIndexSpace;
+import org.grouplens.samantha.modeler.model.IndexSpace;
+import org.grouplens.samantha.modeler.model.SynchronizedIndexSpace;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Key lookups of an index space with three reading threads contending with one thread adding keys.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndexSpaceBenchmark {
+    static private final String name = "keys";
+    static private final int numKeys = 100000;
+
+    @Param({"SynchronizedIndexSpace", "ConcurrentIndexSpace"})
+    public String spaceType;
+
+    private IndexSpace indexSpace;
+    private String[] keys;
+    private int added = 0;
+
+    @Setup
+    public void setup() {
+        if ("ConcurrentIndexSpace".equals(spaceType)) {
+            indexSpace = new ConcurrentIndexSpace();
+        } else {
+            indexSpace = new SynchronizedIndexSpace();
+        }
+        indexSpace.requestKeyMap(name);
+        keys = new String[numKeys];
+        for (int i=0; i<numKeys; i++) {
+            keys[i] = "item\1" + i;
+            indexSpace.setKey(name, keys[i]);
+        }
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public int getIndexForKey() {
+        return indexSpace.getIndexForKey(name, keys[ThreadLocalRandom.current().nextInt(numKeys)]);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public int getOrSetKey() {
+        return indexSpace.getOrSetKey(name, "new\1" + (added++), true);
+    }
+}
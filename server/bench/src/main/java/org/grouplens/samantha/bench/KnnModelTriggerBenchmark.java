@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.grouplens.samantha.bench;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.RealVector;
+import org.grouplens.samantha.modeler.featurizer.FeatureExtractorUtilities;
+import org.grouplens.samantha.modeler.knn.KnnModelTrigger;
+import org.grouplens.samantha.modeler.model.IndexedVectorModel;
+import org.grouplens.samantha.modeler.model.SynchronizedIndexSpace;
+import org.grouplens.samantha.modeler.model.SynchronizedVariableSpace;
+import org.openjdk.jmh.annotations.*;
+import play.libs.Json;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Trigger the neighbors of a user history of 50 items from an item kNN model with 50 neighbors per item.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KnnModelTriggerBenchmark {
+    static private final int numItems = 20000;
+    static private final int numNeighbors = 50;
+    static private final int historySize = 50;
+
+    private KnnModelTrigger trigger;
+    private List<ObjectNode> history;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(5L);
+        List<String> feaAttrs = Arrays.asList(BenchmarkUtilities.ITEM_ATTR);
+        IndexedVectorModel knnModel = new IndexedVectorModel("knn", 0, 2 * numNeighbors,
+                new SynchronizedIndexSpace(), new SynchronizedVariableSpace());
+        for (int i=0; i<numItems; i++) {
+            ObjectNode item = Json.newObject();
+            item.put(BenchmarkUtilities.ITEM_ATTR, Integer.toString(i));
+            knnModel.ensureKey(FeatureExtractorUtilities.composeConcatenatedKey(item, feaAttrs));
+        }
+        for (int i=0; i<numItems; i++) {
+            RealVector sims = new ArrayRealVector(2 * numNeighbors);
+            for (int j=0; j<numNeighbors; j++) {
+                sims.setEntry(2 * j, random.nextInt(numItems));
+                sims.setEntry(2 * j + 1, random.nextDouble());
+            }
+            knnModel.setIndexVector(i, sims);
+        }
+        trigger = new KnnModelTrigger(knnModel, null, feaAttrs, "weight", "score");
+        history = new ArrayList<>(historySize);
+        for (int i=0; i<historySize; i++) {
+            ObjectNode inter = Json.newObject();
+            inter.put(BenchmarkUtilities.ITEM_ATTR, Integer.toString(random.nextInt(numItems)));
+            inter.put("weight", 1.0);
+            history.add(inter);
+        }
+    }
+
+    @Benchmark
+    public List<ObjectNode> getTriggeredFeatures() {
+        return trigger.getTriggeredFeatures(history);
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.grouplens.samantha.bench;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.grouplens.samantha.modeler.common.LearningData;
+import org.grouplens.samantha.modeler.common.LearningInstance;
+import org.grouplens.samantha.modeler.solver.AsyncParallelSGD;
+import org.grouplens.samantha.modeler.svdfeature.SVDFeature;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One AsyncParallelSGD iteration over 100k SVDFeature instances with the oracle, the locked fused and the
+ * lock-free (Hogwild) update. Run it on a multi-core host; on a single core the threads only time-slice.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelSGDBenchmark {
+    @Param({"1", "2", "4", "8"})
+    public int numThreads;
+
+    @Param({"oracle", "fused", "hogwild"})
+    public String updateMode;
+
+    private SVDFeature model;
+    private LearningData learningData;
+
+    @Setup
+    public void setup() {
+        model = BenchmarkUtilities.getSVDFeature(10000, 10000, 32);
+        List<ObjectNode> entities = new ArrayList<>(100000);
+        for (int user=0; user<100; user++) {
+            entities.addAll(BenchmarkUtilities.getCandidates(user * 100, 1000, 10000, user));
+        }
+        List<LearningInstance> instances = new ArrayList<>(entities.size());
+        for (ObjectNode entity : entities) {
+            instances.add(model.featurize(entity, false));
+        }
+        LearningData data = BenchmarkUtilities.getLearningData(instances);
+        learningData = new LearningData() {
+            synchronized public List<LearningInstance> getLearningInstance() {
+                return data.getLearningInstance();
+            }
+
+            synchronized public void startNewIteration() {
+                data.startNewIteration();
+            }
+        };
+    }
+
+    @Benchmark
+    public double sgdIteration() {
+        AsyncParallelSGD sgd = new AsyncParallelSGD(1, 1, 0.0, 0.001, 0.0, numThreads,
+                !"oracle".equals(updateMode), "hogwild".equals(updateMode));
+        return sgd.update(model, learningData);
+    }
+}
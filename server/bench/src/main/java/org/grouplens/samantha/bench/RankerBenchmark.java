@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.grouplens.samantha.bench;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.grouplens.samantha.modeler.svdfeature.SVDFeature;
+import org.grouplens.samantha.server.io.RequestContext;
+import org.grouplens.samantha.server.predictor.PredictiveModelBasedPredictor;
+import org.grouplens.samantha.server.ranker.PredictorBasedRanker;
+import org.grouplens.samantha.server.ranker.RankedResult;
+import org.grouplens.samantha.server.retriever.RetrievedResult;
+import org.openjdk.jmh.annotations.*;
+import play.Configuration;
+import play.libs.Json;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rank synthetic candidates of a user with an SVDFeature predictor, including featurization and top-K selection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RankerBenchmark {
+    @Param({"1000"})
+    public int numCandidates;
+
+    private PredictorBasedRanker ranker;
+    private RequestContext requestContext;
+    private List<ObjectNode> candidates;
+
+    @Setup
+    public void setup() {
+        SVDFeature model = BenchmarkUtilities.getSVDFeature(10000, 50000, 32);
+        Configuration config = new Configuration(new HashMap<>());
+        requestContext = new RequestContext(Json.newObject(), "bench");
+        PredictiveModelBasedPredictor predictor = new PredictiveModelBasedPredictor(config, model, model,
+                null, null, new ArrayList<>(), null);
+        ranker = new PredictorBasedRanker(predictor, 24, 0, 24, config, requestContext, null);
+        candidates = BenchmarkUtilities.getCandidates(7, numCandidates, 50000, 4L);
+    }
+
+    @Benchmark
+    public RankedResult rank() {
+        List<ObjectNode> entityList = new ArrayList<>(candidates.size());
+        for (ObjectNode candidate : candidates) {
+            entityList.add(candidate.deepCopy());
+        }
+        return ranker.rank(new RetrievedResult(entityList, entityList.size()), requestContext);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.grouplens.samantha.bench;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.grouplens.samantha.modeler.common.LearningInstance;
+import org.grouplens.samantha.modeler.solver.StochasticOracle;
+import org.grouplens.samantha.modeler.svdfeature.SVDFeature;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SVDFeatureBenchmark {
+    @Param({"32"})
+    public int factDim;
+
+    @Param({"1000"})
+    public int numCandidates;
+
+    private SVDFeature model;
+    private List<LearningInstance> candidates;
+    private List<LearningInstance> oracleBatch;
+    private List<ObjectNode> entities;
+
+    @Setup
+    public void setup() {
+        model = BenchmarkUtilities.getSVDFeature(10000, 50000, factDim);
+        candidates = new ArrayList<>(numCandidates);
+        entities = BenchmarkUtilities.getCandidates(7, numCandidates, 50000, 2L);
+        for (ObjectNode entity : entities) {
+            candidates.add(model.featurize(entity, false));
+        }
+        oracleBatch = new ArrayList<>(128);
+        for (int i=0; i<128; i++) {
+            oracleBatch.add(candidates.get(i % candidates.size()));
+        }
+    }
+
+    @Benchmark
+    public double predictOne() {
+        return model.predict(candidates.get(0))[0];
+    }
+
+    @Benchmark
+    public double[][] predictCandidates() {
+        return model.predict(candidates);
+    }
+
+    @Benchmark
+    public List<StochasticOracle> getStochasticOracle() {
+        return model.getStochasticOracle(oracleBatch);
+    }
+
+    /**
+     * Featurization with update, where the threads contend on the support counts of the same features.
+     */
+    @Benchmark
+    @Threads(4)
+    public LearningInstance featurizeWithSupport() {
+        return model.featurize(entities.get(ThreadLocalRandom.current().nextInt(entities.size())), true);
+    }
+}
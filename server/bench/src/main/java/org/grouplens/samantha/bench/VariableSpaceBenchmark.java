@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package org.grouplens.samantha.bench;
+
+import org.grouplens.samantha.modeler.model.PrimitiveVariableSpace;
+import org.grouplens.samantha.modeler.model.SynchronizedVariableSpace;
+import org.grouplens.samantha.modeler.model.VariableSpace;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scalar and vector variable reads of a variable space with three reading threads contending with one thread
+ * updating variables in place.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VariableSpaceBenchmark {
+    static private final String scalarName = "biases";
+    static private final String vectorName = "factors";
+    static private final int size = 100000;
+    static private final int dim = 32;
+
+    @Param({"SynchronizedVariableSpace", "PrimitiveVariableSpace"})
+    public String spaceType;
+
+    private VariableSpace variableSpace;
+
+    @Setup
+    public void setup() {
+        if ("PrimitiveVariableSpace".equals(spaceType)) {
+            variableSpace = new PrimitiveVariableSpace();
+        } else {
+            variableSpace = new SynchronizedVariableSpace();
+        }
+        variableSpace.requestScalarVar(scalarName, 0, 0.0, false);
+        variableSpace.ensureScalarVar(scalarName, size, 0.0, true);
+        variableSpace.requestVectorVar(vectorName, 0, dim, 0.0, false, false);
+        variableSpace.ensureVectorVar(vectorName, size, dim, 0.0, true, false);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(3)
+    public double read() {
+        int index = ThreadLocalRandom.current().nextInt(size);
+        double[] out = new double[dim];
+        variableSpace.accumulateVectorVarByNameIndex(vectorName, index, 1.0, out);
+        return variableSpace.getScalarVarByNameIndex(scalarName, index) + out[0];
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public void update() {
+        int index = ThreadLocalRandom.current().nextInt(size);
+        double[] delta = new double[dim];
+        delta[0] = 0.01;
+        variableSpace.updateScalarVarByNameIndex(scalarName, index, 0.99, 0.01);
+        variableSpace.updateVectorVarByNameIndex(vectorName, index, 0.99, 0.1, delta);
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.grouplens.samantha.modeler.boosting;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.Lists;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntList;
+import org.grouplens.samantha.modeler.common.LearningData;
+import org.grouplens.samantha.modeler.common.LearningInstance;
+import org.grouplens.samantha.modeler.dao.EntityListDAO;
+import org.grouplens.samantha.modeler.featurizer.FeatureExtractor;
+import org.grouplens.samantha.modeler.featurizer.IdentityExtractor;
+import org.grouplens.samantha.modeler.featurizer.StringValueExtractor;
+import org.grouplens.samantha.modeler.instance.SyncFeaturizedLearningData;
+import org.grouplens.samantha.modeler.model.SpaceMode;
+import org.grouplens.samantha.modeler.model.SpaceProducer;
+import org.grouplens.samantha.modeler.model.SynchronizedIndexSpace;
+import org.grouplens.samantha.modeler.model.SynchronizedVariableSpace;
+import org.grouplens.samantha.modeler.solver.L2NormLoss;
+import org.grouplens.samantha.modeler.solver.StochasticGradientDescent;
+import org.grouplens.samantha.modeler.svdfeature.SVDFeature;
+import org.grouplens.samantha.modeler.svdfeature.SVDFeatureKey;
+import org.grouplens.samantha.modeler.svdfeature.SVDFeatureProducer;
+import org.grouplens.samantha.modeler.tree.HistogramGreedy;
+import org.grouplens.samantha.modeler.tree.MeanDivergence;
+import org.grouplens.samantha.modeler.tree.TreeKey;
+import org.junit.Test;
+import play.libs.Json;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GBCentLearningMethodTest {
+
+    private List<ObjectNode> getEntities(Random random, int size) {
+        List<ObjectNode> entities = new ArrayList<>(size);
+        for (int i=0; i<size; i++) {
+            ObjectNode entity = Json.newObject();
+            int user = random.nextInt(10);
+            double x = random.nextDouble();
+            entity.put("user", Integer.toString(user));
+            entity.put("item", Integer.toString(random.nextInt(20)));
+            entity.put("x", x);
+            entity.put("label", (x > 0.5 ? 1.0 : -1.0) * user + random.nextGaussian() * 0.1);
+            entities.add(entity);
+        }
+        return entities;
+    }
+
+    private RegressionTreeGBCent getGBCent(SVDFeature svdfeaModel) {
+        SpaceProducer spaceProducer = new SpaceProducer(new SynchronizedIndexSpace(),
+                new SynchronizedVariableSpace());
+        RegressionTreeGBCentProducer producer = new RegressionTreeGBCentProducer(new MeanDivergence(),
+                spaceProducer);
+        List<FeatureExtractor> treeExtractors = Lists.newArrayList(
+                new IdentityExtractor(TreeKey.TREE.get(), "x", "x"));
+        return producer.createGBCentWithSVDFeatureModel("gbcent", SpaceMode.DEFAULT,
+                Lists.newArrayList("x"), null, treeExtractors, svdfeaModel);
+    }
+
+    private List<double[]> learnAndPredict(RegressionTreeGBCent cent, int numThreads,
+                                           List<ObjectNode> learn, List<ObjectNode> valid) {
+        GBCentLearningMethod method = new GBCentLearningMethod(new StochasticGradientDescent(),
+                new HistogramGreedy(10, 3, 16), 10, false, 0.0, numThreads);
+        LearningData learnData = new SyncFeaturizedLearningData(new EntityListDAO(learn), null, 32, cent, true);
+        LearningData validData = new SyncFeaturizedLearningData(new EntityListDAO(valid), null, 32, cent, true);
+        method.learn(cent, learnData, validData);
+        List<double[]> preds = new ArrayList<>();
+        for (ObjectNode entity : valid) {
+            LearningInstance ins = cent.featurize(entity, false);
+            preds.add(cent.predict(ins));
+        }
+        return preds;
+    }
+
+    @Test
+    public void testParallelAndSequentialLearnTheSameModel() {
+        SVDFeatureProducer svdfeaProducer = new SVDFeatureProducer(new SpaceProducer(new SynchronizedIndexSpace(),
+                new SynchronizedVariableSpace()));
+        List<FeatureExtractor> svdfeaExtractors = Lists.newArrayList(
+                new StringValueExtractor(SVDFeatureKey.BIASES.get(), "user", "user"),
+                new StringValueExtractor(SVDFeatureKey.BIASES.get(), "item", "item"));
+        SVDFeature svdfeaModel = svdfeaProducer.createSVDFeatureModel("svdfea", SpaceMode.DEFAULT,
+                Lists.newArrayList("user", "item"), new ArrayList<>(), new ArrayList<>(), "label", null, null,
+                svdfeaExtractors, 2, new L2NormLoss());
+        Random random = new Random(11L);
+        List<ObjectNode> learn = getEntities(random, 600);
+        List<ObjectNode> valid = getEntities(random, 300);
+
+        List<double[]> sequential = learnAndPredict(getGBCent(svdfeaModel), 1, learn, valid);
+        List<double[]> parallel = learnAndPredict(getGBCent(svdfeaModel), 4, learn, valid);
+        boolean boosted = false;
+        for (int i=0; i<valid.size(); i++) {
+            assertEquals(sequential.get(i)[0], parallel.get(i)[0], 1e-10);
+            boosted = boosted || sequential.get(i)[0] != 0.0;
+        }
+        assertTrue(boosted);
+    }
+
+    @Test
+    public void testDisjointWavesKeepConflictingTreesInOrder() {
+        List<IntList> subset = Lists.newArrayList(
+                new IntArrayList(new int[] {0, 1}),
+                new IntArrayList(new int[] {1, 2}),
+                new IntArrayList(new int[] {3}),
+                new IntArrayList(new int[] {2, 4}),
+                new IntArrayList(new int[] {0}));
+        List<IntList> waves = GBCentLearningMethod.getDisjointWaves(subset, null, 5, 0);
+        assertEquals(3, waves.size());
+        assertEquals(new IntArrayList(new int[] {0, 2}), waves.get(0));
+        assertEquals(new IntArrayList(new int[] {1, 4}), waves.get(1));
+        assertEquals(new IntArrayList(new int[] {3}), waves.get(2));
+    }
+
+    @Test
+    public void testDisjointWavesFallBackWhenTooMany() {
+        List<IntList> subset = new ArrayList<>();
+        for (int i=0; i<1000; i++) {
+            subset.add(new IntArrayList(new int[] {0}));
+        }
+        assertNull(GBCentLearningMethod.getDisjointWaves(subset, null, 1, 0));
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.grouplens.samantha.modeler.knn;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class IVFVectorIndexTest {
+    private final int size = 2000;
+    private final int dim = 8;
+
+    private double[][] getClusteredVectors(Random random) {
+        double[][] centers = new double[20][dim];
+        for (double[] center : centers) {
+            for (int f=0; f<dim; f++) {
+                center[f] = random.nextGaussian();
+            }
+        }
+        double[][] vecs = new double[size][dim];
+        for (int i=0; i<size; i++) {
+            double[] center = centers[random.nextInt(centers.length)];
+            for (int f=0; f<dim; f++) {
+                vecs[i][f] = center[f] + 0.2 * random.nextGaussian();
+            }
+        }
+        return vecs;
+    }
+
+    private List<double[]> bruteForce(double[][] vecs, double[] query, int k, int exclude) {
+        List<double[]> pairs = new ArrayList<>();
+        for (int i=0; i<vecs.length; i++) {
+            if (i != exclude) {
+                double product = 0.0;
+                for (int f=0; f<dim; f++) {
+                    product += query[f] * vecs[i][f];
+                }
+                pairs.add(new double[] {i, product});
+            }
+        }
+        pairs.sort((a, b) -> Double.compare(b[1], a[1]));
+        return pairs.subList(0, Math.min(k, pairs.size()));
+    }
+
+    @Test
+    public void testExactSearch() {
+        double[][] vecs = getClusteredVectors(new Random(1L));
+        IVFVectorIndex index = new IVFVectorIndex(vecs, 45, 10, 2L);
+        assertEquals(45, index.getNumClusters());
+        double[] vector = new double[dim];
+        for (int q=0; q<20; q++) {
+            index.getVector(q, vector);
+            assertArrayEquals(vecs[q], vector, 0.0);
+            int exclude = q;
+            List<double[]> exact = index.search(vecs[q], 20, 0, target -> target != exclude);
+            List<double[]> expected = bruteForce(vecs, vecs[q], 20, q);
+            assertEquals(expected.size(), exact.size());
+            for (int i=0; i<expected.size(); i++) {
+                assertEquals(expected.get(i)[1], exact.get(i)[1], 1e-10);
+            }
+            assertEquals(1.0, IVFVectorIndex.recall(exact, expected), 0.0);
+        }
+        assertEquals(size, index.search(vecs[0], size + 10, 0, null).size());
+    }
+
+    @Test
+    public void testProbeRecall() {
+        Random random = new Random(3L);
+        double[][] vecs = getClusteredVectors(random);
+        IVFVectorIndex index = new IVFVectorIndex(vecs, 45, 10, 4L);
+        double recall = 0.0;
+        int numQueries = 50;
+        for (int q=0; q<numQueries; q++) {
+            double[] query = vecs[random.nextInt(size)];
+            recall += IVFVectorIndex.recall(index.search(query, 10, 8, null),
+                    bruteForce(vecs, query, 10, -1));
+        }
+        assertTrue(recall / numQueries >= 0.9);
+    }
+}
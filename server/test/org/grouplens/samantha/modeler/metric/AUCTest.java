@@ -113,4 +113,76 @@ public class AUCTest {
         assertEquals(2, support);
         assertEquals(0.583, value, 0.001);
     }
+
+    @Test
+    public void testStreamingAUC() {
+        AUC auc = new AUC("click", AUC.AUCType.STREAMING, 0.5, 0.5, 0.001);
+        AUC other = new AUC("click", AUC.AUCType.STREAMING, 0.5, 0.5, 0.001);
+        ObjectNode gt1 = Json.newObject().put("item", 1).put("click", true);
+        ObjectNode gt2 = Json.newObject().put("item", 3).put("click", false);
+        ObjectNode gt3 = Json.newObject().put("item", 5).put("click", false);
+        ObjectNode gt4 = Json.newObject().put("item", 4).put("click", true);
+        ObjectNode gt5 = Json.newObject().put("item", 2).put("click", true);
+        List<ObjectNode> gts1 = Lists.newArrayList(gt1, gt2, gt3, gt4, gt5);
+        Prediction pred1 = new Prediction(
+                gt1, null, 3.0, null);
+        Prediction pred2 = new Prediction(
+                gt2, null, 2.5, null);
+        Prediction pred3 = new Prediction(
+                gt3, null, 2.0, null);
+        Prediction pred4 = new Prediction(
+                gt4, null, 1.0, null);
+        Prediction pred5 = new Prediction(
+                gt5, null, 0.0, null);
+        List<Prediction> preds1 = Lists.newArrayList(pred1, pred2, pred3, pred4, pred5);
+        auc.add(gts1, preds1);
+        pred1 = new Prediction(gt1, null, 5.0, null);
+        pred2 = new Prediction(gt4, null, 2.8, null);
+        pred3 = new Prediction(gt2, null, 2.3, null);
+        pred4 = new Prediction(gt5, null, 1.5, null);
+        pred5 = new Prediction(gt3, null, 0.2, null);
+        List<ObjectNode> gts2 = Lists.newArrayList(gt1, gt4, gt2, gt5, gt3);
+        List<Prediction> preds2 = Lists.newArrayList(pred1, pred2, pred3, pred4, pred5);
+        other.add(gts2, preds2);
+        auc.merge(other);
+        MetricResult results = auc.getResults();
+        assertEquals(true, results.getPass());
+        assertEquals(1, results.getValues().size());
+        JsonNode result = results.getValues().get(0);
+        int support = result.get(ConfigKey.EVALUATOR_METRIC_SUPPORT.get()).asInt();
+        double value = result.get(ConfigKey.EVALUATOR_METRIC_VALUE.get()).asDouble();
+        assertEquals(10, support);
+        assertEquals(0.583, value, 0.001);
+    }
+
+    @Test
+    public void testGlobalAUCMerge() {
+        MetricTestUtilities.assertMergedResults(new AUC("click", AUC.AUCType.GLOBAL, 0.5, 0.5),
+                new AUC("click", AUC.AUCType.GLOBAL, 0.5, 0.5),
+                new AUC("click", AUC.AUCType.GLOBAL, 0.5, 0.5), false);
+    }
+
+    @Test
+    public void testPerGroupAUCMerge() {
+        MetricTestUtilities.assertMergedResults(new AUC("click", AUC.AUCType.PERGROUP, 0.5, 0.5),
+                new AUC("click", AUC.AUCType.PERGROUP, 0.5, 0.5),
+                new AUC("click", AUC.AUCType.PERGROUP, 0.5, 0.5), false);
+    }
+
+    @Test
+    public void testSketchErrorIsNotTheScoreAccuracy() {
+        AUCSketch sketch = new AUCSketch(0.01, 1e-9);
+        for (int i=0; i<100; i++) {
+            sketch.add(0.5 + 0.0001 * i, i >= 50);
+        }
+        assertTrue(1.0 - sketch.getAUC() > 0.1);
+        assertTrue(1.0 - sketch.getAUC() <= sketch.getMaxError() + 1e-9);
+
+        sketch = new AUCSketch(0.00001, 1e-9);
+        for (int i=0; i<100; i++) {
+            sketch.add(0.5 + 0.0001 * i, i >= 50);
+        }
+        assertEquals(1.0, sketch.getAUC(), 1e-9);
+        assertEquals(0.0, sketch.getMaxError(), 1e-9);
+    }
 }
@@ -60,4 +60,10 @@ public class MAETest {
         assertEquals(3, support);
         assertEquals(0.500, value, 0.001);
     }
+
+    @Test
+    public void testMAEMerge() {
+        MetricTestUtilities.assertMergedResults(new MAE("rating", 5.0), new MAE("rating", 5.0),
+                new MAE("rating", 5.0), false);
+    }
 }
@@ -74,4 +74,14 @@ public class MAPTest {
             }
         }
     }
+
+    private MAP getMAP() {
+        return new MAP(Lists.newArrayList(1, 3, 5), Lists.newArrayList("item"), Lists.newArrayList("item"),
+                null, null, 0.0, 0.0);
+    }
+
+    @Test
+    public void testMAPMerge() {
+        MetricTestUtilities.assertMergedResults(getMAP(), getMAP(), getMAP(), true);
+    }
 }
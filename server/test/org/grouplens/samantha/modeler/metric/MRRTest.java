@@ -74,4 +74,14 @@ public class MRRTest {
             }
         }
     }
+
+    private MRR getMRR() {
+        return new MRR(Lists.newArrayList(1, 3, 5), Lists.newArrayList("item"), Lists.newArrayList("item"),
+                null, null, 0.0, 0.0);
+    }
+
+    @Test
+    public void testMRRMerge() {
+        MetricTestUtilities.assertMergedResults(getMRR(), getMRR(), getMRR(), true);
+    }
 }
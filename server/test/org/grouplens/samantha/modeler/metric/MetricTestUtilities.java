@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.grouplens.samantha.modeler.metric;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.grouplens.samantha.server.config.ConfigKey;
+import org.grouplens.samantha.server.predictor.Prediction;
+import play.libs.Json;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+class MetricTestUtilities {
+
+    private MetricTestUtilities() {}
+
+    /**
+     * Evaluate random groups of eight rated items with the single metric, the first half of the groups with the first
+     * metric and the rest with the second one, merge the second into the first and check that their results are the
+     * same as the single one. An item is relevant if its rating is at least 4, which is also its click.
+     *
+     * @param relevantOnly whether the ground truth of a group holds only its relevant items or all of its items.
+     */
+    static void assertMergedResults(Metric single, Metric first, Metric second, boolean relevantOnly) {
+        Random random = new Random(17L);
+        int numGroups = 20;
+        for (int g=0; g<numGroups; g++) {
+            List<ObjectNode> entities = new ArrayList<>();
+            for (int i=0; i<8; i++) {
+                int rating = 1 + random.nextInt(5);
+                entities.add(Json.newObject().put("item", i).put("rating", rating).put("click", rating >= 4 ? 1 : 0));
+            }
+            Collections.shuffle(entities, random);
+            List<ObjectNode> groundTruth = new ArrayList<>();
+            List<Prediction> predictions = new ArrayList<>();
+            for (int i=0; i<entities.size(); i++) {
+                ObjectNode entity = entities.get(i);
+                if (!relevantOnly || entity.get("rating").asInt() >= 4) {
+                    groundTruth.add(entity);
+                }
+                predictions.add(new Prediction(entity, null, 5.0 - i * 0.5 + random.nextDouble() * 0.1, null));
+            }
+            if (!relevantOnly || groundTruth.size() > 0) {
+                single.add(groundTruth, predictions);
+                if (g < numGroups / 2) {
+                    first.add(groundTruth, predictions);
+                } else {
+                    second.add(groundTruth, predictions);
+                }
+            }
+        }
+        first.merge(second);
+        MetricResult expected = single.getResults();
+        MetricResult actual = first.getResults();
+        assertEquals(expected.getPass(), actual.getPass());
+        assertEquals(expected.getValues().size(), actual.getValues().size());
+        for (int i=0; i<expected.getValues().size(); i++) {
+            JsonNode exp = expected.getValues().get(i);
+            JsonNode act = actual.getValues().get(i);
+            assertEquals(exp.get(ConfigKey.EVALUATOR_METRIC_PARA.get()),
+                    act.get(ConfigKey.EVALUATOR_METRIC_PARA.get()));
+            assertEquals(exp.get(ConfigKey.EVALUATOR_METRIC_SUPPORT.get()),
+                    act.get(ConfigKey.EVALUATOR_METRIC_SUPPORT.get()));
+            assertEquals(exp.get(ConfigKey.EVALUATOR_METRIC_VALUE.get()).asDouble(),
+                    act.get(ConfigKey.EVALUATOR_METRIC_VALUE.get()).asDouble(), 1e-10);
+        }
+    }
+}
@@ -74,4 +74,14 @@ public class NDCGTest {
             }
         }
     }
+
+    private NDCG getNDCG() {
+        return new NDCG(Lists.newArrayList(1, 3, 5), Lists.newArrayList("item"), Lists.newArrayList("item"),
+                "rating", null, 0.0);
+    }
+
+    @Test
+    public void testNDCGMerge() {
+        MetricTestUtilities.assertMergedResults(getNDCG(), getNDCG(), getNDCG(), true);
+    }
 }
@@ -60,4 +60,10 @@ public class RMSETest {
         assertEquals(3, support);
         assertEquals(0.645, value, 0.001);
     }
+
+    @Test
+    public void testRMSEMerge() {
+        MetricTestUtilities.assertMergedResults(new RMSE("rating", 5.0), new RMSE("rating", 5.0),
+                new RMSE("rating", 5.0), false);
+    }
 }
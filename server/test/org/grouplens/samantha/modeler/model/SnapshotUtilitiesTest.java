@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.grouplens.samantha.modeler.model;
+
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.RealVector;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SnapshotUtilitiesTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private void setUpVariableSpace(VariableSpace variableSpace) {
+        variableSpace.requestScalarVar("bias", 0, 0.0, false);
+        variableSpace.ensureScalarVar("bias", 5, 0.0, false);
+        variableSpace.requestVectorVar("factor", 0, 3, 0.0, false, false);
+        variableSpace.ensureVectorVar("factor", 5, 3, 0.0, false, false);
+        for (int i=0; i<5; i++) {
+            variableSpace.setScalarVarByNameIndex("bias", i, i * 0.5);
+            variableSpace.setVectorVarByNameIndex("factor", i,
+                    MatrixUtils.createRealVector(new double[] {i, i + 1.0, -i}));
+        }
+    }
+
+    private void assertVariableSpace(VariableSpace variableSpace) {
+        assertEquals(5, variableSpace.getScalarVarSizeByName("bias"));
+        assertEquals(5, variableSpace.getVectorVarSizeByName("factor"));
+        assertEquals(3, variableSpace.getVectorVarDimensionByName("factor"));
+        for (int i=0; i<5; i++) {
+            assertEquals(i * 0.5, variableSpace.getScalarVarByNameIndex("bias", i), 0.0);
+            RealVector factor = variableSpace.getVectorVarByNameIndex("factor", i);
+            assertEquals(i, factor.getEntry(0), 0.0);
+            assertEquals(i + 1.0, factor.getEntry(1), 0.0);
+            assertEquals(-i, factor.getEntry(2), 0.0);
+        }
+    }
+
+    @Test
+    public void testModelRoundTrip() throws Exception {
+        VariableSpace variableSpace = new SynchronizedVariableSpace();
+        setUpVariableSpace(variableSpace);
+        SynchronizedIndexSpace indexSpace = new SynchronizedIndexSpace();
+        indexSpace.requestKeyMap("item");
+        indexSpace.setKey("item", "a");
+        indexSpace.setKey("item", "b");
+        List<Object> model = new ArrayList<>();
+        model.add(variableSpace);
+        model.add(indexSpace);
+        model.add("other");
+
+        String modelFile = new File(folder.getRoot(), "model.bin").getPath();
+        SnapshotOutputStream fout = new SnapshotOutputStream(
+                new BufferedOutputStream(new FileOutputStream(modelFile)), modelFile);
+        fout.writeObject(model);
+        fout.close();
+        fout.publishSpaceFiles();
+        assertTrue(SnapshotUtilities.isModelSnapshot(modelFile));
+
+        SnapshotInputStream fin = new SnapshotInputStream(
+                new BufferedInputStream(new FileInputStream(modelFile)), modelFile);
+        List<?> loaded = (List<?>) fin.readObject();
+        fin.close();
+        assertTrue(loaded.get(0) instanceof PrimitiveVariableSpace);
+        assertVariableSpace((VariableSpace) loaded.get(0));
+        IndexSpace loadedIndex = (IndexSpace) loaded.get(1);
+        assertEquals(2, loadedIndex.getKeyMapSize("item"));
+        assertEquals(1, loadedIndex.getIndexForKey("item", "b"));
+        assertEquals("other", loaded.get(2));
+    }
+
+    @Test
+    public void testReadOnlyLoad() throws Exception {
+        VariableSpace variableSpace = new PrimitiveVariableSpace();
+        setUpVariableSpace(variableSpace);
+        File file = folder.newFile("space.bin");
+        SnapshotUtilities.writeVariableSpace(variableSpace, file);
+        byte[] written = Files.readAllBytes(file.toPath());
+
+        PrimitiveVariableSpace loaded = SnapshotUtilities.mapVariableSpace(file, true);
+        assertVariableSpace(loaded);
+        loaded.setScalarVarByNameIndex("bias", 1, 10.0);
+        loaded.updateVectorVarByNameIndex("factor", 2, 1.0, 1.0, new double[] {1.0, 1.0, 1.0});
+        loaded.ensureVectorVar("factor", 7, 3, 0.0, false, false);
+        assertEquals(10.0, loaded.getScalarVarByNameIndex("bias", 1), 0.0);
+        assertEquals(3.0, loaded.getVectorVarByNameIndex("factor", 2).getEntry(0), 0.0);
+        assertEquals(7, loaded.getVectorVarSizeByName("factor"));
+        assertEquals(0.0, loaded.getVectorVarByNameIndex("factor", 6).getEntry(0), 0.0);
+        assertArrayEquals(written, Files.readAllBytes(file.toPath()));
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.grouplens.samantha.modeler.model;
+
+import org.apache.commons.math3.linear.RealMatrix;
+import org.apache.commons.math3.linear.RealVector;
+import org.junit.Test;
+
+import java.nio.DoubleBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class VariableSpaceTest {
+
+    /**
+     * A space relying on the default in-place updates, with slow reads to widen the window between the read and
+     * the write of an update, like a remote space.
+     */
+    static private class DefaultUpdateVariableSpace implements VariableSpace {
+        private final VariableSpace space = new SynchronizedVariableSpace();
+
+        public void setSpaceState(String spaceName, SpaceMode spaceMode) {
+            space.setSpaceState(spaceName, spaceMode);
+        }
+        public void publishSpaceVersion() {
+            space.publishSpaceVersion();
+        }
+        public void requestScalarVar(String name, int size, double initial, boolean randomize) {
+            space.requestScalarVar(name, size, initial, randomize);
+        }
+        public boolean hasScalarVar(String name) {
+            return space.hasScalarVar(name);
+        }
+        public void ensureScalarVar(String name, int size, double initial, boolean randomize) {
+            space.ensureScalarVar(name, size, initial, randomize);
+        }
+        public void requestVectorVar(String name, int size, int dim, double initial,
+                                     boolean randomize, boolean normalize) {
+            space.requestVectorVar(name, size, dim, initial, randomize, normalize);
+        }
+        public boolean hasVectorVar(String name) {
+            return space.hasVectorVar(name);
+        }
+        public void ensureVectorVar(String name, int size, int dim, double initial,
+                                    boolean randomize, boolean normalize) {
+            space.ensureVectorVar(name, size, dim, initial, randomize, normalize);
+        }
+        public void freeSpace() {
+            space.freeSpace();
+        }
+        public void freeScalarVar(String name) {
+            space.freeScalarVar(name);
+        }
+        public void freeVectorVar(String name) {
+            space.freeVectorVar(name);
+        }
+        public RealVector getScalarVarByName(String name) {
+            return space.getScalarVarByName(name);
+        }
+        public int getScalarVarSizeByName(String name) {
+            return space.getScalarVarSizeByName(name);
+        }
+        public void setScalarVarByName(String name, RealVector vars) {
+            space.setScalarVarByName(name, vars);
+        }
+        public double getScalarVarByNameIndex(String name, int index) {
+            double var = space.getScalarVarByNameIndex(name, index);
+            Thread.yield();
+            return var;
+        }
+        public void setScalarVarByNameIndex(String name, int index, double var) {
+            space.setScalarVarByNameIndex(name, index, var);
+        }
+        public List<RealVector> getVectorVarByName(String name) {
+            return space.getVectorVarByName(name);
+        }
+        public RealMatrix getMatrixVarByName(String name) {
+            return space.getMatrixVarByName(name);
+        }
+        public int getVectorVarSizeByName(String name) {
+            return space.getVectorVarSizeByName(name);
+        }
+        public int getVectorVarDimensionByName(String name) {
+            return space.getVectorVarDimensionByName(name);
+        }
+        public RealVector getVectorVarByNameIndex(String name, int index) {
+            RealVector var = space.getVectorVarByNameIndex(name, index);
+            Thread.yield();
+            return var;
+        }
+        public void setVectorVarByNameIndex(String name, int index, RealVector var) {
+            space.setVectorVarByNameIndex(name, index, var);
+        }
+        public List<String> getAllScalarVarNames() {
+            return space.getAllScalarVarNames();
+        }
+        public List<String> getAllVectorVarNames() {
+            return space.getAllVectorVarNames();
+        }
+    }
+
+    private void assertConcurrentUpdates(VariableSpace space) throws InterruptedException {
+        space.requestScalarVar("support", 0, 0.0, false);
+        space.ensureScalarVar("support", 2, 0.0, false);
+        space.requestVectorVar("factor", 0, 2, 0.0, false, false);
+        space.ensureVectorVar("factor", 2, 2, 0.0, false, false);
+        int numThreads = 8;
+        int numUpdates = 2000;
+        List<Thread> threads = new ArrayList<>(numThreads);
+        for (int t=0; t<numThreads; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i=0; i<numUpdates; i++) {
+                    space.updateScalarVarByNameIndex("support", i % 2, 1.0, 1.0);
+                    space.updateVectorVarByNameIndex("factor", i % 2, 1.0, 1.0, new double[] {1.0, 2.0});
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int i=0; i<2; i++) {
+            assertEquals(numThreads * numUpdates / 2, space.getScalarVarByNameIndex("support", i), 0.0);
+            RealVector factor = space.getVectorVarByNameIndex("factor", i);
+            assertEquals(numThreads * numUpdates / 2, factor.getEntry(0), 0.0);
+            assertEquals(numThreads * numUpdates, factor.getEntry(1), 0.0);
+        }
+    }
+
+    @Test
+    public void testDefaultUpdatesAreAtomic() throws InterruptedException {
+        assertConcurrentUpdates(new DefaultUpdateVariableSpace());
+    }
+
+    @Test
+    public void testUpdatesAreAtomic() throws InterruptedException {
+        assertConcurrentUpdates(new SynchronizedVariableSpace());
+        assertConcurrentUpdates(new PrimitiveVariableSpace());
+    }
+
+    @Test
+    public void testGrowingKeepsConcurrentUpdates() throws InterruptedException {
+        int numRows = PrimitiveVariableSpace.ROWS_PER_CHUNK - 1;
+        int numUpdates = numRows * 200;
+        for (int round=0; round<20; round++) {
+            PrimitiveVariableSpace space = new PrimitiveVariableSpace();
+            DoubleBuffer[] chunks = {DoubleBuffer.wrap(new double[numRows])};
+            space.putScalarSlab("support", new PrimitiveVariableSpace.Slab(1, numRows, chunks));
+            CountDownLatch started = new CountDownLatch(1);
+            Thread updater = new Thread(() -> {
+                for (int i=0; i<numUpdates; i++) {
+                    space.updateScalarVarByNameIndex("support", i % numRows, 1.0, 1.0);
+                    if (i == numUpdates / 2) {
+                        started.countDown();
+                    }
+                }
+            });
+            updater.start();
+            started.await();
+            space.ensureScalarVar("support", numRows + 1, 0.0, false);
+            updater.join();
+            for (int i=0; i<numRows; i++) {
+                assertEquals(numUpdates / numRows, space.getScalarVarByNameIndex("support", i), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void testLockFreeUpdatesWhileGrowing() throws InterruptedException {
+        SynchronizedVariableSpace space = new SynchronizedVariableSpace();
+        int numRows = 10;
+        int numUpdates = 20000;
+        space.requestScalarVar("support", 0, 0.0, false);
+        space.ensureScalarVar("support", numRows, 0.0, false);
+        space.requestVectorVar("factor", 0, 2, 0.0, false, false);
+        space.ensureVectorVar("factor", numRows, 2, 0.0, false, false);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        Thread updater = new Thread(() -> {
+            try {
+                double[] out = new double[2];
+                for (int i=0; i<numUpdates; i++) {
+                    space.updateScalarVarByNameIndexLockFree("support", i % numRows, 1.0, 1.0);
+                    space.updateVectorVarByNameIndexLockFree("factor", i % numRows, 1.0, 1.0,
+                            new double[] {1.0, 2.0});
+                    space.accumulateVectorVarByNameIndexLockFree("factor", i % numRows, 1.0, out);
+                }
+            } catch (Throwable e) {
+                error.set(e);
+            }
+        });
+        updater.start();
+        for (int size=numRows + 1; size<numRows + 5000; size++) {
+            space.ensureScalarVar("support", size, 0.0, false);
+            space.ensureVectorVar("factor", size, 2, 0.0, false, false);
+        }
+        updater.join();
+        assertNull(error.get());
+        for (int i=0; i<numRows; i++) {
+            assertEquals(numUpdates / numRows, space.getScalarVarByNameIndex("support", i), 0.0);
+            assertEquals(2 * numUpdates / numRows, space.getVectorVarByNameIndex("factor", i).getEntry(1), 0.0);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.grouplens.samantha.modeler.reinforce;
+
+import com.google.common.collect.Lists;
+import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
+import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
+import org.apache.commons.math3.linear.LUDecomposition;
+import org.apache.commons.math3.linear.RealMatrix;
+import org.grouplens.samantha.modeler.common.LearningInstance;
+import org.grouplens.samantha.modeler.instance.StandardLearningInstance;
+import org.grouplens.samantha.modeler.instance.StandardListLearningData;
+import org.grouplens.samantha.modeler.model.SynchronizedIndexSpace;
+import org.grouplens.samantha.modeler.model.SynchronizedVariableSpace;
+import org.grouplens.samantha.modeler.model.VariableSpace;
+import org.grouplens.samantha.modeler.solver.SolverUtilities;
+import org.grouplens.samantha.modeler.solver.StochasticGradientDescent;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LinearUCBTest {
+    private final List<String> features = Lists.newArrayList("a", "b", "c");
+
+    private List<StandardLearningInstance> getInstances(Random random, int size) {
+        List<StandardLearningInstance> instances = new ArrayList<>(size);
+        for (int i=0; i<size; i++) {
+            Int2DoubleMap x = new Int2DoubleOpenHashMap();
+            for (int j=0; j<features.size(); j++) {
+                x.put(j, random.nextDouble());
+            }
+            instances.add(new StandardLearningInstance(x, random.nextInt(2), 1.0, null));
+        }
+        return instances;
+    }
+
+    private LinearUCB getModel(VariableSpace variableSpace) {
+        SynchronizedIndexSpace indexSpace = new SynchronizedIndexSpace();
+        indexSpace.requestKeyMap(LinearUCBKey.BIASES.get());
+        variableSpace.requestScalarVar(LinearUCBKey.B.get(), 0, 0.0, false);
+        variableSpace.requestVectorVar(LinearUCBKey.A.get(), 0, 0, 0.0, true, false);
+        return new LinearUCB(1.0, 0.1, features, features.size(), "label", null,
+                new ArrayList<>(), indexSpace, variableSpace);
+    }
+
+    private void assertInverseA(LinearUCB model, VariableSpace variableSpace) {
+        RealMatrix A = variableSpace.getMatrixVarByName(LinearUCBKey.A.get());
+        RealMatrix expected = new LUDecomposition(A).getSolver().getInverse();
+        RealMatrix actual = model.getInverseA();
+        for (int i=0; i<features.size(); i++) {
+            for (int j=0; j<features.size(); j++) {
+                assertEquals(expected.getEntry(i, j), actual.getEntry(i, j), 1e-10);
+            }
+        }
+    }
+
+    @Test
+    public void testCachedInverseAfterTrainAndEvaluate() {
+        VariableSpace variableSpace = new SynchronizedVariableSpace();
+        LinearUCB model = getModel(variableSpace);
+        Random random = new Random(7L);
+        List<StandardLearningInstance> train = getInstances(random, 50);
+        List<StandardLearningInstance> valid = getInstances(random, 50);
+        double before = model.predict((LearningInstance) valid.get(0))[0];
+        assertInverseA(model, variableSpace);
+
+        StochasticGradientDescent sgd = new StochasticGradientDescent(1, 1, 0.01, 0.1, 0.0);
+        sgd.update(model, new StandardListLearningData(train));
+        assertInverseA(model, variableSpace);
+        SolverUtilities.evaluate(model, new StandardListLearningData(valid));
+        assertInverseA(model, variableSpace);
+        assertNotEquals(before, model.predict((LearningInstance) valid.get(0))[0], 1e-10);
+    }
+
+    @Test
+    public void testIncrementalInverseAfterFusedUpdates() {
+        VariableSpace variableSpace = new SynchronizedVariableSpace();
+        LinearUCB model = getModel(variableSpace);
+        Random random = new Random(11L);
+        List<StandardLearningInstance> train = getInstances(random, 900);
+        List<StandardLearningInstance> valid = getInstances(random, 10);
+        model.predict((LearningInstance) valid.get(0));
+
+        StochasticGradientDescent sgd = new StochasticGradientDescent(1, 1, 0.01, 0.1, 0.0, true);
+        sgd.update(model, new StandardListLearningData(train));
+        assertEquals(train.size(), model.getNumIncrementalUpdates());
+        assertInverseA(model, variableSpace);
+        double[][] preds = model.predict(new ArrayList<>(valid));
+
+        model.setScalarVarByNameIndex(LinearUCBKey.B.get(), 0,
+                variableSpace.getScalarVarByNameIndex(LinearUCBKey.B.get(), 0));
+        assertEquals(0, model.getNumIncrementalUpdates());
+        double[][] rebuilt = model.predict(new ArrayList<>(valid));
+        for (int i=0; i<valid.size(); i++) {
+            assertEquals(rebuilt[i][0], preds[i][0], 1e-10);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.grouplens.samantha.modeler.svdfeature;
+
+import com.google.common.collect.Lists;
+import org.apache.commons.math3.linear.RealVector;
+import org.grouplens.samantha.modeler.common.LearningData;
+import org.grouplens.samantha.modeler.common.LearningInstance;
+import org.grouplens.samantha.modeler.featurizer.Feature;
+import org.grouplens.samantha.modeler.model.SynchronizedIndexSpace;
+import org.grouplens.samantha.modeler.model.SynchronizedVariableSpace;
+import org.grouplens.samantha.modeler.model.VariableSpace;
+import org.grouplens.samantha.modeler.ranking.PairwiseLoss;
+import org.grouplens.samantha.modeler.solver.L2Regularizer;
+import org.grouplens.samantha.modeler.solver.ObjectiveFunction;
+import org.grouplens.samantha.modeler.solver.SolverUtilities;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SVDFeatureTest {
+    private final int numUsers = 5;
+    private final int numItems = 20;
+    private final int factDim = 4;
+
+    static private class GroupedLearningData implements LearningData {
+        private final List<List<LearningInstance>> groups;
+        private int idx = 0;
+
+        private GroupedLearningData(List<List<LearningInstance>> groups) {
+            this.groups = groups;
+        }
+
+        public List<LearningInstance> getLearningInstance() {
+            if (idx < groups.size()) {
+                return groups.get(idx++);
+            }
+            return new ArrayList<>();
+        }
+
+        public void startNewIteration() {
+            idx = 0;
+        }
+    }
+
+    private SVDFeature getModel(ObjectiveFunction objFunc) {
+        VariableSpace variableSpace = new SynchronizedVariableSpace();
+        int size = numUsers + numItems;
+        variableSpace.requestScalarVar(SVDFeatureKey.BIASES.get(), 0, 0.0, false);
+        variableSpace.ensureScalarVar(SVDFeatureKey.BIASES.get(), size, 0.0, false);
+        variableSpace.requestVectorVar(SVDFeatureKey.FACTORS.get(), 0, factDim, 0.0, false, false);
+        variableSpace.ensureVectorVar(SVDFeatureKey.FACTORS.get(), size, factDim, 0.0, false, false);
+        Random random = new Random(3L);
+        for (int i=0; i<size; i++) {
+            double[] factor = new double[factDim];
+            for (int f=0; f<factDim; f++) {
+                factor[f] = random.nextGaussian() * 0.1;
+            }
+            variableSpace.updateVectorVarByNameIndex(SVDFeatureKey.FACTORS.get(), i, 1.0, 1.0, factor);
+        }
+        return new SVDFeature(new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), "label", "weight", null,
+                new ArrayList<>(), factDim, objFunc, new SynchronizedIndexSpace(), variableSpace);
+    }
+
+    private LearningData getGroups() {
+        Random random = new Random(5L);
+        List<List<LearningInstance>> groups = new ArrayList<>();
+        for (int u=0; u<numUsers; u++) {
+            List<LearningInstance> group = new ArrayList<>();
+            for (int i=0; i<6; i++) {
+                int item = numUsers + random.nextInt(numItems);
+                group.add(new SVDFeatureInstance(Lists.newArrayList(new Feature(item, 1.0)),
+                        Lists.newArrayList(new Feature(u, 1.0)), Lists.newArrayList(new Feature(item, 1.0)),
+                        random.nextInt(2), 1.0, Integer.toString(u)));
+            }
+            groups.add(group);
+        }
+        return new GroupedLearningData(groups);
+    }
+
+    @Test
+    public void testFusedUpdateWithRankingLoss() {
+        ObjectiveFunction objFunc = new PairwiseLoss(0, 1.0, 0.5);
+        SVDFeature generic = getModel(objFunc);
+        SVDFeature fused = getModel(objFunc);
+        double l2coef = 0.01;
+        double lr = 0.1;
+        for (int iter=0; iter<3; iter++) {
+            LearningData data = getGroups();
+            double genericObj = SolverUtilities.stochasticGradientDescentUpdate(generic, objFunc, data,
+                    new L2Regularizer(), l2coef, lr);
+            data.startNewIteration();
+            double fusedObj = SolverUtilities.fusedStochasticGradientDescentUpdate(fused, objFunc, data,
+                    l2coef, lr, false);
+            assertEquals(genericObj, fusedObj, 1e-10);
+        }
+        RealVector genericBiases = generic.getScalarVarByName(SVDFeatureKey.BIASES.get());
+        RealVector fusedBiases = fused.getScalarVarByName(SVDFeatureKey.BIASES.get());
+        assertTrue(fusedBiases.getNorm() > 0.0);
+        for (int i=0; i<genericBiases.getDimension(); i++) {
+            assertEquals(genericBiases.getEntry(i), fusedBiases.getEntry(i), 1e-10);
+        }
+        List<RealVector> genericFactors = generic.getVectorVarByName(SVDFeatureKey.FACTORS.get());
+        List<RealVector> fusedFactors = fused.getVectorVarByName(SVDFeatureKey.FACTORS.get());
+        for (int i=0; i<genericFactors.size(); i++) {
+            for (int f=0; f<factDim; f++) {
+                assertEquals(genericFactors.get(i).getEntry(f), fusedFactors.get(i).getEntry(f), 1e-10);
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.grouplens.samantha.modeler.tree;
+
+import com.google.common.collect.Lists;
+import it.unimi.dsi.fastutil.ints.Int2DoubleMap;
+import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
+import org.apache.commons.math3.linear.RealVector;
+import org.grouplens.samantha.modeler.common.LearningInstance;
+import org.grouplens.samantha.modeler.instance.StandardLearningInstance;
+import org.grouplens.samantha.modeler.instance.StandardListLearningData;
+import org.grouplens.samantha.modeler.model.SynchronizedIndexSpace;
+import org.grouplens.samantha.modeler.model.SynchronizedVariableSpace;
+import org.grouplens.samantha.modeler.model.VariableSpace;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class HistogramGreedyTest {
+    private final String treeName = "tree";
+
+    private RegressionTree getTree(VariableSpace variableSpace) {
+        SynchronizedIndexSpace indexSpace = new SynchronizedIndexSpace();
+        indexSpace.requestKeyMap(TreeKey.TREE.get());
+        variableSpace.requestVectorVar(treeName, 0, RegressionTree.nodeSize, 0.0, false, false);
+        return new RegressionTree(treeName, new MeanSquaredError(), indexSpace, variableSpace,
+                new ArrayList<>(), new ArrayList<>(), "label", null);
+    }
+
+    private StandardLearningInstance getInstance(double[] values, double label) {
+        Int2DoubleMap features = new Int2DoubleOpenHashMap();
+        for (int f=0; f<values.length; f++) {
+            if (values[f] != 0.0) {
+                features.put(f, values[f]);
+            }
+        }
+        return new StandardLearningInstance(features, label, 1.0, null);
+    }
+
+    @Test
+    public void testSameSplitsAsExactGreedyWithFewValues() {
+        Random random = new Random(17L);
+        double[] levels0 = {0.0, 1.0, 2.0, 3.0};
+        double[] levels1 = {-1.0, 0.0, 1.0};
+        double[] levels2 = {-2.0, -0.5, 0.0, 0.5, 2.0};
+        List<StandardLearningInstance> instances = new ArrayList<>();
+        for (int i=0; i<2000; i++) {
+            double[] values = {levels0[random.nextInt(levels0.length)], levels1[random.nextInt(levels1.length)],
+                    levels2[random.nextInt(levels2.length)]};
+            double label = 4.0 * (values[0] >= 2.0 ? 1.0 : 0.0) + 2.0 * values[1] + 0.7 * values[2] * values[2]
+                    + 0.1 * random.nextGaussian();
+            instances.add(getInstance(values, label));
+        }
+        VariableSpace exactSpace = new SynchronizedVariableSpace();
+        RegressionTree exact = getTree(exactSpace);
+        new ExactGreedy(20, 4).learn(exact, new StandardListLearningData(instances));
+        VariableSpace histogramSpace = new SynchronizedVariableSpace();
+        RegressionTree histogram = getTree(histogramSpace);
+        new HistogramGreedy(20, 4, 64).learn(histogram, new StandardListLearningData(instances));
+
+        List<RealVector> exactNodes = exactSpace.getVectorVarByName(treeName);
+        List<RealVector> histogramNodes = histogramSpace.getVectorVarByName(treeName);
+        assertEquals(exactNodes.size(), histogramNodes.size());
+        assertTrue(exactNodes.size() > 7);
+        for (int n=0; n<exactNodes.size(); n++) {
+            RealVector exactNode = exactNodes.get(n);
+            RealVector histogramNode = histogramNodes.get(n);
+            assertEquals(exactNode.getEntry(0), histogramNode.getEntry(0), 0.0);
+            for (int e=2; e<RegressionTree.nodeSize; e++) {
+                assertEquals(exactNode.getEntry(e), histogramNode.getEntry(e), 1e-10);
+            }
+        }
+        List<LearningInstance> learningInstances = new ArrayList<>(instances);
+        double[][] exactPreds = exact.predict(learningInstances);
+        double[][] histogramPreds = histogram.predict(learningInstances);
+        for (int i=0; i<exactPreds.length; i++) {
+            assertEquals(exactPreds[i][0], histogramPreds[i][0], 1e-10);
+        }
+    }
+
+    private RegressionTree learnStump(VariableSpace variableSpace, double[] values, double[] labels) {
+        List<StandardLearningInstance> instances = new ArrayList<>();
+        for (int i=0; i<values.length; i++) {
+            for (int j=0; j<10; j++) {
+                instances.add(getInstance(new double[] {values[i]}, labels[i]));
+            }
+        }
+        RegressionTree tree = getTree(variableSpace);
+        new HistogramGreedy(5, 1, 64).learn(tree, new StandardListLearningData(instances));
+        return tree;
+    }
+
+    private double predict(RegressionTree tree, double value) {
+        return tree.predict(getInstance(new double[] {value}, 0.0))[0];
+    }
+
+    @Test
+    public void testZeroBinGoesLeftWhenSplitAtZero() {
+        VariableSpace variableSpace = new SynchronizedVariableSpace();
+        RegressionTree tree = learnStump(variableSpace, new double[] {-2.0, -1.0, 0.0, 1.0, 2.0},
+                new double[] {1.0, 1.0, 1.0, 5.0, 5.0});
+        RealVector root = variableSpace.getVectorVarByNameIndex(treeName, 0);
+        assertEquals(0.0, root.getEntry(1), 0.0);
+        assertEquals(1.0, predict(tree, -2.0), 1e-10);
+        assertEquals(1.0, predict(tree, 0.0), 1e-10);
+        assertEquals(5.0, predict(tree, 1.0), 1e-10);
+    }
+
+    @Test
+    public void testZeroBinGoesRightWhenSplitBelowZero() {
+        VariableSpace variableSpace = new SynchronizedVariableSpace();
+        RegressionTree tree = learnStump(variableSpace, new double[] {-2.0, -1.0, 0.0, 1.0, 2.0},
+                new double[] {1.0, 1.0, 5.0, 5.0, 5.0});
+        RealVector root = variableSpace.getVectorVarByNameIndex(treeName, 0);
+        assertEquals(-1.0, root.getEntry(1), 0.0);
+        assertEquals(1.0, predict(tree, -1.0), 1e-10);
+        assertEquals(5.0, predict(tree, 0.0), 1e-10);
+        assertEquals(5.0, predict(tree, 2.0), 1e-10);
+    }
+
+    @Test
+    public void testMeanSquaredErrorOfMergedBins() {
+        List<double[]> resps = Lists.newArrayList(new double[] {1.0, 1.0}, new double[] {3.0, 2.0},
+                new double[] {-2.0, 0.5}, new double[] {4.0, 1.0});
+        MeanSquaredError all = new MeanSquaredError();
+        for (int i=0; i<resps.size(); i++) {
+            all.add(i, resps);
+        }
+        MeanSquaredError first = new MeanSquaredError();
+        first.add(0, resps);
+        first.add(1, resps);
+        MeanSquaredError rest = new MeanSquaredError();
+        rest.add(all);
+        rest.remove(first);
+        MeanSquaredError expected = new MeanSquaredError();
+        expected.add(2, resps);
+        expected.add(3, resps);
+        assertEquals(expected.getValue(resps), rest.getValue(resps), 1e-10);
+        double mean = (-2.0 + 4.0) / 2;
+        double sse = 0.5 * (mean + 2.0) * (mean + 2.0) + 1.0 * (mean - 4.0) * (mean - 4.0);
+        assertEquals(sse / 1.5, rest.getValue(resps), 1e-10);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.grouplens.samantha.modeler.tree;
+
+import com.google.common.collect.Lists;
+import it.unimi.dsi.fastutil.ints.Int2DoubleOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import org.grouplens.samantha.modeler.common.LearningInstance;
+import org.grouplens.samantha.modeler.featurizer.Feature;
+import org.grouplens.samantha.modeler.instance.StandardLearningInstance;
+import org.grouplens.samantha.modeler.model.SynchronizedIndexSpace;
+import org.grouplens.samantha.modeler.model.SynchronizedVariableSpace;
+import org.grouplens.samantha.modeler.model.VariableSpace;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RegressionTreeTest {
+
+    @Test
+    public void testPredictionsFollowNewNodes() throws InterruptedException {
+        SynchronizedIndexSpace indexSpace = new SynchronizedIndexSpace();
+        indexSpace.requestKeyMap(TreeKey.TREE.get());
+        VariableSpace variableSpace = new SynchronizedVariableSpace();
+        variableSpace.requestVectorVar("tree", 0, RegressionTree.nodeSize, 0.0, false, false);
+        RegressionTree tree = new RegressionTree("tree", new MeanSquaredError(), indexSpace, variableSpace,
+                new ArrayList<>(), new ArrayList<>(), "label", null);
+        Int2DoubleOpenHashMap features = new Int2DoubleOpenHashMap();
+        features.put(0, 1.0);
+        LearningInstance instance = new StandardLearningInstance(features, 0.0, 1.0, null);
+        assertEquals(0.0, tree.predict(instance)[0], 0.0);
+
+        List<double[]> respList = Lists.newArrayList(new double[] {1.0, 1.0}, new double[] {5.0, 1.0});
+        Thread predictor = new Thread(() -> {
+            for (int i=0; i<10000; i++) {
+                tree.predict(instance);
+            }
+        });
+        predictor.start();
+        int root = tree.createNode(-1, true, new IntArrayList(new int[] {0}), respList, new Feature(0, 0.5));
+        assertEquals(1.0, tree.predict(instance)[0], 0.0);
+        tree.createNode(root, false, new IntArrayList(new int[] {1}), respList, new Feature(-1, 0.0));
+        predictor.join();
+        assertEquals(5.0, tree.predict(instance)[0], 0.0);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.grouplens.samantha.server.common;
+
+import org.junit.Test;
+import play.Configuration;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class InstrumentationUtilitiesTest {
+    private final String name = "a\"b\\c\nd";
+    private final String labels = "component=\"test\",engine=\"metricsTest\",name=\"a\\\"b\\\\c\\nd\"";
+
+    private List<String> getSamples(String text, String metric) {
+        List<String> samples = new ArrayList<>();
+        for (String line : text.split("\n")) {
+            if (line.startsWith(metric + "{" + labels)) {
+                samples.add(line);
+            }
+        }
+        return samples;
+    }
+
+    private long getValue(String sample) {
+        return Long.parseLong(sample.substring(sample.lastIndexOf(' ') + 1));
+    }
+
+    @Test
+    public void testHistogramText() {
+        double[] seconds = {0.0002, 0.003, 0.3, 40.0};
+        for (double one : seconds) {
+            InstrumentationUtilities.recordLatency("test", "metricsTest", name,
+                    System.nanoTime() - (long) (one * 1e9));
+        }
+        String text = InstrumentationUtilities.getMetricsText(new ArrayList<>());
+        List<String> buckets = getSamples(text, "samantha_latency_seconds_bucket");
+        assertEquals(16, buckets.size());
+        assertEquals("samantha_latency_seconds_bucket{" + labels + ",le=\"0.0005\"} 1", buckets.get(0));
+        assertTrue(buckets.contains("samantha_latency_seconds_bucket{" + labels + ",le=\"0.005\"} 2"));
+        assertTrue(buckets.contains("samantha_latency_seconds_bucket{" + labels + ",le=\"0.5\"} 3"));
+        assertTrue(buckets.contains("samantha_latency_seconds_bucket{" + labels + ",le=\"30\"} 3"));
+        long previous = 0L;
+        for (String bucket : buckets) {
+            assertFalse(bucket.contains("E-"));
+            long value = getValue(bucket);
+            assertTrue(value >= previous);
+            previous = value;
+        }
+        String inf = buckets.get(buckets.size() - 1);
+        assertTrue(inf.contains("le=\"+Inf\""));
+        assertEquals(4L, getValue(inf));
+        List<String> counts = getSamples(text, "samantha_latency_seconds_count");
+        assertEquals(1, counts.size());
+        assertEquals(getValue(inf), getValue(counts.get(0)));
+        assertEquals(1, getSamples(text, "samantha_latency_seconds_sum").size());
+    }
+
+    @Test
+    public void testCounterAndGaugeText() {
+        InstrumentationUtilities.increment("test", "metricsTest", name, "hit");
+        InstrumentationUtilities.increment("test", "metricsTest", name, "hit");
+        Map<String, String> gaugeLabels = new HashMap<>();
+        gaugeLabels.put("model", "x\"y");
+        List<InstrumentationUtilities.Gauge> gauges = new ArrayList<>();
+        gauges.add(new InstrumentationUtilities.Gauge("samantha_model_bytes", gaugeLabels, 1024));
+        String text = InstrumentationUtilities.getMetricsText(gauges);
+        assertTrue(text.contains("samantha_events_total{" + labels + ",event=\"hit\"} 2\n"));
+        assertTrue(text.contains("# TYPE samantha_model_bytes gauge\nsamantha_model_bytes{model=\"x\\\"y\"} 1024\n"));
+    }
+
+    @Test
+    public void testComponentName() {
+        Map<String, Object> settings = new HashMap<>();
+        settings.put("name", "myRetriever");
+        assertEquals("myRetriever", InstrumentationUtilities.getComponentName(new Configuration(settings), this));
+        assertEquals("InstrumentationUtilitiesTest",
+                InstrumentationUtilities.getComponentName(new Configuration(new HashMap<>()), this));
+        assertEquals("InstrumentationUtilitiesTest", InstrumentationUtilities.getComponentName(null, this));
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.grouplens.samantha.server.indexer;
+
+import com.google.common.collect.Lists;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class AsyncFileWriterTest {
+    private final int tstamp = 1500000000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private List<File> getFiles() throws IOException {
+        try (Stream<Path> paths = Files.walk(folder.getRoot().toPath())) {
+            return paths.filter(Files::isRegularFile).map(Path::toFile).sorted().collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    public void testRotateBySize() throws IOException {
+        long maxFileBytes = 50L;
+        AsyncFileWriter writer = new AsyncFileWriter("json", Lists.newArrayList(folder.getRoot().getPath()),
+                FileWriterService.DEFAULT_DIR_PATTERN, "\t", 2, 100, 1L, maxFileBytes, 0L);
+        String line = "éééééééééé";
+        for (int i=0; i<9; i++) {
+            writer.write(line, null, tstamp, ".json");
+        }
+        writer.stop();
+        List<File> files = getFiles();
+        int rows = 0;
+        for (File file : files) {
+            List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+            assertEquals(3, lines.size());
+            rows += lines.size();
+            assertTrue(file.length() < maxFileBytes + line.getBytes(StandardCharsets.UTF_8).length + 1);
+        }
+        assertEquals(3, files.size());
+        assertEquals(9, rows);
+    }
+
+    @Test
+    public void testRotateByTimeMovesToTheNextFile() throws IOException, InterruptedException {
+        AsyncFileWriter writer = new AsyncFileWriter("json", Lists.newArrayList(folder.getRoot().getPath()),
+                FileWriterService.DEFAULT_DIR_PATTERN, "\t", 2, 100, 1L, 0L, 1L);
+        for (int i=0; i<6; i++) {
+            writer.write("{\"row\":" + i + "}", null, tstamp, ".json");
+            Thread.sleep(20L);
+        }
+        writer.stop();
+        List<File> files = getFiles();
+        assertTrue(files.size() >= 3);
+        int rows = 0;
+        for (File file : files) {
+            int size = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8).size();
+            assertTrue(size <= 2);
+            rows += size;
+        }
+        assertEquals(6, rows);
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.grouplens.samantha.server.indexer;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.Lists;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import play.libs.Json;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ExternalMergeSorterTest {
+    private final List<String> dataFields = Lists.newArrayList("group", "order", "seq");
+    private final List<String> sortFields = Lists.newArrayList("group", "order");
+    private final List<String> sortTypes = Lists.newArrayList("TEXT", "INT");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private List<ObjectNode> getEntities(int size) {
+        Random random = new Random(3L);
+        List<ObjectNode> entities = new ArrayList<>(size);
+        for (int i=0; i<size; i++) {
+            ObjectNode entity = Json.newObject();
+            entity.put("group", "g" + random.nextInt(7));
+            entity.put("order", random.nextInt(5) - 2);
+            entity.put("seq", i);
+            entities.add(entity);
+        }
+        return entities;
+    }
+
+    private void testSort(boolean descending, long maxBufferBytes, int maxFanIn) throws IOException {
+        ExternalMergeSorter sorter = new ExternalMergeSorter(sortFields, sortTypes, descending,
+                maxBufferBytes, maxFanIn);
+        List<ObjectNode> entities = getEntities(500);
+        File inFile = folder.newFile();
+        File outFile = folder.newFile();
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(inFile)));
+        for (ObjectNode entity : entities) {
+            ExternalMergeSorter.writeRow(out, sorter.encode(entity,
+                    IndexerUtilities.composeCSVLine(entity, dataFields, ",")));
+        }
+        out.close();
+        assertTrue(inFile.length() > 10 * maxBufferBytes);
+        sorter.sort(inFile.getPath(), outFile.getPath(), dataFields, ",");
+
+        Comparator<ObjectNode> comparator = Comparator.comparing(entity -> entity.get("group").asText());
+        comparator = comparator.thenComparingInt(entity -> entity.get("order").asInt());
+        entities.sort(descending ? comparator.reversed() : comparator);
+        List<String> lines = Files.readAllLines(outFile.toPath(), StandardCharsets.UTF_8);
+        assertEquals(entities.size() + 1, lines.size());
+        assertEquals("group,order,seq", lines.get(0));
+        for (int i=0; i<entities.size(); i++) {
+            assertEquals(IndexerUtilities.composeCSVLine(entities.get(i), dataFields, ","), lines.get(i + 1));
+        }
+        assertEquals(2, folder.getRoot().listFiles().length);
+    }
+
+    @Test
+    public void testMultiRunMerge() throws IOException {
+        testSort(false, 512, 64);
+    }
+
+    @Test
+    public void testMultiRunMergeDescending() throws IOException {
+        testSort(true, 512, 64);
+    }
+
+    @Test
+    public void testMultiPassMerge() throws IOException {
+        testSort(false, 512, 4);
+    }
+
+    @Test
+    public void testMultiPassMergeDescending() throws IOException {
+        testSort(true, 512, 3);
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.grouplens.samantha.server.indexer;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.Lists;
+import org.grouplens.samantha.modeler.dao.DatePartitionPruner;
+import org.grouplens.samantha.server.config.ConfigKey;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import play.Configuration;
+import play.libs.Json;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class FileWriterServiceTest {
+    private final List<String> dataFields = Lists.newArrayList("user", "tstamp");
+    private final int day = 24 * 3600;
+    private final int begin = 1500000000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private FileWriterService getService(Map<String, Object> settings) {
+        settings.put(ConfigKey.FILE_SERVICE_DATA_DIRS.get(), Lists.newArrayList(folder.getRoot().getPath()));
+        settings.put(ConfigKey.FILE_SERVICE_MAX_WRITER.get(), 2);
+        return new FileWriterService(new Configuration(settings), hook -> {});
+    }
+
+    private List<String> readRows(List<String> files) throws IOException {
+        List<String> rows = new ArrayList<>();
+        for (String file : files) {
+            List<String> lines = Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8);
+            assertEquals("user\ttstamp", lines.get(0));
+            rows.addAll(lines.subList(1, lines.size()));
+        }
+        return rows;
+    }
+
+    @Test
+    public void testWrittenFilesAreListedByTheirPartitions() throws IOException {
+        FileWriterService service = getService(new HashMap<>());
+        for (int i=0; i<4; i++) {
+            ObjectNode entity = Json.newObject();
+            entity.put("user", i);
+            entity.put("tstamp", begin + i * day);
+            service.writeCSV("rating", entity, dataFields, begin + i * day);
+        }
+
+        List<String> files = service.getFiles("rating", begin + day, begin + 2 * day);
+        assertEquals(2, files.size());
+        assertEquals(Lists.newArrayList("1\t" + (begin + day), "2\t" + (begin + 2 * day)), readRows(files));
+
+        List<String> allFiles;
+        try (Stream<Path> paths = Files.walk(folder.getRoot().toPath())) {
+            allFiles = paths.filter(Files::isRegularFile).map(path -> path.toAbsolutePath().toString())
+                    .collect(Collectors.toList());
+        }
+        assertEquals(4, allFiles.size());
+        DatePartitionPruner pruner = new DatePartitionPruner(FileWriterService.DEFAULT_DIR_PATTERN);
+        assertEquals(files, pruner.prune(allFiles, begin + day, begin + 2 * day));
+        for (String file : allFiles) {
+            assertNotNull(pruner.getPartitionBegin(file));
+        }
+    }
+}
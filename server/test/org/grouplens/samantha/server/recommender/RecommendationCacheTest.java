@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.grouplens.samantha.server.recommender;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.Lists;
+import org.grouplens.samantha.server.io.RequestContext;
+import org.grouplens.samantha.server.ranker.RankedResult;
+import org.junit.Test;
+import play.libs.Json;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+public class RecommendationCacheTest {
+
+    private RecommendationCache getCache(int maxEntries, long ttlMs) {
+        return new RecommendationCache("test", Lists.newArrayList("userId"), Lists.newArrayList("offset"),
+                maxEntries, ttlMs);
+    }
+
+    private RequestContext getRequest(String userId, int offset) {
+        ObjectNode reqBody = Json.newObject();
+        reqBody.put("userId", userId);
+        reqBody.put("offset", offset);
+        return new RequestContext(reqBody, "test");
+    }
+
+    private RankedResult getResult(int offset) {
+        return new RankedResult(new ArrayList<>(), offset, 10, 0);
+    }
+
+    @Test
+    public void testModelVersion() {
+        RecommendationCache cache = getCache(10, 60000L);
+        RankedResult result = getResult(0);
+        cache.put("rec", getRequest("1", 0), 1L, cache.getGeneration(), result);
+        assertSame(result, cache.get("rec", getRequest("1", 0), 1L));
+        assertNull(cache.get("other", getRequest("1", 0), 1L));
+        assertNull(cache.get("rec", getRequest("1", 10), 1L));
+        assertNull(cache.get("rec", getRequest("1", 0), 2L));
+        assertNull(cache.get("rec", getRequest("1", 0), 1L));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testRequestWithoutKeysIsNotCached() {
+        RecommendationCache cache = getCache(10, 60000L);
+        RequestContext requestContext = new RequestContext(Json.newObject().put("offset", 0), "test");
+        cache.put("rec", requestContext, 1L, cache.getGeneration(), getResult(0));
+        assertNull(cache.get("rec", requestContext, 1L));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testTtlExpiry() throws InterruptedException {
+        RecommendationCache cache = getCache(10, 50L);
+        cache.put("rec", getRequest("1", 0), 1L, cache.getGeneration(), getResult(0));
+        cache.put("rec", getRequest("2", 0), 1L, cache.getGeneration(), getResult(0));
+        assertNotNull(cache.get("rec", getRequest("1", 0), 1L));
+        Thread.sleep(100L);
+        assertNull(cache.get("rec", getRequest("1", 0), 1L));
+        assertEquals(1, cache.size());
+        cache.put("rec", getRequest("3", 0), 1L, cache.getGeneration(), getResult(0));
+        assertEquals(1, cache.size());
+        assertNotNull(cache.get("rec", getRequest("3", 0), 1L));
+    }
+
+    @Test
+    public void testLruBoundOverAllEntries() {
+        RecommendationCache cache = getCache(3, 60000L);
+        for (int offset=0; offset<3; offset++) {
+            cache.put("rec", getRequest("1", offset), 1L, cache.getGeneration(), getResult(offset));
+        }
+        assertNotNull(cache.get("rec", getRequest("1", 0), 1L));
+        cache.put("rec", getRequest("1", 3), 1L, cache.getGeneration(), getResult(3));
+        cache.put("rec", getRequest("2", 0), 1L, cache.getGeneration(), getResult(0));
+        assertEquals(3, cache.size());
+        assertNotNull(cache.get("rec", getRequest("1", 0), 1L));
+        assertNull(cache.get("rec", getRequest("1", 1), 1L));
+        assertNull(cache.get("rec", getRequest("1", 2), 1L));
+        assertNotNull(cache.get("rec", getRequest("1", 3), 1L));
+        assertNotNull(cache.get("rec", getRequest("2", 0), 1L));
+    }
+
+    @Test
+    public void testInvalidation() {
+        RecommendationCache cache = getCache(10, 60000L);
+        cache.put("rec", getRequest("1", 0), 1L, cache.getGeneration(), getResult(0));
+        cache.put("rec", getRequest("1", 10), 1L, cache.getGeneration(), getResult(10));
+        cache.put("rec", getRequest("2", 0), 1L, cache.getGeneration(), getResult(0));
+        cache.invalidate(Json.toJson(Lists.newArrayList(Json.newObject().put("userId", "1"),
+                Json.newObject().put("itemId", "5"))));
+        assertEquals(1, cache.size());
+        assertNull(cache.get("rec", getRequest("1", 0), 1L));
+        assertNull(cache.get("rec", getRequest("1", 10), 1L));
+        assertNotNull(cache.get("rec", getRequest("2", 0), 1L));
+        cache.invalidate(Json.newObject().put("userId", "2"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testInvalidationDuringRecommending() {
+        RecommendationCache cache = getCache(10, 60000L);
+        long generation = cache.getGeneration();
+        cache.invalidate(Json.newObject().put("userId", "1"));
+        cache.put("rec", getRequest("1", 0), 1L, generation, getResult(0));
+        cache.put("rec", getRequest("2", 0), 1L, generation, getResult(0));
+        assertNull(cache.get("rec", getRequest("1", 0), 1L));
+        assertNotNull(cache.get("rec", getRequest("2", 0), 1L));
+        cache.put("rec", getRequest("1", 0), 1L, cache.getGeneration(), getResult(0));
+        assertNotNull(cache.get("rec", getRequest("1", 0), 1L));
+    }
+
+    @Test
+    public void testEvictedInvalidationsStillDropStaleResults() {
+        RecommendationCache cache = getCache(2, 60000L);
+        long generation = cache.getGeneration();
+        for (int user=1; user<=3; user++) {
+            cache.invalidate(Json.newObject().put("userId", Integer.toString(user)));
+        }
+        cache.put("rec", getRequest("1", 0), 1L, generation, getResult(0));
+        assertNull(cache.get("rec", getRequest("1", 0), 1L));
+        cache.put("rec", getRequest("1", 0), 1L, cache.getGeneration(), getResult(0));
+        assertNotNull(cache.get("rec", getRequest("1", 0), 1L));
+    }
+}
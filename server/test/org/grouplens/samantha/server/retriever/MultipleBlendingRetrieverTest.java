@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.grouplens.samantha.server.retriever;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.Lists;
+import org.grouplens.samantha.server.common.InstrumentationUtilities;
+import org.grouplens.samantha.server.io.RequestContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import play.Configuration;
+import play.libs.Json;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class MultipleBlendingRetrieverTest {
+    private final RequestContext requestContext = new RequestContext(Json.newObject(), "test");
+    private final Configuration config = new Configuration(new HashMap<>());
+    private ExecutorService executor;
+
+    static private class StubRetriever implements Retriever {
+        private final long delayMs;
+        private final List<Integer> items;
+
+        private StubRetriever(long delayMs, Integer... items) {
+            this.delayMs = delayMs;
+            this.items = Lists.newArrayList(items);
+        }
+
+        public RetrievedResult retrieve(RequestContext requestContext) {
+            try {
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return new RetrievedResult(new ArrayList<>(), 0);
+            }
+            List<ObjectNode> entities = new ArrayList<>();
+            for (int item : items) {
+                entities.add(Json.newObject().put("item", item));
+            }
+            return new RetrievedResult(entities, entities.size());
+        }
+
+        public Configuration getConfig() {
+            return null;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    private List<Integer> getItems(RetrievedResult result) {
+        List<Integer> items = new ArrayList<>();
+        for (ObjectNode entity : result.getEntityList()) {
+            items.add(entity.get("item").asInt());
+        }
+        return items;
+    }
+
+    private MultipleBlendingRetriever getRetriever(List<Retriever> retrievers, Integer maxHits,
+                                                   ExecutorService executor, Long... timeoutMs) {
+        return new MultipleBlendingRetriever(retrievers, Lists.newArrayList("item"), maxHits, executor,
+                Lists.newArrayList(timeoutMs), config, requestContext, null);
+    }
+
+    @Test
+    public void testBlendingInPriorityOrder() {
+        List<Retriever> retrievers = Lists.newArrayList(
+                new StubRetriever(100L, 1, 2, 3), new StubRetriever(0L, 3, 4), new StubRetriever(50L, 5, 1));
+        RetrievedResult concurrent = getRetriever(retrievers, null, executor, 0L, 0L, 0L).retrieve(requestContext);
+        assertEquals(Lists.newArrayList(1, 2, 3, 4, 5), getItems(concurrent));
+        RetrievedResult sequential = new MultipleBlendingRetriever(retrievers, Lists.newArrayList("item"), null,
+                config, requestContext, null).retrieve(requestContext);
+        assertEquals(getItems(sequential), getItems(concurrent));
+    }
+
+    @Test
+    public void testMaxHits() {
+        List<Retriever> retrievers = Lists.newArrayList(
+                new StubRetriever(50L, 1, 2), new StubRetriever(0L, 2, 3, 4));
+        RetrievedResult result = getRetriever(retrievers, 3, executor, 0L, 0L).retrieve(requestContext);
+        assertEquals(Lists.newArrayList(1, 2, 3), getItems(result));
+        assertEquals(3, result.getMaxHits());
+    }
+
+    @Test
+    public void testTimeoutLeavesOutSlowRetrievers() {
+        List<Retriever> retrievers = Lists.newArrayList(
+                new StubRetriever(0L, 1, 2), new StubRetriever(5000L, 3), new StubRetriever(20L, 4));
+        long start = System.currentTimeMillis();
+        RetrievedResult result = getRetriever(retrievers, null, executor, 1000L, 100L, 1000L)
+                .retrieve(requestContext);
+        assertTrue(System.currentTimeMillis() - start < 2000L);
+        assertEquals(Lists.newArrayList(1, 2, 4), getItems(result));
+    }
+
+    @Test
+    public void testCallerRunsIsCountedWithoutTimeout() {
+        ThreadPoolExecutor saturated = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), new ThreadPoolExecutor.CallerRunsPolicy());
+        try {
+            List<Retriever> retrievers = Lists.newArrayList(
+                    new StubRetriever(0L, 1), new StubRetriever(300L, 2));
+            long start = System.currentTimeMillis();
+            RetrievedResult result = getRetriever(retrievers, null, saturated, 100L, 100L)
+                    .retrieve(requestContext);
+            assertTrue(System.currentTimeMillis() - start >= 300L);
+            assertEquals(Lists.newArrayList(1, 2), getItems(result));
+            assertTrue(InstrumentationUtilities.getMetricsText(new ArrayList<>()).contains(
+                    "samantha_events_total{component=\"retriever\",engine=\"test\",name=\"StubRetriever\"," +
+                            "event=\"callerRuns\"} 1"));
+        } finally {
+            saturated.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testInterruptIsNotABadRequest() {
+        List<Retriever> retrievers = Lists.newArrayList(new StubRetriever(1000L, 1));
+        Thread.currentThread().interrupt();
+        try {
+            getRetriever(retrievers, null, executor, 0L).retrieve(requestContext);
+            fail();
+        } catch (IllegalStateException e) {
+            assertTrue(e.getCause() instanceof InterruptedException);
+            assertTrue(Thread.interrupted());
+        }
+    }
+}
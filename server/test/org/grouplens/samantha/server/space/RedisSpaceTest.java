@@ -0,0 +1,282 @@
+/*
+ * Copyright (c) [2016-2018] [University of Minnesota]
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package org.grouplens.samantha.server.space;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.grouplens.samantha.modeler.model.SpaceMode;
+import org.grouplens.samantha.server.common.RedisService;
+import org.grouplens.samantha.server.common.Utilities;
+import org.junit.Test;
+import play.libs.Json;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class RedisSpaceTest {
+
+    /**
+     * Keeps the values in memory and implements WATCH/MULTI/EXEC optimistically like Redis, where an aborted exec
+     * returns an empty list as with Lettuce 4.
+     */
+    static private class InMemoryRedisService implements RedisService {
+        private final Map<String, String> values = new HashMap<>();
+        private final Map<String, Long> versions = new HashMap<>();
+        private final ThreadLocal<Map<String, Long>> watched = new ThreadLocal<>();
+        private final ThreadLocal<List<String[]>> queued = new ThreadLocal<>();
+        private volatile boolean failQueuedSet = false;
+
+        synchronized private String setKey(String key, String value) {
+            values.put(key, value);
+            versions.put(key, versions.getOrDefault(key, 0L) + 1);
+            return "OK";
+        }
+
+        synchronized private Long increKey(String key) {
+            long value = Long.parseLong(values.getOrDefault(key, "0")) + 1;
+            setKey(key, Long.toString(value));
+            return value;
+        }
+
+        boolean inTransaction() {
+            return watched.get() != null || queued.get() != null;
+        }
+
+        synchronized public void watch(String prefix, String key) {
+            if (watched.get() == null) {
+                watched.set(new HashMap<>());
+            }
+            String fullKey = Utilities.composeKey(prefix, key);
+            watched.get().put(fullKey, versions.getOrDefault(fullKey, 0L));
+        }
+
+        public void multi() {
+            queued.set(new ArrayList<>());
+        }
+
+        synchronized public List<Object> exec() {
+            List<Object> resps = new ArrayList<>();
+            try {
+                Map<String, Long> watchedVersions = watched.get();
+                if (watchedVersions != null) {
+                    for (Map.Entry<String, Long> entry : watchedVersions.entrySet()) {
+                        if (!versions.getOrDefault(entry.getKey(), 0L).equals(entry.getValue())) {
+                            return resps;
+                        }
+                    }
+                }
+                for (String[] command : queued.get()) {
+                    if (command.length == 1) {
+                        resps.add(increKey(command[0]));
+                    } else {
+                        resps.add(setKey(command[0], command[1]));
+                    }
+                }
+                return resps;
+            } finally {
+                discard();
+            }
+        }
+
+        public void discard() {
+            watched.remove();
+            queued.remove();
+        }
+
+        public String get(String prefix, String key) {
+            String value;
+            synchronized (this) {
+                value = values.get(Utilities.composeKey(prefix, key));
+            }
+            Thread.yield();
+            return value;
+        }
+
+        public Long incre(String prefix, String key) {
+            return increKey(Utilities.composeKey(prefix, key));
+        }
+
+        public Long increWithoutLock(String prefix, String key) {
+            if (queued.get() != null) {
+                queued.get().add(new String[] {Utilities.composeKey(prefix, key)});
+                return null;
+            }
+            return incre(prefix, key);
+        }
+
+        public String set(String prefix, String key, String value) {
+            return setKey(Utilities.composeKey(prefix, key), value);
+        }
+
+        public String setWithoutLock(String prefix, String key, String value) {
+            if (queued.get() != null) {
+                if (failQueuedSet) {
+                    throw new IllegalStateException("Lost the connection.");
+                }
+                queued.get().add(new String[] {Utilities.composeKey(prefix, key), value});
+                return "QUEUED";
+            }
+            return set(prefix, key, value);
+        }
+
+        public void del(String prefix, String key) {
+            throw new UnsupportedOperationException();
+        }
+
+        public void delWithKey(String key) {
+            throw new UnsupportedOperationException();
+        }
+
+        public JsonNode getValue(String prefix, String key) {
+            String value = get(prefix, key);
+            return value == null ? null : Json.parse(value);
+        }
+
+        public void setValue(String prefix, String key, JsonNode value) {
+            set(prefix, key, value.toString());
+        }
+
+        public List<String> keysWithPrefixPattern(String prefix, String key) {
+            throw new UnsupportedOperationException();
+        }
+
+        public List<JsonNode> bulkGet(List<String> keys) {
+            throw new UnsupportedOperationException();
+        }
+
+        public void indexIntoSortedSet(String prefix, String key, String scoreAttr, JsonNode data) {
+            throw new UnsupportedOperationException();
+        }
+
+        public void bulkIndexIntoSortedSet(String prefix, List<String> keyAttrs, String scoreAttr, JsonNode data) {
+            throw new UnsupportedOperationException();
+        }
+
+        public void bulkIndexIntoHashSet(String prefix, List<String> keyAttrs, List<String> hashAttrs,
+                                         JsonNode data) {
+            throw new UnsupportedOperationException();
+        }
+
+        public void bulkDelWithData(String prefix, List<String> keyAttrs, JsonNode data) {
+            throw new UnsupportedOperationException();
+        }
+
+        public List<JsonNode> bulkGetFromHashSet(String prefix, List<String> keyAttrs, JsonNode data) {
+            throw new UnsupportedOperationException();
+        }
+
+        public List<JsonNode> bulkUniqueGetFromHashSet(String prefix, List<String> keyAttrs,
+                                                       List<ObjectNode> data) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    private void runConcurrently(int numThreads, Runnable runnable) throws InterruptedException {
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>(numThreads);
+        for (int t=0; t<numThreads; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    runnable.run();
+                } catch (Throwable e) {
+                    error.set(e);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(error.get());
+    }
+
+    @Test
+    public void testConcurrentSetKeyGivesUniqueIndexes() throws InterruptedException {
+        RedisIndexSpace space = new RedisIndexSpace(new InMemoryRedisService());
+        space.setSpaceState("test", SpaceMode.DEFAULT);
+        space.requestKeyMap("items");
+        int numKeys = 50;
+        Map<String, Set<Integer>> indexes = Collections.synchronizedMap(new HashMap<>());
+        runConcurrently(4, () -> {
+            List<String> keys = new ArrayList<>(numKeys);
+            for (int i=0; i<numKeys; i++) {
+                keys.add("item" + i);
+            }
+            Collections.shuffle(keys);
+            for (String key : keys) {
+                int index = space.setKey("items", key);
+                indexes.computeIfAbsent(key, k -> Collections.synchronizedSet(new HashSet<>())).add(index);
+            }
+        });
+        Set<Integer> allIndexes = new HashSet<>();
+        for (int i=0; i<numKeys; i++) {
+            Set<Integer> keyIndexes = indexes.get("item" + i);
+            assertEquals(1, keyIndexes.size());
+            allIndexes.addAll(keyIndexes);
+        }
+        for (int i=0; i<numKeys; i++) {
+            assertTrue(allIndexes.contains(i));
+        }
+    }
+
+    @Test
+    public void testConcurrentEnsureKeepsTheLargestSize() throws InterruptedException {
+        RedisVariableSpace space = new RedisVariableSpace(new InMemoryRedisService());
+        space.setSpaceState("test", SpaceMode.DEFAULT);
+        space.requestScalarVar("biases", 0, 0.0, false);
+        Random random = new Random(13L);
+        int[] sizes = new int[400];
+        int maxSize = 0;
+        for (int i=0; i<sizes.length; i++) {
+            sizes[i] = random.nextInt(10000);
+            maxSize = Math.max(maxSize, sizes[i]);
+        }
+        runConcurrently(4, () -> {
+            for (int size : sizes) {
+                space.ensureScalarVar("biases", size, 0.0, false);
+            }
+        });
+        assertEquals(maxSize, space.getScalarVarSizeByName("biases"));
+    }
+
+    @Test
+    public void testFailedTransactionIsDiscarded() {
+        InMemoryRedisService redisService = new InMemoryRedisService();
+        RedisIndexSpace space = new RedisIndexSpace(redisService);
+        space.setSpaceState("test", SpaceMode.DEFAULT);
+        space.requestKeyMap("items");
+        redisService.failQueuedSet = true;
+        try {
+            space.setKey("items", "item0");
+            fail();
+        } catch (IllegalStateException e) {
+            assertFalse(redisService.inTransaction());
+        }
+        redisService.failQueuedSet = false;
+        assertEquals(0, space.setKey("items", "item0"));
+        assertEquals(1, space.setKey("items", "item1"));
+    }
+}